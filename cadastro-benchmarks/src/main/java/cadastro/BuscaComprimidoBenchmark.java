@@ -0,0 +1,53 @@
+package cadastro;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Busca de um email no arquivo comprimido em blocos, com o arquivo já
+ * aberto (dicionário e índice em memória)
+ *
+ * Cada busca lê do disco e descomprime um único bloco de cerca de 64 KB; o
+ * tempo quase não muda com o tamanho do arquivo.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx4g"})
+public class BuscaComprimidoBenchmark {
+
+    @Param({"100000", "1000000"})
+    public int tamanho;
+
+    private Path diretorio;
+    private ArquivoComprimido.Leitor leitor;
+    private long proximo;
+
+    @Setup(Level.Trial)
+    public void preparar() throws IOException {
+        diretorio = Files.createTempDirectory("cadastro-blocos");
+        Path arquivo = diretorio.resolve("usuarios.blocos");
+        ArquivoComprimido.gravar(arquivo, DadosBenchmark.usuarios(tamanho));
+        leitor = new ArquivoComprimido.Leitor(arquivo);
+    }
+
+    @TearDown(Level.Trial)
+    public void limpar() throws IOException {
+        leitor.close();
+        Files.deleteIfExists(diretorio.resolve("usuarios.blocos"));
+        Files.deleteIfExists(diretorio);
+    }
+
+    @Benchmark
+    public Usuario buscarPorEmail() throws IOException {
+        // Passo primo: emails espalhados por todos os blocos
+        proximo = (proximo + 7919) % tamanho;
+        return leitor.buscarPorEmail(DadosBenchmark.email(proximo));
+    }
+}
@@ -0,0 +1,93 @@
+package cadastro;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Vazão de cadastro e latência de busca por email com o cadastro já
+ * contendo 'tamanho' usuários
+ *
+ * O cadastro é feito sem diário (nenhum arquivo é aberto), medindo apenas o
+ * custo em memória: validação, criação, índices e estatísticas. As variantes
+ * "Concorrente" rodam com uma thread por núcleo sobre o mesmo cadastro.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx12g"})
+public class CadastroBenchmark {
+
+    @Param({"1000", "100000", "10000000"})
+    public int tamanho;
+
+    private final AtomicLong proximo = new AtomicLong();
+    private String[] emailsExistentes;
+    private String[] cpfsExistentes;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void popular() {
+        DadosBenchmark.popularCadastro(tamanho);
+        proximo.set(tamanho);
+
+        emailsExistentes = new String[4096];
+        cpfsExistentes = new String[4096];
+        for (int i = 0; i < emailsExistentes.length; i++) {
+            long usuario = (i * 2_654_435_761L) % tamanho;
+            emailsExistentes[i] = DadosBenchmark.email(usuario);
+            cpfsExistentes[i] = DadosBenchmark.cpf(usuario);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void limpar() {
+        SistemaCadastro.reiniciar();
+    }
+
+    @Benchmark
+    public Usuario cadastrar() {
+        return cadastrarProximo();
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public Usuario cadastrarConcorrente() {
+        return cadastrarProximo();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public Usuario buscarPorEmail() {
+        String email = emailsExistentes[cursor++ & (emailsExistentes.length - 1)];
+        return SistemaCadastro.buscarPorEmail(email);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public Usuario buscarPorCpf() {
+        String cpf = cpfsExistentes[cursor++ & (cpfsExistentes.length - 1)];
+        return SistemaCadastro.buscarPorCpf(cpf);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public Usuario buscarPorEmailConcorrente() {
+        int i = ThreadLocalRandom.current().nextInt(emailsExistentes.length);
+        return SistemaCadastro.buscarPorEmail(emailsExistentes[i]);
+    }
+
+    private Usuario cadastrarProximo() {
+        long i = proximo.getAndIncrement();
+        return SistemaCadastro.cadastrar(DadosBenchmark.nome(i), DadosBenchmark.email(i),
+                                         DadosBenchmark.idade(i), DadosBenchmark.cpf(i));
+    }
+}
@@ -0,0 +1,62 @@
+package cadastro;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tempo de uma consulta com agregados, conforme o plano escolhido
+ *
+ * - estatisticas: só faixa de idade, respondida pelo histograma;
+ * - indice: faixa de idade estreita (2% do cadastro) e domínio, com
+ *   candidatos pelo índice de idade;
+ * - indiceDesligado: a mesma consulta com os índices desligados
+ *   (cadastro.consultas.seletividade=0), isto é, por varredura paralela;
+ * - varredura: filtros sem índice (domínio e tipo), agrupados por domínio.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx8g"})
+public class ConsultaBenchmark {
+
+    @Param({"100000", "1000000"})
+    public int tamanho;
+
+    private final Consulta porFaixa = Consulta.interpretar("idade=60.. agrupar idade");
+    private final Consulta faixaEstreita = Consulta.interpretar("idade=30..31 e dominio=gmail.com agrupar tipo");
+    private final Consulta semIndice = Consulta.interpretar("dominio=gmail.com ou tipo=idoso agrupar dominio");
+
+    @Setup(Level.Trial)
+    public void popular() {
+        DadosBenchmark.popularCadastro(tamanho);
+    }
+
+    @TearDown(Level.Trial)
+    public void limpar() {
+        SistemaCadastro.reiniciar();
+    }
+
+    @Benchmark
+    public Object estatisticas() {
+        return SistemaCadastro.consultar(porFaixa);
+    }
+
+    @Benchmark
+    public Object indice() {
+        return SistemaCadastro.consultar(faixaEstreita);
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx8g", "-Dcadastro.consultas.seletividade=0"})
+    public Object indiceDesligado() {
+        return SistemaCadastro.consultar(faixaEstreita);
+    }
+
+    @Benchmark
+    public Object varredura() {
+        return SistemaCadastro.consultar(semIndice);
+    }
+}
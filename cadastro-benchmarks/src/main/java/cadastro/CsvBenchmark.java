@@ -0,0 +1,77 @@
+package cadastro;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Conversão para CSV (Usuario.toCSV), formatação textual (toString e
+ * FormatadorUsuario num StringBuilder reaproveitado) e interpretação de
+ * linhas CSV (SistemaCadastro.processarLinhaCSV) sobre 'tamanho' usuários
+ *
+ * As linhas interpretadas já estão cadastradas, então processarLinhaCSV
+ * mede a análise e a validação sem fazer o cadastro crescer.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx12g"})
+public class CsvBenchmark {
+
+    @Param({"1000", "100000", "10000000"})
+    public int tamanho;
+
+    private List<Usuario> usuarios;
+    private String[] linhas;
+    private int cursor;
+    private final StringBuilder compartilhado = new StringBuilder(256);
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        DadosBenchmark.popularCadastro(tamanho);
+        usuarios = SistemaCadastro.getUsuarios();
+
+        linhas = new String[Math.min(tamanho, 65_536)];
+        for (int i = 0; i < linhas.length; i++) {
+            linhas[i] = usuarios.get(i).toCSV();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void limpar() {
+        SistemaCadastro.reiniciar();
+    }
+
+    @Benchmark
+    public String toCSV() {
+        return usuarios.get(cursor++ % tamanho).toCSV();
+    }
+
+    @Benchmark
+    public String toStringUsuario() {
+        return usuarios.get(cursor++ % tamanho).toString();
+    }
+
+    @Benchmark
+    public int formatarTextoCompartilhado() {
+        compartilhado.setLength(0);
+        return FormatadorUsuario.anexarTexto(compartilhado, usuarios.get(cursor++ % tamanho)).length();
+    }
+
+    @Benchmark
+    public boolean processarLinhaCSV() {
+        return SistemaCadastro.processarLinhaCSV(linhas[cursor++ % linhas.length]);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(1024)
+    public void toCSVEmLote(Blackhole blackhole) {
+        for (int i = 0; i < 1024; i++) {
+            blackhole.consume(usuarios.get(cursor++ % tamanho).toCSV());
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package cadastro;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Dados determinísticos para os benchmarks
+ *
+ * O usuário de número i sempre tem o mesmo nome, email, idade e CPF (com
+ * dígitos verificadores válidos), de modo que execuções diferentes medem
+ * exatamente o mesmo trabalho.
+ */
+final class DadosBenchmark {
+
+    private static final String[] NOMES = {"Ana", "Bruno", "Carla", "Diego", "Elisa", "Fábio", "Gabriela", "Hugo"};
+    private static final String[] SOBRENOMES = {"Silva", "Santos", "Oliveira", "Souza", "Lima", "Pereira"};
+    private static final String[] DOMINIOS = {"gmail.com", "hotmail.com", "yahoo.com", "empresa.com.br"};
+
+    private DadosBenchmark() {
+    }
+
+    static String nome(long i) {
+        return NOMES[(int) (i % NOMES.length)] + " " + SOBRENOMES[(int) (i / NOMES.length % SOBRENOMES.length)];
+    }
+
+    static String email(long i) {
+        return "usuario" + i + "@" + DOMINIOS[(int) (i % DOMINIOS.length)];
+    }
+
+    static int idade(long i) {
+        return (int) (1 + (i * 31) % 100);
+    }
+
+    /**
+     * CPF formatado e válido derivado de i (até 999.999.999 usuários distintos)
+     */
+    static String cpf(long i) {
+        long base = (i * 7919 + 100_000_000L) % 1_000_000_000L;
+        int[] d = new int[11];
+        for (int k = 8; k >= 0; k--) {
+            d[k] = (int) (base % 10);
+            base /= 10;
+        }
+        d[9] = digitoVerificador(d, 9);
+        d[10] = digitoVerificador(d, 10);
+
+        StringBuilder cpf = new StringBuilder(14);
+        for (int k = 0; k < 11; k++) {
+            if (k == 3 || k == 6) cpf.append('.');
+            if (k == 9) cpf.append('-');
+            cpf.append((char) ('0' + d[k]));
+        }
+        return cpf.toString();
+    }
+
+    static Usuario usuario(long i) {
+        return Usuario.criar(nome(i), email(i), idade(i), cpf(i));
+    }
+
+    static List<Usuario> usuarios(int quantidade) {
+        List<Usuario> lista = new ArrayList<>(quantidade);
+        for (int i = 0; i < quantidade; i++) {
+            lista.add(usuario(i));
+        }
+        return lista;
+    }
+
+    /**
+     * Reinicia o cadastro em memória com 'quantidade' usuários
+     */
+    static void popularCadastro(int quantidade) {
+        SistemaCadastro.reiniciar();
+        for (int i = 0; i < quantidade; i++) {
+            SistemaCadastro.cadastrar(nome(i), email(i), idade(i), cpf(i));
+        }
+    }
+
+    private static int digitoVerificador(int[] d, int posicao) {
+        int soma = 0;
+        for (int k = 0; k < posicao; k++) {
+            soma += d[k] * (posicao + 1 - k);
+        }
+        int resto = (soma * 10) % 11;
+        return resto == 10 ? 0 : resto;
+    }
+}
@@ -0,0 +1,121 @@
+package cadastro;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Custo da deduplicação numa carga de usuários novos: a diferença entre
+ * deduplicado e direto deve ser uma pequena fração do tempo da carga
+ *
+ * direto insere no repositório e nos índices, como fazia a carga antes da
+ * etapa; deduplicado passa os mesmos usuários pela DeduplicacaoCarga
+ * (filtro de Bloom dimensionado como para um CSV do mesmo tamanho); filtro
+ * mede só o hash do email e a consulta ao filtro, o custo pago por todo
+ * usuário novo.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx4g"})
+public class DeduplicacaoBenchmark {
+
+    @Param({"100000"})
+    public int tamanho;
+
+    private List<Usuario> usuarios;
+    private RepositorioConcorrente repositorio;
+    private IndicesUsuarios indices;
+
+    private final DeduplicacaoCarga.Cadastro cadastro = new DeduplicacaoCarga.Cadastro() {
+        @Override
+        public boolean adicionar(Usuario usuario) {
+            return inserir(usuario);
+        }
+
+        @Override
+        public Usuario buscarPorEmail(String email) {
+            return repositorio.buscarPorEmail(email);
+        }
+
+        @Override
+        public Usuario buscarPorCpf(String cpf) {
+            return indices.buscarPorCpf(cpf);
+        }
+
+        @Override
+        public void remover(Usuario usuario) {
+            repositorio.remover(usuario);
+            indices.remover(usuario);
+        }
+
+        @Override
+        public boolean substituir(Usuario usuario) {
+            return inserir(usuario);
+        }
+    };
+
+    @Setup(Level.Trial)
+    public void gerar() {
+        usuarios = DadosBenchmark.usuarios(tamanho);
+    }
+
+    @Setup(Level.Invocation)
+    public void esvaziar() {
+        repositorio = new RepositorioConcorrente();
+        indices = new IndicesUsuarios(id -> repositorio.buscarPorId(id));
+    }
+
+    @Benchmark
+    public long direto() {
+        long adicionados = 0;
+        for (Usuario usuario : usuarios) {
+            if (inserir(usuario)) {
+                adicionados++;
+            }
+        }
+        return adicionados;
+    }
+
+    @Benchmark
+    public long deduplicado() {
+        DeduplicacaoCarga deduplicacao = new DeduplicacaoCarga(cadastro, DeduplicacaoCarga.Politica.MANTER_PRIMEIRO,
+                                                               (long) tamanho * 50,
+                                                               DeduplicacaoCarga.BYTES_POR_LINHA_CSV);
+        long adicionados = 0;
+        for (Usuario usuario : usuarios) {
+            if (deduplicacao.test(usuario)) {
+                adicionados++;
+            }
+        }
+        return adicionados;
+    }
+
+    @Benchmark
+    public long filtro() {
+        FiltroBloom vistos = new FiltroBloom((long) tamanho * 50 / DeduplicacaoCarga.BYTES_POR_LINHA_CSV, 0.01);
+        long talvez = 0;
+        for (Usuario usuario : usuarios) {
+            if (vistos.adicionar(IndicePrimitivo.hash(usuario.getEmail()))) {
+                talvez++;
+            }
+        }
+        return talvez;
+    }
+
+    private boolean inserir(Usuario usuario) {
+        if (repositorio.inserir(usuario) < 0) {
+            return false;
+        }
+        try {
+            indices.inserir(usuario);
+            return true;
+        } catch (IllegalArgumentException e) {
+            repositorio.remover(usuario);
+            return false;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package cadastro;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Latência de registrar no diário com a política "registro" (fsync por lote)
+ *
+ * registrar só entrega o registro ao buffer: a latência deve ficar estável
+ * enquanto a thread de gravação grava e sincroniza em segundo plano (com
+ * contrapressão se o disco não acompanhar). esperando também espera o
+ * futuro, como SistemaCadastro.cadastrar: com uma thread é um fsync por
+ * registro; com várias, registros simultâneos dividem o mesmo fsync.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DiarioBenchmark {
+
+    private static final int USUARIOS = 1 << 16;
+
+    private final AtomicLong proximo = new AtomicLong();
+    private List<Usuario> usuarios;
+    private Path diretorio;
+    private Diario diario;
+
+    @Setup(Level.Trial)
+    public void abrir() throws IOException {
+        usuarios = DadosBenchmark.usuarios(USUARIOS);
+        diretorio = Files.createTempDirectory("cadastro-diario");
+        diario = Diario.abrir(diretorio.resolve("usuarios.journal"));
+    }
+
+    @TearDown(Level.Trial)
+    public void fechar() throws IOException {
+        diario.close();
+        Files.deleteIfExists(diretorio.resolve("usuarios.journal"));
+        Files.deleteIfExists(diretorio);
+    }
+
+    @Benchmark
+    public Object registrar() throws IOException {
+        return diario.registrarInsercao(proximoUsuario());
+    }
+
+    @Benchmark
+    public void esperando() throws IOException {
+        Diario.aguardar(diario.registrarInsercao(proximoUsuario()));
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void esperandoConcorrente() throws IOException {
+        Diario.aguardar(diario.registrarInsercao(proximoUsuario()));
+    }
+
+    private Usuario proximoUsuario() {
+        return usuarios.get((int) (proximo.getAndIncrement() & (USUARIOS - 1)));
+    }
+}
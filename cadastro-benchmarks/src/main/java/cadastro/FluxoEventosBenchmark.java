@@ -0,0 +1,74 @@
+package cadastro;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Custo de publicar um evento no FluxoEventos, sem assinantes e com um
+ * assinante lendo numa thread própria com a estratégia de espera 'espera'
+ *
+ * Com -prof gc, gc.alloc.rate.norm mostra que publicar não aloca.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FluxoEventosBenchmark {
+
+    private static final int USUARIOS = 1 << 12;
+
+    @Param({"nenhum", "OCUPADA", "CEDENDO", "DORMINDO", "BLOQUEANTE"})
+    public String espera;
+
+    private FluxoEventos fluxo;
+    private List<Usuario> usuarios;
+    private Thread leitor;
+    private volatile boolean lendo;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void iniciar() {
+        fluxo = new FluxoEventos(1 << 16);
+        usuarios = DadosBenchmark.usuarios(USUARIOS);
+        if (espera.equals("nenhum")) {
+            return;
+        }
+        lendo = true;
+        FluxoEventos.Espera estrategia = FluxoEventos.Espera.valueOf(espera);
+        leitor = new Thread(() -> {
+            long[] lidos = {0};
+            FluxoEventos.Assinante assinante = fluxo.assinar(fluxo.getProxima(), estrategia);
+            while (lendo) {
+                try {
+                    assinante.aguardar(evento -> lidos[0]++, 1024, 10, TimeUnit.MILLISECONDS);
+                } catch (FluxoEventos.EventosPerdidos e) {
+                    // Leitor mais lento que o produtor: recomeça pelo que restou
+                    assinante.close();
+                    assinante = fluxo.assinar(fluxo.getProxima(), estrategia);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+            assinante.close();
+        }, "leitor-eventos");
+        leitor.setDaemon(true);
+        leitor.start();
+    }
+
+    @TearDown(Level.Trial)
+    public void parar() throws InterruptedException {
+        lendo = false;
+        if (leitor != null) {
+            leitor.join();
+        }
+    }
+
+    @Benchmark
+    public void publicar() {
+        fluxo.publicarInsercao(usuarios.get(cursor++ & (USUARIOS - 1)));
+    }
+}
@@ -0,0 +1,43 @@
+package cadastro;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Custo de registrar um evento nas métricas (meta: menos de 50 ns)
+ *
+ * registrarDuracao mede só o registro; registrar inclui a leitura do relógio
+ * no fim da operação, e relogio mostra quanto dela é do System.nanoTime().
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MetricasBenchmark {
+
+    private final MetricaOperacao metrica = new MetricaOperacao("benchmark");
+
+    @Benchmark
+    public long relogio() {
+        return System.nanoTime();
+    }
+
+    @Benchmark
+    public void registrar() {
+        metrica.registrar(System.nanoTime(), true);
+    }
+
+    @Benchmark
+    public void registrarDuracao() {
+        metrica.registrarDuracao(1234, true);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void registrarDuracaoConcorrente() {
+        metrica.registrarDuracao(1234, true);
+    }
+}
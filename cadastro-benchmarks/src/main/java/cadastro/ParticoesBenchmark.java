@@ -0,0 +1,66 @@
+package cadastro;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Gravação e leitura do instantâneo particionado (ArquivoParticionado) com
+ * 1 a 8 partições: com núcleos e disco livres, o tempo deve cair quase na
+ * proporção do número de partições até o número de núcleos
+ *
+ * particoes=1 equivale a um único usuarios.bin.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx12g"})
+public class ParticoesBenchmark {
+
+    @Param({"1000000"})
+    public int tamanho;
+
+    @Param({"1", "2", "4", "8"})
+    public int particoes;
+
+    private List<List<Usuario>> divisao;
+    private Path diretorio;
+    private Path manifesto;
+
+    @Setup(Level.Trial)
+    public void preparar() throws IOException {
+        divisao = ArquivoParticionado.dividir(DadosBenchmark.usuarios(tamanho), particoes);
+        diretorio = Files.createTempDirectory("cadastro-bench");
+        manifesto = diretorio.resolve("usuarios.particoes");
+        salvar();
+    }
+
+    @TearDown(Level.Trial)
+    public void limpar() throws IOException {
+        try (Stream<Path> arquivos = Files.walk(diretorio)) {
+            arquivos.sorted(Comparator.reverseOrder()).forEach(arquivo -> arquivo.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public void salvar() throws IOException {
+        ArquivoParticionado.gravar(manifesto, particoes, divisao::get);
+    }
+
+    @Benchmark
+    public long carregar() throws IOException {
+        // O consumidor é chamado por várias threads
+        LongAdder idades = new LongAdder();
+        ArquivoParticionado.ler(manifesto, usuario -> idades.add(usuario.getIdade()));
+        return idades.sum();
+    }
+}
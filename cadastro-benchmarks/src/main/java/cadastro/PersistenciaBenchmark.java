@@ -0,0 +1,117 @@
+package cadastro;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Gravação e leitura completas de 'tamanho' usuários nos formatos texto
+ * (usuarios.txt), binário colunar (usuarios.bin), NDJSON e comprimido em
+ * blocos (usuarios.blocos)
+ *
+ * Cada invocação grava ou lê o arquivo inteiro; os arquivos ficam num
+ * diretório temporário removido ao final. O tamanho de cada arquivo é
+ * impresso na preparação.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx12g"})
+public class PersistenciaBenchmark {
+
+    @Param({"1000", "100000", "10000000"})
+    public int tamanho;
+
+    private List<Usuario> usuarios;
+    private Path diretorio;
+    private Path texto;
+    private Path binario;
+    private Path ndjson;
+    private Path comprimido;
+
+    @Setup(Level.Trial)
+    public void preparar() throws IOException {
+        usuarios = DadosBenchmark.usuarios(tamanho);
+        diretorio = Files.createTempDirectory("cadastro-bench");
+        texto = diretorio.resolve("usuarios.txt");
+        binario = diretorio.resolve("usuarios.bin");
+        ndjson = diretorio.resolve("usuarios.ndjson");
+        comprimido = diretorio.resolve("usuarios.blocos");
+        // A exportação NDJSON percorre páginas pelo identificador interno
+        for (int i = 0; i < usuarios.size(); i++) {
+            usuarios.get(i).setIdInterno(i);
+        }
+        SistemaCadastro.salvarTexto(texto, usuarios);
+        ArquivoColunar.gravar(binario, usuarios);
+        salvarNdjson();
+        ArquivoComprimido.gravar(comprimido, usuarios);
+        for (Path arquivo : new Path[] {texto, binario, ndjson, comprimido}) {
+            System.out.printf("%n%-16s %,14d bytes (%.1f por usuário)", arquivo.getFileName(),
+                              Files.size(arquivo), (double) Files.size(arquivo) / tamanho);
+        }
+        System.out.println();
+    }
+
+    @TearDown(Level.Trial)
+    public void limpar() throws IOException {
+        try (Stream<Path> arquivos = Files.walk(diretorio)) {
+            arquivos.sorted(Comparator.reverseOrder()).forEach(arquivo -> arquivo.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public void salvarTexto() throws IOException {
+        SistemaCadastro.salvarTexto(texto, usuarios);
+    }
+
+    @Benchmark
+    public void salvarBinario() throws IOException {
+        ArquivoColunar.gravar(binario, usuarios);
+    }
+
+    @Benchmark
+    public long salvarNdjson() throws IOException {
+        return ArquivoNdjson.exportar(ndjson, (desde, limite) ->
+                usuarios.subList(desde, Math.min(usuarios.size(), desde + limite)));
+    }
+
+    @Benchmark
+    public void salvarComprimido() throws IOException {
+        ArquivoComprimido.gravar(comprimido, usuarios);
+    }
+
+    @Benchmark
+    public long carregarTexto(Blackhole blackhole) throws IOException {
+        return CarregadorCSV.carregar(texto, usuario -> {
+            blackhole.consume(usuario);
+            return true;
+        }).adicionados;
+    }
+
+    @Benchmark
+    public int carregarBinario(Blackhole blackhole) throws IOException {
+        return ArquivoColunar.ler(binario, blackhole::consume);
+    }
+
+    @Benchmark
+    public long carregarNdjson(Blackhole blackhole) throws IOException {
+        return ArquivoNdjson.importar(ndjson, usuario -> {
+            blackhole.consume(usuario);
+            return true;
+        }).adicionados;
+    }
+
+    @Benchmark
+    public int carregarComprimido(Blackhole blackhole) throws IOException {
+        return ArquivoComprimido.ler(comprimido, blackhole::consume);
+    }
+}
@@ -0,0 +1,101 @@
+package cadastro;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.AbstractList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Tempo até a primeira resposta depois de abrir um usuarios.bin de
+ * 'tamanho' usuários: uma busca por email e a primeira página da listagem
+ *
+ * - sobDemanda: mapeia o binário e o usuarios.bin.idx (RepositorioSobDemanda);
+ *   não depende do tamanho
+ * - completa: lê todos os usuários para um RepositorioConcorrente e os
+ *   indexa, como a recuperação padrão
+ *
+ * Os arquivos são gravados na preparação, num diretório temporário removido
+ * ao final; os usuários são gerados ao gravar, sem ficar todos em memória.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx12g"})
+public class RecuperacaoSobDemandaBenchmark {
+
+    @Param({"1000000", "10000000"})
+    public int tamanho;
+
+    private Path diretorio;
+    private Path binario;
+    private String email;
+
+    @Setup(Level.Trial)
+    public void preparar() throws IOException {
+        diretorio = Files.createTempDirectory("cadastro-bench");
+        binario = diretorio.resolve("usuarios.bin");
+        email = DadosBenchmark.email(tamanho * 3L / 4);
+        List<Usuario> usuarios = new AbstractList<Usuario>() {
+            @Override
+            public Usuario get(int indice) {
+                return DadosBenchmark.usuario(indice);
+            }
+
+            @Override
+            public int size() {
+                return tamanho;
+            }
+        };
+        ArquivoColunar.gravar(binario, usuarios);
+        try (ArquivoColunar.Leitor leitor = ArquivoColunar.Leitor.abrir(binario)) {
+            IndiceColunar.gravar(IndiceColunar.arquivoDe(binario), leitor);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void limpar() throws IOException {
+        try (Stream<Path> arquivos = Files.walk(diretorio)) {
+            arquivos.sorted(Comparator.reverseOrder()).forEach(arquivo -> arquivo.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public Object sobDemanda() throws IOException {
+        ArquivoColunar.Leitor leitor = ArquivoColunar.Leitor.abrir(binario);
+        IndiceColunar indice = IndiceColunar.abrir(IndiceColunar.arquivoDe(binario), leitor);
+        try (RepositorioSobDemanda repositorio = new RepositorioSobDemanda(leitor, indice, null)) {
+            IndicesUsuarios indices = new IndicesUsuarios(repositorio::buscarPorId);
+            indices.usarBase(indice);
+            new EstatisticasUsuarios().registrarInstantaneo(indice);
+            return responder(repositorio);
+        }
+    }
+
+    @Benchmark
+    public Object completa() throws IOException {
+        RepositorioConcorrente repositorio = new RepositorioConcorrente();
+        IndicesUsuarios indices = new IndicesUsuarios(repositorio::buscarPorId);
+        EstatisticasUsuarios estatisticas = new EstatisticasUsuarios();
+        ArquivoColunar.ler(binario, usuario -> {
+            repositorio.inserir(usuario);
+            indices.inserir(usuario);
+            estatisticas.registrarInsercao(usuario);
+        });
+        return responder(repositorio);
+    }
+
+    private Object responder(RepositorioUsuarios repositorio) {
+        if (repositorio.buscarPorEmail(email) == null) {
+            throw new IllegalStateException("Usuário não encontrado: " + email);
+        }
+        return repositorio.listarDesde(0, 20);
+    }
+}
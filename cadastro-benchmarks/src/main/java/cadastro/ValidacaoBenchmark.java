@@ -0,0 +1,58 @@
+package cadastro;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Validação de emails e CPFs em lote, como numa importação de 'tamanho'
+ * usuários (um terço dos valores é inválido)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx12g"})
+public class ValidacaoBenchmark {
+
+    @Param({"1000", "100000", "10000000"})
+    public int tamanho;
+
+    private CharSequence[] emails;
+    private CharSequence[] cpfs;
+    private boolean[] resultados;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        emails = new CharSequence[tamanho];
+        cpfs = new CharSequence[tamanho];
+        resultados = new boolean[tamanho];
+        for (int i = 0; i < tamanho; i++) {
+            boolean invalido = i % 3 == 2;
+            emails[i] = invalido ? "usuario" + i + "@dominio" : DadosBenchmark.email(i);
+            cpfs[i] = invalido ? "123.456.789-00" : DadosBenchmark.cpf(i);
+        }
+    }
+
+    @Benchmark
+    public int validarEmails() {
+        return ValidacaoCadastro.validar(ValidacaoCadastro.Campo.EMAIL, emails, resultados);
+    }
+
+    @Benchmark
+    public int validarCPFs() {
+        return ValidacaoCadastro.validar(ValidacaoCadastro.Campo.CPF, cpfs, resultados);
+    }
+
+    @Benchmark
+    public int validarEmailsSistema() {
+        int validos = 0;
+        for (CharSequence email : emails) {
+            if (SistemaCadastro.validarEmail(email.toString())) {
+                validos++;
+            }
+        }
+        return validos;
+    }
+}
@@ -0,0 +1,447 @@
+package cadastro;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.Date;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Formato binário colunar para 'usuarios.bin'
+ *
+ * Substitui a serialização Java (ObjectOutputStream), que é lenta e gera
+ * arquivos grandes. Os dados ficam organizados em colunas e o arquivo é lido e
+ * escrito através de um MappedByteBuffer, sem conversão de texto.
+ *
+ * Layout (big-endian):
+ *   Cabeçalho fixo de 64 bytes
+ *     int   mágico 'CADB'        short versão       short tamanho do cabeçalho
+ *     int   quantidade (n)       int   CRC32 de tudo após o cabeçalho
+ *     long  posição de cada coluna: datas, cpfs, idades, textos, tipos, heap
+ *   long[n]    dataCadastro em milissegundos (epoch)
+ *   long[n]    CPF com os 11 dígitos compactados (-1 se não estiver no formato)
+ *   int[n]     idades
+ *   int[3n+1]  posições no heap de nome, email e CPF original de cada usuário
+ *   byte[n]    tipo do usuário (Padrão, Menor, Idoso)
+ *   heap       textos em UTF-8, um após o outro
+ *
+ * O CPF original só é guardado no heap quando não pode ser compactado. O
+ * CRC32 (versão 2) é gravado por último: um arquivo gravado pela metade é
+ * recusado na leitura. Arquivos da versão 1, sem CRC, continuam legíveis.
+ */
+class ArquivoColunar {
+
+    static final int MAGICO = 0x43414442; // "CADB"
+    static final short VERSAO = 2;
+    static final short VERSAO_SEM_CRC = 1;
+    static final int TAMANHO_CABECALHO = 64;
+
+    static final byte TIPO_PADRAO = 0;
+    static final byte TIPO_MENOR = 1;
+    static final byte TIPO_IDOSO = 2;
+
+    /**
+     * Recebe cada usuário lido do arquivo
+     */
+    interface Consumidor {
+        void aceitar(Usuario usuario);
+    }
+
+    /**
+     * Grava a lista de usuários no formato colunar
+     */
+    static void gravar(Path arquivo, List<Usuario> usuarios) throws IOException {
+        int n = usuarios.size();
+
+        // Primeira passada: tamanho do heap de textos, sem alocar bytes
+        long tamanhoHeap = 0;
+        for (Usuario usuario : usuarios) {
+            tamanhoHeap += tamanhoUtf8(usuario.getNome()) + tamanhoUtf8(usuario.getEmail());
+            if (compactarCPFFormatado(usuario.getCpf()) < 0) {
+                tamanhoHeap += tamanhoUtf8(usuario.getCpf());
+            }
+        }
+
+        long posDatas = TAMANHO_CABECALHO;
+        long posCpfs = posDatas + 8L * n;
+        long posIdades = posCpfs + 8L * n;
+        long posTextos = posIdades + 4L * n;
+        long posTipos = posTextos + 4L * (3L * n + 1);
+        long posHeap = posTipos + n;
+        long tamanhoTotal = posHeap + tamanhoHeap;
+
+        if (tamanhoTotal > Integer.MAX_VALUE) {
+            throw new IOException("Dados grandes demais para o formato colunar (" + tamanhoTotal + " bytes)");
+        }
+
+        try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+
+            MappedByteBuffer buffer = canal.map(FileChannel.MapMode.READ_WRITE, 0, tamanhoTotal);
+
+            buffer.putInt(MAGICO);
+            buffer.putShort(VERSAO);
+            buffer.putShort((short) TAMANHO_CABECALHO);
+            buffer.putInt(n);
+            buffer.putInt(0);
+            buffer.putLong(posDatas);
+            buffer.putLong(posCpfs);
+            buffer.putLong(posIdades);
+            buffer.putLong(posTextos);
+            buffer.putLong(posTipos);
+            buffer.putLong(posHeap);
+
+            int posicaoHeap = 0;
+            for (int i = 0; i < n; i++) {
+                Usuario usuario = usuarios.get(i);
+                long cpf = compactarCPFFormatado(usuario.getCpf());
+
+                buffer.putLong((int) posDatas + 8 * i, usuario.getDataCadastro().getTime());
+                buffer.putLong((int) posCpfs + 8 * i, cpf);
+                buffer.putInt((int) posIdades + 4 * i, usuario.getIdade());
+                buffer.put((int) posTipos + i, codigoTipo(usuario));
+
+                int posTexto = (int) posTextos + 12 * i;
+                buffer.putInt(posTexto, posicaoHeap);
+                posicaoHeap = escreverUtf8(buffer, (int) posHeap + posicaoHeap, usuario.getNome()) - (int) posHeap;
+                buffer.putInt(posTexto + 4, posicaoHeap);
+                posicaoHeap = escreverUtf8(buffer, (int) posHeap + posicaoHeap, usuario.getEmail()) - (int) posHeap;
+                buffer.putInt(posTexto + 8, posicaoHeap);
+                if (cpf < 0) {
+                    posicaoHeap = escreverUtf8(buffer, (int) posHeap + posicaoHeap, usuario.getCpf()) - (int) posHeap;
+                }
+            }
+            buffer.putInt((int) posTextos + 12 * n, posicaoHeap);
+            buffer.putInt(12, crc(buffer, (int) tamanhoTotal));
+
+            buffer.force();
+        }
+    }
+
+    /**
+     * Mapeia o arquivo e entrega cada usuário ao consumidor
+     *
+     * @return quantidade de usuários lidos
+     */
+    static int ler(Path arquivo, Consumidor consumidor) throws IOException {
+        try (Leitor leitor = Leitor.abrir(arquivo)) {
+            leitor.verificar();
+            byte[] temporario = new byte[256];
+            for (int i = 0; i < leitor.n; i++) {
+                consumidor.aceitar(leitor.ler(i, temporario));
+            }
+            return leitor.n;
+        }
+    }
+
+    /**
+     * Acesso direto a um registro do arquivo mapeado, sem ler os demais
+     *
+     * Usado pela carga sob demanda (RepositorioSobDemanda): abrir só confere o
+     * cabeçalho, e cada registro é decodificado quando pedido. O CRC32, que
+     * exige ler o arquivo inteiro, é conferido apenas por verificar(). As
+     * leituras usam posições absolutas no buffer e podem ser feitas por
+     * várias threads ao mesmo tempo.
+     */
+    static final class Leitor implements Closeable {
+
+        final int n;
+        private final FileChannel canal;
+        private final MappedByteBuffer buffer;
+        private final short versao;
+        private final int posDatas;
+        private final int posCpfs;
+        private final int posIdades;
+        private final int posTextos;
+        private final int posTipos;
+        private final int posHeap;
+
+        private Leitor(FileChannel canal, MappedByteBuffer buffer) {
+            this.canal = canal;
+            this.buffer = buffer;
+            this.versao = buffer.getShort(4);
+            this.n = buffer.getInt(8);
+            this.posDatas = (int) buffer.getLong(16);
+            this.posCpfs = (int) buffer.getLong(24);
+            this.posIdades = (int) buffer.getLong(32);
+            this.posTextos = (int) buffer.getLong(40);
+            this.posTipos = (int) buffer.getLong(48);
+            this.posHeap = (int) buffer.getLong(56);
+        }
+
+        /**
+         * Mapeia o arquivo e confere o cabeçalho
+         */
+        static Leitor abrir(Path arquivo) throws IOException {
+            FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.READ);
+            try {
+                long tamanho = canal.size();
+                if (tamanho < TAMANHO_CABECALHO || tamanho > Integer.MAX_VALUE) {
+                    throw new IOException("Arquivo colunar inválido: tamanho " + tamanho);
+                }
+
+                MappedByteBuffer buffer = canal.map(FileChannel.MapMode.READ_ONLY, 0, tamanho);
+
+                if (buffer.getInt(0) != MAGICO) {
+                    throw new IOException("Arquivo não está no formato colunar");
+                }
+                short versao = buffer.getShort(4);
+                if (versao != VERSAO && versao != VERSAO_SEM_CRC) {
+                    throw new IOException("Versão do formato colunar não suportada: " + versao);
+                }
+                Leitor leitor = new Leitor(canal, buffer);
+                if (leitor.n < 0 || leitor.posHeap > tamanho || leitor.posTextos + 12L * leitor.n + 4 > leitor.posHeap
+                        || buffer.getInt(leitor.posTextos + 12 * leitor.n) > tamanho - leitor.posHeap) {
+                    throw new IOException("Arquivo colunar incompleto");
+                }
+                return leitor;
+            } catch (IOException | RuntimeException e) {
+                canal.close();
+                throw e;
+            }
+        }
+
+        /**
+         * Confere o CRC32 gravado no cabeçalho (arquivos da versão 2)
+         */
+        void verificar() throws IOException {
+            if (versao == VERSAO && buffer.getInt(12) != crc(buffer, buffer.capacity())) {
+                throw new IOException("Arquivo colunar corrompido ou incompleto (CRC32 não confere)");
+            }
+        }
+
+        /**
+         * CRC32 registrado no cabeçalho (0 na versão 1), que identifica o conteúdo
+         */
+        int getCrc() {
+            return buffer.getInt(12);
+        }
+
+        long getTamanho() {
+            return buffer.capacity();
+        }
+
+        Usuario ler(int registro) {
+            return ler(registro, new byte[256]);
+        }
+
+        Usuario ler(int registro, byte[] temporario) {
+            int posTexto = posTextos + 12 * registro;
+            int inicioNome = buffer.getInt(posTexto);
+            int inicioEmail = buffer.getInt(posTexto + 4);
+            int inicioCpf = buffer.getInt(posTexto + 8);
+            int fim = buffer.getInt(posTexto + 12);
+
+            if (temporario.length < fim - inicioNome) {
+                temporario = new byte[Math.max(fim - inicioNome, temporario.length * 2)];
+            }
+            String nome = lerUtf8(buffer, posHeap + inicioNome, inicioEmail - inicioNome, temporario);
+            String email = lerUtf8(buffer, posHeap + inicioEmail, inicioCpf - inicioEmail, temporario);
+
+            long cpfCompactado = buffer.getLong(posCpfs + 8 * registro);
+            String cpf = cpfCompactado >= 0
+                    ? formatarCPF(cpfCompactado)
+                    : lerUtf8(buffer, posHeap + inicioCpf, fim - inicioCpf, temporario);
+
+            Usuario usuario = criarPorTipo(buffer.get(posTipos + registro), nome, email,
+                                           buffer.getInt(posIdades + 4 * registro), cpf);
+            usuario.setDataCadastro(new Date(buffer.getLong(posDatas + 8 * registro)));
+            return usuario;
+        }
+
+        String lerNome(int registro) {
+            return lerTexto(registro, 0);
+        }
+
+        String lerEmail(int registro) {
+            return lerTexto(registro, 1);
+        }
+
+        /**
+         * CPF como gravado: os 11 dígitos compactados ou, fora do formato, o texto original
+         */
+        String lerCpf(int registro) {
+            long cpfCompactado = lerCpfCompactado(registro);
+            return cpfCompactado >= 0 ? formatarCPF(cpfCompactado) : lerTexto(registro, 2);
+        }
+
+        long lerCpfCompactado(int registro) {
+            return buffer.getLong(posCpfs + 8 * registro);
+        }
+
+        int lerIdade(int registro) {
+            return buffer.getInt(posIdades + 4 * registro);
+        }
+
+        byte lerTipo(int registro) {
+            return buffer.get(posTipos + registro);
+        }
+
+        /**
+         * @param campo 0 = nome, 1 = email, 2 = CPF original
+         */
+        private String lerTexto(int registro, int campo) {
+            int posTexto = posTextos + 12 * registro + 4 * campo;
+            int inicio = buffer.getInt(posTexto);
+            int tamanho = buffer.getInt(posTexto + 4) - inicio;
+            return lerUtf8(buffer, posHeap + inicio, tamanho, new byte[tamanho]);
+        }
+
+        /**
+         * Fecha o canal; o mapeamento é liberado pelo coletor de lixo
+         */
+        @Override
+        public void close() throws IOException {
+            canal.close();
+        }
+    }
+
+    private static int crc(ByteBuffer buffer, int tamanho) {
+        ByteBuffer dados = buffer.duplicate();
+        dados.limit(tamanho).position(TAMANHO_CABECALHO);
+        CRC32 crc = new CRC32();
+        crc.update(dados);
+        return (int) crc.getValue();
+    }
+
+    static byte codigoTipo(Usuario usuario) {
+        if (usuario instanceof UsuarioMenor) return TIPO_MENOR;
+        if (usuario instanceof UsuarioIdoso) return TIPO_IDOSO;
+        return TIPO_PADRAO;
+    }
+
+    static Usuario criarPorTipo(byte tipo, String nome, String email, int idade, String cpf) {
+        switch (tipo) {
+            case TIPO_MENOR:
+                return new UsuarioMenor(nome, email, idade, cpf);
+            case TIPO_IDOSO:
+                return new UsuarioIdoso(nome, email, idade, cpf);
+            default:
+                return new Usuario(nome, email, idade, cpf);
+        }
+    }
+
+    /**
+     * Compacta um CPF no formato 000.000.000-00 em um long com os 11 dígitos
+     *
+     * Só confere o formato, não os dígitos verificadores (para validar, use
+     * ValidacaoCadastro.compactarCPF).
+     *
+     * @return o valor compactado, ou -1 se o CPF não estiver no formato
+     */
+    static long compactarCPFFormatado(String cpf) {
+        if (cpf == null || cpf.length() != 14) {
+            return -1;
+        }
+        long valor = 0;
+        for (int i = 0; i < 14; i++) {
+            char c = cpf.charAt(i);
+            if (i == 3 || i == 7) {
+                if (c != '.') return -1;
+            } else if (i == 11) {
+                if (c != '-') return -1;
+            } else {
+                if (c < '0' || c > '9') return -1;
+                valor = valor * 10 + (c - '0');
+            }
+        }
+        return valor;
+    }
+
+    /**
+     * Converte os 11 dígitos compactados de volta para 000.000.000-00
+     */
+    static String formatarCPF(long valor) {
+        char[] cpf = new char[14];
+        for (int i = 13; i >= 0; i--) {
+            if (i == 3 || i == 7) {
+                cpf[i] = '.';
+            } else if (i == 11) {
+                cpf[i] = '-';
+            } else {
+                cpf[i] = (char) ('0' + valor % 10);
+                valor /= 10;
+            }
+        }
+        return new String(cpf);
+    }
+
+    // ========================================
+    // CODIFICAÇÃO UTF-8 DIRETA NO BUFFER
+    // ========================================
+
+    static int tamanhoUtf8(String texto) {
+        return tamanhoUtf8(texto, 0, texto.length());
+    }
+
+    /**
+     * Tamanho em UTF-8 dos caracteres de 'inicio' a 'fim' (exclusivo)
+     */
+    static int tamanhoUtf8(String texto, int inicio, int fim) {
+        int tamanho = 0;
+        for (int i = inicio; i < fim; i++) {
+            char c = texto.charAt(i);
+            if (c < 0x80) {
+                tamanho += 1;
+            } else if (c < 0x800) {
+                tamanho += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < fim
+                       && Character.isLowSurrogate(texto.charAt(i + 1))) {
+                tamanho += 4;
+                i++;
+            } else {
+                tamanho += 3;
+            }
+        }
+        return tamanho;
+    }
+
+    /**
+     * Escreve o texto em UTF-8 a partir da posição indicada
+     *
+     * @return posição logo após o último byte escrito
+     */
+    static int escreverUtf8(ByteBuffer buffer, int posicao, String texto) {
+        return escreverUtf8(buffer, posicao, texto, 0, texto.length());
+    }
+
+    /**
+     * Escreve os caracteres de 'inicio' a 'fim' (exclusivo) em UTF-8
+     *
+     * @return posição logo após o último byte escrito
+     */
+    static int escreverUtf8(ByteBuffer buffer, int posicao, String texto, int inicio, int fim) {
+        for (int i = inicio; i < fim; i++) {
+            char c = texto.charAt(i);
+            if (c < 0x80) {
+                buffer.put(posicao++, (byte) c);
+            } else if (c < 0x800) {
+                buffer.put(posicao++, (byte) (0xC0 | (c >> 6)));
+                buffer.put(posicao++, (byte) (0x80 | (c & 0x3F)));
+            } else if (Character.isHighSurrogate(c) && i + 1 < fim
+                       && Character.isLowSurrogate(texto.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, texto.charAt(++i));
+                buffer.put(posicao++, (byte) (0xF0 | (cp >> 18)));
+                buffer.put(posicao++, (byte) (0x80 | ((cp >> 12) & 0x3F)));
+                buffer.put(posicao++, (byte) (0x80 | ((cp >> 6) & 0x3F)));
+                buffer.put(posicao++, (byte) (0x80 | (cp & 0x3F)));
+            } else {
+                buffer.put(posicao++, (byte) (0xE0 | (c >> 12)));
+                buffer.put(posicao++, (byte) (0x80 | ((c >> 6) & 0x3F)));
+                buffer.put(posicao++, (byte) (0x80 | (c & 0x3F)));
+            }
+        }
+        return posicao;
+    }
+
+    private static String lerUtf8(ByteBuffer buffer, int posicao, int tamanho, byte[] temporario) {
+        for (int i = 0; i < tamanho; i++) {
+            temporario[i] = buffer.get(posicao + i);
+        }
+        return new String(temporario, 0, tamanho, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,894 @@
+package cadastro;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Formato comprimido em blocos para 'usuarios.blocos'
+ *
+ * Os usuários são ordenados por email e codificados em registros de
+ * tamanho variável, agrupados em blocos de cerca de 64 KB comprimidos
+ * separadamente com Deflate. Domínios de email e palavras de nomes que se
+ * repetem vão para um dicionário do arquivo e, nos registros, viram códigos
+ * de um ou dois bytes; da parte local do email só se grava o que difere do
+ * registro anterior (os emails estão em ordem); o CPF vai compactado em 11
+ * dígitos.
+ *
+ * O índice guarda, por bloco, a posição, os tamanhos, o CRC32 e o primeiro
+ * email: uma busca por email descomprime um único bloco (ver Leitor).
+ *
+ * Layout (big-endian):
+ *   Cabeçalho fixo de 48 bytes
+ *     int   mágico 'CADZ'        short versão       short tamanho do cabeçalho
+ *     int   quantidade (n)       int   blocos
+ *     long  posição do dicionário  int tamanho comprimido  int tamanho original
+ *     long  posição do índice      int tamanho do índice   int CRC32 do dicionário e do índice
+ *   blocos, um após o outro
+ *   dicionário (Deflate): domínios e palavras, dos mais frequentes aos menos
+ *   índice, por bloco: long posição, int tamanho comprimido, int tamanho
+ *     original, int usuários, int CRC32 dos dados originais, texto primeiro email
+ *
+ * Registro (dentro do bloco, antes de comprimir; textos com varint tamanho + UTF-8):
+ *   varint  caracteres iniciais da parte local iguais aos do registro anterior
+ *   texto   resto da parte local do email (até o último '@')
+ *   varint  domínio: 0 sem '@', 1 seguido do domínio em texto, c+2 dicionário[c]
+ *   varint  palavras do nome, cada uma: 0 seguido do texto, c+1 dicionário[c]
+ *   varint  CPF: 0 seguido do CPF em texto, c+1 CPF compactado c
+ *   varint  idade (zigzag)
+ *   varint  data de cadastro menos a do registro anterior (zigzag, em ms)
+ *   byte    tipo do usuário (ArquivoColunar.codigoTipo)
+ *
+ * Cada bloco começa sem registro anterior e pode ser lido sozinho. Os
+ * usuários voltam em ordem de email, não de cadastro.
+ */
+final class ArquivoComprimido {
+
+    static final Path ARQUIVO = Paths.get("usuarios.blocos");
+
+    static final int MAGICO = 0x4341445A; // "CADZ"
+    static final short VERSAO = 1;
+    static final int TAMANHO_CABECALHO = 48;
+    static final int TAMANHO_BLOCO = 64 * 1024;
+
+    private static final int NIVEL = Integer.getInteger("cadastro.blocos.nivel", Deflater.DEFAULT_COMPRESSION);
+    private static final int MAXIMO_DICIONARIO = 1 << 16;   // entradas de cada tipo
+
+    private static final Comparator<Usuario> POR_EMAIL = Comparator.comparing(Usuario::getEmail);
+
+    private ArquivoComprimido() {
+    }
+
+    /**
+     * Grava os usuários (em ordem de email) no formato comprimido
+     */
+    static void gravar(Path arquivo, List<Usuario> usuarios) throws IOException {
+        Usuario[] ordenados = usuarios.toArray(new Usuario[0]);
+        Arrays.parallelSort(ordenados, POR_EMAIL);
+        Dicionario dicionario = Dicionario.construir(ordenados);
+
+        try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            Gravador gravador = new Gravador(canal, dicionario);
+            try {
+                for (Usuario usuario : ordenados) {
+                    gravador.adicionar(usuario);
+                }
+                gravador.terminar(ordenados.length);
+            } finally {
+                gravador.deflater.end();
+            }
+        }
+    }
+
+    /**
+     * Lê o arquivo bloco a bloco e entrega cada usuário ao consumidor
+     *
+     * @return quantidade de usuários lidos
+     */
+    static int ler(Path arquivo, ArquivoColunar.Consumidor consumidor) throws IOException {
+        try (Leitor leitor = new Leitor(arquivo)) {
+            for (int bloco = 0; bloco < leitor.getBlocos(); bloco++) {
+                leitor.lerBloco(bloco, consumidor);
+            }
+            return leitor.getQuantidade();
+        }
+    }
+
+    // ========================================
+    // DICIONÁRIO
+    // ========================================
+
+    /**
+     * Domínios de email e palavras de nomes que aparecem mais de uma vez
+     */
+    private static final class Dicionario {
+
+        final String[] dominios;
+        final String[] palavras;
+        final Map<String, Integer> codigosDominios;
+        final Map<String, Integer> codigosPalavras;
+
+        Dicionario(String[] dominios, String[] palavras) {
+            this.dominios = dominios;
+            this.palavras = palavras;
+            this.codigosDominios = codigos(dominios);
+            this.codigosPalavras = codigos(palavras);
+        }
+
+        static Dicionario construir(Usuario[] usuarios) {
+            Map<String, int[]> dominios = new HashMap<>();
+            Map<String, int[]> palavras = new HashMap<>();
+            for (Usuario usuario : usuarios) {
+                String email = usuario.getEmail();
+                int arroba = email.lastIndexOf('@');
+                if (arroba >= 0) {
+                    contar(dominios, email.substring(arroba + 1));
+                }
+                String nome = usuario.getNome();
+                for (int inicio = 0, fim; inicio <= nome.length(); inicio = fim + 1) {
+                    fim = fimDaPalavra(nome, inicio);
+                    contar(palavras, nome.substring(inicio, fim));
+                }
+            }
+            return new Dicionario(maisFrequentes(dominios), maisFrequentes(palavras));
+        }
+
+        /**
+         * Dicionário gravado em arquivo (ver codificar)
+         */
+        static Dicionario ler(Leitura leitura) {
+            String[] dominios = new String[(int) leitura.varint()];
+            for (int i = 0; i < dominios.length; i++) {
+                dominios[i] = leitura.texto();
+            }
+            String[] palavras = new String[(int) leitura.varint()];
+            for (int i = 0; i < palavras.length; i++) {
+                palavras[i] = leitura.texto();
+            }
+            return new Dicionario(dominios, palavras);
+        }
+
+        void codificar(Escrita escrita) {
+            escrita.varint(dominios.length);
+            for (String dominio : dominios) {
+                escrita.texto(dominio);
+            }
+            escrita.varint(palavras.length);
+            for (String palavra : palavras) {
+                escrita.texto(palavra);
+            }
+        }
+
+        private static void contar(Map<String, int[]> contagem, String texto) {
+            int[] vezes = contagem.get(texto);
+            if (vezes == null) {
+                contagem.put(texto, new int[] {1});
+            } else {
+                vezes[0]++;
+            }
+        }
+
+        /**
+         * Textos repetidos, do mais frequente ao menos (códigos menores,
+         * varints mais curtos)
+         */
+        private static String[] maisFrequentes(Map<String, int[]> contagem) {
+            List<Map.Entry<String, int[]>> repetidos = new ArrayList<>();
+            for (Map.Entry<String, int[]> entrada : contagem.entrySet()) {
+                if (entrada.getValue()[0] > 1) {
+                    repetidos.add(entrada);
+                }
+            }
+            repetidos.sort((a, b) -> a.getValue()[0] != b.getValue()[0]
+                    ? Integer.compare(b.getValue()[0], a.getValue()[0])
+                    : a.getKey().compareTo(b.getKey()));
+            String[] textos = new String[Math.min(repetidos.size(), MAXIMO_DICIONARIO)];
+            for (int i = 0; i < textos.length; i++) {
+                textos[i] = repetidos.get(i).getKey();
+            }
+            return textos;
+        }
+
+        private static Map<String, Integer> codigos(String[] textos) {
+            Map<String, Integer> codigos = new HashMap<>(textos.length * 2);
+            for (int i = 0; i < textos.length; i++) {
+                codigos.put(textos[i], i);
+            }
+            return codigos;
+        }
+    }
+
+    private static int fimDaPalavra(String nome, int inicio) {
+        int espaco = nome.indexOf(' ', inicio);
+        return espaco < 0 ? nome.length() : espaco;
+    }
+
+    // ========================================
+    // GRAVAÇÃO
+    // ========================================
+
+    /**
+     * Acumula registros até TAMANHO_BLOCO, comprime e grava cada bloco
+     */
+    private static final class Gravador {
+
+        final FileChannel canal;
+        final Dicionario dicionario;
+        final Deflater deflater = new Deflater(NIVEL);
+        final Escrita bloco = new Escrita(TAMANHO_BLOCO + 4096);
+        final Escrita indice = new Escrita(4096);
+        final CRC32 crc = new CRC32();
+        byte[] comprimido = new byte[TAMANHO_BLOCO];
+
+        long posicao = TAMANHO_CABECALHO;
+        int blocos;
+        int noBloco;
+        String primeiroEmail;
+        String localAnterior;
+        long dataAnterior;
+
+        Gravador(FileChannel canal, Dicionario dicionario) {
+            this.canal = canal;
+            this.dicionario = dicionario;
+        }
+
+        void adicionar(Usuario usuario) throws IOException {
+            String email = usuario.getEmail();
+            int arroba = email.lastIndexOf('@');
+            String local = arroba >= 0 ? email.substring(0, arroba) : email;
+            if (noBloco == 0) {
+                primeiroEmail = email;
+                localAnterior = "";
+                dataAnterior = 0;
+            }
+
+            int comum = prefixoComum(localAnterior, local);
+            bloco.varint(comum);
+            bloco.texto(local.substring(comum));
+            if (arroba < 0) {
+                bloco.varint(0);
+            } else {
+                String dominio = email.substring(arroba + 1);
+                Integer codigo = dicionario.codigosDominios.get(dominio);
+                if (codigo != null) {
+                    bloco.varint(codigo + 2L);
+                } else {
+                    bloco.varint(1);
+                    bloco.texto(dominio);
+                }
+            }
+
+            String nome = usuario.getNome();
+            int palavras = 1;
+            for (int i = nome.indexOf(' '); i >= 0; i = nome.indexOf(' ', i + 1)) {
+                palavras++;
+            }
+            bloco.varint(palavras);
+            for (int inicio = 0, fim; inicio <= nome.length(); inicio = fim + 1) {
+                fim = fimDaPalavra(nome, inicio);
+                String palavra = nome.substring(inicio, fim);
+                Integer codigo = dicionario.codigosPalavras.get(palavra);
+                if (codigo != null) {
+                    bloco.varint(codigo + 1L);
+                } else {
+                    bloco.varint(0);
+                    bloco.texto(palavra);
+                }
+            }
+
+            long cpf = ArquivoColunar.compactarCPFFormatado(usuario.getCpf());
+            if (cpf >= 0) {
+                bloco.varint(cpf + 1);
+            } else {
+                bloco.varint(0);
+                bloco.texto(usuario.getCpf());
+            }
+
+            long data = usuario.getDataCadastro().getTime();
+            bloco.varint(zigzag(usuario.getIdade()));
+            bloco.varint(zigzag(data - dataAnterior));
+            bloco.octeto(ArquivoColunar.codigoTipo(usuario));
+
+            localAnterior = local;
+            dataAnterior = data;
+            noBloco++;
+            if (bloco.tamanho >= TAMANHO_BLOCO) {
+                fecharBloco();
+            }
+        }
+
+        void fecharBloco() throws IOException {
+            if (noBloco == 0) {
+                return;
+            }
+            int tamanho = comprimir(bloco.dados, bloco.tamanho);
+            crc.reset();
+            crc.update(bloco.dados, 0, bloco.tamanho);
+
+            indice.longo(posicao);
+            indice.inteiro(tamanho);
+            indice.inteiro(bloco.tamanho);
+            indice.inteiro(noBloco);
+            indice.inteiro((int) crc.getValue());
+            indice.texto(primeiroEmail);
+
+            escrever(comprimido, tamanho);
+            blocos++;
+            noBloco = 0;
+            bloco.tamanho = 0;
+        }
+
+        /**
+         * Grava o último bloco, o dicionário, o índice e o cabeçalho
+         */
+        void terminar(int quantidade) throws IOException {
+            fecharBloco();
+
+            Escrita textos = new Escrita(4096);
+            dicionario.codificar(textos);
+            long posDicionario = posicao;
+            int tamanhoDicionario = comprimir(textos.dados, textos.tamanho);
+            crc.reset();
+            crc.update(comprimido, 0, tamanhoDicionario);
+            crc.update(indice.dados, 0, indice.tamanho);
+            escrever(comprimido, tamanhoDicionario);
+            long posIndice = posicao;
+            escrever(indice.dados, indice.tamanho);
+
+            ByteBuffer cabecalho = ByteBuffer.allocate(TAMANHO_CABECALHO);
+            cabecalho.putInt(MAGICO);
+            cabecalho.putShort(VERSAO);
+            cabecalho.putShort((short) TAMANHO_CABECALHO);
+            cabecalho.putInt(quantidade);
+            cabecalho.putInt(blocos);
+            cabecalho.putLong(posDicionario);
+            cabecalho.putInt(tamanhoDicionario);
+            cabecalho.putInt(textos.tamanho);
+            cabecalho.putLong(posIndice);
+            cabecalho.putInt(indice.tamanho);
+            cabecalho.putInt((int) crc.getValue());
+            cabecalho.flip();
+            while (cabecalho.hasRemaining()) {
+                canal.write(cabecalho, cabecalho.position());
+            }
+        }
+
+        /**
+         * Comprime dados[0, tamanho) em 'comprimido'
+         *
+         * @return tamanho comprimido
+         */
+        private int comprimir(byte[] dados, int tamanho) {
+            deflater.reset();
+            deflater.setInput(dados, 0, tamanho);
+            deflater.finish();
+            int total = 0;
+            while (!deflater.finished()) {
+                if (total == comprimido.length) {
+                    comprimido = Arrays.copyOf(comprimido, comprimido.length * 2);
+                }
+                total += deflater.deflate(comprimido, total, comprimido.length - total);
+            }
+            return total;
+        }
+
+        private void escrever(byte[] dados, int tamanho) throws IOException {
+            ByteBuffer origem = ByteBuffer.wrap(dados, 0, tamanho);
+            while (origem.hasRemaining()) {
+                posicao += canal.write(origem, posicao);
+            }
+        }
+
+        /**
+         * Caracteres iniciais iguais, sem separar um par substituto
+         */
+        private static int prefixoComum(String anterior, String atual) {
+            int limite = Math.min(anterior.length(), atual.length());
+            int comum = 0;
+            while (comum < limite && anterior.charAt(comum) == atual.charAt(comum)) {
+                comum++;
+            }
+            if (comum > 0 && Character.isHighSurrogate(atual.charAt(comum - 1))) {
+                comum--;
+            }
+            return comum;
+        }
+    }
+
+    // ========================================
+    // LEITURA
+    // ========================================
+
+    /**
+     * Arquivo aberto para leitura de blocos e buscas por email
+     *
+     * Lê o cabeçalho, o dicionário e o índice ao abrir; cada bloco é lido do
+     * disco e descomprimido quando pedido. Não é seguro para várias threads
+     * (o Inflater e os buffers são compartilhados).
+     */
+    static final class Leitor implements Closeable {
+
+        private final FileChannel canal;
+        private final int quantidade;
+        private final Dicionario dicionario;
+        private final long[] posicoes;
+        private final int[] comprimidos;
+        private final int[] originais;
+        private final int[] quantidades;
+        private final int[] crcs;
+        private final String[] primeirosEmails;
+
+        private final Inflater inflater = new Inflater();
+        private final CRC32 crc = new CRC32();
+        private final Leitura leitura = new Leitura();
+        private final StringBuilder local = new StringBuilder();
+        private final StringBuilder texto = new StringBuilder();
+        private byte[] entrada = new byte[TAMANHO_BLOCO];
+        private byte[] saida = new byte[TAMANHO_BLOCO + 4096];
+
+        Leitor(Path arquivo) throws IOException {
+            canal = FileChannel.open(arquivo, StandardOpenOption.READ);
+            try {
+                ByteBuffer cabecalho = ByteBuffer.allocate(TAMANHO_CABECALHO);
+                if (canal.size() < TAMANHO_CABECALHO) {
+                    throw new IOException("Arquivo comprimido inválido: tamanho " + canal.size());
+                }
+                lerTudo(cabecalho.array(), TAMANHO_CABECALHO, 0);
+                if (cabecalho.getInt(0) != MAGICO) {
+                    throw new IOException("Arquivo não está no formato comprimido em blocos");
+                }
+                if (cabecalho.getShort(4) != VERSAO) {
+                    throw new IOException("Versão do formato comprimido não suportada: " + cabecalho.getShort(4));
+                }
+                quantidade = cabecalho.getInt(8);
+                int blocos = cabecalho.getInt(12);
+                long posDicionario = cabecalho.getLong(16);
+                int tamanhoDicionario = cabecalho.getInt(24);
+                int originalDicionario = cabecalho.getInt(28);
+                long posIndice = cabecalho.getLong(32);
+                int tamanhoIndice = cabecalho.getInt(40);
+                if (quantidade < 0 || blocos < 0 || tamanhoDicionario < 0 || originalDicionario < 0
+                        || tamanhoIndice < 0 || posIndice != posDicionario + tamanhoDicionario
+                        || posIndice + tamanhoIndice != canal.size()) {
+                    throw new IOException("Arquivo comprimido corrompido ou incompleto (cabeçalho inconsistente)");
+                }
+
+                // Dicionário e índice são lidos juntos e conferidos pelo mesmo CRC32
+                byte[] dicionarioEIndice = new byte[tamanhoDicionario + tamanhoIndice];
+                lerTudo(dicionarioEIndice, dicionarioEIndice.length, posDicionario);
+                crc.update(dicionarioEIndice, 0, dicionarioEIndice.length);
+                if ((int) crc.getValue() != cabecalho.getInt(44)) {
+                    throw new IOException("Arquivo comprimido corrompido ou incompleto (CRC32 não confere)");
+                }
+
+                byte[] textos = new byte[originalDicionario];
+                inflar(dicionarioEIndice, 0, tamanhoDicionario, textos, originalDicionario, "dicionário");
+                dicionario = Dicionario.ler(leitura.reiniciar(textos, 0, originalDicionario));
+
+                posicoes = new long[blocos];
+                comprimidos = new int[blocos];
+                originais = new int[blocos];
+                quantidades = new int[blocos];
+                crcs = new int[blocos];
+                primeirosEmails = new String[blocos];
+                ByteBuffer indice = ByteBuffer.wrap(dicionarioEIndice, tamanhoDicionario, tamanhoIndice);
+                long soma = 0;
+                for (int b = 0; b < blocos; b++) {
+                    posicoes[b] = indice.getLong();
+                    comprimidos[b] = indice.getInt();
+                    originais[b] = indice.getInt();
+                    quantidades[b] = indice.getInt();
+                    crcs[b] = indice.getInt();
+                    leitura.reiniciar(dicionarioEIndice, indice.position(), indice.limit());
+                    primeirosEmails[b] = leitura.texto();
+                    indice.position(leitura.posicao);
+                    soma += quantidades[b];
+                }
+                if (soma != quantidade) {
+                    throw new IOException("Arquivo comprimido corrompido: " + soma + " usuário(s) nos blocos, "
+                                          + quantidade + " no cabeçalho");
+                }
+            } catch (IOException | RuntimeException e) {
+                close();
+                if (e instanceof IOException) {
+                    throw (IOException) e;
+                }
+                throw new IOException("Arquivo comprimido corrompido (" + e + ")", e);
+            }
+        }
+
+        int getQuantidade() {
+            return quantidade;
+        }
+
+        int getBlocos() {
+            return posicoes.length;
+        }
+
+        /**
+         * Descomprime o bloco e entrega seus usuários ao consumidor
+         */
+        void lerBloco(int bloco, ArquivoColunar.Consumidor consumidor) throws IOException {
+            descomprimir(bloco);
+            try {
+                long data = 0;
+                for (int i = 0; i < quantidades[bloco]; i++) {
+                    String email = lerEmail();
+                    Usuario usuario = lerRestante(email, data);
+                    data = usuario.getDataCadastro().getTime();
+                    consumidor.aceitar(usuario);
+                }
+            } catch (ArrayIndexOutOfBoundsException e) {
+                throw new IOException("Bloco " + bloco + " do arquivo comprimido inválido", e);
+            }
+        }
+
+        /**
+         * Busca pelo email descomprimindo só o bloco em que ele estaria
+         *
+         * @return o usuário, ou null se o email não estiver no arquivo
+         */
+        Usuario buscarPorEmail(String email) throws IOException {
+            int bloco = blocoDe(email);
+            if (bloco < 0) {
+                return null;
+            }
+            int arroba = email.lastIndexOf('@');
+            String localProcurado = arroba >= 0 ? email.substring(0, arroba) : email;
+            String dominioProcurado = arroba >= 0 ? email.substring(arroba + 1) : null;
+
+            // Compara a parte local e o código do domínio sem montar o email
+            // de cada registro
+            descomprimir(bloco);
+            try {
+                long data = 0;
+                for (int i = 0; i < quantidades[bloco]; i++) {
+                    int dominio = lerLocal();
+                    boolean mesmoDominio;
+                    if (dominio == 1) {
+                        texto.setLength(0);
+                        leitura.anexarTexto(texto);
+                        mesmoDominio = dominioProcurado != null && dominioProcurado.contentEquals(texto);
+                    } else {
+                        mesmoDominio = dominio == 0
+                                ? dominioProcurado == null
+                                : dicionario.dominios[dominio - 2].equals(dominioProcurado);
+                    }
+                    if (mesmoDominio && localProcurado.contentEquals(local)) {
+                        return lerRestante(email, data);
+                    }
+                    data += pularRestante();
+                }
+                return null;
+            } catch (ArrayIndexOutOfBoundsException e) {
+                throw new IOException("Bloco " + bloco + " do arquivo comprimido inválido", e);
+            }
+        }
+
+        /**
+         * @return último bloco cujo primeiro email não é maior que 'email', ou
+         *         -1 se o email vier antes de todos
+         */
+        private int blocoDe(String email) {
+            int baixo = 0;
+            int alto = primeirosEmails.length - 1;
+            int encontrado = -1;
+            while (baixo <= alto) {
+                int meio = (baixo + alto) >>> 1;
+                if (primeirosEmails[meio].compareTo(email) <= 0) {
+                    encontrado = meio;
+                    baixo = meio + 1;
+                } else {
+                    alto = meio - 1;
+                }
+            }
+            return encontrado;
+        }
+
+        private String lerEmail() {
+            int dominio = lerLocal();
+            if (dominio == 0) {
+                return local.toString();
+            }
+            texto.setLength(0);
+            texto.append(local).append('@');
+            if (dominio == 1) {
+                leitura.anexarTexto(texto);
+            } else {
+                texto.append(dicionario.dominios[dominio - 2]);
+            }
+            return texto.toString();
+        }
+
+        /**
+         * Atualiza 'local' com a parte local do registro (o primeiro do bloco
+         * tem 0 caracteres em comum: sobra nada do bloco anterior)
+         *
+         * @return código do domínio (ver o layout do registro)
+         */
+        private int lerLocal() {
+            local.setLength((int) leitura.varint());
+            leitura.anexarTexto(local);
+            return (int) leitura.varint();
+        }
+
+        /**
+         * Lê do nome ao tipo e monta o usuário
+         *
+         * @param dataAnterior data de cadastro do registro anterior do bloco
+         */
+        private Usuario lerRestante(String email, long dataAnterior) {
+            String nome;
+            int palavras = (int) leitura.varint();
+            if (palavras == 1) {
+                nome = lerPalavra();    // nome de uma palavra do dicionário: sem cópia
+            } else {
+                StringBuilder completo = new StringBuilder(32);
+                for (int i = 0; i < palavras; i++) {
+                    if (i > 0) {
+                        completo.append(' ');
+                    }
+                    completo.append(lerPalavra());
+                }
+                nome = completo.toString();
+            }
+
+            long cpfCompactado = leitura.varint();
+            String cpf = cpfCompactado > 0 ? ArquivoColunar.formatarCPF(cpfCompactado - 1) : leitura.texto();
+            int idade = (int) dezigzag(leitura.varint());
+            long data = dataAnterior + dezigzag(leitura.varint());
+
+            Usuario usuario = ArquivoColunar.criarPorTipo(leitura.octeto(), nome, email, idade, cpf);
+            usuario.setDataCadastro(new Date(data));
+            return usuario;
+        }
+
+        private String lerPalavra() {
+            int codigo = (int) leitura.varint();
+            return codigo > 0 ? dicionario.palavras[codigo - 1] : leitura.texto();
+        }
+
+        /**
+         * Avança do nome ao tipo sem montar textos
+         *
+         * @return diferença de data do registro
+         */
+        private long pularRestante() {
+            int palavras = (int) leitura.varint();
+            for (int i = 0; i < palavras; i++) {
+                if (leitura.varint() == 0) {
+                    leitura.pularTexto();
+                }
+            }
+            if (leitura.varint() == 0) {
+                leitura.pularTexto();
+            }
+            leitura.varint();
+            long diferenca = dezigzag(leitura.varint());
+            leitura.octeto();
+            return diferenca;
+        }
+
+        /**
+         * Lê o bloco do disco, descomprime em 'saida' e confere o CRC32
+         */
+        private void descomprimir(int bloco) throws IOException {
+            if (entrada.length < comprimidos[bloco]) {
+                entrada = new byte[comprimidos[bloco]];
+            }
+            if (saida.length < originais[bloco]) {
+                saida = new byte[originais[bloco]];
+            }
+            lerTudo(entrada, comprimidos[bloco], posicoes[bloco]);
+            inflar(entrada, 0, comprimidos[bloco], saida, originais[bloco], "bloco " + bloco);
+            crc.reset();
+            crc.update(saida, 0, originais[bloco]);
+            if ((int) crc.getValue() != crcs[bloco]) {
+                throw new IOException("Bloco " + bloco + " do arquivo comprimido corrompido (CRC32 não confere)");
+            }
+            leitura.reiniciar(saida, 0, originais[bloco]);
+        }
+
+        private void inflar(byte[] origem, int inicio, int tamanho, byte[] destino, int original, String parte)
+                throws IOException {
+            inflater.reset();
+            inflater.setInput(origem, inicio, tamanho);
+            int total = 0;
+            try {
+                while (total < original) {
+                    int lidos = inflater.inflate(destino, total, original - total);
+                    if (lidos == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) {
+                        break;
+                    }
+                    total += lidos;
+                }
+            } catch (DataFormatException e) {
+                throw new IOException("Arquivo comprimido corrompido (" + parte + "): " + e.getMessage(), e);
+            }
+            if (total != original) {
+                throw new IOException("Arquivo comprimido corrompido (" + parte + "): " + total + " de "
+                                      + original + " bytes");
+            }
+        }
+
+        private void lerTudo(byte[] destino, int tamanho, long posicao) throws IOException {
+            ByteBuffer buffer = ByteBuffer.wrap(destino, 0, tamanho);
+            while (buffer.hasRemaining()) {
+                if (canal.read(buffer, posicao + buffer.position()) < 0) {
+                    throw new EOFException("Arquivo comprimido truncado");
+                }
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            inflater.end();
+            canal.close();
+        }
+    }
+
+    // ========================================
+    // VARINTS E TEXTOS
+    // ========================================
+
+    static long zigzag(long valor) {
+        return (valor << 1) ^ (valor >> 63);
+    }
+
+    static long dezigzag(long valor) {
+        return (valor >>> 1) ^ -(valor & 1);
+    }
+
+    /**
+     * Bytes em memória que crescem conforme a necessidade
+     */
+    private static final class Escrita {
+
+        byte[] dados;
+        int tamanho;
+
+        Escrita(int capacidade) {
+            dados = new byte[capacidade];
+        }
+
+        void garantir(int adicionais) {
+            if (tamanho + adicionais > dados.length) {
+                dados = Arrays.copyOf(dados, Math.max(dados.length * 2, tamanho + adicionais));
+            }
+        }
+
+        void varint(long valor) {
+            garantir(10);
+            while ((valor & ~0x7FL) != 0) {
+                dados[tamanho++] = (byte) ((valor & 0x7F) | 0x80);
+                valor >>>= 7;
+            }
+            dados[tamanho++] = (byte) valor;
+        }
+
+        void texto(String texto) {
+            int n = texto.length();
+            for (int i = 0; i < n; i++) {
+                if (texto.charAt(i) >= 0x80) {
+                    byte[] utf8 = texto.getBytes(StandardCharsets.UTF_8);
+                    varint(utf8.length);
+                    garantir(utf8.length);
+                    System.arraycopy(utf8, 0, dados, tamanho, utf8.length);
+                    tamanho += utf8.length;
+                    return;
+                }
+            }
+            // ASCII (o caso comum): um byte por caractere, sem conversão
+            varint(n);
+            garantir(n);
+            for (int i = 0; i < n; i++) {
+                dados[tamanho++] = (byte) texto.charAt(i);
+            }
+        }
+
+        void octeto(int valor) {
+            garantir(1);
+            dados[tamanho++] = (byte) valor;
+        }
+
+        void inteiro(int valor) {
+            garantir(4);
+            for (int deslocamento = 24; deslocamento >= 0; deslocamento -= 8) {
+                dados[tamanho++] = (byte) (valor >>> deslocamento);
+            }
+        }
+
+        void longo(long valor) {
+            inteiro((int) (valor >>> 32));
+            inteiro((int) valor);
+        }
+    }
+
+    /**
+     * Cursor sobre bytes já em memória
+     */
+    private static final class Leitura {
+
+        byte[] dados;
+        int posicao;
+        int fim;
+
+        Leitura reiniciar(byte[] dados, int inicio, int fim) {
+            this.dados = dados;
+            this.posicao = inicio;
+            this.fim = fim;
+            return this;
+        }
+
+        long varint() {
+            long valor = 0;
+            for (int deslocamento = 0; ; deslocamento += 7) {
+                byte b = octeto();
+                valor |= (long) (b & 0x7F) << deslocamento;
+                if (b >= 0) {
+                    return valor;
+                }
+            }
+        }
+
+        byte octeto() {
+            if (posicao >= fim) {
+                throw new ArrayIndexOutOfBoundsException(posicao);
+            }
+            return dados[posicao++];
+        }
+
+        String texto() {
+            int tamanho = comprimento();
+            String texto = new String(dados, posicao, tamanho, StandardCharsets.UTF_8);
+            posicao += tamanho;
+            return texto;
+        }
+
+        void anexarTexto(StringBuilder destino) {
+            int tamanho = comprimento();
+            int inicio = destino.length();
+            for (int i = 0; i < tamanho; i++) {
+                byte b = dados[posicao + i];
+                if (b < 0) {
+                    destino.setLength(inicio);
+                    destino.append(new String(dados, posicao, tamanho, StandardCharsets.UTF_8));
+                    break;
+                }
+                destino.append((char) b);
+            }
+            posicao += tamanho;
+        }
+
+        void pularTexto() {
+            int tamanho = comprimento();    // avança o varint antes de somar
+            posicao += tamanho;
+        }
+
+        private int comprimento() {
+            long tamanho = varint();
+            if (tamanho > fim - posicao) {
+                throw new ArrayIndexOutOfBoundsException(posicao);
+            }
+            return (int) tamanho;
+        }
+    }
+}
@@ -0,0 +1,735 @@
+package cadastro;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.function.Predicate;
+
+/**
+ * Exportação e importação de usuários em NDJSON (um objeto JSON por linha)
+ *
+ * Exportação: cada usuário é codificado diretamente em bytes UTF-8, com os
+ * escapes do JSON, num ByteBuffer que é gravado no canal quando enche — sem
+ * String por registro. Os usuários são percorridos página a página, então a
+ * exportação não copia o cadastro inteiro.
+ *
+ * Importação: uma thread lê o arquivo em blocos de tamanho fixo e interpreta
+ * os bytes de cada linha (UTF-8 e escapes decodificados à mão); os usuários
+ * seguem em lotes por uma fila limitada até quem consome (o cadastro). A
+ * memória usada é a do buffer de leitura mais poucos lotes, qualquer que seja
+ * o tamanho do arquivo; se o consumidor atrasa, a leitura espera.
+ *
+ * Campos reconhecidos: nome, email, idade, cpf e dataCadastro (opcional, em
+ * milissegundos). Outros campos, inclusive objetos e listas, são ignorados.
+ */
+class ArquivoNdjson {
+
+    private static final int TAMANHO_BUFFER = 1 << 20;          // 1 MB
+    private static final int TAMANHO_LOTE = 1024;
+    private static final int LOTES_NA_FILA = 4;
+    private static final int MAXIMO_ERROS = 100;
+
+    private static final List<Usuario> FIM = Collections.emptyList();
+
+    /**
+     * Fornece os usuários em páginas (ver RepositorioUsuarios.listarDesde)
+     */
+    interface Paginador {
+        List<Usuario> listarDesde(int desdeId, int limite);
+    }
+
+    /**
+     * Resumo de uma importação
+     */
+    static class Resultado {
+        long lidos;             // usuários interpretados com sucesso
+        long adicionados;       // usuários aceitos pelo cadastro
+        long invalidas;         // total de linhas inválidas
+        long bytes;
+        long nanos;
+        final List<CarregadorCSV.LinhaInvalida> erros = new ArrayList<>();
+
+        void imprimirErros(int limite) {
+            if (invalidas == 0) {
+                return;
+            }
+            System.out.printf("%d linha(s) inválida(s):%n", invalidas);
+            for (int i = 0; i < erros.size() && i < limite; i++) {
+                System.out.println("  " + erros.get(i));
+            }
+            int exibidas = Math.min(limite, erros.size());
+            if (invalidas > exibidas) {
+                System.out.printf("  ... e mais %d%n", invalidas - exibidas);
+            }
+        }
+    }
+
+    // ========================================
+    // EXPORTAÇÃO
+    // ========================================
+
+    /**
+     * Grava todos os usuários, um objeto JSON por linha
+     *
+     * @return quantidade de usuários gravados
+     */
+    static long exportar(Path arquivo, Paginador paginador) throws IOException {
+        long total = 0;
+        try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            Escritor escritor = new Escritor(canal);
+            int desde = 0;
+            while (true) {
+                List<Usuario> pagina = paginador.listarDesde(desde, TAMANHO_LOTE + 1);
+                int n = Math.min(pagina.size(), TAMANHO_LOTE);
+                for (int i = 0; i < n; i++) {
+                    escritor.escreverUsuario(pagina.get(i));
+                }
+                total += n;
+                if (pagina.size() <= TAMANHO_LOTE) {
+                    break;
+                }
+                desde = pagina.get(TAMANHO_LOTE).getIdInterno();
+            }
+            escritor.esvaziar();
+        }
+        return total;
+    }
+
+    /**
+     * Codifica usuários em JSON/UTF-8 num buffer gravado no canal ao encher
+     */
+    private static final class Escritor {
+        private static final byte[] HEXA = "0123456789abcdef".getBytes();
+
+        // Maior sequência gerada por um caractere: \\uXXXX
+        private static final int FOLGA = 6;
+
+        private final FileChannel canal;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(256 * 1024);
+
+        Escritor(FileChannel canal) {
+            this.canal = canal;
+        }
+
+        void escreverUsuario(Usuario usuario) throws IOException {
+            ascii("{\"nome\":");
+            texto(usuario.getNome());
+            ascii(",\"email\":");
+            texto(usuario.getEmail());
+            ascii(",\"idade\":");
+            numero(usuario.getIdade());
+            ascii(",\"cpf\":");
+            texto(usuario.getCpf());
+            ascii(",\"tipo\":");
+            texto(usuario.getTipoUsuario());
+            ascii(",\"dataCadastro\":");
+            numero(usuario.getDataCadastro().getTime());
+            ascii("}\n");
+        }
+
+        private void ascii(String literal) throws IOException {
+            garantir(literal.length());
+            for (int i = 0; i < literal.length(); i++) {
+                buffer.put((byte) literal.charAt(i));
+            }
+        }
+
+        private void numero(long valor) throws IOException {
+            garantir(20);
+            if (valor < 0) {
+                if (valor == Long.MIN_VALUE) {
+                    ascii("-9223372036854775808");
+                    return;
+                }
+                buffer.put((byte) '-');
+                valor = -valor;
+            }
+            long divisor = 1;
+            while (valor / divisor >= 10) {
+                divisor *= 10;
+            }
+            for (; divisor > 0; divisor /= 10) {
+                buffer.put((byte) ('0' + (valor / divisor) % 10));
+            }
+        }
+
+        /**
+         * Texto entre aspas, com escapes, codificado em UTF-8 (null vira null)
+         */
+        private void texto(String texto) throws IOException {
+            if (texto == null) {
+                ascii("null");
+                return;
+            }
+            garantir(1);
+            buffer.put((byte) '"');
+            for (int i = 0; i < texto.length(); i++) {
+                garantir(FOLGA);
+                char c = texto.charAt(i);
+                if (c >= 0x20 && c < 0x80) {
+                    if (c == '"' || c == '\\') {
+                        buffer.put((byte) '\\');
+                    }
+                    buffer.put((byte) c);
+                } else if (c < 0x20) {
+                    escapeControle(c);
+                } else if (c < 0x800) {
+                    buffer.put((byte) (0xC0 | (c >> 6)));
+                    buffer.put((byte) (0x80 | (c & 0x3F)));
+                } else if (Character.isHighSurrogate(c) && i + 1 < texto.length()
+                           && Character.isLowSurrogate(texto.charAt(i + 1))) {
+                    int codigo = Character.toCodePoint(c, texto.charAt(++i));
+                    buffer.put((byte) (0xF0 | (codigo >> 18)));
+                    buffer.put((byte) (0x80 | ((codigo >> 12) & 0x3F)));
+                    buffer.put((byte) (0x80 | ((codigo >> 6) & 0x3F)));
+                    buffer.put((byte) (0x80 | (codigo & 0x3F)));
+                } else if (Character.isSurrogate(c)) {
+                    // Metade de par isolada: não tem UTF-8, vai como escape
+                    escapeUnicode(c);
+                } else {
+                    buffer.put((byte) (0xE0 | (c >> 12)));
+                    buffer.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+                    buffer.put((byte) (0x80 | (c & 0x3F)));
+                }
+            }
+            garantir(1);
+            buffer.put((byte) '"');
+        }
+
+        private void escapeControle(char c) {
+            switch (c) {
+                case '\n': buffer.put((byte) '\\').put((byte) 'n'); break;
+                case '\r': buffer.put((byte) '\\').put((byte) 'r'); break;
+                case '\t': buffer.put((byte) '\\').put((byte) 't'); break;
+                case '\b': buffer.put((byte) '\\').put((byte) 'b'); break;
+                case '\f': buffer.put((byte) '\\').put((byte) 'f'); break;
+                default:   escapeUnicode(c);
+            }
+        }
+
+        private void escapeUnicode(char c) {
+            buffer.put((byte) '\\').put((byte) 'u');
+            buffer.put(HEXA[(c >> 12) & 0xF]).put(HEXA[(c >> 8) & 0xF]);
+            buffer.put(HEXA[(c >> 4) & 0xF]).put(HEXA[c & 0xF]);
+        }
+
+        private void garantir(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                esvaziar();
+            }
+        }
+
+        void esvaziar() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                canal.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+
+    // ========================================
+    // IMPORTAÇÃO
+    // ========================================
+
+    /**
+     * Importa o arquivo, entregando cada usuário ao destino na ordem do arquivo
+     *
+     * @param destino recebe o usuário e devolve true se ele foi aceito
+     */
+    static Resultado importar(Path arquivo, Predicate<Usuario> destino) throws IOException {
+        Resultado resultado = new Resultado();
+        BlockingQueue<List<Usuario>> fila = new ArrayBlockingQueue<>(LOTES_NA_FILA);
+        Leitura leitura = new Leitura(arquivo, fila, resultado);
+        Thread leitor = new Thread(leitura, "importacao-ndjson");
+        leitor.setDaemon(true);
+
+        long inicio = System.nanoTime();
+        leitor.start();
+        try {
+            while (true) {
+                List<Usuario> lote = fila.take();
+                if (lote == FIM) {
+                    break;
+                }
+                for (Usuario usuario : lote) {
+                    if (destino.test(usuario)) {
+                        resultado.adicionados++;
+                    }
+                }
+            }
+            leitor.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Importação interrompida", e);
+        } finally {
+            // Consumidor falhou ou foi interrompido: a leitura não deve ficar presa na fila
+            leitor.interrupt();
+        }
+        resultado.nanos = System.nanoTime() - inicio;
+
+        if (leitura.falha != null) {
+            throw leitura.falha;
+        }
+        return resultado;
+    }
+
+    /**
+     * Lê o arquivo em blocos, interpreta as linhas e entrega lotes na fila
+     *
+     * Escreve em Resultado apenas lidos, invalidas, bytes e erros; o
+     * consumidor só os lê depois de join.
+     */
+    private static final class Leitura implements Runnable {
+        private final Path arquivo;
+        private final BlockingQueue<List<Usuario>> fila;
+        private final Resultado resultado;
+        private final Analisador analisador = new Analisador();
+        private List<Usuario> lote = new ArrayList<>(TAMANHO_LOTE);
+        IOException falha;
+
+        Leitura(Path arquivo, BlockingQueue<List<Usuario>> fila, Resultado resultado) {
+            this.arquivo = arquivo;
+            this.fila = fila;
+            this.resultado = resultado;
+        }
+
+        @Override
+        public void run() {
+            try {
+                try {
+                    ler();
+                    if (!lote.isEmpty()) {
+                        fila.put(lote);
+                    }
+                } catch (IOException e) {
+                    falha = e;
+                } finally {
+                    fila.put(FIM);
+                }
+            } catch (InterruptedException e) {
+                // Consumidor desistiu
+            }
+        }
+
+        private void ler() throws IOException, InterruptedException {
+            byte[] dados = new byte[TAMANHO_BUFFER];
+            ByteBuffer buffer = ByteBuffer.wrap(dados);
+            long posicaoBuffer = 0;     // posição no arquivo de dados[0]
+            boolean descartando = false; // no meio de uma linha maior que o buffer
+
+            try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+                while (true) {
+                    int lidos = canal.read(buffer);
+                    boolean fimArquivo = lidos < 0;
+                    if (lidos > 0) {
+                        resultado.bytes += lidos;
+                    }
+                    int disponivel = buffer.position();
+
+                    int linha = 0;
+                    for (int i = 0; i < disponivel; i++) {
+                        if (dados[i] != '\n') {
+                            continue;
+                        }
+                        if (!descartando) {
+                            analisarLinha(dados, linha, i, posicaoBuffer + linha);
+                        }
+                        descartando = false;
+                        linha = i + 1;
+                    }
+
+                    if (fimArquivo) {
+                        if (!descartando && linha < disponivel) {
+                            analisarLinha(dados, linha, disponivel, posicaoBuffer + linha);
+                        }
+                        return;
+                    }
+
+                    if (linha == 0 && disponivel == dados.length) {
+                        // Linha inteira não cabe no buffer: registra e pula até o próximo '\n'
+                        if (!descartando) {
+                            registrarErro(posicaoBuffer, "linha maior que " + TAMANHO_BUFFER + " bytes");
+                        }
+                        descartando = true;
+                        linha = disponivel;
+                    }
+
+                    // Move o resto da linha incompleta para o início
+                    System.arraycopy(dados, linha, dados, 0, disponivel - linha);
+                    buffer.position(disponivel - linha);
+                    posicaoBuffer += linha;
+                }
+            }
+        }
+
+        private void analisarLinha(byte[] dados, int inicio, int fim, long posicao) throws InterruptedException {
+            if (fim > inicio && dados[fim - 1] == '\r') {
+                fim--;
+            }
+            String erro = analisador.analisar(dados, inicio, fim, lote);
+            if (erro == Analisador.EM_BRANCO) {
+                return;
+            }
+            if (erro != null) {
+                registrarErro(posicao, erro);
+                return;
+            }
+            resultado.lidos++;
+            if (lote.size() == TAMANHO_LOTE) {
+                fila.put(lote);
+                lote = new ArrayList<>(TAMANHO_LOTE);
+            }
+        }
+
+        private void registrarErro(long posicao, String motivo) {
+            resultado.invalidas++;
+            if (resultado.erros.size() < MAXIMO_ERROS) {
+                resultado.erros.add(new CarregadorCSV.LinhaInvalida(posicao, motivo));
+            }
+        }
+    }
+
+    /**
+     * Interpreta uma linha NDJSON diretamente dos bytes
+     *
+     * O texto de cada campo é decodificado (UTF-8 e escapes) num vetor de
+     * caracteres reaproveitado; só os valores usados viram String.
+     */
+    private static final class Analisador {
+        static final String EM_BRANCO = "";
+
+        private static final char[] CHAVE_NOME = "nome".toCharArray();
+        private static final char[] CHAVE_EMAIL = "email".toCharArray();
+        private static final char[] CHAVE_IDADE = "idade".toCharArray();
+        private static final char[] CHAVE_CPF = "cpf".toCharArray();
+        private static final char[] CHAVE_DATA = "dataCadastro".toCharArray();
+        private static final int PROFUNDIDADE_MAXIMA = 64;
+
+        private byte[] dados;
+        private int posicao;
+        private int fim;
+        private char[] caracteres = new char[256];
+        private int tamanho;     // caracteres decodificados pelo último lerTexto
+
+        /**
+         * @return null se um usuário foi acrescentado a 'saida', EM_BRANCO para
+         *         linha vazia, ou a descrição do problema
+         */
+        String analisar(byte[] dados, int inicio, int fim, List<Usuario> saida) {
+            this.dados = dados;
+            this.posicao = inicio;
+            this.fim = fim;
+
+            pularEspacos();
+            if (posicao == fim) {
+                return EM_BRANCO;
+            }
+
+            String nome = null;
+            String email = null;
+            String cpf = null;
+            long idade = -1;
+            long data = -1;
+            try {
+                esperar('{');
+                if (!consumir('}')) {
+                    do {
+                        pularEspacos();
+                        lerTexto();
+                        esperar(':');
+                        pularEspacos();
+                        if (chaveIgual(CHAVE_NOME)) {
+                            nome = lerValorTexto();
+                        } else if (chaveIgual(CHAVE_EMAIL)) {
+                            email = lerValorTexto();
+                        } else if (chaveIgual(CHAVE_CPF)) {
+                            cpf = lerValorTexto();
+                        } else if (chaveIgual(CHAVE_IDADE)) {
+                            idade = lerInteiro();
+                        } else if (chaveIgual(CHAVE_DATA)) {
+                            data = lerInteiro();
+                        } else {
+                            pularValor(0);
+                        }
+                    } while (consumir(','));
+                    esperar('}');
+                }
+                pularEspacos();
+                if (posicao < fim) {
+                    return "JSON inválido: conteúdo após o objeto";
+                }
+            } catch (IllegalArgumentException e) {
+                return e.getMessage();
+            }
+
+            if (nome == null || email == null || cpf == null || idade < 0) {
+                return "campos obrigatórios ausentes (nome, email, idade, cpf)";
+            }
+            if (idade > Integer.MAX_VALUE) {
+                return "idade inválida";
+            }
+            try {
+                Usuario usuario = Usuario.criar(nome, email, (int) idade, cpf);
+                if (data >= 0) {
+                    usuario.setDataCadastro(new Date(data));
+                }
+                saida.add(usuario);
+                return null;
+            } catch (IllegalArgumentException e) {
+                return e.getMessage();
+            }
+        }
+
+        private boolean chaveIgual(char[] chave) {
+            if (tamanho != chave.length) {
+                return false;
+            }
+            for (int i = 0; i < tamanho; i++) {
+                if (caracteres[i] != chave[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private String lerValorTexto() {
+            if (posicao < fim && dados[posicao] == 'n' && lerPalavra("null")) {
+                return null;
+            }
+            lerTexto();
+            // Metade de par isolada (vinda de um escape): não teria como ser gravada em UTF-8 depois
+            for (int i = 0; i < tamanho; i++) {
+                char c = caracteres[i];
+                if (Character.isHighSurrogate(c) && i + 1 < tamanho && Character.isLowSurrogate(caracteres[i + 1])) {
+                    i++;
+                } else if (Character.isSurrogate(c)) {
+                    throw erro("caractere UTF-16 isolado no texto");
+                }
+            }
+            return new String(caracteres, 0, tamanho);
+        }
+
+        /**
+         * Decodifica o texto entre aspas para 'caracteres'
+         */
+        private void lerTexto() {
+            esperar('"');
+            tamanho = 0;
+            while (posicao < fim) {
+                int b = dados[posicao++] & 0xFF;
+                if (b == '"') {
+                    return;
+                }
+                if (b < 0x20) {
+                    throw erro("caractere de controle no texto");
+                }
+                if (b == '\\') {
+                    acrescentar(lerEscape());
+                } else if (b < 0x80) {
+                    acrescentar((char) b);
+                } else {
+                    lerUtf8(b);
+                }
+            }
+            throw erro("texto sem aspas de fechamento");
+        }
+
+        private char lerEscape() {
+            if (posicao >= fim) {
+                throw erro("escape incompleto");
+            }
+            byte escape = dados[posicao++];
+            switch (escape) {
+                case '"':  return '"';
+                case '\\': return '\\';
+                case '/':  return '/';
+                case 'n':  return '\n';
+                case 'r':  return '\r';
+                case 't':  return '\t';
+                case 'b':  return '\b';
+                case 'f':  return '\f';
+                case 'u':
+                    if (posicao + 4 > fim) {
+                        throw erro("escape \\u incompleto");
+                    }
+                    int codigo = 0;
+                    for (int i = 0; i < 4; i++) {
+                        int digito = Character.digit(dados[posicao++], 16);
+                        if (digito < 0) {
+                            throw erro("escape \\u inválido");
+                        }
+                        codigo = (codigo << 4) | digito;
+                    }
+                    return (char) codigo;
+                default:
+                    throw erro("escape inválido");
+            }
+        }
+
+        /**
+         * Decodifica a sequência UTF-8 iniciada pelo byte 'primeiro'
+         */
+        private void lerUtf8(int primeiro) {
+            int continuacoes;
+            int codigo;
+            if ((primeiro & 0xE0) == 0xC0) {
+                continuacoes = 1;
+                codigo = primeiro & 0x1F;
+            } else if ((primeiro & 0xF0) == 0xE0) {
+                continuacoes = 2;
+                codigo = primeiro & 0x0F;
+            } else if ((primeiro & 0xF8) == 0xF0) {
+                continuacoes = 3;
+                codigo = primeiro & 0x07;
+            } else {
+                throw erro("UTF-8 inválido");
+            }
+            if (posicao + continuacoes > fim) {
+                throw erro("UTF-8 incompleto");
+            }
+            for (int i = 0; i < continuacoes; i++) {
+                int b = dados[posicao++] & 0xFF;
+                if ((b & 0xC0) != 0x80) {
+                    throw erro("UTF-8 inválido");
+                }
+                codigo = (codigo << 6) | (b & 0x3F);
+            }
+            // Recusa codificações longas demais e valores fora do Unicode
+            int minimo = continuacoes == 1 ? 0x80 : continuacoes == 2 ? 0x800 : 0x10000;
+            if (codigo < minimo || codigo > Character.MAX_CODE_POINT
+                    || (codigo >= Character.MIN_SURROGATE && codigo <= Character.MAX_SURROGATE)) {
+                throw erro("UTF-8 inválido");
+            }
+            if (codigo >= 0x10000) {
+                acrescentar(Character.highSurrogate(codigo));
+                acrescentar(Character.lowSurrogate(codigo));
+            } else {
+                acrescentar((char) codigo);
+            }
+        }
+
+        private void acrescentar(char c) {
+            if (tamanho == caracteres.length) {
+                char[] maior = new char[caracteres.length * 2];
+                System.arraycopy(caracteres, 0, maior, 0, tamanho);
+                caracteres = maior;
+            }
+            caracteres[tamanho++] = c;
+        }
+
+        private long lerInteiro() {
+            boolean negativo = posicao < fim && dados[posicao] == '-';
+            if (negativo) {
+                posicao++;
+            }
+            long valor = 0;
+            int digitos = 0;
+            while (posicao < fim && dados[posicao] >= '0' && dados[posicao] <= '9') {
+                if (++digitos > 18) {
+                    throw erro("número grande demais");
+                }
+                valor = valor * 10 + (dados[posicao++] - '0');
+            }
+            if (digitos == 0) {
+                throw erro("número inválido");
+            }
+            if (posicao < fim && (dados[posicao] == '.' || dados[posicao] == 'e' || dados[posicao] == 'E')) {
+                throw erro("apenas números inteiros são aceitos");
+            }
+            return negativo ? -valor : valor;
+        }
+
+        /**
+         * Pula um valor qualquer (campo não reconhecido)
+         */
+        private void pularValor(int profundidade) {
+            if (profundidade > PROFUNDIDADE_MAXIMA) {
+                throw erro("aninhamento profundo demais");
+            }
+            if (posicao >= fim) {
+                throw erro("valor ausente");
+            }
+            byte c = dados[posicao];
+            if (c == '"') {
+                lerTexto();
+            } else if (c == '{' || c == '[') {
+                byte fecha = c == '{' ? (byte) '}' : (byte) ']';
+                posicao++;
+                if (consumir((char) fecha)) {
+                    return;
+                }
+                do {
+                    pularEspacos();
+                    if (c == '{') {
+                        lerTexto();
+                        esperar(':');
+                        pularEspacos();
+                    }
+                    pularValor(profundidade + 1);
+                } while (consumir(','));
+                esperar((char) fecha);
+            } else if (c == '-' || (c >= '0' && c <= '9')) {
+                posicao++;
+                while (posicao < fim && ((dados[posicao] >= '0' && dados[posicao] <= '9')
+                        || dados[posicao] == '.' || dados[posicao] == 'e' || dados[posicao] == 'E'
+                        || dados[posicao] == '+' || dados[posicao] == '-')) {
+                    posicao++;
+                }
+            } else if (!lerPalavra("true") && !lerPalavra("false") && !lerPalavra("null")) {
+                throw erro("valor não suportado");
+            }
+        }
+
+        private boolean lerPalavra(String palavra) {
+            if (posicao + palavra.length() > fim) {
+                return false;
+            }
+            for (int i = 0; i < palavra.length(); i++) {
+                if (dados[posicao + i] != palavra.charAt(i)) {
+                    return false;
+                }
+            }
+            posicao += palavra.length();
+            return true;
+        }
+
+        private void pularEspacos() {
+            while (posicao < fim) {
+                byte c = dados[posicao];
+                if (c != ' ' && c != '\t' && c != '\r' && c != '\n') {
+                    break;
+                }
+                posicao++;
+            }
+        }
+
+        private boolean consumir(char esperado) {
+            pularEspacos();
+            if (posicao < fim && dados[posicao] == esperado) {
+                posicao++;
+                return true;
+            }
+            return false;
+        }
+
+        private void esperar(char esperado) {
+            if (!consumir(esperado)) {
+                throw erro("esperado '" + esperado + "'");
+            }
+        }
+
+        private IllegalArgumentException erro(String motivo) {
+            return new IllegalArgumentException("JSON inválido: " + motivo);
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package cadastro;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntFunction;
+import java.util.stream.IntStream;
+
+/**
+ * Instantâneo dividido em um arquivo por partição
+ *
+ * Cada partição vai para 'usuarios.particao-P-de-N.bin' (formato colunar,
+ * com CRC32) e o manifesto 'usuarios.particoes' guarda N. Os arquivos são
+ * gravados e lidos em paralelo no ForkJoinPool comum, cada um por uma
+ * thread: o tempo total cai com o número de núcleos (e de filas do disco).
+ *
+ * Cada arquivo é trocado atomicamente (InstantaneoAutomatico.gravarAtomicamente)
+ * e o manifesto é gravado por último. Como o nome inclui N, mudar o número
+ * de partições nunca sobrescreve arquivos da divisão anterior antes que a
+ * nova esteja completa; os da divisão anterior são apagados depois.
+ *
+ * Os arquivos ficam no diretório do manifesto; o sistema usa MANIFESTO, no
+ * diretório de trabalho.
+ *
+ * A leitura não depende da partição em que cada usuário está no arquivo: o
+ * repositório que recebe os usuários recalcula a partição pelo email.
+ */
+final class ArquivoParticionado {
+
+    static final Path MANIFESTO = Paths.get("usuarios.particoes");
+
+    private static final String PREFIXO = "usuarios.particao-";
+
+    private ArquivoParticionado() {
+    }
+
+    static Path arquivo(Path manifesto, int particao, int total) {
+        return manifesto.resolveSibling(PREFIXO + particao + "-de-" + total + ".bin");
+    }
+
+    /**
+     * Grava as 'total' partições em paralelo e depois o manifesto
+     *
+     * @param usuariosDaParticao usuários da partição (chamado na thread que a grava)
+     */
+    static void gravar(Path manifesto, int total, IntFunction<List<Usuario>> usuariosDaParticao) throws IOException {
+        try {
+            IntStream.range(0, total).parallel().forEach(p -> {
+                List<Usuario> usuarios = usuariosDaParticao.apply(p);
+                try {
+                    InstantaneoAutomatico.gravarAtomicamente(arquivo(manifesto, p, total),
+                                                             temporario -> ArquivoColunar.gravar(temporario, usuarios));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        byte[] conteudo = (total + System.lineSeparator()).getBytes(StandardCharsets.US_ASCII);
+        InstantaneoAutomatico.gravarAtomicamente(manifesto, temporario -> Files.write(temporario, conteudo));
+        apagarOutrasDivisoes(manifesto, total);
+    }
+
+    /**
+     * Distribui os usuários pela partição do email (divisão de um repositório
+     * que não é particionado, ou com outro número de partições)
+     */
+    static List<List<Usuario>> dividir(List<Usuario> usuarios, int total) {
+        List<List<Usuario>> particoes = new ArrayList<>(total);
+        for (int p = 0; p < total; p++) {
+            particoes.add(new ArrayList<>(usuarios.size() / total + 16));
+        }
+        for (Usuario usuario : usuarios) {
+            particoes.get(RepositorioParticionado.particao(usuario.getEmail(), total)).add(usuario);
+        }
+        return particoes;
+    }
+
+    /**
+     * Lê todas as partições em paralelo; o consumidor é chamado por várias
+     * threads ao mesmo tempo
+     *
+     * @return quantidade de usuários lidos
+     */
+    static long ler(Path manifesto, ArquivoColunar.Consumidor consumidor) throws IOException {
+        int total = lerManifesto(manifesto);
+        LongAdder lidos = new LongAdder();
+        try {
+            IntStream.range(0, total).parallel().forEach(p -> {
+                try {
+                    lidos.add(ArquivoColunar.ler(arquivo(manifesto, p, total), consumidor));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(arquivo(manifesto, p, total) + ": " + e.getMessage(), e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw new IOException(e.getMessage(), e.getCause());
+        }
+        return lidos.sum();
+    }
+
+    /**
+     * @return número de partições do último instantâneo particionado
+     */
+    static int lerManifesto(Path manifesto) throws IOException {
+        String texto = new String(Files.readAllBytes(manifesto), StandardCharsets.US_ASCII).trim();
+        try {
+            int total = Integer.parseInt(texto);
+            if (total >= 1) {
+                return total;
+            }
+        } catch (NumberFormatException e) {
+            // tratado abaixo
+        }
+        throw new IOException("Manifesto de partições inválido: '" + texto + "'");
+    }
+
+    /**
+     * @return data do último instantâneo particionado, ou null se não houver
+     */
+    static FileTime modificacao(Path manifesto) throws IOException {
+        return Files.exists(manifesto) ? Files.getLastModifiedTime(manifesto) : null;
+    }
+
+    /**
+     * Remove temporários de partições deixados por uma gravação interrompida
+     */
+    static void descartarTemporarios(Path manifesto) throws IOException {
+        try (DirectoryStream<Path> arquivos =
+                     Files.newDirectoryStream(manifesto.toAbsolutePath().getParent(), PREFIXO + "*.bin.tmp")) {
+            for (Path arquivo : arquivos) {
+                Files.deleteIfExists(arquivo);
+                System.out.printf("Descartado '%s' de uma gravação interrompida.%n", arquivo.getFileName());
+            }
+        }
+    }
+
+    /**
+     * Apaga arquivos de partição de divisões com outro número de partições
+     */
+    private static void apagarOutrasDivisoes(Path manifesto, int total) throws IOException {
+        String sufixo = "-de-" + total + ".bin";
+        try (DirectoryStream<Path> arquivos =
+                     Files.newDirectoryStream(manifesto.toAbsolutePath().getParent(), PREFIXO + "*.bin")) {
+            for (Path arquivo : arquivos) {
+                if (!arquivo.getFileName().toString().endsWith(sufixo)) {
+                    Files.deleteIfExists(arquivo);
+                }
+            }
+        }
+    }
+}
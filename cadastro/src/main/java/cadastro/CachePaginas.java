@@ -0,0 +1,184 @@
+package cadastro;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Cache de páginas de um arquivo, com orçamento em bytes e despejo CLOCK
+ *
+ * Cada página ocupa um quadro (byte[] do tamanho da página). Os quadros são
+ * criados sob demanda até o orçamento; a partir daí, uma falta reaproveita o
+ * quadro escolhido pelo algoritmo do relógio: o ponteiro percorre os quadros
+ * em círculo, dando uma segunda chance a quem foi usado desde a última volta
+ * (bit de referência) e despejando o primeiro que não foi. É uma aproximação
+ * do LRU que não reordena nenhuma lista a cada acerto.
+ *
+ * Páginas alteradas (sujas) são gravadas ao serem despejadas ou em esvaziar().
+ *
+ * Não é segura para várias threads: quem usa a cache a protege com a própria
+ * trava. O vetor devolvido por obter() só é válido até a próxima chamada.
+ */
+class CachePaginas {
+
+    /**
+     * Leitura e gravação de páginas inteiras no arquivo
+     */
+    interface Disco {
+        void ler(long pagina, byte[] destino) throws IOException;
+
+        void gravar(long pagina, byte[] origem) throws IOException;
+    }
+
+    private static final long LIVRE = -1;
+
+    private final Disco disco;
+    private final int tamanhoPagina;
+    private final int maximoQuadros;
+
+    private byte[][] quadros = new byte[16][];
+    private long[] paginas = new long[16];        // página em cada quadro (LIVRE: nenhuma)
+    private boolean[] referenciados = new boolean[16];
+    private boolean[] sujos = new boolean[16];
+    private int quadrosUsados;
+    private int ponteiro;
+    private final IndicePrimitivo quadroPorPagina = new IndicePrimitivo();
+
+    private long acertos;
+    private long faltas;
+    private long despejos;
+    private long gravacoes;
+
+    /**
+     * @param orcamentoBytes memória máxima dos quadros (no mínimo 2 páginas)
+     */
+    CachePaginas(Disco disco, int tamanhoPagina, long orcamentoBytes) {
+        this.disco = disco;
+        this.tamanhoPagina = tamanhoPagina;
+        this.maximoQuadros = (int) Math.max(2, Math.min(orcamentoBytes / tamanhoPagina, Integer.MAX_VALUE - 8));
+    }
+
+    /**
+     * Dados da página, lidos do disco se não estiverem na cache
+     *
+     * @param nova a página ainda não existe no arquivo: começa zerada, sem leitura
+     */
+    byte[] obter(long pagina, boolean nova) throws IOException {
+        int quadro = quadroPorPagina.buscar(pagina);
+        if (quadro != IndicePrimitivo.AUSENTE) {
+            acertos++;
+            referenciados[quadro] = true;
+            return quadros[quadro];
+        }
+
+        faltas++;
+        quadro = quadroLivre();
+        byte[] dados = quadros[quadro];
+        if (nova) {
+            Arrays.fill(dados, (byte) 0);
+        } else {
+            disco.ler(pagina, dados);
+        }
+        paginas[quadro] = pagina;
+        referenciados[quadro] = true;
+        sujos[quadro] = false;
+        quadroPorPagina.inserirSeAusente(pagina, quadro, null);
+        return dados;
+    }
+
+    /**
+     * Marca a página (que deve estar na cache) como alterada
+     */
+    void marcarSuja(long pagina) {
+        int quadro = quadroPorPagina.buscar(pagina);
+        if (quadro == IndicePrimitivo.AUSENTE) {
+            throw new IllegalStateException("Página " + pagina + " fora da cache");
+        }
+        sujos[quadro] = true;
+    }
+
+    /**
+     * Grava todas as páginas sujas (elas continuam na cache)
+     */
+    void esvaziar() throws IOException {
+        for (int quadro = 0; quadro < quadrosUsados; quadro++) {
+            if (sujos[quadro]) {
+                disco.gravar(paginas[quadro], quadros[quadro]);
+                sujos[quadro] = false;
+                gravacoes++;
+            }
+        }
+    }
+
+    /**
+     * Quadro para uma página nova: um ainda não usado enquanto houver
+     * orçamento, senão o escolhido pelo relógio
+     */
+    private int quadroLivre() throws IOException {
+        if (quadrosUsados < maximoQuadros) {
+            if (quadrosUsados == quadros.length) {
+                int capacidade = (int) Math.min((long) quadros.length * 2, maximoQuadros);
+                quadros = Arrays.copyOf(quadros, capacidade);
+                paginas = Arrays.copyOf(paginas, capacidade);
+                referenciados = Arrays.copyOf(referenciados, capacidade);
+                sujos = Arrays.copyOf(sujos, capacidade);
+            }
+            quadros[quadrosUsados] = new byte[tamanhoPagina];
+            paginas[quadrosUsados] = LIVRE;
+            return quadrosUsados++;
+        }
+
+        while (referenciados[ponteiro]) {
+            referenciados[ponteiro] = false;   // segunda chance
+            ponteiro = (ponteiro + 1) % quadrosUsados;
+        }
+        int vitima = ponteiro;
+        ponteiro = (ponteiro + 1) % quadrosUsados;
+
+        if (paginas[vitima] == LIVRE) {
+            return vitima;     // a leitura anterior para este quadro falhou
+        }
+        if (sujos[vitima]) {
+            disco.gravar(paginas[vitima], quadros[vitima]);
+            gravacoes++;
+        }
+        // Livre antes da leitura da nova página: se ela falhar, o quadro (com
+        // dados pela metade) não volta a ser gravado sobre a página antiga
+        sujos[vitima] = false;
+        quadroPorPagina.remover(paginas[vitima], vitima);
+        paginas[vitima] = LIVRE;
+        despejos++;
+        return vitima;
+    }
+
+    long getAcertos() {
+        return acertos;
+    }
+
+    long getFaltas() {
+        return faltas;
+    }
+
+    long getDespejos() {
+        return despejos;
+    }
+
+    long getGravacoes() {
+        return gravacoes;
+    }
+
+    /**
+     * Fração dos acessos atendidos sem ler o disco (0 se não houve acesso)
+     */
+    double getTaxaAcerto() {
+        long total = acertos + faltas;
+        return total == 0 ? 0 : (double) acertos / total;
+    }
+
+    long getBytesResidentes() {
+        return (long) quadrosUsados * tamanhoPagina;
+    }
+
+    long getOrcamentoBytes() {
+        return (long) maximoQuadros * tamanhoPagina;
+    }
+}
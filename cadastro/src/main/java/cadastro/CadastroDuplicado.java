@@ -0,0 +1,15 @@
+package cadastro;
+
+/**
+ * Email ou CPF que já pertence a outro usuário cadastrado
+ *
+ * Subclasse de IllegalArgumentException para que quem só distingue dado
+ * válido de inválido continue funcionando; quem precisa separar os dois
+ * casos (o servidor responde 409 em vez de 400) captura este tipo.
+ */
+class CadastroDuplicado extends IllegalArgumentException {
+
+    CadastroDuplicado(String mensagem) {
+        super(mensagem);
+    }
+}
@@ -0,0 +1,314 @@
+package cadastro;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Predicate;
+
+/**
+ * Carregador paralelo de arquivos CSV de usuários
+ *
+ * O arquivo é dividido em blocos de bytes alinhados em quebras de linha. Cada
+ * bloco é analisado em paralelo num ForkJoinPool por um leitor de campos
+ * escrito à mão (sem String.split nem Integer.parseInt), e os resultados de
+ * cada bloco são juntados no cadastro na ordem original do arquivo.
+ *
+ * Fases medidas separadamente:
+ * - divisão: localização dos limites dos blocos
+ * - análise: leitura e interpretação dos blocos em paralelo
+ * - junção: inserção dos usuários no cadastro
+ */
+class CarregadorCSV {
+
+    private static final int TAMANHO_MINIMO_BLOCO = 1 << 20;    // 1 MB
+    private static final int TAMANHO_MAXIMO_BLOCO = 16 << 20;   // 16 MB
+    private static final int MAXIMO_ERROS_POR_BLOCO = 100;
+
+    /**
+     * Linha que não pôde ser interpretada
+     */
+    static class LinhaInvalida {
+        final long posicao;     // posição em bytes do início da linha no arquivo
+        final String motivo;
+
+        LinhaInvalida(long posicao, String motivo) {
+            this.posicao = posicao;
+            this.motivo = motivo;
+        }
+
+        @Override
+        public String toString() {
+            return "byte " + posicao + ": " + motivo;
+        }
+    }
+
+    /**
+     * Resumo de uma carga
+     */
+    static class Resultado {
+        int blocos;
+        int threads;
+        long lidos;             // usuários interpretados com sucesso
+        long adicionados;       // usuários aceitos pelo cadastro
+        long invalidas;         // total de linhas inválidas
+        long nanosDivisao;
+        long nanosAnalise;
+        long nanosJuncao;
+        final List<LinhaInvalida> erros = new ArrayList<>();
+
+        void imprimirTempos() {
+            System.out.printf("Divisão: %.1f ms | Análise: %.1f ms (%d blocos, %d threads) | Junção: %.1f ms%n",
+                              nanosDivisao / 1e6, nanosAnalise / 1e6, blocos, threads, nanosJuncao / 1e6);
+        }
+
+        void imprimirErros(int limite) {
+            if (invalidas == 0) {
+                return;
+            }
+            System.out.printf("%d linha(s) inválida(s):%n", invalidas);
+            for (int i = 0; i < erros.size() && i < limite; i++) {
+                System.out.println("  " + erros.get(i));
+            }
+            int exibidas = Math.min(limite, erros.size());
+            if (invalidas > exibidas) {
+                System.out.printf("  ... e mais %d%n", invalidas - exibidas);
+            }
+        }
+    }
+
+    /**
+     * Bloco de bytes do arquivo e o que foi extraído dele
+     */
+    private static class Bloco {
+        final long inicio;
+        final long fim;
+        final List<Usuario> usuarios = new ArrayList<>();
+        final List<LinhaInvalida> erros = new ArrayList<>();
+        long invalidas;
+
+        Bloco(long inicio, long fim) {
+            this.inicio = inicio;
+            this.fim = fim;
+        }
+    }
+
+    /**
+     * Carrega o arquivo, entregando cada usuário ao destino na ordem do arquivo
+     *
+     * @param destino recebe o usuário e devolve true se ele foi aceito
+     */
+    static Resultado carregar(Path arquivo, Predicate<Usuario> destino) throws IOException {
+        Resultado resultado = new Resultado();
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        resultado.threads = pool.getParallelism();
+
+        try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+
+            // Fase 1: divisão em blocos alinhados em '\n'
+            long t0 = System.nanoTime();
+            List<Bloco> blocos = dividir(canal, resultado.threads);
+            resultado.blocos = blocos.size();
+            resultado.nanosDivisao = System.nanoTime() - t0;
+
+            // Fase 2: análise em paralelo
+            t0 = System.nanoTime();
+            if (!blocos.isEmpty()) {
+                try {
+                    pool.invoke(new TarefaAnalise(canal, blocos, 0, blocos.size()));
+                } catch (UncheckedIOException e) {
+                    throw e.getCause();
+                }
+            }
+            resultado.nanosAnalise = System.nanoTime() - t0;
+
+            // Fase 3: junção na ordem original
+            t0 = System.nanoTime();
+            for (Bloco bloco : blocos) {
+                for (Usuario usuario : bloco.usuarios) {
+                    resultado.lidos++;
+                    if (destino.test(usuario)) {
+                        resultado.adicionados++;
+                    }
+                }
+                resultado.invalidas += bloco.invalidas;
+                resultado.erros.addAll(bloco.erros);
+            }
+            resultado.nanosJuncao = System.nanoTime() - t0;
+        }
+        return resultado;
+    }
+
+    /**
+     * Divide o arquivo em blocos cujos limites caem logo após um '\n'
+     */
+    private static List<Bloco> dividir(FileChannel canal, int threads) throws IOException {
+        long tamanho = canal.size();
+        long tamanhoBloco = Math.max(TAMANHO_MINIMO_BLOCO, tamanho / (threads * 4L));
+        tamanhoBloco = Math.min(tamanhoBloco, TAMANHO_MAXIMO_BLOCO);
+
+        List<Bloco> blocos = new ArrayList<>();
+        ByteBuffer busca = ByteBuffer.allocate(4096);
+        long inicio = 0;
+
+        while (inicio < tamanho) {
+            long fim = Math.min(inicio + tamanhoBloco, tamanho);
+
+            // Avança o limite até o próximo '\n' (inclusive)
+            procura:
+            while (fim < tamanho) {
+                busca.clear();
+                int lidos = canal.read(busca, fim);
+                if (lidos <= 0) {
+                    fim = tamanho;
+                    break;
+                }
+                for (int i = 0; i < lidos; i++) {
+                    if (busca.get(i) == '\n') {
+                        fim += i + 1;
+                        break procura;
+                    }
+                }
+                fim += lidos;
+            }
+
+            blocos.add(new Bloco(inicio, fim));
+            inicio = fim;
+        }
+        return blocos;
+    }
+
+    /**
+     * Divide recursivamente a lista de blocos entre as threads do pool
+     */
+    private static class TarefaAnalise extends RecursiveAction {
+        private final FileChannel canal;
+        private final List<Bloco> blocos;
+        private final int de;
+        private final int ate;
+
+        TarefaAnalise(FileChannel canal, List<Bloco> blocos, int de, int ate) {
+            this.canal = canal;
+            this.blocos = blocos;
+            this.de = de;
+            this.ate = ate;
+        }
+
+        @Override
+        protected void compute() {
+            if (ate - de == 1) {
+                try {
+                    analisar(canal, blocos.get(de));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return;
+            }
+            int meio = (de + ate) >>> 1;
+            invokeAll(new TarefaAnalise(canal, blocos, de, meio),
+                      new TarefaAnalise(canal, blocos, meio, ate));
+        }
+    }
+
+    /**
+     * Lê o bloco para a memória e interpreta linha por linha
+     */
+    private static void analisar(FileChannel canal, Bloco bloco) throws IOException {
+        byte[] dados = new byte[(int) (bloco.fim - bloco.inicio)];
+        ByteBuffer buffer = ByteBuffer.wrap(dados);
+        while (buffer.hasRemaining()) {
+            if (canal.read(buffer, bloco.inicio + buffer.position()) < 0) {
+                break;
+            }
+        }
+
+        int[] campos = new int[8];  // início e fim dos 4 campos
+        int linha = 0;
+        while (linha < dados.length) {
+            int fimLinha = linha;
+            while (fimLinha < dados.length && dados[fimLinha] != '\n') {
+                fimLinha++;
+            }
+            int fimConteudo = fimLinha;
+            if (fimConteudo > linha && dados[fimConteudo - 1] == '\r') {
+                fimConteudo--;
+            }
+
+            if (!linhaEmBranco(dados, linha, fimConteudo)) {
+                String erro = analisarLinha(dados, linha, fimConteudo, campos, bloco.usuarios);
+                if (erro != null) {
+                    bloco.invalidas++;
+                    if (bloco.erros.size() < MAXIMO_ERROS_POR_BLOCO) {
+                        bloco.erros.add(new LinhaInvalida(bloco.inicio + linha, erro));
+                    }
+                }
+            }
+            linha = fimLinha + 1;
+        }
+    }
+
+    /**
+     * Interpreta uma linha "nome,email,idade,cpf" (campos extras são ignorados)
+     *
+     * @return null em caso de sucesso, ou a descrição do problema
+     */
+    private static String analisarLinha(byte[] dados, int inicio, int fim, int[] campos, List<Usuario> saida) {
+        int campo = 0;
+        campos[0] = inicio;
+        for (int i = inicio; i < fim && campo < 4; i++) {
+            if (dados[i] == ',') {
+                campos[2 * campo + 1] = i;
+                campo++;
+                if (campo < 4) {
+                    campos[2 * campo] = i + 1;
+                }
+            }
+        }
+        if (campo < 3) {
+            return "esperados 4 campos, encontrados " + (campo + 1);
+        }
+        if (campo == 3) {
+            campos[7] = fim;
+        }
+
+        // Idade: dígitos decimais sem sinal
+        int idade = 0;
+        int inicioIdade = campos[4];
+        int fimIdade = campos[5];
+        if (inicioIdade == fimIdade || fimIdade - inicioIdade > 9) {
+            return "idade inválida";
+        }
+        for (int i = inicioIdade; i < fimIdade; i++) {
+            int digito = dados[i] - '0';
+            if (digito < 0 || digito > 9) {
+                return "idade inválida";
+            }
+            idade = idade * 10 + digito;
+        }
+
+        String nome = new String(dados, campos[0], campos[1] - campos[0], StandardCharsets.UTF_8);
+        String email = new String(dados, campos[2], campos[3] - campos[2], StandardCharsets.UTF_8);
+        String cpf = new String(dados, campos[6], campos[7] - campos[6], StandardCharsets.UTF_8);
+
+        try {
+            saida.add(Usuario.criar(nome, email, idade, cpf));
+            return null;
+        } catch (IllegalArgumentException e) {
+            return e.getMessage();
+        }
+    }
+
+    private static boolean linhaEmBranco(byte[] dados, int inicio, int fim) {
+        for (int i = inicio; i < fim; i++) {
+            if (dados[i] != ' ' && dados[i] != '\t') {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,223 @@
+package cadastro;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Cliente de carga para o servidor HTTP (ServidorCadastro)
+ *
+ * Envia requisições numa taxa fixa (QPS alvo) e mede a latência de cada uma
+ * a partir do instante em que ela deveria ter sido enviada. Assim, quando o
+ * servidor atrasa, a espera das requisições seguintes entra na medição (sem
+ * a "omissão coordenada" de um cliente que só envia após a resposta anterior).
+ *
+ * A carga mistura cadastros (emails novos, CPFs válidos) e buscas por email
+ * de usuários cadastrados nesta execução.
+ *
+ * Uso:
+ *   java -cp cadastro-1.0.jar cadastro.ClienteCarga [url] [qps] [segundos] [conexoes] [fracaoBuscas]
+ * Padrões: http://localhost:8080 1000 10 32 0.8
+ */
+class ClienteCarga {
+
+    private static final int CODIGOS_HTTP = 600;
+
+    private final String url;
+    private final int qps;
+    private final int segundos;
+    private final int conexoes;
+    private final double fracaoBuscas;
+
+    // Emails e CPFs desta execução (outra execução usa outro prefixo e deslocamento)
+    private final String prefixoEmail = "carga" + Long.toString(System.nanoTime(), 36);
+    private final long deslocamentoCpf = ThreadLocalRandom.current().nextLong(900_000_000L);
+    private final AtomicInteger proximoNumero = new AtomicInteger();
+    private final AtomicInteger cadastrados = new AtomicInteger();
+    private final AtomicLongArray contagemPorCodigo = new AtomicLongArray(CODIGOS_HTTP);
+    private final AtomicInteger falhasConexao = new AtomicInteger();
+
+    ClienteCarga(String url, int qps, int segundos, int conexoes, double fracaoBuscas) {
+        this.url = url;
+        this.qps = qps;
+        this.segundos = segundos;
+        this.conexoes = conexoes;
+        this.fracaoBuscas = fracaoBuscas;
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        String url = args.length > 0 ? args[0] : "http://localhost:" + ServidorCadastro.PORTA_PADRAO;
+        int qps = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        int segundos = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        int conexoes = args.length > 3 ? Integer.parseInt(args[3]) : 32;
+        double fracaoBuscas = args.length > 4 ? Double.parseDouble(args[4]) : 0.8;
+
+        // Conexões mantidas abertas por destino (keep-alive do HttpURLConnection)
+        System.setProperty("http.maxConnections", String.valueOf(conexoes));
+
+        new ClienteCarga(url, qps, segundos, conexoes, fracaoBuscas).executar();
+    }
+
+    void executar() throws InterruptedException {
+        long total = (long) qps * segundos;
+        long intervalo = 1_000_000_000L / qps;
+        long[][] latencias = new long[conexoes][];
+        Thread[] trabalhadores = new Thread[conexoes];
+
+        System.out.printf("Carga: %s, %d req/s por %d s, %d conexões, %.0f%% buscas%n",
+                          url, qps, segundos, conexoes, fracaoBuscas * 100);
+
+        // Cada trabalhador envia as requisições i ≡ t (mod conexoes) no seu horário
+        long inicio = System.nanoTime() + 100_000_000L;
+        for (int t = 0; t < conexoes; t++) {
+            int trabalhador = t;
+            long quantidade = (total - t + conexoes - 1) / conexoes;
+            latencias[t] = new long[(int) Math.max(quantidade, 0)];
+            trabalhadores[t] = new Thread(() -> {
+                long[] medidas = latencias[trabalhador];
+                for (int n = 0; n < medidas.length; n++) {
+                    long previsto = inicio + (n * (long) conexoes + trabalhador) * intervalo;
+                    long espera = previsto - System.nanoTime();
+                    if (espera > 0) {
+                        LockSupport.parkNanos(espera);
+                    }
+                    enviarRequisicao();
+                    medidas[n] = System.nanoTime() - previsto;
+                }
+            }, "carga-" + t);
+            trabalhadores[t].start();
+        }
+        for (Thread trabalhador : trabalhadores) {
+            trabalhador.join();
+        }
+        double duracao = (System.nanoTime() - inicio) / 1e9;
+
+        imprimirRelatorio(juntar(latencias), duracao);
+    }
+
+    private void enviarRequisicao() {
+        int existentes = cadastrados.get();
+        try {
+            int codigo;
+            if (existentes > 0 && ThreadLocalRandom.current().nextDouble() < fracaoBuscas) {
+                String email = email(ThreadLocalRandom.current().nextInt(existentes));
+                codigo = enviar("GET", "/usuarios?email=" + URLEncoder.encode(email, "UTF-8"), null);
+            } else {
+                codigo = cadastrar();
+            }
+            contagemPorCodigo.incrementAndGet(Math.min(codigo, CODIGOS_HTTP - 1));
+        } catch (IOException e) {
+            falhasConexao.incrementAndGet();
+        }
+    }
+
+    private int cadastrar() throws IOException {
+        // Reserva o número antes de enviar; as buscas só usam números já confirmados
+        int numero = proximoNumero.getAndIncrement();
+        StringBuilder corpo = new StringBuilder(128);
+        corpo.append("{\"nome\":\"Usuario Carga ").append(numero).append('"');
+        corpo.append(",\"email\":\"").append(email(numero)).append('"');
+        corpo.append(",\"idade\":").append(18 + numero % 60);
+        corpo.append(",\"cpf\":\"").append(ArquivoColunar.formatarCPF(cpf(numero))).append("\"}");
+
+        int codigo = enviar("POST", "/usuarios", corpo.toString());
+        if (codigo == 201) {
+            cadastrados.accumulateAndGet(numero + 1, Math::max);
+        }
+        return codigo;
+    }
+
+    private String email(int numero) {
+        return prefixoEmail + "." + numero + "@exemplo.com";
+    }
+
+    /**
+     * CPF válido derivado do número
+     */
+    private long cpf(int numero) {
+        return ValidacaoCadastro.completarCPF(100_000_000L + (deslocamentoCpf + numero) % 900_000_000L);
+    }
+
+    /**
+     * Envia a requisição e lê a resposta até o fim (a conexão volta ao pool)
+     */
+    private int enviar(String metodo, String caminho, String corpo) throws IOException {
+        HttpURLConnection conexao = (HttpURLConnection) new URL(url + caminho).openConnection();
+        conexao.setRequestMethod(metodo);
+        conexao.setConnectTimeout(5_000);
+        conexao.setReadTimeout(30_000);
+        if (corpo != null) {
+            byte[] bytes = corpo.getBytes(StandardCharsets.UTF_8);
+            conexao.setDoOutput(true);
+            conexao.setFixedLengthStreamingMode(bytes.length);
+            conexao.setRequestProperty("Content-Type", "application/json");
+            try (OutputStream saida = conexao.getOutputStream()) {
+                saida.write(bytes);
+            }
+        }
+        int codigo = conexao.getResponseCode();
+        InputStream resposta = codigo >= 400 ? conexao.getErrorStream() : conexao.getInputStream();
+        if (resposta != null) {
+            try (InputStream entrada = resposta) {
+                descartar(entrada);
+            }
+        }
+        return codigo;
+    }
+
+    private static void descartar(InputStream entrada) throws IOException {
+        byte[] buffer = new byte[4096];
+        while (entrada.read(buffer) > 0) {
+            // apenas consome
+        }
+    }
+
+    private static long[] juntar(long[][] partes) {
+        int total = 0;
+        for (long[] parte : partes) {
+            total += parte.length;
+        }
+        long[] todas = new long[total];
+        int posicao = 0;
+        for (long[] parte : partes) {
+            System.arraycopy(parte, 0, todas, posicao, parte.length);
+            posicao += parte.length;
+        }
+        Arrays.sort(todas);
+        return todas;
+    }
+
+    private void imprimirRelatorio(long[] latencias, double duracao) {
+        System.out.printf("%nRequisições: %d em %.2f s (%.0f req/s efetivas)%n",
+                          latencias.length, duracao, latencias.length / duracao);
+        for (int codigo = 0; codigo < CODIGOS_HTTP; codigo++) {
+            long quantidade = contagemPorCodigo.get(codigo);
+            if (quantidade > 0) {
+                System.out.printf("  HTTP %d: %d%n", codigo, quantidade);
+            }
+        }
+        if (falhasConexao.get() > 0) {
+            System.out.printf("  Falhas de conexão: %d%n", falhasConexao.get());
+        }
+        if (latencias.length == 0) {
+            return;
+        }
+        System.out.printf("Latência (ms): p50 %.3f | p99 %.3f | p999 %.3f | máx %.3f%n",
+                          percentil(latencias, 0.50) / 1e6, percentil(latencias, 0.99) / 1e6,
+                          percentil(latencias, 0.999) / 1e6, latencias[latencias.length - 1] / 1e6);
+    }
+
+    private static long percentil(long[] ordenadas, double fracao) {
+        int posicao = (int) Math.ceil(fracao * ordenadas.length) - 1;
+        return ordenadas[Math.max(0, Math.min(posicao, ordenadas.length - 1))];
+    }
+}
@@ -0,0 +1,476 @@
+package cadastro;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Consulta ao cadastro: filtros combinados com E/OU, agrupamento e listagem
+ *
+ * Forma textual (usada pelo menu, pelo modo em lote e pelo servidor):
+ *
+ *   [condição] [agrupar tipo|dominio|idade|mes] [listar N]
+ *
+ *   condição := termo (ou termo)*
+ *   termo    := fator (e fator)*
+ *   fator    := ( condição ) | filtro
+ *   filtro   := tipo=padrao|menor|idoso
+ *             | idade=N | idade=DE..ATE     (extremos opcionais: idade=60..)
+ *             | dominio=gmail.com
+ *             | cpf=PREFIXO                 (dígitos; pontuação ignorada)
+ *             | cadastro=AAAA-MM-DD | cadastro=AAAA-MM-DD..AAAA-MM-DD
+ *
+ * "e" tem precedência sobre "ou". Sem condição, a consulta vale para todos
+ * os usuários. O resultado traz quantidade, média, mínimo e máximo das
+ * idades, no total e por grupo (ver MotorConsultas).
+ */
+final class Consulta {
+
+    /**
+     * Critério de agrupamento dos agregados
+     */
+    enum Grupo {
+        TIPO("tipo"),
+        DOMINIO("dominio"),
+        IDADE("idade"),
+        MES("mes");
+
+        final String nome;
+
+        Grupo(String nome) {
+            this.nome = nome;
+        }
+
+        /**
+         * Chave do grupo do usuário (String ou Integer, comparáveis entre si)
+         */
+        Comparable<?> chave(Usuario usuario) {
+            switch (this) {
+                case TIPO:
+                    return usuario.getTipoUsuario();
+                case DOMINIO:
+                    return EstatisticasUsuarios.extrairDominio(usuario.getEmail());
+                case IDADE:
+                    return usuario.getIdade();
+                default:
+                    LocalDate dia = usuario.getDataCadastro().toInstant().atZone(ZONA).toLocalDate();
+                    return dia.toString().substring(0, 7);   // AAAA-MM
+            }
+        }
+
+        static Grupo porNome(String nome) {
+            for (Grupo grupo : values()) {
+                if (grupo.nome.equals(nome)) {
+                    return grupo;
+                }
+            }
+            throw new IllegalArgumentException("Agrupamento desconhecido: '" + nome
+                                               + "' (use tipo, dominio, idade ou mes)");
+        }
+    }
+
+    // ========================================
+    // CONDIÇÕES
+    // ========================================
+
+    /**
+     * Filtro sobre um usuário
+     */
+    abstract static class Condicao {
+        abstract boolean aceita(Usuario usuario);
+    }
+
+    static final class PorTipo extends Condicao {
+        final byte tipo;   // ArquivoColunar.codigoTipo
+
+        PorTipo(byte tipo) {
+            this.tipo = tipo;
+        }
+
+        @Override
+        boolean aceita(Usuario usuario) {
+            return ArquivoColunar.codigoTipo(usuario) == tipo;
+        }
+
+        @Override
+        public String toString() {
+            return "tipo=" + TIPOS[tipo];
+        }
+    }
+
+    static final class FaixaIdade extends Condicao {
+        final int de;
+        final int ate;
+
+        FaixaIdade(int de, int ate) {
+            this.de = de;
+            this.ate = ate;
+        }
+
+        @Override
+        boolean aceita(Usuario usuario) {
+            return usuario.getIdade() >= de && usuario.getIdade() <= ate;
+        }
+
+        @Override
+        public String toString() {
+            return "idade=" + de + ".." + ate;
+        }
+    }
+
+    static final class PorDominio extends Condicao {
+        final String dominio;
+
+        PorDominio(String dominio) {
+            this.dominio = dominio.toLowerCase();
+        }
+
+        @Override
+        boolean aceita(Usuario usuario) {
+            // Compara o final do email, sem extrair o domínio
+            String email = usuario.getEmail();
+            int inicio = email.length() - dominio.length();
+            return inicio > 0 && email.charAt(inicio - 1) == '@'
+                   && email.regionMatches(true, inicio, dominio, 0, dominio.length());
+        }
+
+        @Override
+        public String toString() {
+            return "dominio=" + dominio;
+        }
+    }
+
+    static final class PrefixoCpf extends Condicao {
+        final String digitos;
+
+        PrefixoCpf(String digitos) {
+            this.digitos = digitos;
+        }
+
+        /**
+         * Os 11 dígitos: o índice de CPF encontra o usuário diretamente
+         */
+        boolean completo() {
+            return digitos.length() == 11;
+        }
+
+        @Override
+        boolean aceita(Usuario usuario) {
+            // Percorre os dígitos do CPF sem criar o texto normalizado
+            String cpf = usuario.getCpf();
+            int encontrados = 0;
+            for (int i = 0; i < cpf.length() && encontrados < digitos.length(); i++) {
+                char c = cpf.charAt(i);
+                if (c >= '0' && c <= '9') {
+                    if (c != digitos.charAt(encontrados++)) {
+                        return false;
+                    }
+                }
+            }
+            return encontrados == digitos.length();
+        }
+
+        @Override
+        public String toString() {
+            return "cpf=" + digitos;
+        }
+    }
+
+    /**
+     * Data de cadastro em [de, ate), em milissegundos
+     */
+    static final class FaixaCadastro extends Condicao {
+        final long de;
+        final long ate;
+        private final String texto;
+
+        FaixaCadastro(long de, long ate, String texto) {
+            this.de = de;
+            this.ate = ate;
+            this.texto = texto;
+        }
+
+        @Override
+        boolean aceita(Usuario usuario) {
+            long data = usuario.getDataCadastro().getTime();
+            return data >= de && data < ate;
+        }
+
+        @Override
+        public String toString() {
+            return "cadastro=" + texto;
+        }
+    }
+
+    static final class E extends Condicao {
+        final List<Condicao> partes;
+
+        E(List<Condicao> partes) {
+            this.partes = partes;
+        }
+
+        @Override
+        boolean aceita(Usuario usuario) {
+            for (Condicao parte : partes) {
+                if (!parte.aceita(usuario)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public String toString() {
+            return juntar(partes, " e ");
+        }
+    }
+
+    static final class Ou extends Condicao {
+        final List<Condicao> partes;
+
+        Ou(List<Condicao> partes) {
+            this.partes = partes;
+        }
+
+        @Override
+        boolean aceita(Usuario usuario) {
+            for (Condicao parte : partes) {
+                if (parte.aceita(usuario)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public String toString() {
+            return "(" + juntar(partes, " ou ") + ")";
+        }
+    }
+
+    private static final String[] TIPOS = {"padrao", "menor", "idoso"};   // pelo código do tipo
+    private static final ZoneId ZONA = ZoneId.systemDefault();
+
+    private final Condicao condicao;
+    private final Grupo grupo;
+    private final int limite;
+
+    /**
+     * @param condicao null para todos os usuários
+     * @param grupo null para só o total
+     * @param limite usuários a listar (0 para nenhum)
+     */
+    Consulta(Condicao condicao, Grupo grupo, int limite) {
+        this.condicao = condicao;
+        this.grupo = grupo;
+        this.limite = limite;
+    }
+
+    Condicao getCondicao() {
+        return condicao;
+    }
+
+    Grupo getGrupo() {
+        return grupo;
+    }
+
+    int getLimite() {
+        return limite;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder texto = new StringBuilder(condicao == null ? "todos" : condicao.toString());
+        if (grupo != null) {
+            texto.append(" agrupar ").append(grupo.nome);
+        }
+        if (limite > 0) {
+            texto.append(" listar ").append(limite);
+        }
+        return texto.toString();
+    }
+
+    // ========================================
+    // INTERPRETAÇÃO DO TEXTO
+    // ========================================
+
+    /**
+     * @throws IllegalArgumentException com a explicação, se o texto for inválido
+     */
+    static Consulta interpretar(String texto) {
+        Interpretador interpretador = new Interpretador(texto);
+        return interpretador.consulta();
+    }
+
+    private static final class Interpretador {
+        private final List<String> palavras;
+        private int posicao;
+
+        Interpretador(String texto) {
+            String separado = texto.replace("(", " ( ").replace(")", " ) ").trim();
+            palavras = separado.isEmpty() ? Collections.<String>emptyList()
+                                          : Arrays.asList(separado.split("\\s+"));
+        }
+
+        Consulta consulta() {
+            Condicao condicao = null;
+            if (!fim() && !atual().equals("agrupar") && !atual().equals("listar")) {
+                condicao = condicao();
+            }
+            Grupo grupo = null;
+            int limite = 0;
+            while (!fim()) {
+                String palavra = proxima();
+                if (palavra.equals("agrupar") && grupo == null) {
+                    grupo = Grupo.porNome(exigir("agrupar espera tipo, dominio, idade ou mes"));
+                } else if (palavra.equals("listar") && limite == 0) {
+                    limite = inteiro(exigir("listar espera a quantidade"), "listar");
+                    if (limite <= 0) {
+                        throw new IllegalArgumentException("listar espera uma quantidade positiva");
+                    }
+                } else {
+                    throw new IllegalArgumentException("Esperado 'e', 'ou', 'agrupar' ou 'listar' em vez de '"
+                                                       + palavra + "'");
+                }
+            }
+            return new Consulta(condicao, grupo, limite);
+        }
+
+        private Condicao condicao() {
+            List<Condicao> termos = new ArrayList<>();
+            termos.add(termo());
+            while (!fim() && atual().equals("ou")) {
+                posicao++;
+                termos.add(termo());
+            }
+            return termos.size() == 1 ? termos.get(0) : new Ou(termos);
+        }
+
+        private Condicao termo() {
+            List<Condicao> fatores = new ArrayList<>();
+            fatores.add(fator());
+            while (!fim() && atual().equals("e")) {
+                posicao++;
+                fatores.add(fator());
+            }
+            return fatores.size() == 1 ? fatores.get(0) : new E(fatores);
+        }
+
+        private Condicao fator() {
+            String palavra = exigir("Condição incompleta");
+            if (palavra.equals("(")) {
+                Condicao dentro = condicao();
+                if (!")".equals(exigir("Falta ')'"))) {
+                    throw new IllegalArgumentException("Falta ')'");
+                }
+                return dentro;
+            }
+            int igual = palavra.indexOf('=');
+            if (igual <= 0 || igual == palavra.length() - 1) {
+                throw new IllegalArgumentException("Filtro inválido: '" + palavra + "' (use campo=valor)");
+            }
+            return filtro(palavra.substring(0, igual), palavra.substring(igual + 1));
+        }
+
+        private static Condicao filtro(String campo, String valor) {
+            switch (campo) {
+                case "tipo":
+                    for (byte tipo = 0; tipo < TIPOS.length; tipo++) {
+                        if (TIPOS[tipo].equalsIgnoreCase(valor)) {
+                            return new PorTipo(tipo);
+                        }
+                    }
+                    throw new IllegalArgumentException("Tipo desconhecido: '" + valor + "' (use padrao, menor ou idoso)");
+                case "idade": {
+                    String[] faixa = faixa(valor);
+                    int de = faixa[0].isEmpty() ? 0 : inteiro(faixa[0], "idade");
+                    int ate = faixa[1].isEmpty() ? EstatisticasUsuarios.IDADE_MAXIMA : inteiro(faixa[1], "idade");
+                    return new FaixaIdade(de, ate);
+                }
+                case "dominio":
+                    return new PorDominio(valor);
+                case "cpf": {
+                    String digitos = IndicesUsuarios.normalizarCPF(valor);
+                    if (digitos.isEmpty() || digitos.length() > 11) {
+                        throw new IllegalArgumentException("cpf espera de 1 a 11 dígitos: '" + valor + "'");
+                    }
+                    return new PrefixoCpf(digitos);
+                }
+                case "cadastro": {
+                    String[] faixa = faixa(valor);
+                    long de = faixa[0].isEmpty() ? Long.MIN_VALUE : inicioDoDia(faixa[0]);
+                    long ate = faixa[1].isEmpty() ? Long.MAX_VALUE : inicioDoDia(LocalDate.parse(faixa[1]).plusDays(1));
+                    return new FaixaCadastro(de, ate, valor);
+                }
+                default:
+                    throw new IllegalArgumentException("Campo desconhecido: '" + campo
+                                                       + "' (use tipo, idade, dominio, cpf ou cadastro)");
+            }
+        }
+
+        /**
+         * "A..B", "A.." ou "..B" em {A, B} (vazio = sem limite); "A" em {A, A}
+         */
+        private static String[] faixa(String valor) {
+            int pontos = valor.indexOf("..");
+            if (pontos < 0) {
+                return new String[] {valor, valor};
+            }
+            return new String[] {valor.substring(0, pontos), valor.substring(pontos + 2)};
+        }
+
+        private static long inicioDoDia(String data) {
+            try {
+                return inicioDoDia(LocalDate.parse(data));
+            } catch (DateTimeParseException e) {
+                throw new IllegalArgumentException("Data inválida: '" + data + "' (use AAAA-MM-DD)");
+            }
+        }
+
+        private static long inicioDoDia(LocalDate dia) {
+            return dia.atStartOfDay(ZONA).toInstant().toEpochMilli();
+        }
+
+        private static int inteiro(String texto, String campo) {
+            try {
+                return Integer.parseInt(texto);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException(campo + " espera um número: '" + texto + "'");
+            }
+        }
+
+        private boolean fim() {
+            return posicao >= palavras.size();
+        }
+
+        private String atual() {
+            return palavras.get(posicao);
+        }
+
+        private String proxima() {
+            return palavras.get(posicao++);
+        }
+
+        private String exigir(String mensagem) {
+            if (fim()) {
+                throw new IllegalArgumentException(mensagem);
+            }
+            return proxima();
+        }
+    }
+
+    private static String juntar(List<Condicao> partes, String separador) {
+        StringBuilder texto = new StringBuilder();
+        for (Condicao parte : partes) {
+            if (texto.length() > 0) {
+                texto.append(separador);
+            }
+            texto.append(parte);
+        }
+        return texto.toString();
+    }
+}
@@ -0,0 +1,244 @@
+package cadastro;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Etapa de deduplicação das cargas em lote (CSV e NDJSON)
+ *
+ * Recebe os usuários na ordem do arquivo (é o destino de CarregadorCSV e de
+ * ArquivoNdjson) e separa três casos:
+ *
+ *   - novo: nem o email nem o CPF estão cadastrados; é inserido;
+ *   - duplicado: o mesmo usuário já está cadastrado com os mesmos dados
+ *     (recarga do mesmo arquivo, exportações sobrepostas); é ignorado;
+ *   - conflito: o email ou o CPF já pertence a um cadastro com outros
+ *     dados; é resolvido pela política escolhida.
+ *
+ * Um filtro de Bloom com os emails já vistos, dimensionado pelo tamanho do
+ * arquivo, evita a verificação completa para a grande maioria dos usuários
+ * novos: quando o filtro garante que o email nunca foi visto, o usuário vai
+ * direto para o cadastro, que ainda recusa CPFs repetidos. Só os emails
+ * "talvez vistos" (repetidos de fato ou falsos positivos, cerca de 1%) e as
+ * inserções recusadas pagam as buscas por email e por CPF e a comparação
+ * dos campos.
+ *
+ * Emails já cadastrados antes da carga não estão no filtro: a inserção
+ * direta os recusa e eles seguem para a verificação, com o mesmo resultado.
+ *
+ * Não é seguro para várias threads; os carregadores chamam o destino
+ * sempre na mesma thread.
+ */
+class DeduplicacaoCarga implements Predicate<Usuario> {
+
+    /**
+     * O que fazer com um usuário em conflito com um cadastro existente
+     */
+    enum Politica {
+        MANTER_PRIMEIRO("primeiro", "mantido o primeiro"),
+        MANTER_ULTIMO("ultimo", "mantido o último"),
+        REJEITAR("rejeitar", "rejeitados");
+
+        final String nome;
+        final String descricao;
+
+        Politica(String nome, String descricao) {
+            this.nome = nome;
+            this.descricao = descricao;
+        }
+
+        /**
+         * @throws IllegalArgumentException se o nome não for primeiro, ultimo ou rejeitar
+         */
+        static Politica porNome(String nome) {
+            for (Politica politica : values()) {
+                if (politica.nome.equalsIgnoreCase(nome.trim())) {
+                    return politica;
+                }
+            }
+            throw new IllegalArgumentException("Política de duplicados desconhecida: '" + nome
+                                               + "' (use primeiro, ultimo ou rejeitar)");
+        }
+    }
+
+    /**
+     * Operações do cadastro usadas pela deduplicação
+     */
+    interface Cadastro {
+        /**
+         * @return false se o email ou o CPF já estiver cadastrado
+         */
+        boolean adicionar(Usuario usuario);
+
+        Usuario buscarPorEmail(String email);
+
+        Usuario buscarPorCpf(String cpf);
+
+        void remover(Usuario usuario);
+
+        /**
+         * Cadastra o usuário que substitui os removidos por um conflito;
+         * ao contrário de adicionar, registra no diário, como remover
+         *
+         * @return false se o email ou o CPF já estiver cadastrado
+         */
+        boolean substituir(Usuario usuario);
+    }
+
+    // Bytes médios por usuário em cada formato, um pouco abaixo do real
+    // para que o filtro sobre em vez de faltar
+    static final int BYTES_POR_LINHA_CSV = 40;
+    static final int BYTES_POR_LINHA_NDJSON = 80;
+
+    private static final double TAXA_FALSOS_POSITIVOS = 0.01;
+    private static final int MINIMO_ELEMENTOS = 1024;
+    private static final int LIMITE_EXEMPLOS = 20;
+
+    private final Cadastro cadastro;
+    private final Politica politica;
+    private final FiltroBloom vistos;
+
+    private long recebidos;
+    private long duplicados;
+    private long conflitos;
+    private long substituidos;
+    private long verificacoes;
+    private long falsosPositivos;
+    private final List<String> rejeitados = new ArrayList<>();
+
+    /**
+     * @param bytesArquivo tamanho do arquivo carregado (dimensiona o filtro)
+     * @param bytesPorLinha BYTES_POR_LINHA_CSV ou BYTES_POR_LINHA_NDJSON
+     */
+    DeduplicacaoCarga(Cadastro cadastro, Politica politica, long bytesArquivo, int bytesPorLinha) {
+        this.cadastro = cadastro;
+        this.politica = politica;
+        this.vistos = new FiltroBloom(Math.max(MINIMO_ELEMENTOS, bytesArquivo / bytesPorLinha),
+                                      TAXA_FALSOS_POSITIVOS);
+    }
+
+    /**
+     * @return true se o usuário foi cadastrado (novo ou substituindo outro)
+     */
+    @Override
+    public boolean test(Usuario usuario) {
+        recebidos++;
+        boolean talvezVisto = vistos.adicionar(IndicePrimitivo.hash(usuario.getEmail()));
+        if (!talvezVisto && cadastro.adicionar(usuario)) {
+            return true;
+        }
+        return verificar(usuario, talvezVisto);
+    }
+
+    /**
+     * Caminho lento: busca exata pelo email e pelo CPF
+     */
+    private boolean verificar(Usuario usuario, boolean talvezVisto) {
+        verificacoes++;
+        Usuario mesmoEmail = cadastro.buscarPorEmail(usuario.getEmail());
+        Usuario mesmoCpf = cadastro.buscarPorCpf(usuario.getCpf());
+        if (mesmoEmail == null && mesmoCpf == null) {
+            if (talvezVisto) {
+                falsosPositivos++;
+            }
+            return cadastro.adicionar(usuario);
+        }
+        boolean mesmoCadastro = mesmoEmail != null && mesmoCpf != null
+                                && mesmoEmail.getIdInterno() == mesmoCpf.getIdInterno();
+        if (mesmoCadastro && mesmosDados(mesmoEmail, usuario)) {
+            duplicados++;
+            return false;
+        }
+
+        conflitos++;
+        switch (politica) {
+            case MANTER_ULTIMO:
+                if (mesmoEmail != null) {
+                    cadastro.remover(mesmoEmail);
+                }
+                if (mesmoCpf != null && !mesmoCadastro) {
+                    cadastro.remover(mesmoCpf);
+                }
+                substituidos++;
+                return cadastro.substituir(usuario);
+            case REJEITAR:
+                if (rejeitados.size() < LIMITE_EXEMPLOS) {
+                    rejeitados.add(descreverConflito(usuario, mesmoEmail, mesmoCadastro ? null : mesmoCpf));
+                }
+                return false;
+            default:
+                return false;
+        }
+    }
+
+    private static boolean mesmosDados(Usuario existente, Usuario novo) {
+        if (existente.getIdade() != novo.getIdade() || !existente.getNome().equals(novo.getNome())) {
+            return false;
+        }
+        // CPF com e sem pontuação é o mesmo CPF
+        long cpfExistente = ValidacaoCadastro.compactarCPF(existente.getCpf());
+        return cpfExistente >= 0
+                ? cpfExistente == ValidacaoCadastro.compactarCPF(novo.getCpf())
+                : existente.getCpf().equals(novo.getCpf());
+    }
+
+    /**
+     * @param mesmoCpf outro cadastro com o CPF do usuário (null se não houver
+     *                 ou se for o mesmo do email)
+     */
+    private static String descreverConflito(Usuario usuario, Usuario mesmoEmail, Usuario mesmoCpf) {
+        StringBuilder texto = new StringBuilder(usuario.getEmail());
+        if (mesmoEmail != null) {
+            texto.append(": email já cadastrado para '").append(mesmoEmail.getNome()).append('\'');
+        }
+        if (mesmoCpf != null) {
+            texto.append(mesmoEmail != null ? ";" : ":")
+                 .append(" CPF ").append(usuario.getCpf())
+                 .append(" já cadastrado para ").append(mesmoCpf.getEmail());
+        }
+        return texto.toString();
+    }
+
+    long getDuplicados() {
+        return duplicados;
+    }
+
+    long getConflitos() {
+        return conflitos;
+    }
+
+    long getSubstituidos() {
+        return substituidos;
+    }
+
+    Politica getPolitica() {
+        return politica;
+    }
+
+    /**
+     * Duplicados e conflitos encontrados, e quantos usuários o filtro não
+     * conseguiu dispensar da verificação
+     */
+    void imprimirResumo() {
+        if (duplicados > 0) {
+            System.out.printf("Ignorados %d usuário(s) já cadastrados com os mesmos dados.%n", duplicados);
+        }
+        if (conflitos > 0) {
+            System.out.printf("%d conflito(s) de email ou CPF com dados diferentes (%s", conflitos, politica.descricao);
+            if (politica == Politica.MANTER_ULTIMO) {
+                System.out.printf(": %d cadastro(s) substituído(s)", substituidos);
+            }
+            System.out.println(").");
+            for (String exemplo : rejeitados) {
+                System.out.println("  " + exemplo);
+            }
+            if (politica == Politica.REJEITAR && conflitos > rejeitados.size()) {
+                System.out.printf("  ... e mais %d%n", conflitos - rejeitados.size());
+            }
+        }
+        System.out.printf("Deduplicação: %d de %d usuário(s) verificados (%d falso(s) positivo(s)"
+                          + " do filtro de %d KB)%n",
+                          verificacoes, recebidos, falsosPositivos, vistos.getBytes() / 1024);
+    }
+}
@@ -0,0 +1,749 @@
+package cadastro;
+
+import java.io.*;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.zip.CRC32;
+
+/**
+ * Diário (journal) de alterações gravado somente no final do arquivo
+ *
+ * Em vez de reescrever todo o 'usuarios.txt' a cada salvamento, cada cadastro,
+ * alteração ou remoção acrescenta um único registro ao diário. O custo de salvar passa a depender
+ * apenas do que mudou, e não do total de usuários.
+ *
+ * Formato de cada registro:
+ *   [int tamanho][byte operação][dados][int CRC32]
+ * onde 'tamanho' conta os bytes da operação + dados e o CRC32 cobre os mesmos
+ * bytes. Um registro incompleto ou com checksum inválido marca o fim do
+ * diário (escrita interrompida) e é descartado na recuperação.
+ *
+ * Os dados são binários, com cada texto precedido do seu tamanho (vírgulas
+ * e quebras de linha no nome não atrapalham):
+ *   cadastro  'U' [usuário]
+ *   alteração 'A' [texto email anterior][usuário com os dados novos]
+ *   remoção   'R' [texto email]
+ * onde usuário = [byte tipo][texto nome][texto email][int idade][texto cpf]
+ * [long dataCadastro] e texto = [int bytes][UTF-8]. Diários de versões
+ * anteriores, com a linha CSV "nome,email,idade,cpf" (operação 'I'),
+ * continuam sendo lidos.
+ *
+ * Ao iniciar um instantâneo o diário é rotacionado: o arquivo atual passa a
+ * ser o segmento 'usuarios.journal.N' e os novos registros vão para um
+ * arquivo vazio. O segmento só é apagado depois que o instantâneo que o
+ * contém está no disco; até lá a recuperação reproduz os segmentos, em
+ * ordem, antes do diário atual (reproduzir o que o instantâneo já tem não
+ * altera nada).
+ *
+ * Gravação assíncrona com buffer duplo: quem registra só codifica o registro
+ * (na própria thread) e o copia para o buffer ativo, recebendo um futuro.
+ * Uma thread de gravação troca os dois buffers, grava o que foi acumulado
+ * com uma única escrita e, conforme a política, um único fsync para todos
+ * os registros do lote (group commit), e então completa o futuro do lote.
+ * Enquanto um buffer é gravado o outro recebe novos registros; se ele
+ * enche antes da gravação terminar, quem registra espera (contrapressão).
+ *
+ * A sincronização com o disco (fsync) segue uma política configurável pela
+ * propriedade de sistema 'cadastro.diario.sync':
+ * - "registro"          todo registro está no disco antes de seu futuro
+ *                       completar (padrão; um fsync por lote)
+ * - "lote:N"            fsync a cada N registros
+ * - "intervalo:T"       fsync no máximo a cada T milissegundos
+ * Nas duas últimas o futuro completa quando o registro foi entregue ao
+ * sistema operacional. sincronizar() sempre espera o fsync.
+ *
+ * O tamanho de cada buffer vem de 'cadastro.diario.buffer' (bytes, padrão
+ * 1 MB).
+ *
+ * Se a gravação de um lote falha, o que ele chegou a gravar é truncado e o
+ * futuro do lote falha; os lotes seguintes continuam logo após o último
+ * registro completo. Se nem o truncamento funcionar, o diário recusa novos
+ * registros.
+ */
+class Diario implements Closeable {
+
+    static final byte OP_INSERCAO = 'U';
+    static final byte OP_ALTERACAO = 'A';
+    static final byte OP_REMOCAO = 'R';
+    // Cadastro como linha CSV, gravado por versões anteriores (só leitura)
+    private static final byte OP_INSERCAO_CSV = 'I';
+
+    // Limite de segurança para o tamanho de um registro (detecta lixo no arquivo)
+    private static final int TAMANHO_MAXIMO_REGISTRO = 64 * 1024;
+
+    /**
+     * Política de sincronização com o disco
+     */
+    enum PoliticaSync { POR_REGISTRO, A_CADA_N, A_CADA_T_MS }
+
+    /**
+     * Recebe cada registro válido durante a reprodução do diário
+     */
+    interface Consumidor {
+        /**
+         * @param email email do usuário antes da operação
+         * @param usuario dados depois da operação (null na remoção)
+         */
+        void aplicar(byte operacao, String email, Usuario usuario);
+    }
+
+    /**
+     * Abre o canal de escrita do diário (os testes usam um que falha)
+     */
+    interface AberturaCanal {
+        FileChannel abrir(Path arquivo) throws IOException;
+    }
+
+    private static final int TAMANHO_BUFFER =
+            Math.max(Integer.getInteger("cadastro.diario.buffer", 1 << 20), 2 * TAMANHO_MAXIMO_REGISTRO);
+
+    private final Path arquivo;
+    private final AberturaCanal abertura;
+    private FileChannel canal;
+    private final PoliticaSync politica;
+    private final long parametroSync;         // N registros ou T milissegundos
+    private final CRC32 crc = new CRC32();    // usado na reprodução
+    private Thread sincronizadorPeriodico;
+
+    // Estado do arquivo (protegido por 'this'): thread de gravação, rotação, reprodução
+    private int pendentes = 0;                // registros ainda não sincronizados
+    private long registrosNoDiario = 0;       // registros desde o último instantâneo
+    private long geracao = 0;                 // número do último segmento rotacionado
+    private long ultimoSync = System.currentTimeMillis();
+    private long sincronizados = 0;           // total de registros já sincronizados
+    private long lotesGravados = 0;
+    private long registrosGravados = 0;
+
+    // Buffer duplo (protegido por 'buffers'): registros entram em 'ativo'
+    // enquanto a thread de gravação grava 'emGravacao'
+    private final Object buffers = new Object();
+    private ByteBuffer ativo = ByteBuffer.allocateDirect(TAMANHO_BUFFER);
+    private ByteBuffer emGravacao = ByteBuffer.allocateDirect(TAMANHO_BUFFER);
+    private int registrosNoLote = 0;          // registros em 'ativo'
+    private CompletableFuture<Void> loteAtual = new CompletableFuture<>();
+    private boolean forcarSincronizacao;      // pedido de sincronizar() para o próximo lote
+    private boolean encerrando;
+    private long esperasPorEspaco = 0;
+    private volatile IOException falha;       // lote parcial que não pôde ser removido
+    private final Thread gravador;
+
+    private Diario(Path arquivo, PoliticaSync politica, long parametroSync, AberturaCanal abertura)
+            throws IOException {
+        this.arquivo = arquivo;
+        this.abertura = abertura;
+        this.politica = politica;
+        this.parametroSync = parametroSync;
+        this.canal = abertura.abrir(arquivo);
+        this.gravador = new Thread(this::gravarLotes, "diario-gravacao");
+        this.gravador.setDaemon(true);
+        this.gravador.start();
+    }
+
+    private static FileChannel abrirCanal(Path arquivo) throws IOException {
+        return FileChannel.open(arquivo, StandardOpenOption.CREATE,
+                                StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    /**
+     * Abre (ou cria) o diário usando a política definida em 'cadastro.diario.sync'
+     */
+    static Diario abrir(Path arquivo) throws IOException {
+        String config = System.getProperty("cadastro.diario.sync", "registro").trim();
+        PoliticaSync politica = PoliticaSync.POR_REGISTRO;
+        long parametro = 1;
+
+        try {
+            if (config.startsWith("lote:")) {
+                politica = PoliticaSync.A_CADA_N;
+                parametro = Long.parseLong(config.substring(5));
+            } else if (config.startsWith("intervalo:")) {
+                politica = PoliticaSync.A_CADA_T_MS;
+                parametro = Long.parseLong(config.substring(10));
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Valor inválido para cadastro.diario.sync: " + config);
+        }
+        if (parametro <= 0) {
+            throw new IllegalArgumentException("Valor inválido para cadastro.diario.sync: " + config);
+        }
+
+        return abrir(arquivo, politica, parametro, Diario::abrirCanal);
+    }
+
+    /**
+     * Abre (ou cria) o diário com a política e o canal informados
+     */
+    static Diario abrir(Path arquivo, PoliticaSync politica, long parametro, AberturaCanal abertura)
+            throws IOException {
+        Diario diario = new Diario(arquivo, politica, parametro, abertura);
+        if (politica == PoliticaSync.A_CADA_T_MS) {
+            diario.iniciarSincronizadorPeriodico();
+        }
+        return diario;
+    }
+
+    /**
+     * Reproduz todos os registros válidos dos segmentos rotacionados e do
+     * diário atual, entregando-os ao consumidor, e descarta um eventual final
+     * corrompido (escrita interrompida).
+     *
+     * @return número de registros reproduzidos
+     */
+    synchronized long reproduzir(Consumidor consumidor) throws IOException {
+        long[] reproduzidos = {0};
+        Consumidor contador = (operacao, email, usuario) -> {
+            consumidor.aplicar(operacao, email, usuario);
+            reproduzidos[0]++;
+        };
+
+        for (long numero : segmentos()) {
+            try (FileChannel segmento = FileChannel.open(segmento(numero), StandardOpenOption.READ)) {
+                long posicaoValida = lerRegistros(segmento, contador);
+                if (segmento.size() > posicaoValida) {
+                    System.out.printf("Diário: ignorados %d bytes de um registro incompleto em '%s'.%n",
+                                      segmento.size() - posicaoValida, segmento(numero));
+                }
+            }
+            geracao = numero;
+        }
+
+        long posicaoValida = lerRegistros(canal, contador);
+
+        // Remove o final parcial, se houver, e posiciona para novas escritas
+        if (canal.size() > posicaoValida) {
+            System.out.printf("Diário: descartados %d bytes de um registro incompleto.%n",
+                              canal.size() - posicaoValida);
+            canal.truncate(posicaoValida);
+            canal.force(true);
+        }
+        canal.position(posicaoValida);
+        registrosNoDiario = reproduzidos[0];
+        return reproduzidos[0];
+    }
+
+    /**
+     * Lê os registros do início do canal até o primeiro inválido
+     *
+     * @return posição logo após o último registro válido
+     */
+    private long lerRegistros(FileChannel origem, Consumidor consumidor) throws IOException {
+        long posicaoValida = 0;
+
+        origem.position(0);
+        DataInputStream entrada = new DataInputStream(
+                new BufferedInputStream(Channels.newInputStream(origem), 64 * 1024));
+
+        while (true) {
+            int tamanho;
+            try {
+                tamanho = entrada.readInt();
+            } catch (EOFException e) {
+                break;
+            }
+            if (tamanho < 1 || tamanho > TAMANHO_MAXIMO_REGISTRO) {
+                break;
+            }
+
+            byte[] dados = new byte[tamanho];
+            int crcGravado;
+            try {
+                entrada.readFully(dados);
+                crcGravado = entrada.readInt();
+            } catch (EOFException e) {
+                break;
+            }
+
+            crc.reset();
+            crc.update(dados, 0, dados.length);
+            if ((int) crc.getValue() != crcGravado) {
+                break;
+            }
+
+            try {
+                aplicar(dados, consumidor);
+            } catch (IllegalArgumentException | BufferUnderflowException e) {
+                // Checksum correto: o registro está inteiro, só não é utilizável
+                System.out.printf("Diário: ignorado o registro na posição %d (%s).%n", posicaoValida, e);
+            }
+            posicaoValida += 4 + tamanho + 4;
+        }
+        return posicaoValida;
+    }
+
+    /**
+     * Decodifica o registro e o entrega ao consumidor
+     *
+     * @throws IllegalArgumentException se a operação for desconhecida ou os
+     *         dados não formarem um usuário válido
+     */
+    private static void aplicar(byte[] dados, Consumidor consumidor) {
+        ByteBuffer campos = ByteBuffer.wrap(dados, 1, dados.length - 1);
+        Usuario usuario;
+        switch (dados[0]) {
+            case OP_INSERCAO:
+                usuario = decodificarUsuario(campos);
+                consumidor.aplicar(OP_INSERCAO, usuario.getEmail(), usuario);
+                break;
+            case OP_ALTERACAO:
+                String anterior = lerTexto(campos);
+                consumidor.aplicar(OP_ALTERACAO, anterior, decodificarUsuario(campos));
+                break;
+            case OP_REMOCAO:
+                String email = lerTexto(campos);
+                if (campos.hasRemaining()) {
+                    throw new IllegalArgumentException(campos.remaining() + " bytes a mais no registro");
+                }
+                consumidor.aplicar(OP_REMOCAO, email, null);
+                break;
+            case OP_INSERCAO_CSV:
+                usuario = usuarioDoCSV(new String(dados, 1, dados.length - 1, StandardCharsets.UTF_8));
+                consumidor.aplicar(OP_INSERCAO, usuario.getEmail(), usuario);
+                break;
+            default:
+                throw new IllegalArgumentException("operação desconhecida " + dados[0]);
+        }
+    }
+
+    /**
+     * @param chave texto gravado antes do usuário (null: nenhum)
+     */
+    private static byte[] codificarUsuario(String chave, Usuario usuario) {
+        byte[] anterior = chave == null ? null : chave.getBytes(StandardCharsets.UTF_8);
+        byte[] nome = usuario.getNome().getBytes(StandardCharsets.UTF_8);
+        byte[] email = usuario.getEmail().getBytes(StandardCharsets.UTF_8);
+        byte[] cpf = usuario.getCpf().getBytes(StandardCharsets.UTF_8);
+        ByteBuffer dados = ByteBuffer.allocate((anterior == null ? 0 : 4 + anterior.length)
+                                               + 1 + 4 + nome.length + 4 + email.length + 4 + 4 + cpf.length + 8);
+        if (anterior != null) {
+            dados.putInt(anterior.length).put(anterior);
+        }
+        dados.put(ArquivoColunar.codigoTipo(usuario));
+        dados.putInt(nome.length).put(nome);
+        dados.putInt(email.length).put(email);
+        dados.putInt(usuario.getIdade());
+        dados.putInt(cpf.length).put(cpf);
+        dados.putLong(usuario.getDataCadastro().getTime());
+        return dados.array();
+    }
+
+    private static Usuario decodificarUsuario(ByteBuffer dados) {
+        byte tipo = dados.get();
+        String nome = lerTexto(dados);
+        String email = lerTexto(dados);
+        int idade = dados.getInt();
+        String cpf = lerTexto(dados);
+        long data = dados.getLong();
+        if (dados.hasRemaining()) {
+            throw new IllegalArgumentException(dados.remaining() + " bytes a mais no registro");
+        }
+        Usuario usuario = ArquivoColunar.criarPorTipo(tipo, nome, email, idade, cpf);
+        usuario.setDataCadastro(new Date(data));
+        return usuario;
+    }
+
+    private static String lerTexto(ByteBuffer dados) {
+        int tamanho = dados.getInt();
+        if (tamanho < 0 || tamanho > dados.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        String texto = new String(dados.array(), dados.arrayOffset() + dados.position(), tamanho,
+                                  StandardCharsets.UTF_8);
+        dados.position(dados.position() + tamanho);
+        return texto;
+    }
+
+    /**
+     * Linha "nome,email,idade,cpf" dos diários antigos; lida a partir do
+     * fim, já que só o nome pode conter vírgulas
+     */
+    private static Usuario usuarioDoCSV(String linha) {
+        int fimEmail = linha.lastIndexOf(',', linha.lastIndexOf(',') - 1);
+        int fimNome = fimEmail > 0 ? linha.lastIndexOf(',', fimEmail - 1) : -1;
+        if (fimNome < 0) {
+            throw new IllegalArgumentException("linha CSV incompleta: " + linha);
+        }
+        int fimIdade = linha.lastIndexOf(',');
+        return Usuario.criar(linha.substring(0, fimNome), linha.substring(fimNome + 1, fimEmail),
+                             Integer.parseInt(linha.substring(fimEmail + 1, fimIdade)),
+                             linha.substring(fimIdade + 1));
+    }
+
+    /**
+     * Acrescenta o cadastro de um usuário ao diário
+     *
+     * Retorna assim que o registro está no buffer (ou espera, se o buffer
+     * estiver cheio).
+     *
+     * @return futuro completado quando o registro estiver gravado conforme a
+     *         política de sincronização (com a exceção, se a gravação falhar)
+     */
+    CompletableFuture<Void> registrarInsercao(Usuario usuario) throws IOException {
+        return registrar(OP_INSERCAO, codificarUsuario(null, usuario));
+    }
+
+    /**
+     * Acrescenta a alteração de um usuário cadastrado (todos os dados novos)
+     *
+     * @param emailAnterior email antes da alteração, que identifica o usuário
+     * @return futuro como em registrarInsercao
+     */
+    CompletableFuture<Void> registrarAlteracao(String emailAnterior, Usuario usuario) throws IOException {
+        return registrar(OP_ALTERACAO, codificarUsuario(emailAnterior, usuario));
+    }
+
+    /**
+     * Acrescenta a remoção do usuário com o email informado
+     *
+     * @return futuro como em registrarInsercao
+     */
+    CompletableFuture<Void> registrarRemocao(String email) throws IOException {
+        byte[] texto = email.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer dados = ByteBuffer.allocate(4 + texto.length);
+        dados.putInt(texto.length).put(texto);
+        return registrar(OP_REMOCAO, dados.array());
+    }
+
+    private CompletableFuture<Void> registrar(byte operacao, byte[] dados) throws IOException {
+        // Codificação e CRC fora da trava, na thread de quem registra
+        int tamanho = 1 + dados.length;
+        if (tamanho > TAMANHO_MAXIMO_REGISTRO) {
+            throw new IOException("Registro com " + tamanho + " bytes excede o limite do diário");
+        }
+        CRC32 crcRegistro = new CRC32();
+        crcRegistro.update(operacao);
+        crcRegistro.update(dados, 0, dados.length);
+
+        synchronized (buffers) {
+            while (!encerrando && ativo.remaining() < 4 + tamanho + 4) {
+                esperasPorEspaco++;
+                try {
+                    buffers.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrompido esperando espaço no diário");
+                }
+            }
+            if (encerrando) {
+                throw new ClosedChannelException();
+            }
+            if (falha != null) {
+                throw new IOException("Diário inutilizado por uma falha de gravação anterior", falha);
+            }
+            if (ativo.position() == 0) {
+                buffers.notifyAll();   // a thread de gravação pode estar esperando dados
+            }
+            ativo.putInt(tamanho);
+            ativo.put(operacao);
+            ativo.put(dados);
+            ativo.putInt((int) crcRegistro.getValue());
+            registrosNoLote++;
+            return loteAtual;
+        }
+    }
+
+    /**
+     * Laço da thread de gravação: troca os buffers e grava um lote por vez
+     */
+    private void gravarLotes() {
+        while (true) {
+            ByteBuffer lote;
+            CompletableFuture<Void> futuro;
+            int registros;
+            boolean forcar;
+            synchronized (buffers) {
+                while (ativo.position() == 0 && !forcarSincronizacao && !encerrando) {
+                    try {
+                        buffers.wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (encerrando && ativo.position() == 0) {
+                    loteAtual.complete(null);   // nada mais a gravar; close() sincroniza
+                    return;
+                }
+                lote = ativo;
+                ativo = emGravacao;
+                emGravacao = lote;
+                futuro = loteAtual;
+                loteAtual = new CompletableFuture<>();
+                registros = registrosNoLote;
+                registrosNoLote = 0;
+                forcar = forcarSincronizacao;
+                forcarSincronizacao = false;
+                buffers.notifyAll();   // espaço livre para quem esperava
+            }
+            try {
+                gravarLote(lote, registros, forcar);
+                futuro.complete(null);
+            } catch (IOException | RuntimeException e) {
+                futuro.completeExceptionally(e);
+            }
+        }
+    }
+
+    /**
+     * Grava um lote com uma única escrita e aplica a política de sincronização
+     */
+    private synchronized void gravarLote(ByteBuffer lote, int registros, boolean forcar) throws IOException {
+        long inicio = System.nanoTime();
+        boolean sucesso = false;
+        boolean contado = false;
+        long posicaoInicial = -1;
+        try {
+            if (falha != null) {
+                throw new IOException("Diário inutilizado por uma falha de gravação anterior", falha);
+            }
+            posicaoInicial = canal.position();
+            lote.flip();
+            while (lote.hasRemaining()) {
+                canal.write(lote);
+            }
+            pendentes += registros;
+            registrosNoDiario += registros;
+            registrosGravados += registros;
+            if (registros > 0) {
+                lotesGravados++;
+            }
+            contado = true;
+
+            boolean sincronizarAgora = forcar;
+            switch (politica) {
+                case POR_REGISTRO:
+                    sincronizarAgora = true;
+                    break;
+                case A_CADA_N:
+                    sincronizarAgora |= pendentes >= parametroSync;
+                    break;
+                case A_CADA_T_MS:
+                    sincronizarAgora |= System.currentTimeMillis() - ultimoSync >= parametroSync;
+                    break;
+            }
+            if (sincronizarAgora) {
+                sincronizarCanal();
+            }
+            sucesso = true;
+        } catch (IOException | RuntimeException e) {
+            if (posicaoInicial >= 0) {
+                desfazerLote(posicaoInicial, contado ? registros : 0, e);
+            }
+            throw e;
+        } finally {
+            lote.clear();
+            if (registros > 0) {
+                Metricas.GRAVACAO_DIARIO.registrar(inicio, sucesso);
+            }
+        }
+    }
+
+    /**
+     * Remove o que um lote que falhou chegou a gravar, para que os lotes
+     * seguintes não fiquem depois de um registro incompleto (a reprodução
+     * para no primeiro registro inválido e descartaria todos eles)
+     *
+     * Se nem isso for possível, o diário passa a recusar registros.
+     */
+    private void desfazerLote(long posicaoInicial, int registros, Exception causa) {
+        try {
+            canal.truncate(posicaoInicial);
+            canal.position(posicaoInicial);
+            pendentes = Math.max(0, pendentes - registros);
+            registrosNoDiario -= registros;
+            registrosGravados -= registros;
+            if (registros > 0) {
+                lotesGravados--;
+            }
+        } catch (IOException | RuntimeException e) {
+            causa.addSuppressed(e);
+            falha = e instanceof IOException ? (IOException) e : new IOException(e);
+        }
+    }
+
+    private void sincronizarCanal() throws IOException {
+        if (pendentes > 0) {
+            canal.force(false);
+            sincronizados += pendentes;
+            pendentes = 0;
+        }
+        ultimoSync = System.currentTimeMillis();
+    }
+
+    /**
+     * Espera que todos os registros feitos até aqui estejam gravados e
+     * sincronizados com o disco
+     *
+     * @return quantidade de registros sincronizados enquanto esperava
+     */
+    int sincronizar() throws IOException {
+        long antes;
+        synchronized (this) {
+            antes = sincronizados;
+        }
+        CompletableFuture<Void> futuro;
+        synchronized (buffers) {
+            if (encerrando) {
+                return 0;
+            }
+            forcarSincronizacao = true;
+            futuro = loteAtual;
+            buffers.notifyAll();
+        }
+        aguardar(futuro);
+        synchronized (this) {
+            return (int) (sincronizados - antes);
+        }
+    }
+
+    /**
+     * Espera o futuro de um registro, repassando a falha da gravação
+     */
+    static void aguardar(CompletableFuture<?> futuro) throws IOException {
+        try {
+            futuro.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrompido esperando a gravação do diário");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Falha na gravação do diário", e.getCause());
+        }
+    }
+
+    /**
+     * Fecha o arquivo atual como o próximo segmento e passa a gravar num
+     * diário vazio; chamado antes de copiar os usuários para um instantâneo
+     *
+     * @return número do segmento fechado (ver descartarSegmentos)
+     */
+    synchronized long rotacionar() throws IOException {
+        canal.force(false);
+        canal.close();
+        try {
+            Files.move(arquivo, segmento(geracao + 1), StandardCopyOption.ATOMIC_MOVE);
+            geracao++;
+        } finally {
+            // Se a renomeação falhou, continua no mesmo arquivo, após o fim
+            canal = abertura.abrir(arquivo);
+            canal.position(canal.size());
+        }
+        InstantaneoAutomatico.sincronizarDiretorio(arquivo);
+        pendentes = 0;
+        registrosNoDiario = 0;
+        return geracao;
+    }
+
+    /**
+     * Apaga os segmentos até 'ultimo', já contidos num instantâneo gravado
+     */
+    void descartarSegmentos(long ultimo) throws IOException {
+        for (long numero : segmentos()) {
+            if (numero <= ultimo) {
+                Files.deleteIfExists(segmento(numero));
+            }
+        }
+        InstantaneoAutomatico.sincronizarDiretorio(arquivo);
+    }
+
+    private Path segmento(long numero) {
+        return arquivo.resolveSibling(arquivo.getFileName() + "." + numero);
+    }
+
+    /**
+     * Números dos segmentos rotacionados existentes, em ordem crescente
+     */
+    private long[] segmentos() throws IOException {
+        String prefixo = arquivo.getFileName() + ".";
+        long[] numeros = new long[4];
+        int n = 0;
+        try (DirectoryStream<Path> arquivos =
+                     Files.newDirectoryStream(arquivo.toAbsolutePath().getParent(), prefixo + "*")) {
+            for (Path segmento : arquivos) {
+                String sufixo = segmento.getFileName().toString().substring(prefixo.length());
+                if (sufixo.isEmpty() || sufixo.length() > 18 || !sufixo.chars().allMatch(Character::isDigit)) {
+                    continue;   // por exemplo 'usuarios.journal.tmp'
+                }
+                if (n == numeros.length) {
+                    numeros = Arrays.copyOf(numeros, n * 2);
+                }
+                numeros[n++] = Long.parseLong(sufixo);
+            }
+        }
+        numeros = Arrays.copyOf(numeros, n);
+        Arrays.sort(numeros);
+        return numeros;
+    }
+
+    synchronized long getRegistrosNoDiario() { return registrosNoDiario; }
+
+    /**
+     * Lotes gravados, registros por lote e esperas por espaço no buffer
+     */
+    String descrever() {
+        long esperas;
+        synchronized (buffers) {
+            esperas = esperasPorEspaco;
+        }
+        synchronized (this) {
+            return String.format("%d lote(s) gravado(s), %.1f registro(s) por lote, %d espera(s) por espaço no buffer",
+                                 lotesGravados, lotesGravados == 0 ? 0.0 : (double) registrosGravados / lotesGravados,
+                                 esperas);
+        }
+    }
+
+    Path getArquivo() { return arquivo; }
+
+    /**
+     * Na política por intervalo, garante o fsync mesmo sem novos registros
+     */
+    private void iniciarSincronizadorPeriodico() {
+        sincronizadorPeriodico = new Thread(() -> {
+            try {
+                while (!Thread.currentThread().isInterrupted()) {
+                    Thread.sleep(parametroSync);
+                    sincronizar();
+                }
+            } catch (InterruptedException | ClosedChannelException e) {
+                // Encerramento normal
+            } catch (IOException e) {
+                System.out.println("Erro ao sincronizar diário: " + e.getMessage());
+            }
+        }, "diario-sync");
+        sincronizadorPeriodico.setDaemon(true);
+        sincronizadorPeriodico.start();
+    }
+
+    /**
+     * Grava o que ainda está nos buffers, sincroniza e fecha o arquivo;
+     * registros posteriores falham com ClosedChannelException
+     */
+    @Override
+    public void close() throws IOException {
+        if (sincronizadorPeriodico != null) {
+            sincronizadorPeriodico.interrupt();
+        }
+        synchronized (buffers) {
+            encerrando = true;
+            buffers.notifyAll();
+        }
+        try {
+            gravador.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            sincronizarCanal();
+            canal.close();
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package cadastro;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Estatísticas incrementais do cadastro
+ *
+ * Os agregados são atualizados a cada inserção, atualização e remoção, de
+ * modo que a consulta não precisa percorrer a lista de usuários:
+ * - quantidade, soma, mínimo e máximo das idades
+ * - histograma de idades com 151 posições (0 a 150 anos)
+ * - quantidade por tipo de usuário (getTipoUsuario)
+ * - quantidade por domínio de email
+ *
+ * Mínimo e máximo são obtidos do histograma, o que continua correto após
+ * remoções e custa no máximo 151 passos, independentemente do total.
+ *
+ * Pode ser atualizado por várias threads ao mesmo tempo: os contadores são
+ * LongAdder/AtomicLongArray e os mapas são ConcurrentHashMap.
+ */
+class EstatisticasUsuarios {
+
+    static final int IDADE_MAXIMA = 150;
+
+    private final LongAdder quantidade = new LongAdder();
+    private final LongAdder somaIdades = new LongAdder();
+    private final AtomicLongArray histograma = new AtomicLongArray(IDADE_MAXIMA + 1);
+    private final ConcurrentHashMap<String, LongAdder> porTipo = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, LongAdder> porDominio = new ConcurrentHashMap<>();
+
+    void registrarInsercao(Usuario usuario) {
+        quantidade.increment();
+        adicionarIdade(usuario.getIdade(), 1);
+        contar(porTipo, usuario.getTipoUsuario(), 1);
+        contarDominio(usuario.getEmail(), 1);
+    }
+
+    void registrarRemocao(Usuario usuario) {
+        quantidade.decrement();
+        adicionarIdade(usuario.getIdade(), -1);
+        contar(porTipo, usuario.getTipoUsuario(), -1);
+        contarDominio(usuario.getEmail(), -1);
+    }
+
+    /**
+     * Soma os agregados de um instantâneo carregado sob demanda, cujos
+     * usuários não passam por registrarInsercao (ver IndiceColunar)
+     */
+    void registrarInstantaneo(IndiceColunar indice) {
+        quantidade.add(indice.getQuantidade());
+        somaIdades.add(indice.getSomaIdades());
+        long[] porIdade = indice.getHistograma();
+        for (int idade = 0; idade < porIdade.length; idade++) {
+            histograma.addAndGet(idade, porIdade[idade]);
+        }
+        for (Map.Entry<String, Long> tipo : indice.getContagensPorTipo().entrySet()) {
+            contar(porTipo, tipo.getKey(), tipo.getValue());
+        }
+        for (Map.Entry<String, Long> dominio : indice.getContagensPorDominio().entrySet()) {
+            contar(porDominio, dominio.getKey(), dominio.getValue());
+        }
+    }
+
+    /**
+     * Ajusta os agregados quando email ou idade de um usuário mudam
+     */
+    void registrarAtualizacao(Usuario usuario, String emailAnterior, int idadeAnterior) {
+        if (idadeAnterior != usuario.getIdade()) {
+            adicionarIdade(idadeAnterior, -1);
+            adicionarIdade(usuario.getIdade(), 1);
+        }
+        if (emailAnterior != null && !emailAnterior.equals(usuario.getEmail())) {
+            contarDominio(emailAnterior, -1);
+            contarDominio(usuario.getEmail(), 1);
+        }
+    }
+
+    long getQuantidade() { return quantidade.sum(); }
+
+    double getMediaIdade() {
+        long total = quantidade.sum();
+        return total == 0 ? 0.0 : (double) somaIdades.sum() / total;
+    }
+
+    /**
+     * @return a menor idade cadastrada, ou -1 se não há usuários
+     */
+    int getIdadeMinima() {
+        for (int idade = 0; idade <= IDADE_MAXIMA; idade++) {
+            if (histograma.get(idade) > 0) return idade;
+        }
+        return -1;
+    }
+
+    /**
+     * @return a maior idade cadastrada, ou -1 se não há usuários
+     */
+    int getIdadeMaxima() {
+        for (int idade = IDADE_MAXIMA; idade >= 0; idade--) {
+            if (histograma.get(idade) > 0) return idade;
+        }
+        return -1;
+    }
+
+    /**
+     * Quantidade de usuários com idade entre 'de' e 'ate' (inclusive)
+     */
+    long contarFaixaIdade(int de, int ate) {
+        long total = 0;
+        for (int idade = Math.max(de, 0); idade <= Math.min(ate, IDADE_MAXIMA); idade++) {
+            total += histograma.get(idade);
+        }
+        return total;
+    }
+
+    long getContagemTipo(String tipo) {
+        LongAdder contador = porTipo.get(tipo);
+        return contador == null ? 0 : contador.sum();
+    }
+
+    Map<String, Long> getContagensPorTipo() {
+        return copiar(porTipo, new TreeMap<>());
+    }
+
+    long getContagemDominio(String dominio) {
+        LongAdder contador = porDominio.get(dominio.toLowerCase());
+        return contador == null ? 0 : contador.sum();
+    }
+
+    /**
+     * Domínios com pelo menos um usuário (percorre os domínios, não os usuários)
+     */
+    int getQuantidadeDominios() {
+        int distintos = 0;
+        for (LongAdder contador : porDominio.values()) {
+            if (contador.sum() > 0) {
+                distintos++;
+            }
+        }
+        return distintos;
+    }
+
+    Map<String, Long> getContagensPorDominio() {
+        return copiar(porDominio, new HashMap<>());
+    }
+
+    static String extrairDominio(String email) {
+        int arroba = email == null ? -1 : email.lastIndexOf('@');
+        return arroba < 0 ? "" : email.substring(arroba + 1).toLowerCase();
+    }
+
+    private void adicionarIdade(int idade, int delta) {
+        somaIdades.add((long) idade * delta);
+        // Idades fora da faixa (só possíveis via setters) ficam nas pontas
+        histograma.addAndGet(Math.max(0, Math.min(idade, IDADE_MAXIMA)), delta);
+    }
+
+    private void contarDominio(String email, int delta) {
+        contar(porDominio, extrairDominio(email), delta);
+    }
+
+    private static void contar(ConcurrentHashMap<String, LongAdder> contagens, String chave, long delta) {
+        LongAdder contador = contagens.get(chave);
+        if (contador == null) {
+            contador = contagens.computeIfAbsent(chave, k -> new LongAdder());
+        }
+        contador.add(delta);
+    }
+
+    /**
+     * Copia as contagens positivas para o mapa de destino
+     */
+    private static Map<String, Long> copiar(Map<String, LongAdder> contagens, Map<String, Long> destino) {
+        for (Map.Entry<String, LongAdder> entrada : contagens.entrySet()) {
+            long valor = entrada.getValue().sum();
+            if (valor > 0) {
+                destino.put(entrada.getKey(), valor);
+            }
+        }
+        return destino;
+    }
+}
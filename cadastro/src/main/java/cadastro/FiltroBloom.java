@@ -0,0 +1,81 @@
+package cadastro;
+
+/**
+ * Filtro de Bloom para chaves de 64 bits
+ *
+ * Responde "talvez já visto" ou "com certeza nunca visto" usando poucos bits
+ * por chave. Cada chave liga k bits de um vetor de m bits; as k posições saem
+ * de dois valores derivados do hash (h1 + i * h2, técnica de Kirsch e
+ * Mitzenmacher), sem calcular k hashes.
+ *
+ * m é arredondado para uma potência de 2 (posição por máscara), o que só
+ * reduz a taxa de falsos positivos. Não é seguro para várias threads.
+ */
+class FiltroBloom {
+
+    private static final int MAXIMO_BITS_LOG2 = 33;   // 1 GB de vetor
+
+    private final long[] bits;
+    private final long mascara;
+    private final int funcoes;
+
+    /**
+     * @param elementosEsperados quantidade prevista de chaves
+     * @param taxaFalsosPositivos taxa desejada com essa quantidade (0,01 = 1%)
+     */
+    FiltroBloom(long elementosEsperados, double taxaFalsosPositivos) {
+        long n = Math.max(1, elementosEsperados);
+        double bitsIdeais = -n * Math.log(taxaFalsosPositivos) / (Math.log(2) * Math.log(2));
+        int log2 = Math.max(6, Math.min(MAXIMO_BITS_LOG2, 64 - Long.numberOfLeadingZeros((long) Math.ceil(bitsIdeais) - 1)));
+        long m = 1L << log2;
+        this.bits = new long[(int) (m >>> 6)];
+        this.mascara = m - 1;
+        // Com m acima do ideal, mais funções baixariam a taxa abaixo da pedida
+        // ao custo de mais acessos à memória: fica o k ideal da taxa pedida
+        long ideal = Math.round((double) m / n * Math.log(2));
+        long paraTaxa = (long) Math.ceil(-Math.log(taxaFalsosPositivos) / Math.log(2));
+        this.funcoes = (int) Math.max(1, Math.min(ideal, paraTaxa));
+    }
+
+    /**
+     * Registra a chave
+     *
+     * @return true se a chave talvez já estivesse no filtro (todos os bits já
+     *         ligados); false se com certeza era nova
+     */
+    boolean adicionar(long chave) {
+        long h1 = chave;
+        long h2 = (chave >>> 32) | 1;   // ímpar: percorre todas as posições
+        boolean talvez = true;
+        for (int i = 0; i < funcoes; i++) {
+            long posicao = (h1 + i * h2) & mascara;
+            int palavra = (int) (posicao >>> 6);
+            long bit = 1L << posicao;
+            if ((bits[palavra] & bit) == 0) {
+                talvez = false;
+                bits[palavra] |= bit;
+            }
+        }
+        return talvez;
+    }
+
+    boolean talvezContem(long chave) {
+        long h1 = chave;
+        long h2 = (chave >>> 32) | 1;
+        for (int i = 0; i < funcoes; i++) {
+            long posicao = (h1 + i * h2) & mascara;
+            if ((bits[(int) (posicao >>> 6)] & (1L << posicao)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    long getBytes() {
+        return (long) bits.length * 8;
+    }
+
+    int getFuncoes() {
+        return funcoes;
+    }
+}
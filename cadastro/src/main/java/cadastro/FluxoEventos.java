@@ -0,0 +1,400 @@
+package cadastro;
+
+import java.io.Closeable;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Fluxo de eventos de alteração do cadastro (inserção, alteração, remoção)
+ *
+ * Anel de eventos pré-alocado com um produtor e vários assinantes. Cada
+ * evento recebe um número de sequência crescente (a partir de 0 em cada
+ * execução) e ocupa a posição sequencia & (capacidade - 1); publicar copia
+ * os campos para o Evento já existente naquela posição, sem alocar nada.
+ * Quem altera o cadastro pode estar em várias threads: a publicação é
+ * serializada por uma trava curta (algumas escritas de campos), então o anel
+ * continua tendo um único produtor por vez.
+ *
+ * Cada assinante lê no próprio ritmo a partir de uma sequência (a próxima
+ * a publicar, ou uma anterior que ainda esteja no anel, para retomar de onde
+ * parou). O produtor nunca espera os assinantes: antes de sobrescrever uma
+ * posição que um assinante ainda não leu, ele o marca como atrasado e segue.
+ * O assinante descobre na leitura seguinte (EventosPerdidos, que informa a
+ * sequência mais antiga ainda disponível) e pode assinar de novo.
+ *
+ * A leitura copia o evento para um Evento do próprio assinante e só então
+ * confirma a posição com um compareAndSet na sequência do assinante; se o
+ * produtor o marcou como atrasado nesse meio tempo, a confirmação falha e a
+ * cópia (possivelmente misturada com o evento seguinte) é descartada.
+ *
+ * Estratégias de espera por novos eventos (Espera): OCUPADA (laço, menor
+ * latência, ocupa um núcleo), CEDENDO (Thread.yield), DORMINDO (pausas
+ * crescentes até 1 ms) e BLOQUEANTE (wait/notify; o produtor só avisa
+ * quando há alguém bloqueado).
+ */
+final class FluxoEventos {
+
+    enum Tipo { INSERCAO, ALTERACAO, REMOCAO }
+
+    enum Espera { OCUPADA, CEDENDO, DORMINDO, BLOQUEANTE }
+
+    /**
+     * Dados de um evento, copiados no momento da publicação
+     *
+     * As instâncias são reutilizadas (pelo anel e por cada assinante): o
+     * tratador não deve guardar a referência depois de retornar.
+     */
+    static final class Evento {
+        private long sequencia;
+        private Tipo tipo;
+        private long instante;            // System.currentTimeMillis() da publicação
+        private int idInterno;
+        private Usuario usuario;          // o objeto vivo (pode ter mudado depois)
+        private String nome;
+        private String email;
+        private int idade;
+        private String cpf;
+        private String nomeAnterior;      // só em ALTERACAO
+        private String emailAnterior;
+        private int idadeAnterior;
+
+        long getSequencia() { return sequencia; }
+        Tipo getTipo() { return tipo; }
+        long getInstante() { return instante; }
+        int getIdInterno() { return idInterno; }
+        Usuario getUsuario() { return usuario; }
+        String getNome() { return nome; }
+        String getEmail() { return email; }
+        int getIdade() { return idade; }
+        String getCpf() { return cpf; }
+        String getNomeAnterior() { return nomeAnterior; }
+        String getEmailAnterior() { return emailAnterior; }
+        int getIdadeAnterior() { return idadeAnterior; }
+
+        private void copiar(Evento outro) {
+            sequencia = outro.sequencia;
+            tipo = outro.tipo;
+            instante = outro.instante;
+            idInterno = outro.idInterno;
+            usuario = outro.usuario;
+            nome = outro.nome;
+            email = outro.email;
+            idade = outro.idade;
+            cpf = outro.cpf;
+            nomeAnterior = outro.nomeAnterior;
+            emailAnterior = outro.emailAnterior;
+            idadeAnterior = outro.idadeAnterior;
+        }
+
+        @Override
+        public String toString() {
+            return sequencia + " " + tipo + " " + email;
+        }
+    }
+
+    interface Tratador {
+        void tratar(Evento evento);
+    }
+
+    /**
+     * O assinante ficou uma volta inteira do anel para trás
+     */
+    static final class EventosPerdidos extends RuntimeException {
+        private final long sequencia;
+        private final long primeiraDisponivel;
+
+        EventosPerdidos(long sequencia, long primeiraDisponivel) {
+            super("Eventos a partir de " + sequencia + " não estão mais no anel (mais antigo disponível: "
+                  + primeiraDisponivel + ")");
+            this.sequencia = sequencia;
+            this.primeiraDisponivel = primeiraDisponivel;
+        }
+
+        long getSequencia() { return sequencia; }
+
+        /** Sequência a partir da qual é possível assinar de novo */
+        long getPrimeiraDisponivel() { return primeiraDisponivel; }
+    }
+
+    // Sequência de um assinante marcado como atrasado pelo produtor
+    private static final long ATRASADO = -1;
+    private static final long PAUSA_MAXIMA_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final Evento[] anel;
+    private final int mascara;
+
+    // Produtor (sob a trava 'this')
+    private long proxima;                     // sequência do próximo evento
+    private long limite = Long.MIN_VALUE;     // até aqui publica sem olhar os assinantes
+    private Assinante[] assinantes = new Assinante[0];
+
+    // Última sequência publicada (-1: nenhuma)
+    private volatile long publicada = -1;
+
+    // Assinantes BLOQUEANTE esperando em 'esperando'
+    private volatile int bloqueados;
+    private final Object esperando = new Object();
+
+    /**
+     * @param capacidade eventos guardados (arredondada para potência de 2)
+     */
+    FluxoEventos(int capacidade) {
+        if (capacidade < 1 || capacidade > 1 << 30) {
+            throw new IllegalArgumentException("Capacidade do fluxo de eventos inválida: " + capacidade);
+        }
+        int tamanho = Integer.highestOneBit(capacidade);
+        if (tamanho < capacidade) {
+            tamanho <<= 1;
+        }
+        anel = new Evento[tamanho];
+        for (int i = 0; i < tamanho; i++) {
+            anel[i] = new Evento();
+        }
+        mascara = tamanho - 1;
+    }
+
+    int getCapacidade() {
+        return anel.length;
+    }
+
+    /**
+     * Sequência do próximo evento (a de um assinante que só quer o que vier)
+     */
+    long getProxima() {
+        return publicada + 1;
+    }
+
+    /**
+     * Sequência mais antiga que ainda está no anel
+     */
+    long getPrimeiraDisponivel() {
+        return Math.max(0, publicada + 1 - anel.length);
+    }
+
+    // ========================================
+    // PUBLICAÇÃO
+    // ========================================
+
+    void publicarInsercao(Usuario usuario) {
+        publicar(Tipo.INSERCAO, usuario, null, null, 0);
+    }
+
+    void publicarAlteracao(Usuario usuario, String nomeAnterior, String emailAnterior, int idadeAnterior) {
+        publicar(Tipo.ALTERACAO, usuario, nomeAnterior, emailAnterior, idadeAnterior);
+    }
+
+    void publicarRemocao(Usuario usuario) {
+        publicar(Tipo.REMOCAO, usuario, null, null, 0);
+    }
+
+    private void publicar(Tipo tipo, Usuario usuario, String nomeAnterior, String emailAnterior,
+                          int idadeAnterior) {
+        long instante = System.currentTimeMillis();
+        synchronized (this) {
+            long sequencia = proxima;
+            if (sequencia >= limite) {
+                limite = atrasarAssinantes(sequencia);
+            }
+            Evento evento = anel[(int) sequencia & mascara];
+            evento.sequencia = sequencia;
+            evento.tipo = tipo;
+            evento.instante = instante;
+            evento.idInterno = usuario.getIdInterno();
+            evento.usuario = usuario;
+            evento.nome = usuario.getNome();
+            evento.email = usuario.getEmail();
+            evento.idade = usuario.getIdade();
+            evento.cpf = usuario.getCpf();
+            evento.nomeAnterior = nomeAnterior;
+            evento.emailAnterior = emailAnterior;
+            evento.idadeAnterior = idadeAnterior;
+            proxima = sequencia + 1;
+            publicada = sequencia;
+        }
+        if (bloqueados > 0) {
+            synchronized (esperando) {
+                esperando.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Marca como atrasados os assinantes que ainda não leram a posição que
+     * 'sequencia' vai sobrescrever
+     *
+     * @return a sequência até a qual é possível publicar sem verificar de novo
+     */
+    private long atrasarAssinantes(long sequencia) {
+        long lapso = sequencia - anel.length;
+        long menor = Long.MAX_VALUE;
+        int restantes = 0;
+        for (Assinante assinante : assinantes) {
+            long lida = assinante.proxima.get();
+            while (lida != ATRASADO && lida <= lapso && !assinante.proxima.compareAndSet(lida, ATRASADO)) {
+                lida = assinante.proxima.get();
+            }
+            if (lida != ATRASADO && lida > lapso) {
+                menor = Math.min(menor, lida);
+                assinantes[restantes++] = assinante;
+            }
+        }
+        if (restantes < assinantes.length) {
+            assinantes = Arrays.copyOf(assinantes, restantes);
+        }
+        return menor == Long.MAX_VALUE ? Long.MAX_VALUE : menor + anel.length;
+    }
+
+    // ========================================
+    // ASSINATURA
+    // ========================================
+
+    /**
+     * Assina a partir da sequência 'desde' (getProxima() para só os novos)
+     *
+     * @throws EventosPerdidos se 'desde' já saiu do anel
+     * @throws IllegalArgumentException se 'desde' ainda não foi publicada
+     *         nem é a próxima
+     */
+    Assinante assinar(long desde, Espera espera) {
+        synchronized (this) {
+            if (desde > proxima) {
+                throw new IllegalArgumentException("Sequência " + desde + " ainda não publicada (próxima: "
+                                                   + proxima + ")");
+            }
+            long primeira = Math.max(0, proxima - anel.length);
+            if (desde < primeira) {
+                throw new EventosPerdidos(desde, primeira);
+            }
+            Assinante assinante = new Assinante(desde, espera);
+            assinantes = Arrays.copyOf(assinantes, assinantes.length + 1);
+            assinantes[assinantes.length - 1] = assinante;
+            limite = Long.MIN_VALUE;   // recalcula com o novo assinante
+            return assinante;
+        }
+    }
+
+    private synchronized void cancelar(Assinante assinante) {
+        for (int i = 0; i < assinantes.length; i++) {
+            if (assinantes[i] == assinante) {
+                Assinante[] restantes = new Assinante[assinantes.length - 1];
+                System.arraycopy(assinantes, 0, restantes, 0, i);
+                System.arraycopy(assinantes, i + 1, restantes, i, restantes.length - i);
+                assinantes = restantes;
+                limite = Long.MIN_VALUE;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Leitor de eventos com a própria sequência; usado por uma thread
+     */
+    final class Assinante implements Closeable {
+        // Compartilhada com o produtor, que a troca por ATRASADO
+        private final AtomicLong proxima;
+        // Cópia da thread do assinante (continua válida depois de ATRASADO)
+        private long posicao;
+        private final Espera espera;
+        private final Evento atual = new Evento();
+
+        private Assinante(long desde, Espera espera) {
+            this.proxima = new AtomicLong(desde);
+            this.posicao = desde;
+            this.espera = espera;
+        }
+
+        /**
+         * Próxima sequência a ler (guardar para retomar depois com assinar)
+         */
+        long getProxima() {
+            return posicao;
+        }
+
+        /**
+         * Entrega ao tratador até 'maximo' eventos já publicados, sem esperar
+         *
+         * @return eventos entregues
+         * @throws EventosPerdidos se o produtor passou à frente do assinante
+         */
+        int ler(Tratador tratador, int maximo) {
+            int entregues = 0;
+            while (entregues < maximo) {
+                long sequencia = posicao;
+                if (sequencia > publicada) {
+                    break;
+                }
+                atual.copiar(anel[(int) sequencia & mascara]);
+                if (!proxima.compareAndSet(sequencia, sequencia + 1)) {
+                    // Marcado como atrasado (talvez durante a cópia): descarta. O
+                    // produtor marca antes de publicar, então 'publicada' pode
+                    // ainda não ter passado da sequência perdida
+                    throw new EventosPerdidos(sequencia, Math.max(sequencia + 1, getPrimeiraDisponivel()));
+                }
+                posicao = sequencia + 1;
+                tratador.tratar(atual);
+                entregues++;
+            }
+            return entregues;
+        }
+
+        /**
+         * Como ler, mas espera (pela estratégia do assinante) até haver algum
+         * evento ou o tempo acabar
+         *
+         * @return eventos entregues (0 se o tempo acabou)
+         */
+        int aguardar(Tratador tratador, int maximo, long tempo, TimeUnit unidade) throws InterruptedException {
+            long prazo = System.nanoTime() + unidade.toNanos(tempo);
+            long pausa = 1000;
+            int entregues;
+            while ((entregues = ler(tratador, maximo)) == 0) {
+                long restante = prazo - System.nanoTime();
+                if (restante <= 0) {
+                    return 0;
+                }
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+                switch (espera) {
+                    case OCUPADA:
+                        break;
+                    case CEDENDO:
+                        Thread.yield();
+                        break;
+                    case DORMINDO:
+                        LockSupport.parkNanos(Math.min(pausa, restante));
+                        pausa = Math.min(pausa * 2, PAUSA_MAXIMA_NANOS);
+                        break;
+                    default:
+                        bloquear(restante);
+                }
+            }
+            return entregues;
+        }
+
+        private void bloquear(long nanos) throws InterruptedException {
+            synchronized (esperando) {
+                bloqueados++;
+                try {
+                    // Confere depois de se anunciar: um evento publicado antes
+                    // disso não traria aviso
+                    if (posicao > publicada) {
+                        TimeUnit.NANOSECONDS.timedWait(esperando, nanos);
+                    }
+                } finally {
+                    bloqueados--;
+                }
+            }
+        }
+
+        /**
+         * Encerra a assinatura; o produtor deixa de considerá-la
+         */
+        @Override
+        public void close() {
+            cancelar(this);
+        }
+    }
+}
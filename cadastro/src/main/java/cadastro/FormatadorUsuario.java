@@ -0,0 +1,86 @@
+package cadastro;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Formatação de usuários sem String.format
+ *
+ * Os campos são acrescentados diretamente no destino (StringBuilder ou
+ * Writer), sem interpretar um padrão de formato e sem Strings intermediárias:
+ * números são escritos dígito a dígito e os campos extras das subclasses
+ * entram pelo método Usuario.anexarCamposExtras, no lugar de recortar o
+ * texto da superclasse.
+ *
+ * Formatos:
+ * - texto: Usuario{nome='...', email='...', idade=N, cpf='...', tipo='...'[, extras]}
+ * - CSV:   nome,email,idade,cpf
+ */
+final class FormatadorUsuario {
+
+    private FormatadorUsuario() {
+    }
+
+    static StringBuilder anexarTexto(StringBuilder destino, Usuario usuario) {
+        try {
+            escreverTexto(destino, usuario);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);  // StringBuilder não lança IOException
+        }
+        return destino;
+    }
+
+    static StringBuilder anexarCSV(StringBuilder destino, Usuario usuario) {
+        try {
+            escreverCSV(destino, usuario);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return destino;
+    }
+
+    /**
+     * Escreve a representação textual (a mesma de toString)
+     */
+    static void escreverTexto(Appendable destino, Usuario usuario) throws IOException {
+        destino.append("Usuario{nome='").append(String.valueOf(usuario.getNome()));
+        destino.append("', email='").append(String.valueOf(usuario.getEmail()));
+        destino.append("', idade=");
+        escreverInteiro(destino, usuario.getIdade());
+        destino.append(", cpf='").append(String.valueOf(usuario.getCpf()));
+        destino.append("', tipo='").append(usuario.getTipoUsuario()).append('\'');
+        usuario.anexarCamposExtras(destino);
+        destino.append('}');
+    }
+
+    /**
+     * Escreve a linha CSV (a mesma de toCSV), sem quebra de linha
+     */
+    static void escreverCSV(Appendable destino, Usuario usuario) throws IOException {
+        destino.append(String.valueOf(usuario.getNome())).append(',');
+        destino.append(String.valueOf(usuario.getEmail())).append(',');
+        escreverInteiro(destino, usuario.getIdade());
+        destino.append(',').append(String.valueOf(usuario.getCpf()));
+    }
+
+    /**
+     * Escreve o inteiro em decimal, sem criar String
+     */
+    static void escreverInteiro(Appendable destino, int valor) throws IOException {
+        if (valor < 0) {
+            if (valor == Integer.MIN_VALUE) {
+                destino.append("-2147483648");
+                return;
+            }
+            destino.append('-');
+            valor = -valor;
+        }
+        int divisor = 1;
+        while (valor / divisor >= 10) {
+            divisor *= 10;
+        }
+        for (; divisor > 0; divisor /= 10) {
+            destino.append((char) ('0' + (valor / divisor) % 10));
+        }
+    }
+}
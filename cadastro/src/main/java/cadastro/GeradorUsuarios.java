@@ -0,0 +1,416 @@
+package cadastro;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.Normalizer;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.function.Predicate;
+
+/**
+ * Gerador determinístico de usuários sintéticos
+ *
+ * O usuário de índice i depende só da semente, de i e da configuração: cada
+ * um tem o próprio SplittableRandom (semente e índice misturados), então os
+ * usuários podem ser gerados em qualquer ordem, em partes ou de novo, sem
+ * guardar nada. Índices diferentes dão emails e CPFs diferentes.
+ *
+ * - nome: prenome e um ou dois sobrenomes brasileiros (com acentos), os mais
+ *   comuns mais frequentes (Zipf com expoente 1)
+ * - email: prenome.sobrenome + índice, sem acentos, num domínio sorteado por
+ *   uma distribuição de Zipf (poucos provedores grandes, cauda longa de
+ *   domínios de empresas); expoente em cadastro.gerador.dominios (padrão 1.5)
+ * - idade: distribuição de cadastro.gerador.idades (ver distribuicaoIdades);
+ *   o tipo segue da idade (Usuario.criar: menor, padrão ou idoso)
+ * - CPF: permutação dos 9 dígitos da base (sem as bases de dígitos repetidos),
+ *   com os dígitos verificadores calculados
+ * - data de cadastro: entre 2015 e 2025, mais cadastros nos anos recentes
+ *
+ * Uso:
+ *   java -cp cadastro-1.0.jar cadastro.GeradorUsuarios quantidade [csv|bin|ndjson] [arquivo] [semente]
+ * Padrões: csv em usuarios.txt (bin: usuarios.bin, ndjson: usuarios.ndjson),
+ *          semente de cadastro.gerador.semente (padrão 42)
+ */
+final class GeradorUsuarios {
+
+    /**
+     * Maior quantidade de usuários com CPFs distintos (bases de 9 dígitos,
+     * menos as 10 de dígitos repetidos, que a validação rejeita)
+     */
+    static final long LIMITE = 999_999_990L;
+
+    static final long SEMENTE_PADRAO = Long.getLong("cadastro.gerador.semente", 42L);
+
+    private static final long BASES_CPF = 1_000_000_000L;
+    private static final long REPETIDOS = 111_111_111L;         // bases 000000000, 111111111, ...
+    private static final long MULTIPLICADOR_CPF = 387_420_489L; // 3^18: primo com 10, permuta as bases
+
+    private static final long INICIO_CADASTROS = 1_420_070_400_000L;   // 2015-01-01 UTC
+    private static final long PERIODO_CADASTROS = 3_653L * 24 * 60 * 60 * 1000;
+
+    private static final String[] PRENOMES = {
+        "Maria", "José", "Ana", "João", "Antônio", "Francisco", "Carlos", "Paulo", "Pedro", "Lucas",
+        "Luiz", "Marcos", "Luís", "Gabriel", "Rafael", "Francisca", "Daniel", "Marcelo", "Bruno", "Eduardo",
+        "Juliana", "Adriana", "Márcia", "Fernanda", "Patrícia", "Aline", "Sandra", "Camila", "Amanda", "Bruna",
+        "Jéssica", "Letícia", "Júlia", "Luciana", "Vanessa", "Mariana", "Gabriela", "Vitória", "Larissa", "Cláudia",
+        "Beatriz", "Luana", "Rita", "Sônia", "Renata", "Eliane", "Felipe", "Gustavo", "Rodrigo", "Matheus"
+    };
+
+    private static final String[] SOBRENOMES = {
+        "Silva", "Santos", "Oliveira", "Souza", "Rodrigues", "Ferreira", "Alves", "Pereira", "Lima", "Gomes",
+        "Costa", "Ribeiro", "Martins", "Carvalho", "Almeida", "Lopes", "Soares", "Fernandes", "Vieira", "Barbosa",
+        "Rocha", "Dias", "Nascimento", "Andrade", "Moreira", "Nunes", "Marques", "Machado", "Mendes", "Freitas",
+        "Cardoso", "Ramos", "Gonçalves", "Santana", "Teixeira", "Araújo", "Conceição", "Magalhães", "Simões", "Brandão"
+    };
+
+    // Provedores em ordem de popularidade; depois deles, DOMINIOS_EMPRESAS domínios de empresas
+    private static final String[] PROVEDORES = {
+        "gmail.com", "hotmail.com", "outlook.com", "yahoo.com.br", "icloud.com", "uol.com.br",
+        "bol.com.br", "terra.com.br", "live.com", "ig.com.br", "globo.com", "yahoo.com"
+    };
+    private static final int DOMINIOS_EMPRESAS = 2000;
+
+    // Proporção da população por faixa de 5 anos (1-4, 5-9, ..., 95-99, 100), aproximando o censo de 2022
+    private static final double[] PIRAMIDE_CENSO = {
+        5.6, 6.3, 6.6, 7.0, 7.6, 7.8, 7.9, 7.9, 7.6, 6.7, 6.2, 5.6, 4.8, 3.9, 2.9, 2.0, 1.2, 0.6, 0.25, 0.08, 0.01
+    };
+    private static final int IDADE_MAXIMA_GERADA = 120;
+
+    private static final String[] PRENOMES_EMAIL = semAcentos(PRENOMES);
+    private static final String[] SOBRENOMES_EMAIL = semAcentos(SOBRENOMES);
+    private static final double[] ACUMULADO_PRENOMES = acumularZipf(PRENOMES.length, 1.0);
+    private static final double[] ACUMULADO_SOBRENOMES = acumularZipf(SOBRENOMES.length, 1.0);
+
+    /**
+     * Formato de arquivo gerado
+     */
+    enum Formato {
+        CSV("usuarios.txt"), BIN("usuarios.bin"), NDJSON("usuarios.ndjson");
+
+        final String arquivoPadrao;
+
+        Formato(String arquivoPadrao) {
+            this.arquivoPadrao = arquivoPadrao;
+        }
+
+        static Formato porNome(String nome) {
+            for (Formato formato : values()) {
+                if (formato.name().equalsIgnoreCase(nome)) {
+                    return formato;
+                }
+            }
+            throw new IllegalArgumentException("Formato desconhecido: '" + nome + "' (use csv, bin ou ndjson)");
+        }
+    }
+
+    private final long semente;
+    private final long deslocamentoCpf;
+    private final double[] acumuladoIdades;     // por idade, de 0 a IDADE_MAXIMA_GERADA
+    private final double[] acumuladoDominios;
+    private final String[] dominios;
+
+    /**
+     * Gerador com as distribuições de cadastro.gerador.idades e
+     * cadastro.gerador.dominios
+     */
+    GeradorUsuarios(long semente) {
+        this(semente, System.getProperty("cadastro.gerador.idades", "censo"),
+             Double.parseDouble(System.getProperty("cadastro.gerador.dominios", "1.5")));
+    }
+
+    /**
+     * @param idades distribuição das idades (ver distribuicaoIdades)
+     * @param expoenteDominios expoente da distribuição de Zipf dos domínios
+     *        (0 = todos igualmente prováveis)
+     * @throws IllegalArgumentException se a distribuição ou o expoente forem inválidos
+     */
+    GeradorUsuarios(long semente, String idades, double expoenteDominios) {
+        if (!(expoenteDominios >= 0)) {
+            throw new IllegalArgumentException("Expoente dos domínios inválido: " + expoenteDominios);
+        }
+        this.semente = semente;
+        this.deslocamentoCpf = Math.floorMod(misturar(semente ^ 0x5DEECE66DL), BASES_CPF);
+        this.acumuladoIdades = distribuicaoIdades(idades);
+        this.dominios = new String[PROVEDORES.length + DOMINIOS_EMPRESAS];
+        System.arraycopy(PROVEDORES, 0, dominios, 0, PROVEDORES.length);
+        for (int i = 0; i < DOMINIOS_EMPRESAS; i++) {
+            dominios[PROVEDORES.length + i] = "empresa" + (i + 1) + ".com.br";
+        }
+        this.acumuladoDominios = acumularZipf(dominios.length, expoenteDominios);
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.out.println("Uso: GeradorUsuarios quantidade [csv|bin|ndjson] [arquivo] [semente]");
+            System.exit(2);
+        }
+        int quantidade = Integer.parseInt(args[0]);
+        Formato formato = args.length > 1 ? Formato.porNome(args[1]) : Formato.CSV;
+        Path arquivo = Paths.get(args.length > 2 ? args[2] : formato.arquivoPadrao);
+        long semente = args.length > 3 ? Long.parseLong(args[3]) : SEMENTE_PADRAO;
+
+        long inicio = System.nanoTime();
+        new GeradorUsuarios(semente).gravar(arquivo, formato, 0, quantidade);
+        double segundos = (System.nanoTime() - inicio) / 1e9;
+        System.out.printf("Gerados %,d usuário(s) em '%s' (%.1f MB em %.1f s, %,.0f usuários/s)%n",
+                          quantidade, arquivo, Files.size(arquivo) / 1048576.0, segundos, quantidade / segundos);
+    }
+
+    // ========================================
+    // USUÁRIOS
+    // ========================================
+
+    /**
+     * Usuário de índice 'indice' (de 0 a LIMITE - 1)
+     */
+    Usuario usuario(long indice) {
+        if (indice < 0 || indice >= LIMITE) {
+            throw new IllegalArgumentException("Índice fora do limite do gerador: " + indice);
+        }
+        SplittableRandom aleatorio = new SplittableRandom(misturar(semente + misturar(indice)));
+
+        int prenome = sortear(ACUMULADO_PRENOMES, aleatorio.nextDouble());
+        int sobrenome = sortear(ACUMULADO_SOBRENOMES, aleatorio.nextDouble());
+        StringBuilder nome = new StringBuilder(40).append(PRENOMES[prenome]).append(' ');
+        if (aleatorio.nextInt(10) < 6) {
+            int meio = sortear(ACUMULADO_SOBRENOMES, aleatorio.nextDouble());
+            if (meio != sobrenome) {
+                nome.append(SOBRENOMES[meio]).append(' ');
+            }
+        }
+        nome.append(SOBRENOMES[sobrenome]);
+
+        // O índice no email o torna único: a parte antes dele só tem letras e '.'
+        String email = PRENOMES_EMAIL[prenome] + '.' + SOBRENOMES_EMAIL[sobrenome] + indice
+                       + '@' + dominios[sortear(acumuladoDominios, aleatorio.nextDouble())];
+        int idade = sortear(acumuladoIdades, aleatorio.nextDouble());
+        String cpf = ArquivoColunar.formatarCPF(ValidacaoCadastro.completarCPF(baseCpf(indice)));
+
+        Usuario usuario = Usuario.criar(nome.toString(), email, idade, cpf);
+        // sqrt: densidade crescente ao longo do período
+        usuario.setDataCadastro(new Date(INICIO_CADASTROS
+                                         + (long) (Math.sqrt(aleatorio.nextDouble()) * PERIODO_CADASTROS)));
+        return usuario;
+    }
+
+    /**
+     * Os usuários de 'desde' a 'desde + quantidade - 1', gerados ao acessar
+     * (nada fica guardado)
+     */
+    List<Usuario> usuarios(final long desde, final int quantidade) {
+        if (quantidade < 0 || desde < 0 || desde + quantidade > LIMITE) {
+            throw new IllegalArgumentException("Faixa fora do limite do gerador: " + desde + " + " + quantidade);
+        }
+        return new AbstractList<Usuario>() {
+            @Override
+            public Usuario get(int posicao) {
+                if (posicao < 0 || posicao >= quantidade) {
+                    throw new IndexOutOfBoundsException("Posição: " + posicao);
+                }
+                return usuario(desde + posicao);
+            }
+
+            @Override
+            public int size() {
+                return quantidade;
+            }
+        };
+    }
+
+    /**
+     * Grava os usuários de 'desde' a 'desde + quantidade - 1' no formato dado
+     */
+    void gravar(Path arquivo, Formato formato, long desde, int quantidade) throws IOException {
+        final List<Usuario> usuarios = usuarios(desde, quantidade);
+        switch (formato) {
+            case CSV:
+                SistemaCadastro.salvarTexto(arquivo, usuarios);
+                break;
+            case BIN:
+                ArquivoColunar.gravar(arquivo, usuarios);
+                break;
+            case NDJSON:
+                // A página é identificada pela posição, guardada no id interno
+                ArquivoNdjson.exportar(arquivo, (desdeId, limite) -> {
+                    int fim = (int) Math.min(quantidade, (long) desdeId + limite);
+                    List<Usuario> pagina = new ArrayList<>(Math.max(0, fim - desdeId));
+                    for (int posicao = desdeId; posicao < fim; posicao++) {
+                        Usuario usuario = usuarios.get(posicao);
+                        usuario.setIdInterno(posicao);
+                        pagina.add(usuario);
+                    }
+                    return pagina;
+                });
+                break;
+            default:
+                throw new AssertionError(formato);
+        }
+    }
+
+    /**
+     * Entrega os usuários de 'desde' a 'desde + quantidade - 1' ao destino,
+     * em ordem, sem arquivo
+     *
+     * @return quantos o destino aceitou
+     */
+    long enviar(long desde, long quantidade, Predicate<Usuario> destino) {
+        long aceitos = 0;
+        for (long indice = desde; indice < desde + quantidade; indice++) {
+            if (destino.test(usuario(indice))) {
+                aceitos++;
+            }
+        }
+        return aceitos;
+    }
+
+    // ========================================
+    // DISTRIBUIÇÕES
+    // ========================================
+
+    /**
+     * Distribuição acumulada das idades (índice = idade, de 0 a 120)
+     *
+     * - censo: pirâmide etária brasileira, de 1 a 100 anos
+     * - uniforme:DE..ATE
+     * - normal:MEDIA,DESVIO (truncada entre 1 e 120)
+     *
+     * @throws IllegalArgumentException se a descrição for inválida
+     */
+    static double[] distribuicaoIdades(String descricao) {
+        double[] pesos = new double[IDADE_MAXIMA_GERADA + 1];
+        try {
+            if (descricao.equals("censo")) {
+                for (int idade = 1; idade <= 100; idade++) {
+                    int faixa = idade / 5;
+                    int idadesNaFaixa = faixa == 0 ? 4 : faixa == 20 ? 1 : 5;
+                    pesos[idade] = PIRAMIDE_CENSO[faixa] / idadesNaFaixa;
+                }
+            } else if (descricao.startsWith("uniforme:")) {
+                String faixa = descricao.substring("uniforme:".length());
+                int pontos = faixa.indexOf("..");
+                int de = Integer.parseInt(faixa.substring(0, pontos).trim());
+                int ate = Integer.parseInt(faixa.substring(pontos + 2).trim());
+                if (de < 1 || ate > IDADE_MAXIMA_GERADA || de > ate) {
+                    throw new IllegalArgumentException("Faixa de idades inválida: " + faixa);
+                }
+                for (int idade = de; idade <= ate; idade++) {
+                    pesos[idade] = 1;
+                }
+            } else if (descricao.startsWith("normal:")) {
+                String[] partes = descricao.substring("normal:".length()).split(",");
+                double media = Double.parseDouble(partes[0].trim());
+                double desvio = Double.parseDouble(partes[1].trim());
+                if (!(desvio > 0)) {
+                    throw new IllegalArgumentException("Desvio padrão inválido: " + desvio);
+                }
+                for (int idade = 1; idade <= IDADE_MAXIMA_GERADA; idade++) {
+                    double z = (idade - media) / desvio;
+                    pesos[idade] = Math.exp(-z * z / 2);
+                }
+            } else {
+                throw new IllegalArgumentException("Distribuição de idades desconhecida: '" + descricao
+                                                   + "' (use censo, uniforme:DE..ATE ou normal:MEDIA,DESVIO)");
+            }
+        } catch (IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Distribuição de idades incompleta: '" + descricao + "'");
+        }
+        return acumular(pesos);
+    }
+
+    /**
+     * Distribuição acumulada de Zipf: o item k (a partir de 0) tem peso 1 / (k + 1)^expoente
+     */
+    private static double[] acumularZipf(int itens, double expoente) {
+        double[] pesos = new double[itens];
+        for (int k = 0; k < itens; k++) {
+            pesos[k] = 1 / Math.pow(k + 1, expoente);
+        }
+        return acumular(pesos);
+    }
+
+    /**
+     * Somas parciais normalizadas (a última é 1)
+     */
+    private static double[] acumular(double[] pesos) {
+        double total = 0;
+        for (double peso : pesos) {
+            total += peso;
+        }
+        if (!(total > 0)) {
+            throw new IllegalArgumentException("Distribuição sem nenhum valor possível");
+        }
+        double[] acumulado = new double[pesos.length];
+        double soma = 0;
+        for (int i = 0; i < pesos.length; i++) {
+            soma += pesos[i];
+            acumulado[i] = soma / total;
+        }
+        acumulado[pesos.length - 1] = 1;
+        return acumulado;
+    }
+
+    /**
+     * Primeiro índice cujo acumulado passa de u (em [0, 1)), por busca binária
+     */
+    private static int sortear(double[] acumulado, double u) {
+        int baixo = 0;
+        int alto = acumulado.length - 1;
+        while (baixo < alto) {
+            int meio = (baixo + alto) >>> 1;
+            if (acumulado[meio] > u) {
+                alto = meio;
+            } else {
+                baixo = meio + 1;
+            }
+        }
+        return baixo;
+    }
+
+    // ========================================
+    // CPF E ALEATORIEDADE
+    // ========================================
+
+    /**
+     * Base de 9 dígitos do CPF do usuário 'indice', distinta para cada índice
+     *
+     * O índice vira a indice-ésima base sem dígitos repetidos, que passa por
+     * uma permutação afim das bases (x * 3^18 + deslocamento, módulo 10^9).
+     * Se o resultado for uma base de dígitos repetidos, a permutação é
+     * aplicada de novo até sair delas: como a entrada já não é uma delas,
+     * índices diferentes continuam dando bases diferentes.
+     */
+    private long baseCpf(long indice) {
+        long base = indice + 1 + indice / (REPETIDOS - 1);
+        do {
+            base = (base * MULTIPLICADOR_CPF + deslocamentoCpf) % BASES_CPF;
+        } while (base % REPETIDOS == 0);
+        return base;
+    }
+
+    /**
+     * Mistura os bits de um long (finalizador do MurmurHash3)
+     */
+    private static long misturar(long valor) {
+        valor ^= valor >>> 33;
+        valor *= 0xFF51AFD7ED558CCDL;
+        valor ^= valor >>> 33;
+        valor *= 0xC4CEB9FE1A85EC53L;
+        valor ^= valor >>> 33;
+        return valor;
+    }
+
+    private static String[] semAcentos(String[] nomes) {
+        String[] resultado = new String[nomes.length];
+        for (int i = 0; i < nomes.length; i++) {
+            resultado[i] = Normalizer.normalize(nomes[i], Normalizer.Form.NFD)
+                                     .replaceAll("\\p{M}", "").toLowerCase(Locale.ROOT);
+        }
+        return resultado;
+    }
+}
@@ -0,0 +1,112 @@
+package cadastro;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histograma de latências em faixas logarítmicas (no estilo do HdrHistogram)
+ *
+ * Cada potência de 2 de nanossegundos é dividida em 16 faixas iguais, então
+ * o valor informado por um percentil fica a no máximo 1/16 (6,25%) do valor
+ * real, de 1 ns a dezenas de anos, com 960 contadores fixos. Registrar um
+ * valor é um incremento atômico num vetor, sem travas nem alocação; a
+ * faixa é calculada com deslocamentos a partir do bit mais alto.
+ *
+ * Leituras (percentis, média) percorrem os contadores sem parar quem
+ * registra: o resultado pode misturar registros feitos durante a leitura.
+ */
+class HistogramaLatencia {
+
+    private static final int BITS_SUBFAIXA = 4;
+    private static final int SUBFAIXAS = 1 << BITS_SUBFAIXA;
+    private static final int FAIXAS = (64 - BITS_SUBFAIXA) * SUBFAIXAS;
+
+    private final AtomicLongArray contagens = new AtomicLongArray(FAIXAS);
+    private final LongAdder somaNanos = new LongAdder();
+    private final AtomicLong maximo = new AtomicLong();
+
+    void registrar(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;   // relógio monotônico não volta, mas o chamador pode errar
+        }
+        contagens.incrementAndGet(faixa(nanos));
+        somaNanos.add(nanos);
+        long atual = maximo.get();
+        while (nanos > atual && !maximo.compareAndSet(atual, nanos)) {
+            atual = maximo.get();
+        }
+    }
+
+    long getTotal() {
+        long n = 0;
+        for (int i = 0; i < FAIXAS; i++) {
+            n += contagens.get(i);
+        }
+        return n;
+    }
+
+    long getMaximoNanos() {
+        return maximo.get();
+    }
+
+    double getMediaNanos() {
+        long n = getTotal();
+        return n == 0 ? 0 : (double) somaNanos.sum() / n;
+    }
+
+    /**
+     * @param fracao entre 0 e 1 (0,99 para o p99)
+     * @return o maior valor da faixa que contém o percentil, ou 0 sem registros
+     */
+    long percentilNanos(double fracao) {
+        long[] copia = new long[FAIXAS];
+        long n = 0;
+        for (int i = 0; i < FAIXAS; i++) {
+            copia[i] = contagens.get(i);
+            n += copia[i];
+        }
+        if (n == 0) {
+            return 0;
+        }
+        long posicao = Math.max(1, (long) Math.ceil(fracao * n));
+        long acumulado = 0;
+        for (int i = 0; i < FAIXAS; i++) {
+            acumulado += copia[i];
+            if (acumulado >= posicao) {
+                return Math.min(limiteSuperior(i), maximo.get());
+            }
+        }
+        return maximo.get();
+    }
+
+    void zerar() {
+        for (int i = 0; i < FAIXAS; i++) {
+            contagens.set(i, 0);
+        }
+        somaNanos.reset();
+        maximo.set(0);
+    }
+
+    /**
+     * Faixa do valor: valores até 15 têm faixa própria; acima disso, 16
+     * faixas por potência de 2, escolhidas pelos 4 bits após o mais alto
+     */
+    static int faixa(long valor) {
+        if (valor < SUBFAIXAS) {
+            return (int) valor;
+        }
+        int expoente = 63 - Long.numberOfLeadingZeros(valor);
+        int subfaixa = (int) (valor >>> (expoente - BITS_SUBFAIXA)) & (SUBFAIXAS - 1);
+        return (expoente - BITS_SUBFAIXA + 1) * SUBFAIXAS + subfaixa;
+    }
+
+    static long limiteSuperior(int faixa) {
+        if (faixa < SUBFAIXAS) {
+            return faixa;
+        }
+        int expoente = faixa / SUBFAIXAS + BITS_SUBFAIXA - 1;
+        long inferior = (long) (SUBFAIXAS + faixa % SUBFAIXAS) << (expoente - BITS_SUBFAIXA);
+        return inferior + (1L << (expoente - BITS_SUBFAIXA)) - 1;
+    }
+}
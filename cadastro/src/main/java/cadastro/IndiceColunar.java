@@ -0,0 +1,458 @@
+package cadastro;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.IntPredicate;
+
+/**
+ * Índice persistente de 'usuarios.bin' para a carga sob demanda
+ * ('usuarios.bin.idx', ver RepositorioSobDemanda)
+ *
+ * Responde às buscas que, na recuperação completa, usam os índices em
+ * memória, sem decodificar o binário inteiro:
+ * - email e CPF: tabelas de endereçamento aberto (sondagem linear) com o
+ *   número do registro + 1 (0 = vazio); cada candidato é confirmado no
+ *   binário, então a tabela não precisa guardar as chaves
+ * - prefixo do nome: os registros ordenados pelos 8 primeiros bytes UTF-8
+ *   do nome normalizado, com essas chaves ao lado para a busca binária
+ * - idade: os registros agrupados por idade (0 a 150) e o início de cada grupo
+ * - resumo: soma das idades e quantidades por tipo e por domínio, que
+ *   alimentam as EstatisticasUsuarios sem percorrer os usuários
+ *
+ * Layout (big-endian):
+ *   Cabeçalho fixo de 64 bytes
+ *     int   mágico 'CADI'        short versão       short tamanho do cabeçalho
+ *     int   quantidade (n)       int   CRC32 do binário   long tamanho do binário
+ *     int   bits da tabela de emails                 int  bits da tabela de CPFs
+ *     int   posição de cada seção: emails, cpfs, nomes, idades, resumo
+ *     int   tamanho total
+ *   int[2^bitsEmail]   tabela de emails
+ *   int[2^bitsCpf]     tabela de CPFs
+ *   long[n] chaves dos nomes em ordem, int[n] registros na mesma ordem
+ *   int[152] início de cada idade (e o fim), int[n] registros por idade
+ *   resumo (DataOutputStream): long soma das idades, int tipos, (UTF, long)...,
+ *                              int domínios, (UTF, long)...
+ *
+ * O cabeçalho identifica o binário descrito (quantidade, CRC32 e tamanho):
+ * um índice de outro binário é recusado por abrir() e reconstruído. A
+ * construção confere o CRC32 do binário, que a carga sob demanda não lê
+ * por inteiro.
+ */
+final class IndiceColunar implements Closeable {
+
+    static final int MAGICO = 0x43414449; // "CADI"
+    static final short VERSAO = 1;
+    static final int TAMANHO_CABECALHO = 64;
+
+    private static final int IDADES = EstatisticasUsuarios.IDADE_MAXIMA + 1;
+
+    private final FileChannel canal;
+    private final MappedByteBuffer buffer;
+    private final ArquivoColunar.Leitor leitor;
+    private final int n;
+    private final int bitsEmail;
+    private final int bitsCpf;
+    private final int posEmails;
+    private final int posCpfs;
+    private final int posChavesNome;
+    private final int posNomes;
+    private final int posInicioIdade;
+    private final int posIdades;
+    private final long somaIdades;
+    private final Map<String, Long> porTipo = new TreeMap<>();
+    private final Map<String, Long> porDominio = new HashMap<>();
+
+    private IndiceColunar(FileChannel canal, MappedByteBuffer buffer, ArquivoColunar.Leitor leitor)
+            throws IOException {
+        this.canal = canal;
+        this.buffer = buffer;
+        this.leitor = leitor;
+        this.n = buffer.getInt(8);
+        this.bitsEmail = buffer.getInt(24);
+        this.bitsCpf = buffer.getInt(28);
+        this.posEmails = buffer.getInt(32);
+        this.posCpfs = buffer.getInt(36);
+        this.posChavesNome = buffer.getInt(40);
+        this.posNomes = posChavesNome + 8 * n;
+        this.posInicioIdade = buffer.getInt(44);
+        this.posIdades = posInicioIdade + 4 * (IDADES + 1);
+
+        int posResumo = buffer.getInt(48);
+        byte[] resumo = new byte[buffer.capacity() - posResumo];
+        ByteBuffer copia = buffer.duplicate();
+        copia.position(posResumo);
+        copia.get(resumo);
+        try (DataInputStream entrada = new DataInputStream(new ByteArrayInputStream(resumo))) {
+            this.somaIdades = entrada.readLong();
+            for (int i = entrada.readInt(); i > 0; i--) {
+                porTipo.put(entrada.readUTF(), entrada.readLong());
+            }
+            for (int i = entrada.readInt(); i > 0; i--) {
+                porDominio.put(entrada.readUTF(), entrada.readLong());
+            }
+        }
+    }
+
+    /**
+     * 'usuarios.bin' -> 'usuarios.bin.idx'
+     */
+    static Path arquivoDe(Path binario) {
+        return binario.resolveSibling(binario.getFileName() + ".idx");
+    }
+
+    /**
+     * Mapeia o índice do binário aberto em 'leitor'
+     *
+     * @throws IOException se o índice não existe, está incompleto ou
+     *         descreve outro binário
+     */
+    static IndiceColunar abrir(Path arquivo, ArquivoColunar.Leitor leitor) throws IOException {
+        FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.READ);
+        try {
+            long tamanho = canal.size();
+            if (tamanho < TAMANHO_CABECALHO || tamanho > Integer.MAX_VALUE) {
+                throw new IOException("Índice colunar inválido: tamanho " + tamanho);
+            }
+            MappedByteBuffer buffer = canal.map(FileChannel.MapMode.READ_ONLY, 0, tamanho);
+            if (buffer.getInt(0) != MAGICO || buffer.getShort(4) != VERSAO || buffer.getInt(52) != tamanho) {
+                throw new IOException("Índice colunar em formato desconhecido ou incompleto");
+            }
+            if (buffer.getInt(8) != leitor.n || buffer.getInt(12) != leitor.getCrc()
+                    || buffer.getLong(16) != leitor.getTamanho()) {
+                throw new IOException("Índice colunar de outro instantâneo");
+            }
+            return new IndiceColunar(canal, buffer, leitor);
+        } catch (IOException | RuntimeException e) {
+            canal.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Constrói o índice do binário aberto em 'leitor', lendo-o uma vez
+     *
+     * @throws IOException se o CRC32 do binário não confere
+     */
+    static void gravar(Path arquivo, ArquivoColunar.Leitor leitor) throws IOException {
+        leitor.verificar();
+        int n = leitor.n;
+        int bitsEmail = bitsTabela(n);
+        int bitsCpf = bitsTabela(n);
+        int[] emails = new int[1 << bitsEmail];
+        int[] cpfs = new int[1 << bitsCpf];
+        long[] chavesNome = new long[n];
+        int[] idades = new int[n];
+        int[] inicioIdade = new int[IDADES + 1];
+        long somaIdades = 0;
+        Map<String, Long> porTipo = new TreeMap<>();
+        Map<String, Long> porDominio = new HashMap<>();
+
+        byte[] temporario = new byte[256];
+        for (int registro = 0; registro < n; registro++) {
+            Usuario usuario = leitor.ler(registro, temporario);
+            inserir(emails, bitsEmail, IndicePrimitivo.hash(usuario.getEmail()), registro);
+            inserir(cpfs, bitsCpf, IndicesUsuarios.chaveCpf(IndicesUsuarios.normalizarCPF(usuario.getCpf())), registro);
+            chavesNome[registro] = chaveNome(IndicesUsuarios.normalizarNome(usuario.getNome()));
+            idades[registro] = posicaoIdade(usuario.getIdade());
+            inicioIdade[idades[registro] + 1]++;
+            somaIdades += usuario.getIdade();
+            porTipo.merge(usuario.getTipoUsuario(), 1L, Long::sum);
+            porDominio.merge(EstatisticasUsuarios.extrairDominio(usuario.getEmail()), 1L, Long::sum);
+        }
+
+        int[] nomes = ordenarPorChave(chavesNome);
+
+        // Registros agrupados por idade, em ordem crescente dentro de cada idade
+        for (int idade = 0; idade < IDADES; idade++) {
+            inicioIdade[idade + 1] += inicioIdade[idade];
+        }
+        int[] porIdade = new int[n];
+        int[] proxima = inicioIdade.clone();
+        for (int registro = 0; registro < n; registro++) {
+            porIdade[proxima[idades[registro]]++] = registro;
+        }
+
+        ByteArrayOutputStream bytesResumo = new ByteArrayOutputStream();
+        try (DataOutputStream resumo = new DataOutputStream(bytesResumo)) {
+            resumo.writeLong(somaIdades);
+            gravarContagens(resumo, porTipo);
+            gravarContagens(resumo, porDominio);
+        }
+
+        long posEmails = TAMANHO_CABECALHO;
+        long posCpfs = posEmails + 4L * emails.length;
+        long posChavesNome = posCpfs + 4L * cpfs.length;
+        long posInicioIdade = posChavesNome + 12L * n;
+        long posResumo = posInicioIdade + 4L * (IDADES + 1) + 4L * n;
+        long tamanhoTotal = posResumo + bytesResumo.size();
+        if (tamanhoTotal > Integer.MAX_VALUE) {
+            throw new IOException("Índice grande demais (" + tamanhoTotal + " bytes)");
+        }
+
+        try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+
+            MappedByteBuffer buffer = canal.map(FileChannel.MapMode.READ_WRITE, 0, tamanhoTotal);
+
+            buffer.putInt(MAGICO);
+            buffer.putShort(VERSAO);
+            buffer.putShort((short) TAMANHO_CABECALHO);
+            buffer.putInt(n);
+            buffer.putInt(leitor.getCrc());
+            buffer.putLong(leitor.getTamanho());
+            buffer.putInt(bitsEmail);
+            buffer.putInt(bitsCpf);
+            buffer.putInt((int) posEmails);
+            buffer.putInt((int) posCpfs);
+            buffer.putInt((int) posChavesNome);
+            buffer.putInt((int) posInicioIdade);
+            buffer.putInt((int) posResumo);
+            buffer.putInt((int) tamanhoTotal);
+
+            buffer.position((int) posEmails);
+            buffer.asIntBuffer().put(emails);
+            buffer.position((int) posCpfs);
+            buffer.asIntBuffer().put(cpfs);
+            buffer.position((int) posChavesNome);
+            buffer.asLongBuffer().put(chavesNome);
+            buffer.position((int) posChavesNome + 8 * n);
+            buffer.asIntBuffer().put(nomes);
+            buffer.position((int) posInicioIdade);
+            buffer.asIntBuffer().put(inicioIdade).put(porIdade);
+            buffer.position((int) posResumo);
+            buffer.put(bytesResumo.toByteArray());
+
+            buffer.force();
+        }
+    }
+
+    /**
+     * @return o registro do binário com o email, ou -1
+     */
+    int buscarEmail(String email) {
+        int mascara = (1 << bitsEmail) - 1;
+        for (int slot = posicao(IndicePrimitivo.hash(email), bitsEmail); ; slot = (slot + 1) & mascara) {
+            int valor = buffer.getInt(posEmails + 4 * slot);
+            if (valor == 0) {
+                return -1;
+            }
+            if (email.equals(leitor.lerEmail(valor - 1))) {
+                return valor - 1;
+            }
+        }
+    }
+
+    /**
+     * @param chave chave do CPF como em IndicesUsuarios.chaveCpf
+     * @return o registro do binário com o CPF, ou -1
+     */
+    int buscarCpf(long chave) {
+        int mascara = (1 << bitsCpf) - 1;
+        for (int slot = posicao(chave, bitsCpf); ; slot = (slot + 1) & mascara) {
+            int valor = buffer.getInt(posCpfs + 4 * slot);
+            if (valor == 0) {
+                return -1;
+            }
+            long compactado = leitor.lerCpfCompactado(valor - 1);
+            long encontrada = compactado >= 0 ? compactado
+                    : IndicesUsuarios.chaveCpf(IndicesUsuarios.normalizarCPF(leitor.lerCpf(valor - 1)));
+            if (encontrada == chave) {
+                return valor - 1;
+            }
+        }
+    }
+
+    /**
+     * Entrega, em ordem de nome, os registros cujo nome normalizado começa
+     * com 'prefixo' (já normalizado), até 'acao' devolver false
+     */
+    void percorrerPrefixoNome(String prefixo, IntPredicate acao) {
+        byte[] bytes = prefixo.getBytes(StandardCharsets.UTF_8);
+        long primeira = chave(bytes);
+        long ultima = bytes.length >= 8 ? primeira : primeira | (-1L >>> (8 * bytes.length));
+
+        int inicio = 0;
+        int fim = n;
+        while (inicio < fim) {
+            int meio = (inicio + fim) >>> 1;
+            if (Long.compareUnsigned(buffer.getLong(posChavesNome + 8 * meio), primeira) < 0) {
+                inicio = meio + 1;
+            } else {
+                fim = meio;
+            }
+        }
+        for (int i = inicio; i < n && Long.compareUnsigned(buffer.getLong(posChavesNome + 8 * i), ultima) <= 0; i++) {
+            int registro = buffer.getInt(posNomes + 4 * i);
+            // A chave cobre só 8 bytes: prefixos maiores são conferidos no nome
+            if (bytes.length > 8 && !IndicesUsuarios.normalizarNome(leitor.lerNome(registro)).startsWith(prefixo)) {
+                continue;
+            }
+            if (!acao.test(registro)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Entrega os registros com idade entre 'de' e 'ate' (inclusive), por
+     * idade e em ordem crescente dentro de cada idade, até 'acao' devolver false
+     */
+    void percorrerFaixaIdade(int de, int ate, IntPredicate acao) {
+        de = Math.max(de, 0);
+        ate = Math.min(ate, EstatisticasUsuarios.IDADE_MAXIMA);
+        if (de > ate) {
+            return;
+        }
+        int fim = buffer.getInt(posInicioIdade + 4 * (ate + 1));
+        for (int i = buffer.getInt(posInicioIdade + 4 * de); i < fim; i++) {
+            if (!acao.test(buffer.getInt(posIdades + 4 * i))) {
+                return;
+            }
+        }
+    }
+
+    int getQuantidade() {
+        return n;
+    }
+
+    long getSomaIdades() {
+        return somaIdades;
+    }
+
+    /**
+     * Quantidade de registros em cada idade (0 a 150)
+     */
+    long[] getHistograma() {
+        long[] histograma = new long[IDADES];
+        for (int idade = 0; idade < IDADES; idade++) {
+            histograma[idade] = buffer.getInt(posInicioIdade + 4 * (idade + 1))
+                                - buffer.getInt(posInicioIdade + 4 * idade);
+        }
+        return histograma;
+    }
+
+    Map<String, Long> getContagensPorTipo() {
+        return porTipo;
+    }
+
+    Map<String, Long> getContagensPorDominio() {
+        return porDominio;
+    }
+
+    /**
+     * Fecha o canal; o mapeamento é liberado pelo coletor de lixo
+     */
+    @Override
+    public void close() throws IOException {
+        canal.close();
+    }
+
+    /**
+     * Primeiros 8 bytes UTF-8 do nome normalizado, completados com zeros
+     */
+    static long chaveNome(String normalizado) {
+        return chave(normalizado.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static long chave(byte[] bytes) {
+        long chave = 0;
+        for (int i = 0; i < 8; i++) {
+            chave = (chave << 8) | (i < bytes.length ? bytes[i] & 0xFF : 0);
+        }
+        return chave;
+    }
+
+    /**
+     * Menor tabela com ocupação de no máximo 2/3
+     */
+    private static int bitsTabela(int n) {
+        int bits = 4;
+        while ((1L << bits) < n + n / 2 + 1) {
+            bits++;
+        }
+        return bits;
+    }
+
+    private static int posicao(long chave, int bits) {
+        return (int) ((chave * 0x9E3779B97F4A7C15L) >>> (64 - bits));
+    }
+
+    private static void inserir(int[] tabela, int bits, long chave, int registro) {
+        int mascara = tabela.length - 1;
+        int slot = posicao(chave, bits);
+        while (tabela[slot] != 0) {
+            slot = (slot + 1) & mascara;
+        }
+        tabela[slot] = registro + 1;
+    }
+
+    /**
+     * Ordena as chaves (sem sinal) por radix sort LSD de 8 bits, estável
+     *
+     * @return os registros na ordem das chaves; 'chaves' fica ordenado
+     */
+    private static int[] ordenarPorChave(long[] chaves) {
+        int n = chaves.length;
+        long[] original = chaves;
+        int[] ordem = new int[n];
+        for (int i = 0; i < n; i++) {
+            ordem[i] = i;
+        }
+        long[] outrasChaves = new long[n];
+        int[] outraOrdem = new int[n];
+        int[] contagem = new int[257];
+        for (int deslocamento = 0; deslocamento < 64; deslocamento += 8) {
+            Arrays.fill(contagem, 0);
+            for (long chave : chaves) {
+                contagem[(int) ((chave >>> deslocamento) & 0xFF) + 1]++;
+            }
+            // Byte igual em todas as chaves (ex.: o preenchimento de nomes curtos)
+            boolean unico = false;
+            for (int i = 1; i <= 256 && !unico; i++) {
+                unico = contagem[i] == n;
+            }
+            if (unico) {
+                continue;
+            }
+            for (int i = 0; i < 256; i++) {
+                contagem[i + 1] += contagem[i];
+            }
+            for (int i = 0; i < n; i++) {
+                int destino = contagem[(int) ((chaves[i] >>> deslocamento) & 0xFF)]++;
+                outrasChaves[destino] = chaves[i];
+                outraOrdem[destino] = ordem[i];
+            }
+            long[] chavesTroca = chaves;
+            chaves = outrasChaves;
+            outrasChaves = chavesTroca;
+            int[] ordemTroca = ordem;
+            ordem = outraOrdem;
+            outraOrdem = ordemTroca;
+        }
+        if (chaves != original) {
+            System.arraycopy(chaves, 0, original, 0, n);
+        }
+        return ordem;
+    }
+
+    private static void gravarContagens(DataOutputStream saida, Map<String, Long> contagens) throws IOException {
+        saida.writeInt(contagens.size());
+        for (Map.Entry<String, Long> entrada : contagens.entrySet()) {
+            saida.writeUTF(entrada.getKey());
+            saida.writeLong(entrada.getValue());
+        }
+    }
+
+    private static int posicaoIdade(int idade) {
+        return Math.max(0, Math.min(idade, EstatisticasUsuarios.IDADE_MAXIMA));
+    }
+}
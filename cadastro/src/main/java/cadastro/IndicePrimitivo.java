@@ -0,0 +1,325 @@
+package cadastro;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.IntPredicate;
+
+/**
+ * Tabela hash de endereçamento aberto de long para int (identificador interno)
+ *
+ * Chaves e valores ficam em dois vetores primitivos: nenhuma inserção cria
+ * objetos (nem nó, nem Long/Integer). Colisões são resolvidas por sondagem
+ * linear. A mesma chave pode aparecer mais de uma vez — necessário quando a
+ * chave é o hash de um texto —, e quem consulta confirma o candidato com um
+ * IntPredicate (por exemplo, comparando o email guardado).
+ *
+ * Remoções deixam uma marca (APAGADO) para não interromper as sequências de
+ * sondagem; as marcas são descartadas no próximo redimensionamento.
+ *
+ * Redimensionamento incremental: ao passar da carga máxima, a tabela atual
+ * vira "antiga" e uma nova, maior, passa a receber as inserções. Cada
+ * operação de escrita seguinte migra um pequeno lote de posições da antiga
+ * para a nova; buscas olham as duas enquanto a migração não termina. Assim
+ * nenhuma inserção paga sozinha a cópia da tabela inteira.
+ *
+ * Concorrência: escritas são exclusivas (StampedLock); buscas são leituras
+ * otimistas que não alocam nada, refeitas com a trava de leitura se houve
+ * escrita no meio. Na leitura otimista, cada candidato é validado antes de
+ * ir para o predicado de confirmação, que roda fora da trava; na busca
+ * refeita ele roda com a trava de leitura. Em inserirSeAusente, o predicado
+ * roda com a trava de escrita: deve ser curto e não esperar por outra escrita
+ * no mesmo índice.
+ */
+class IndicePrimitivo {
+
+    static final int AUSENTE = -1;
+
+    private static final int VAZIO = -1;
+    private static final int APAGADO = -2;
+    private static final int CAPACIDADE_MINIMA = 16;
+    private static final int LOTE_MIGRACAO = 64;
+    private static final int INVALIDADA = -3;    // leitura otimista interrompida por uma escrita
+
+    /**
+     * Vetores de uma geração da tabela
+     */
+    private static final class Tabela {
+        final long[] chaves;
+        final int[] valores;      // >= 0: identificador; VAZIO ou APAGADO
+        final int mascara;
+        int ocupadas;             // posições com valor ou APAGADO
+
+        Tabela(int capacidade) {
+            chaves = new long[capacidade];
+            valores = new int[capacidade];
+            Arrays.fill(valores, VAZIO);
+            mascara = capacidade - 1;
+        }
+    }
+
+    private final StampedLock trava = new StampedLock();
+    private Tabela atual;
+    private Tabela antiga;        // em migração, ou null
+    private int cursorMigracao;
+    private int tamanho;
+
+    IndicePrimitivo() {
+        this(CAPACIDADE_MINIMA);
+    }
+
+    IndicePrimitivo(int capacidadeEsperada) {
+        atual = new Tabela(capacidadePara(capacidadeEsperada));
+    }
+
+    /**
+     * @return o primeiro valor com a chave, ou AUSENTE
+     */
+    int buscar(long chave) {
+        return buscar(chave, null);
+    }
+
+    /**
+     * @param confirmar aceita o candidato (null aceita o primeiro)
+     * @return o primeiro valor com a chave aceito por 'confirmar', ou AUSENTE
+     */
+    int buscar(long chave, IntPredicate confirmar) {
+        long carimbo = trava.tryOptimisticRead();
+        Tabela antigaLida = antiga;
+        int valor = sondarOtimista(atual, chave, confirmar, carimbo);
+        if (valor == AUSENTE && antigaLida != null) {
+            valor = sondarOtimista(antigaLida, chave, confirmar, carimbo);
+        }
+        if (valor == AUSENTE && !trava.validate(carimbo)) {
+            valor = INVALIDADA;
+        }
+        return valor == INVALIDADA ? buscarComTrava(chave, confirmar) : valor;
+    }
+
+    /**
+     * Insere o par se nenhum valor com a mesma chave for aceito por 'igual'
+     *
+     * @param igual identifica um registro equivalente (null: qualquer valor
+     *              com a mesma chave); chamado com a trava de escrita
+     * @return AUSENTE se inseriu; senão o valor já existente
+     */
+    int inserirSeAusente(long chave, int valor, IntPredicate igual) {
+        if (valor < 0) {
+            throw new IllegalArgumentException("Valor deve ser >= 0: " + valor);
+        }
+        long carimbo = trava.writeLock();
+        try {
+            migrarLote();
+            int existente = procurar(atual, chave, igual);
+            if (existente == AUSENTE && antiga != null) {
+                existente = procurar(antiga, chave, igual);
+            }
+            if (existente != AUSENTE) {
+                return existente;
+            }
+            if ((atual.ocupadas + 1) * 2 > atual.valores.length) {
+                iniciarRedimensionamento();
+            }
+            colocar(atual, chave, valor);
+            tamanho++;
+            return AUSENTE;
+        } finally {
+            trava.unlockWrite(carimbo);
+        }
+    }
+
+    /**
+     * Remove o par exato (chave, valor)
+     *
+     * @return true se o par existia
+     */
+    boolean remover(long chave, int valor) {
+        long carimbo = trava.writeLock();
+        try {
+            migrarLote();
+            boolean removido = apagar(atual, chave, valor) || (antiga != null && apagar(antiga, chave, valor));
+            if (removido) {
+                tamanho--;
+            }
+            return removido;
+        } finally {
+            trava.unlockWrite(carimbo);
+        }
+    }
+
+    int tamanho() {
+        long carimbo = trava.readLock();
+        try {
+            return tamanho;
+        } finally {
+            trava.unlockRead(carimbo);
+        }
+    }
+
+    /**
+     * Hash de 64 bits de um texto (para usar o texto como chave)
+     *
+     * Poucas colisões mesmo com milhões de chaves; ainda assim o texto deve
+     * ser confirmado na busca.
+     */
+    static long hash(CharSequence texto) {
+        return hash(texto, 0, texto.length());
+    }
+
+    /**
+     * Hash dos caracteres de 'inicio' a 'fim' (exclusivo), igual ao de
+     * hash(texto.subSequence(inicio, fim)) sem criar o trecho
+     */
+    static long hash(CharSequence texto, int inicio, int fim) {
+        long h = 0x9E3779B97F4A7C15L ^ (fim - inicio);
+        for (int i = inicio; i < fim; i++) {
+            h = (h ^ texto.charAt(i)) * 0x100000001B3L;
+        }
+        // Finalização do MurmurHash3: espalha os bits para a sondagem
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    // ========================================
+    // SONDAGEM
+    // ========================================
+
+    private static int posicaoInicial(Tabela tabela, long chave) {
+        // Multiplicação de Fibonacci: CPFs consecutivos não caem em posições vizinhas
+        return (int) ((chave * 0x9E3779B97F4A7C15L) >>> 32) & tabela.mascara;
+    }
+
+    /**
+     * Sonda a tabela sem trava, validando a leitura antes de cada confirmação
+     *
+     * @return o valor aceito, AUSENTE, ou INVALIDADA se houve escrita no meio
+     */
+    private int sondarOtimista(Tabela tabela, long chave, IntPredicate confirmar, long carimbo) {
+        long[] chaves = tabela.chaves;
+        int[] valores = tabela.valores;
+        int i = posicaoInicial(tabela, chave);
+        // Limitada ao tamanho da tabela: uma leitura otimista pode ver um estado
+        // intermediário, que é descartado na validação
+        for (int passos = 0; passos < valores.length; passos++, i = (i + 1) & tabela.mascara) {
+            int valor = valores[i];
+            if (valor == VAZIO) {
+                break;
+            }
+            if (valor >= 0 && chaves[i] == chave) {
+                if (!trava.validate(carimbo)) {
+                    return INVALIDADA;
+                }
+                if (confirmar == null || confirmar.test(valor)) {
+                    return valor;
+                }
+            }
+        }
+        return AUSENTE;
+    }
+
+    private int buscarComTrava(long chave, IntPredicate confirmar) {
+        long carimbo = trava.readLock();
+        try {
+            int valor = procurar(atual, chave, confirmar);
+            if (valor == AUSENTE && antiga != null) {
+                valor = procurar(antiga, chave, confirmar);
+            }
+            return valor;
+        } finally {
+            trava.unlockRead(carimbo);
+        }
+    }
+
+    private static int procurar(Tabela tabela, long chave, IntPredicate aceitar) {
+        int i = posicaoInicial(tabela, chave);
+        for (int passos = 0; passos < tabela.valores.length; passos++, i = (i + 1) & tabela.mascara) {
+            int valor = tabela.valores[i];
+            if (valor == VAZIO) {
+                break;
+            }
+            if (valor >= 0 && tabela.chaves[i] == chave && (aceitar == null || aceitar.test(valor))) {
+                return valor;
+            }
+        }
+        return AUSENTE;
+    }
+
+    private static void colocar(Tabela tabela, long chave, int valor) {
+        int i = posicaoInicial(tabela, chave);
+        while (tabela.valores[i] >= 0) {
+            i = (i + 1) & tabela.mascara;
+        }
+        if (tabela.valores[i] == VAZIO) {
+            tabela.ocupadas++;
+        }
+        tabela.chaves[i] = chave;
+        tabela.valores[i] = valor;
+    }
+
+    private static boolean apagar(Tabela tabela, long chave, int valor) {
+        int i = posicaoInicial(tabela, chave);
+        for (int passos = 0; passos < tabela.valores.length; passos++, i = (i + 1) & tabela.mascara) {
+            int atual = tabela.valores[i];
+            if (atual == VAZIO) {
+                return false;
+            }
+            if (atual == valor && tabela.chaves[i] == chave) {
+                tabela.valores[i] = APAGADO;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // ========================================
+    // REDIMENSIONAMENTO INCREMENTAL
+    // ========================================
+
+    private void iniciarRedimensionamento() {
+        if (antiga != null) {
+            // Migração anterior ainda em curso (só com inserções muito rápidas): termina agora
+            while (antiga != null) {
+                migrarLote();
+            }
+        }
+        // Nova tabela com carga de no máximo 1/4 depois da migração (nunca
+        // menor que a atual); as marcas de remoção não são copiadas
+        antiga = atual;
+        atual = new Tabela(Math.max(capacidadePara(tamanho + 1), antiga.valores.length));
+        cursorMigracao = 0;
+    }
+
+    /**
+     * Move um lote de posições da tabela antiga para a atual
+     */
+    private void migrarLote() {
+        Tabela origem = antiga;
+        if (origem == null) {
+            return;
+        }
+        int fim = Math.min(cursorMigracao + LOTE_MIGRACAO, origem.valores.length);
+        for (int i = cursorMigracao; i < fim; i++) {
+            int valor = origem.valores[i];
+            if (valor >= 0) {
+                colocar(atual, origem.chaves[i], valor);
+                // A posição antiga vira marca: buscas em andamento continuam a sondagem
+                origem.valores[i] = APAGADO;
+            }
+        }
+        cursorMigracao = fim;
+        if (fim == origem.valores.length) {
+            antiga = null;
+        }
+    }
+
+    private static int capacidadePara(int quantidade) {
+        int capacidade = CAPACIDADE_MINIMA;
+        while (capacidade < quantidade * 4L && capacidade < (1 << 30)) {
+            capacidade <<= 1;
+        }
+        return capacidade;
+    }
+}
@@ -0,0 +1,312 @@
+package cadastro;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.IntFunction;
+import java.util.function.IntPredicate;
+
+/**
+ * Índices secundários do cadastro
+ *
+ * Complementam o mapa por email com buscas que antes exigiriam percorrer
+ * toda a lista de usuários:
+ * - CPF (único): recusa um segundo cadastro com o mesmo CPF
+ * - prefixo do nome: mapa ordenado pelo nome normalizado, para buscas
+ *   do tipo "autocompletar"
+ * - idade: uma posição por idade (0 a 150), para consultas por faixa
+ *
+ * Os índices são mantidos em dia em inserções e alterações e podem ser
+ * usados por várias threads. O índice de CPF é um IndicePrimitivo do CPF
+ * compactado em long (11 dígitos) para o identificador interno do usuário,
+ * que verifica e insere de forma atômica; as demais estruturas são coleções
+ * concorrentes. Uma alteração que levaria a um CPF duplicado é recusada
+ * antes de qualquer mudança.
+ *
+ * Todos os índices guardam identificadores internos, não objetos Usuario:
+ * os usuários são obtidos do repositório ao responder uma busca, o que
+ * permite repositórios que não mantêm os usuários em memória.
+ *
+ * Na carga sob demanda, os usuários do instantâneo não passam por inserir():
+ * o IndiceColunar (usarBase) responde por eles e estas estruturas só contêm
+ * cadastros novos e usuários alterados. Um candidato do IndiceColunar reflete
+ * os dados do instantâneo, então é conferido nos dados atuais do usuário;
+ * quem foi alterado e continua atendendo a busca também está nestas
+ * estruturas, e aparece uma vez só.
+ */
+class IndicesUsuarios {
+
+    private final IndicePrimitivo porCpf = new IndicePrimitivo();
+    private final IntFunction<Usuario> usuarioPorId;
+    private final ConcurrentSkipListMap<String, Set<Integer>> porNome = new ConcurrentSkipListMap<>();
+    private final List<Set<Integer>> porIdade = new ArrayList<>();
+    private volatile IndiceColunar base;
+
+    /**
+     * @param usuarioPorId resolve os identificadores internos guardados nos índices
+     */
+    IndicesUsuarios(IntFunction<Usuario> usuarioPorId) {
+        this.usuarioPorId = usuarioPorId;
+        for (int idade = 0; idade <= EstatisticasUsuarios.IDADE_MAXIMA; idade++) {
+            porIdade.add(ConcurrentHashMap.newKeySet());
+        }
+    }
+
+    /**
+     * Passa a considerar os usuários do instantâneo descritos pelo índice
+     * (carga sob demanda); os identificadores são os números dos registros
+     */
+    void usarBase(IndiceColunar base) {
+        this.base = base;
+    }
+
+    /**
+     * Indexa um novo usuário
+     *
+     * @throws CadastroDuplicado se o CPF já estiver cadastrado
+     */
+    void inserir(Usuario usuario) {
+        String cpf = normalizarCPF(usuario.getCpf());
+        int id = usuario.getIdInterno();
+        if (donoNaBase(cpf, id) >= 0
+                || porCpf.inserirSeAusente(chaveCpf(cpf), id, outro -> outro != id && temCpf(outro, cpf))
+                   != IndicePrimitivo.AUSENTE) {
+            throw new CadastroDuplicado("CPF já cadastrado: " + usuario.getCpf());
+        }
+        indexarNome(usuario.getNome(), id);
+        porIdade.get(posicaoIdade(usuario.getIdade())).add(id);
+    }
+
+    void remover(Usuario usuario) {
+        int id = usuario.getIdInterno();
+        porCpf.remover(chaveCpf(normalizarCPF(usuario.getCpf())), id);
+        desindexarNome(usuario.getNome(), id);
+        porIdade.get(posicaoIdade(usuario.getIdade())).remove(id);
+    }
+
+    /**
+     * Reposiciona o usuário nos índices após uma alteração
+     *
+     * @throws CadastroDuplicado se o novo CPF pertencer a outro
+     *         usuário; nesse caso nenhum índice é alterado
+     */
+    void atualizar(Usuario usuario, String nomeAnterior, int idadeAnterior, String cpfAnterior) {
+        String cpf = normalizarCPF(usuario.getCpf());
+        String anterior = normalizarCPF(cpfAnterior);
+        int id = usuario.getIdInterno();
+        if (!cpf.equals(anterior)) {
+            if (donoNaBase(cpf, id) >= 0) {
+                throw new CadastroDuplicado("CPF já cadastrado: " + usuario.getCpf());
+            }
+            int dono = porCpf.inserirSeAusente(chaveCpf(cpf), id, outro -> outro == id || temCpf(outro, cpf));
+            if (dono != IndicePrimitivo.AUSENTE && dono != id) {
+                throw new CadastroDuplicado("CPF já cadastrado: " + usuario.getCpf());
+            }
+            porCpf.remover(chaveCpf(anterior), id);
+        }
+        if (!Objects.equals(nomeAnterior, usuario.getNome())) {
+            desindexarNome(nomeAnterior, id);
+            indexarNome(usuario.getNome(), id);
+        }
+        if (idadeAnterior != usuario.getIdade()) {
+            porIdade.get(posicaoIdade(idadeAnterior)).remove(id);
+            porIdade.get(posicaoIdade(usuario.getIdade())).add(id);
+        }
+    }
+
+    /**
+     * Busca por CPF, com ou sem pontuação
+     */
+    Usuario buscarPorCpf(String cpf) {
+        String digitos = normalizarCPF(cpf);
+        int id = porCpf.buscar(chaveCpf(digitos), candidato -> temCpf(candidato, digitos));
+        if (id == IndicePrimitivo.AUSENTE) {
+            id = donoNaBase(digitos, -1);
+        }
+        return id < 0 ? null : usuarioPorId.apply(id);
+    }
+
+    /**
+     * Usuários cujo nome começa com o prefixo (sem diferenciar maiúsculas)
+     */
+    List<Usuario> buscarPorPrefixoNome(String prefixo, int limite) {
+        String chave = normalizarNome(prefixo);
+        List<Usuario> encontrados = new ArrayList<>();
+        for (Set<Integer> mesmoNome : porNome.subMap(chave, true, chave + Character.MAX_VALUE, false).values()) {
+            for (int id : mesmoNome) {
+                if (encontrados.size() >= limite) {
+                    return encontrados;
+                }
+                adicionarExistente(encontrados, id);
+            }
+        }
+        IndiceColunar base = this.base;
+        if (base != null && encontrados.size() < limite) {
+            Set<Usuario> vistos = Collections.newSetFromMap(new IdentityHashMap<>());
+            vistos.addAll(encontrados);
+            base.percorrerPrefixoNome(chave, id -> {
+                Usuario usuario = usuarioPorId.apply(id);
+                if (usuario != null && !vistos.contains(usuario) && normalizarNome(usuario.getNome()).startsWith(chave)) {
+                    encontrados.add(usuario);
+                }
+                return encontrados.size() < limite;
+            });
+        }
+        return encontrados;
+    }
+
+    /**
+     * Usuários com idade entre 'de' e 'ate' (inclusive), sem varrer o cadastro
+     */
+    List<Usuario> buscarPorFaixaIdade(int de, int ate, int limite) {
+        List<Usuario> encontrados = new ArrayList<>();
+        for (int idade = Math.max(de, 0); idade <= Math.min(ate, EstatisticasUsuarios.IDADE_MAXIMA); idade++) {
+            for (int id : porIdade.get(idade)) {
+                if (encontrados.size() >= limite) {
+                    return encontrados;
+                }
+                adicionarExistente(encontrados, id);
+            }
+        }
+        IndiceColunar base = this.base;
+        if (base != null && encontrados.size() < limite) {
+            Set<Usuario> vistos = Collections.newSetFromMap(new IdentityHashMap<>());
+            vistos.addAll(encontrados);
+            base.percorrerFaixaIdade(de, ate, id -> {
+                Usuario usuario = usuarioPorId.apply(id);
+                if (usuario != null && !vistos.contains(usuario)
+                        && usuario.getIdade() >= de && usuario.getIdade() <= ate) {
+                    encontrados.add(usuario);
+                }
+                return encontrados.size() < limite;
+            });
+        }
+        return encontrados;
+    }
+
+    /**
+     * Identificadores com idade entre 'de' e 'ate' (inclusive), em ordem
+     *
+     * Para o MotorConsultas, que confere o restante da condição em paralelo.
+     * Identificadores de usuários removidos ainda podem aparecer, e na carga
+     * sob demanda também os de usuários do instantâneo cuja idade mudou: a
+     * condição inteira é conferida de novo em cada usuário.
+     */
+    int[] idsPorFaixaIdade(int de, int ate) {
+        int[][] ids = {new int[64]};
+        int[] total = {0};
+        IntPredicate adicionar = id -> {
+            if (total[0] == ids[0].length) {
+                ids[0] = Arrays.copyOf(ids[0], total[0] * 2);
+            }
+            ids[0][total[0]++] = id;
+            return true;
+        };
+        for (int idade = Math.max(de, 0); idade <= Math.min(ate, EstatisticasUsuarios.IDADE_MAXIMA); idade++) {
+            for (int id : porIdade.get(idade)) {
+                adicionar.test(id);
+            }
+        }
+        IndiceColunar base = this.base;
+        if (base != null) {
+            base.percorrerFaixaIdade(de, ate, adicionar);
+        }
+        int[] ordenados = Arrays.copyOf(ids[0], total[0]);
+        Arrays.sort(ordenados);
+        // Um usuário do instantâneo alterado pode vir das duas fontes
+        int distintos = 0;
+        for (int i = 0; i < ordenados.length; i++) {
+            if (distintos == 0 || ordenados[i] != ordenados[distintos - 1]) {
+                ordenados[distintos++] = ordenados[i];
+            }
+        }
+        return distintos == ordenados.length ? ordenados : Arrays.copyOf(ordenados, distintos);
+    }
+
+    /**
+     * Mantém apenas os dígitos, para que 000.000.000-00 e 00000000000 coincidam
+     */
+    static String normalizarCPF(String cpf) {
+        if (cpf == null) {
+            return "";
+        }
+        StringBuilder digitos = new StringBuilder(11);
+        for (int i = 0; i < cpf.length(); i++) {
+            char c = cpf.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digitos.append(c);
+            }
+        }
+        return digitos.toString();
+    }
+
+    /**
+     * Chave do índice: os 11 dígitos num long; CPFs fora desse formato usam
+     * o hash do texto com o bit de sinal ligado, para nunca coincidir com um
+     * CPF compactado
+     */
+    static long chaveCpf(String digitos) {
+        if (digitos.length() == 11) {
+            long valor = 0;
+            for (int i = 0; i < 11; i++) {
+                valor = valor * 10 + (digitos.charAt(i) - '0');
+            }
+            return valor;
+        }
+        return IndicePrimitivo.hash(digitos) | Long.MIN_VALUE;
+    }
+
+    /**
+     * Confirma um candidato do índice de CPF (o CPF do usuário pode ter
+     * mudado depois de indexado)
+     */
+    private boolean temCpf(int id, String digitos) {
+        Usuario usuario = usuarioPorId.apply(id);
+        return usuario != null && digitos.equals(normalizarCPF(usuario.getCpf()));
+    }
+
+    /**
+     * Usuário do instantâneo (carga sob demanda) que ainda tem o CPF, além
+     * de 'ignorar', ou -1
+     */
+    private int donoNaBase(String digitos, int ignorar) {
+        IndiceColunar base = this.base;
+        if (base == null) {
+            return -1;
+        }
+        int id = base.buscarCpf(chaveCpf(digitos));
+        return id >= 0 && id != ignorar && temCpf(id, digitos) ? id : -1;
+    }
+
+    static String normalizarNome(String nome) {
+        return nome == null ? "" : nome.trim().toLowerCase();
+    }
+
+    /**
+     * Acrescenta o usuário do identificador, se ele ainda existir (pode ter
+     * sido removido entre a leitura do índice e a do repositório)
+     */
+    private void adicionarExistente(List<Usuario> encontrados, int id) {
+        Usuario usuario = usuarioPorId.apply(id);
+        if (usuario != null) {
+            encontrados.add(usuario);
+        }
+    }
+
+    private void indexarNome(String nome, int id) {
+        porNome.computeIfAbsent(normalizarNome(nome), chave -> ConcurrentHashMap.newKeySet()).add(id);
+    }
+
+    private void desindexarNome(String nome, int id) {
+        // Conjuntos vazios permanecem no mapa: removê-los competiria com
+        // inserções simultâneas do mesmo nome
+        Set<Integer> mesmoNome = porNome.get(normalizarNome(nome));
+        if (mesmoNome != null) {
+            mesmoNome.remove(id);
+        }
+    }
+
+    private static int posicaoIdade(int idade) {
+        return Math.max(0, Math.min(idade, EstatisticasUsuarios.IDADE_MAXIMA));
+    }
+}
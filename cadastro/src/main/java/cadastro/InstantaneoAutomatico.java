@@ -0,0 +1,211 @@
+package cadastro;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Grava o instantâneo completo em segundo plano
+ *
+ * Uma thread daemon grava o instantâneo quando o diário acumula
+ * 'limiteAlteracoes' registros ou, havendo alterações, a cada
+ * 'intervaloMs'. Quem cadastra só conta a alteração e, no limite, acorda a
+ * thread: nunca espera a gravação.
+ *
+ * Cada arquivo do instantâneo é gravado num temporário ('.tmp' ao lado do
+ * destino), sincronizado com o disco e só então renomeado por cima do
+ * anterior (ver gravarAtomicamente). Uma interrupção no meio deixa o
+ * instantâneo antigo intacto e um '.tmp' que a recuperação descarta.
+ */
+class InstantaneoAutomatico implements Closeable {
+
+    /**
+     * Gravação do instantâneo: rotaciona o diário e grava os arquivos
+     */
+    interface Tarefa {
+        void executar() throws IOException;
+    }
+
+    /**
+     * Grava o conteúdo num arquivo temporário
+     */
+    interface Gravacao {
+        void gravar(Path temporario) throws IOException;
+    }
+
+    private final Tarefa tarefa;
+    private final long limiteAlteracoes;
+    private final long intervaloMs;
+    private final AtomicLong alteracoes = new AtomicLong();
+    private final Object gravando = new Object();   // uma gravação por vez
+    private final Thread thread;
+
+    private boolean solicitado;
+    private boolean encerrado;
+
+    /**
+     * @param limiteAlteracoes alterações que disparam uma gravação
+     * @param intervaloMs tempo máximo entre gravações com alterações (0 desliga)
+     */
+    InstantaneoAutomatico(Tarefa tarefa, long limiteAlteracoes, long intervaloMs) {
+        this.tarefa = tarefa;
+        this.limiteAlteracoes = limiteAlteracoes;
+        this.intervaloMs = intervaloMs;
+        this.thread = new Thread(this::executar, "instantaneo");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Conta uma alteração registrada no diário
+     */
+    void registrarAlteracao() {
+        if (alteracoes.incrementAndGet() == limiteAlteracoes) {
+            solicitar();
+        }
+    }
+
+    /**
+     * Pede uma gravação em segundo plano
+     */
+    synchronized void solicitar() {
+        solicitado = true;
+        notifyAll();
+    }
+
+    /**
+     * Grava o instantâneo na thread atual (esperando uma gravação em curso)
+     */
+    void gravarAgora() throws IOException {
+        synchronized (gravando) {
+            alteracoes.set(0);
+            long inicio = System.nanoTime();
+            boolean sucesso = false;
+            try {
+                tarefa.executar();
+                sucesso = true;
+            } finally {
+                Metricas.SALVAMENTO.registrar(inicio, sucesso);
+            }
+        }
+    }
+
+    private void executar() {
+        while (aguardarPedido()) {
+            try {
+                gravarAgora();
+            } catch (IOException | RuntimeException e) {
+                System.out.println("Erro ao gravar instantâneo: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Espera um pedido, o limite de alterações ou o fim do intervalo
+     *
+     * @return false quando encerrado
+     */
+    private synchronized boolean aguardarPedido() {
+        long proxima = System.currentTimeMillis() + intervaloMs;
+        try {
+            while (!encerrado && !solicitado) {
+                if (intervaloMs <= 0) {
+                    wait();
+                    continue;
+                }
+                long espera = proxima - System.currentTimeMillis();
+                if (espera > 0) {
+                    wait(espera);
+                } else if (alteracoes.get() > 0) {
+                    break;
+                } else {
+                    proxima += intervaloMs;   // nada mudou: próxima janela
+                }
+            }
+        } catch (InterruptedException e) {
+            return false;
+        }
+        solicitado = false;
+        return !encerrado;
+    }
+
+    /**
+     * Para a thread (uma gravação em curso termina antes)
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            encerrado = true;
+            notifyAll();
+        }
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // ========================================
+    // GRAVAÇÃO ATÔMICA DE ARQUIVOS
+    // ========================================
+
+    /**
+     * Grava 'destino' sem nunca deixá-lo pela metade: o conteúdo vai para
+     * 'destino.tmp', que é sincronizado com o disco e renomeado atomicamente;
+     * por fim o diretório é sincronizado para que a troca de nomes persista
+     */
+    static void gravarAtomicamente(Path destino, Gravacao gravacao) throws IOException {
+        Path temporario = temporario(destino);
+        try {
+            gravacao.gravar(temporario);
+            try (FileChannel canal = FileChannel.open(temporario, StandardOpenOption.WRITE)) {
+                canal.force(true);
+            }
+            Files.move(temporario, destino, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temporario);
+            throw e;
+        }
+        sincronizarDiretorio(destino);
+    }
+
+    /**
+     * Remove temporários deixados por gravações interrompidas
+     *
+     * @return quantos foram removidos
+     */
+    static int descartarTemporarios(Path... destinos) throws IOException {
+        int descartados = 0;
+        for (Path destino : destinos) {
+            if (Files.deleteIfExists(temporario(destino))) {
+                System.out.printf("Descartado '%s' de uma gravação interrompida.%n", temporario(destino));
+                descartados++;
+            }
+        }
+        return descartados;
+    }
+
+    /**
+     * Sincroniza o diretório do arquivo, tornando permanentes criações,
+     * remoções e renomeações feitas nele (no Windows diretórios não podem ser
+     * abertos, e a renomeação já é gravada pelo sistema de arquivos)
+     */
+    static void sincronizarDiretorio(Path arquivo) throws IOException {
+        try (FileChannel canal = FileChannel.open(arquivo.toAbsolutePath().getParent(), StandardOpenOption.READ)) {
+            canal.force(true);
+        } catch (IOException e) {
+            if (!System.getProperty("os.name", "").startsWith("Windows")) {
+                throw e;
+            }
+        }
+    }
+
+    private static Path temporario(Path destino) {
+        return destino.resolveSibling(destino.getFileName() + ".tmp");
+    }
+}
@@ -0,0 +1,256 @@
+package cadastro;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Leitura e escrita de JSON para usuários
+ *
+ * Escrita: textos com os escapes exigidos pelo JSON (aspas, barra invertida
+ * e caracteres de controle), acrescentados num StringBuilder reaproveitável.
+ *
+ * Leitura: apenas objetos planos, cujos valores são textos, números inteiros,
+ * true, false ou null — o suficiente para o corpo de um cadastro. Objetos e
+ * listas aninhados são recusados.
+ */
+final class Json {
+
+    private Json() {
+    }
+
+    /**
+     * Acrescenta o usuário como objeto JSON
+     */
+    static StringBuilder escreverUsuario(StringBuilder destino, Usuario usuario) {
+        destino.append("{\"nome\":");
+        escreverTexto(destino, usuario.getNome());
+        destino.append(",\"email\":");
+        escreverTexto(destino, usuario.getEmail());
+        destino.append(",\"idade\":").append(usuario.getIdade());
+        destino.append(",\"cpf\":");
+        escreverTexto(destino, usuario.getCpf());
+        destino.append(",\"tipo\":");
+        escreverTexto(destino, usuario.getTipoUsuario());
+        destino.append(",\"dataCadastro\":").append(usuario.getDataCadastro().getTime());
+        return destino.append('}');
+    }
+
+    /**
+     * Acrescenta o texto entre aspas, com escapes (null vira null)
+     */
+    static StringBuilder escreverTexto(StringBuilder destino, String texto) {
+        if (texto == null) {
+            return destino.append("null");
+        }
+        destino.append('"');
+        for (int i = 0; i < texto.length(); i++) {
+            char c = texto.charAt(i);
+            switch (c) {
+                case '"':  destino.append("\\\""); break;
+                case '\\': destino.append("\\\\"); break;
+                case '\n': destino.append("\\n"); break;
+                case '\r': destino.append("\\r"); break;
+                case '\t': destino.append("\\t"); break;
+                case '\b': destino.append("\\b"); break;
+                case '\f': destino.append("\\f"); break;
+                default:
+                    if (c < 0x20) {
+                        destino.append("\\u00");
+                        destino.append(Character.forDigit(c >> 4, 16));
+                        destino.append(Character.forDigit(c & 0xF, 16));
+                    } else {
+                        destino.append(c);
+                    }
+            }
+        }
+        return destino.append('"');
+    }
+
+    /**
+     * Lê um objeto JSON plano
+     *
+     * @return campos na ordem do texto; valores String, Long, Boolean ou null
+     * @throws IllegalArgumentException se o texto não for um objeto plano válido
+     */
+    static Map<String, Object> lerObjeto(CharSequence texto) {
+        Leitor leitor = new Leitor(texto);
+        Map<String, Object> campos = new LinkedHashMap<>();
+
+        leitor.esperar('{');
+        if (!leitor.consumir('}')) {
+            do {
+                String chave = leitor.lerTexto();
+                leitor.esperar(':');
+                campos.put(chave, leitor.lerValor());
+            } while (leitor.consumir(','));
+            leitor.esperar('}');
+        }
+        leitor.pularEspacos();
+        if (leitor.posicao < texto.length()) {
+            throw leitor.erro("conteúdo após o objeto");
+        }
+        return campos;
+    }
+
+    /**
+     * Leitor de caracteres com a posição atual (para mensagens de erro)
+     */
+    private static final class Leitor {
+        private final CharSequence texto;
+        private int posicao;
+
+        Leitor(CharSequence texto) {
+            this.texto = texto;
+        }
+
+        void pularEspacos() {
+            while (posicao < texto.length()) {
+                char c = texto.charAt(posicao);
+                if (c != ' ' && c != '\t' && c != '\n' && c != '\r') {
+                    break;
+                }
+                posicao++;
+            }
+        }
+
+        boolean consumir(char esperado) {
+            pularEspacos();
+            if (posicao < texto.length() && texto.charAt(posicao) == esperado) {
+                posicao++;
+                return true;
+            }
+            return false;
+        }
+
+        void esperar(char esperado) {
+            if (!consumir(esperado)) {
+                throw erro("esperado '" + esperado + "'");
+            }
+        }
+
+        Object lerValor() {
+            pularEspacos();
+            if (posicao >= texto.length()) {
+                throw erro("valor ausente");
+            }
+            char c = texto.charAt(posicao);
+            if (c == '"') {
+                return lerTexto();
+            }
+            if (c == '-' || (c >= '0' && c <= '9')) {
+                return lerInteiro();
+            }
+            if (lerPalavra("true")) {
+                return Boolean.TRUE;
+            }
+            if (lerPalavra("false")) {
+                return Boolean.FALSE;
+            }
+            if (lerPalavra("null")) {
+                return null;
+            }
+            throw erro("valor não suportado");
+        }
+
+        String lerTexto() {
+            esperar('"');
+            StringBuilder valor = new StringBuilder();
+            while (posicao < texto.length()) {
+                char c = texto.charAt(posicao++);
+                if (c == '"') {
+                    return valor.toString();
+                }
+                if (c < 0x20) {
+                    throw erro("caractere de controle no texto");
+                }
+                if (c != '\\') {
+                    valor.append(c);
+                    continue;
+                }
+                if (posicao >= texto.length()) {
+                    break;
+                }
+                char escape = texto.charAt(posicao++);
+                switch (escape) {
+                    case '"':  valor.append('"'); break;
+                    case '\\': valor.append('\\'); break;
+                    case '/':  valor.append('/'); break;
+                    case 'n':  valor.append('\n'); break;
+                    case 'r':  valor.append('\r'); break;
+                    case 't':  valor.append('\t'); break;
+                    case 'b':  valor.append('\b'); break;
+                    case 'f':  valor.append('\f'); break;
+                    case 'u':  valor.append(lerCodigoUnicode()); break;
+                    default:
+                        throw erro("escape inválido '\\" + escape + "'");
+                }
+            }
+            throw erro("texto sem aspas de fechamento");
+        }
+
+        private char lerCodigoUnicode() {
+            if (posicao + 4 > texto.length()) {
+                throw erro("escape \\u incompleto");
+            }
+            int codigo = 0;
+            for (int i = 0; i < 4; i++) {
+                int digito = Character.digit(texto.charAt(posicao++), 16);
+                if (digito < 0) {
+                    throw erro("escape \\u inválido");
+                }
+                codigo = (codigo << 4) | digito;
+            }
+            return (char) codigo;
+        }
+
+        private Long lerInteiro() {
+            int inicio = posicao;
+            boolean negativo = texto.charAt(posicao) == '-';
+            if (negativo) {
+                posicao++;
+            }
+            long valor = 0;
+            int digitos = 0;
+            while (posicao < texto.length()) {
+                char c = texto.charAt(posicao);
+                if (c < '0' || c > '9') {
+                    break;
+                }
+                if (++digitos > 18) {
+                    throw erro("número grande demais");
+                }
+                valor = valor * 10 + (c - '0');
+                posicao++;
+            }
+            if (digitos == 0) {
+                throw erro("número inválido");
+            }
+            if (posicao < texto.length()) {
+                char c = texto.charAt(posicao);
+                if (c == '.' || c == 'e' || c == 'E') {
+                    posicao = inicio;
+                    throw erro("apenas números inteiros são aceitos");
+                }
+            }
+            return negativo ? -valor : valor;
+        }
+
+        private boolean lerPalavra(String palavra) {
+            int fim = posicao + palavra.length();
+            if (fim > texto.length()) {
+                return false;
+            }
+            for (int i = 0; i < palavra.length(); i++) {
+                if (texto.charAt(posicao + i) != palavra.charAt(i)) {
+                    return false;
+                }
+            }
+            posicao = fim;
+            return true;
+        }
+
+        IllegalArgumentException erro(String motivo) {
+            return new IllegalArgumentException("JSON inválido na posição " + posicao + ": " + motivo);
+        }
+    }
+}
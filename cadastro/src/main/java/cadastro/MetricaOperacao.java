@@ -0,0 +1,97 @@
+package cadastro;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Contadores e histograma de latência de uma operação
+ *
+ * Uso:
+ *   long inicio = System.nanoTime();
+ *   ... operação ...
+ *   Metricas.CADASTRO.registrar(inicio, sucesso);
+ *
+ * Registrar custa um incremento atômico no histograma e uma soma num
+ * LongAdder (mais um contador só em caso de falha), sem travas: dezenas de
+ * nanossegundos além das duas leituras do relógio (ver MetricasBenchmark).
+ * As execuções bem-sucedidas são o total do histograma menos as falhas.
+ */
+class MetricaOperacao implements OperacaoMXBean {
+
+    private final String nome;
+    private final LongAdder falhas = new LongAdder();
+    private final HistogramaLatencia latencias = new HistogramaLatencia();
+
+    MetricaOperacao(String nome) {
+        this.nome = nome;
+    }
+
+    String getNome() {
+        return nome;
+    }
+
+    /**
+     * Registra uma execução iniciada em 'inicioNanos' (System.nanoTime)
+     */
+    void registrar(long inicioNanos, boolean sucesso) {
+        registrarDuracao(System.nanoTime() - inicioNanos, sucesso);
+    }
+
+    void registrarDuracao(long nanos, boolean sucesso) {
+        latencias.registrar(nanos);
+        if (!sucesso) {
+            falhas.increment();
+        }
+    }
+
+    @Override
+    public long getContagem() {
+        return latencias.getTotal();
+    }
+
+    @Override
+    public long getSucessos() {
+        return Math.max(0, latencias.getTotal() - falhas.sum());
+    }
+
+    @Override
+    public long getFalhas() {
+        return falhas.sum();
+    }
+
+    @Override
+    public double getTaxaSucesso() {
+        long total = latencias.getTotal();
+        return total == 0 ? 0 : 100.0 * Math.max(0, total - falhas.sum()) / total;
+    }
+
+    @Override
+    public double getMediaMicros() {
+        return latencias.getMediaNanos() / 1e3;
+    }
+
+    @Override
+    public double getP50Micros() {
+        return latencias.percentilNanos(0.50) / 1e3;
+    }
+
+    @Override
+    public double getP99Micros() {
+        return latencias.percentilNanos(0.99) / 1e3;
+    }
+
+    @Override
+    public double getP999Micros() {
+        return latencias.percentilNanos(0.999) / 1e3;
+    }
+
+    @Override
+    public double getMaximoMicros() {
+        return latencias.getMaximoNanos() / 1e3;
+    }
+
+    @Override
+    public void zerar() {
+        falhas.reset();
+        latencias.zerar();
+    }
+}
@@ -0,0 +1,116 @@
+package cadastro;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Date;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Métricas das operações do cadastro
+ *
+ * Uma MetricaOperacao por operação, registrada por quem a executa (menu,
+ * servidor HTTP ou ferramentas). As métricas podem ser lidas:
+ * - em "Estatísticas" no menu;
+ * - por JMX, como cadastro:type=Operacao,name=&lt;operação&gt;;
+ * - num relatório em texto acrescentado periodicamente a um arquivo
+ *   (-Dcadastro.metricas.intervalo=segundos, -Dcadastro.metricas.arquivo).
+ */
+final class Metricas {
+
+    static final MetricaOperacao CADASTRO = new MetricaOperacao("cadastro");
+    static final MetricaOperacao BUSCA = new MetricaOperacao("busca");
+    static final MetricaOperacao SALVAMENTO = new MetricaOperacao("salvamento");
+    static final MetricaOperacao CARGA = new MetricaOperacao("carga");
+    static final MetricaOperacao VALIDACAO = new MetricaOperacao("validacao");
+    // Escrita (e fsync) de um lote do diário pela thread de gravação
+    static final MetricaOperacao GRAVACAO_DIARIO = new MetricaOperacao("gravacaoDiario");
+    static final MetricaOperacao CONSULTA = new MetricaOperacao("consulta");
+
+    static final MetricaOperacao[] TODAS = {CADASTRO, BUSCA, SALVAMENTO, CARGA, VALIDACAO, GRAVACAO_DIARIO, CONSULTA};
+
+    private static ScheduledExecutorService despejo;
+
+    private Metricas() {
+    }
+
+    /**
+     * Registra um MXBean por operação no servidor de MBeans da plataforma
+     * (chamadas repetidas são ignoradas)
+     */
+    static void registrarMBeans() {
+        MBeanServer servidor = ManagementFactory.getPlatformMBeanServer();
+        for (MetricaOperacao metrica : TODAS) {
+            try {
+                servidor.registerMBean(metrica, new ObjectName("cadastro:type=Operacao,name=" + metrica.getNome()));
+            } catch (InstanceAlreadyExistsException e) {
+                // já registrado
+            } catch (JMException e) {
+                System.out.println("Aviso: métricas não registradas no JMX: " + e.getMessage());
+                return;
+            }
+        }
+    }
+
+    /**
+     * Acrescenta o relatório ao arquivo a cada 'segundos', numa thread daemon
+     */
+    static synchronized void iniciarDespejoPeriodico(Path arquivo, long segundos) {
+        if (despejo != null || segundos <= 0) {
+            return;
+        }
+        despejo = Executors.newSingleThreadScheduledExecutor(tarefa -> {
+            Thread thread = new Thread(tarefa, "metricas");
+            thread.setDaemon(true);
+            return thread;
+        });
+        despejo.scheduleAtFixedRate(() -> {
+            try (Writer saida = Files.newBufferedWriter(arquivo, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                saida.write("# " + new Date() + System.lineSeparator());
+                escreverRelatorio(saida);
+                saida.write(System.lineSeparator());
+            } catch (IOException e) {
+                System.out.println("Aviso: falha ao gravar métricas: " + e.getMessage());
+            }
+        }, segundos, segundos, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Tabela com contagem, taxa de sucesso e latências (µs) de cada operação
+     */
+    static void escreverRelatorio(Appendable destino) throws IOException {
+        destino.append(String.format(Locale.ROOT, "%-11s %10s %8s %9s %9s %9s %9s %10s%n",
+                                     "operacao", "contagem", "sucesso%", "media_us", "p50_us",
+                                     "p99_us", "p999_us", "max_us"));
+        for (MetricaOperacao metrica : TODAS) {
+            destino.append(String.format(Locale.ROOT, "%-11s %10d %8.1f %9.1f %9.1f %9.1f %9.1f %10.1f%n",
+                                         metrica.getNome(), metrica.getContagem(), metrica.getTaxaSucesso(),
+                                         metrica.getMediaMicros(), metrica.getP50Micros(),
+                                         metrica.getP99Micros(), metrica.getP999Micros(),
+                                         metrica.getMaximoMicros()));
+        }
+    }
+
+    static String relatorio() {
+        StringBuilder texto = new StringBuilder(512);
+        try {
+            escreverRelatorio(texto);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);  // StringBuilder não lança IOException
+        }
+        return texto.toString();
+    }
+}
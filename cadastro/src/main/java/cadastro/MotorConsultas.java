@@ -0,0 +1,437 @@
+package cadastro;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.IntFunction;
+
+/**
+ * Planeja e executa uma Consulta sobre o cadastro
+ *
+ * O plano escolhe, nesta ordem:
+ * - ESTATISTICAS: contagens e idades sem tocar nos usuários, pelo histograma
+ *   de idades de EstatisticasUsuarios (sem condição ou só faixa de idade,
+ *   agrupado por idade ou sem agrupar, sem listagem);
+ * - INDICE: candidatos pelos IndicesUsuarios (CPF completo ou faixa de
+ *   idade), quando a estimativa de candidatos é no máximo SELETIVIDADE_INDICE
+ *   do cadastro; em "e" basta um filtro indexável, em "ou" todos precisam ser;
+ * - VARREDURA_PARALELA: todos os usuários, divididos entre as threads do
+ *   ForkJoinPool comum.
+ *
+ * Com índice ou varredura, a condição completa é conferida em cada
+ * candidato, em paralelo. Cada tarefa acumula seus agregados e a junção
+ * preserva a ordem, de modo que a listagem traz os primeiros usuários na
+ * ordem de cadastro (varredura) ou de identificador (índice).
+ */
+final class MotorConsultas {
+
+    enum Estrategia {
+        ESTATISTICAS("estatísticas"),
+        INDICE("índice"),
+        VARREDURA_PARALELA("varredura paralela");
+
+        final String descricao;
+
+        Estrategia(String descricao) {
+            this.descricao = descricao;
+        }
+    }
+
+    /**
+     * Fração do cadastro até a qual vale buscar candidatos pelo índice: acima
+     * disso, resolver cada identificador custa mais que varrer em ordem
+     * (-Dcadastro.consultas.seletividade; 0 desliga o uso dos índices)
+     */
+    static final double SELETIVIDADE_INDICE =
+            Double.parseDouble(System.getProperty("cadastro.consultas.seletividade", "0.2"));
+
+    // Usuários por tarefa antes de dividir a varredura
+    private static final int LIMIAR_TAREFA = 4096;
+
+    /**
+     * Quantidade, soma, mínimo e máximo das idades de um conjunto de usuários
+     */
+    static final class Agregado {
+        private long quantidade;
+        private long soma;
+        private int minimo = Integer.MAX_VALUE;
+        private int maximo = Integer.MIN_VALUE;
+
+        void adicionar(int idade, long vezes) {
+            if (vezes == 0) {
+                return;
+            }
+            quantidade += vezes;
+            soma += idade * vezes;
+            minimo = Math.min(minimo, idade);
+            maximo = Math.max(maximo, idade);
+        }
+
+        void juntar(Agregado outro) {
+            quantidade += outro.quantidade;
+            soma += outro.soma;
+            minimo = Math.min(minimo, outro.minimo);
+            maximo = Math.max(maximo, outro.maximo);
+        }
+
+        long getQuantidade() {
+            return quantidade;
+        }
+
+        double getMedia() {
+            return quantidade == 0 ? 0 : (double) soma / quantidade;
+        }
+
+        /** 0 se vazio */
+        int getMinimo() {
+            return quantidade == 0 ? 0 : minimo;
+        }
+
+        /** 0 se vazio */
+        int getMaximo() {
+            return quantidade == 0 ? 0 : maximo;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "usuarios=%d media=%.2f minima=%d maxima=%d",
+                                 quantidade, getMedia(), getMinimo(), getMaximo());
+        }
+    }
+
+    /**
+     * Estratégia escolhida e quantos usuários ela deve examinar
+     */
+    static final class Plano {
+        private final Estrategia estrategia;
+        private final long estimativa;
+        private final Consulta.Condicao acesso;   // filtro resolvido pelo índice (INDICE)
+
+        Plano(Estrategia estrategia, long estimativa, Consulta.Condicao acesso) {
+            this.estrategia = estrategia;
+            this.estimativa = estimativa;
+            this.acesso = acesso;
+        }
+
+        Estrategia getEstrategia() {
+            return estrategia;
+        }
+
+        long getEstimativa() {
+            return estimativa;
+        }
+
+        @Override
+        public String toString() {
+            if (estrategia == Estrategia.ESTATISTICAS) {
+                return estrategia.descricao + " (histograma de idades)";
+            }
+            String texto = estrategia.descricao + " (" + estimativa + " usuários";
+            return acesso == null ? texto + ")" : texto + " por " + acesso + ")";
+        }
+    }
+
+    static final class Resultado {
+        private final Plano plano;
+        private final Agregado total;
+        private final Map<Comparable<?>, Agregado> grupos;
+        private final List<Usuario> usuarios;
+        private final long nanos;
+
+        Resultado(Plano plano, Agregado total, Map<Comparable<?>, Agregado> grupos,
+                  List<Usuario> usuarios, long nanos) {
+            this.plano = plano;
+            this.total = total;
+            this.grupos = grupos;
+            this.usuarios = usuarios;
+            this.nanos = nanos;
+        }
+
+        Plano getPlano() {
+            return plano;
+        }
+
+        Agregado getTotal() {
+            return total;
+        }
+
+        /** Agregados por chave do grupo, em ordem (vazio se a consulta não agrupa) */
+        Map<Comparable<?>, Agregado> getGrupos() {
+            return grupos;
+        }
+
+        /** Primeiros usuários que atendem à condição, até o limite da consulta */
+        List<Usuario> getUsuarios() {
+            return usuarios;
+        }
+
+        long getNanos() {
+            return nanos;
+        }
+    }
+
+    private final RepositorioUsuarios repositorio;
+    private final IndicesUsuarios indices;
+    private final EstatisticasUsuarios estatisticas;
+
+    MotorConsultas(RepositorioUsuarios repositorio, IndicesUsuarios indices, EstatisticasUsuarios estatisticas) {
+        this.repositorio = repositorio;
+        this.indices = indices;
+        this.estatisticas = estatisticas;
+    }
+
+    // ========================================
+    // PLANEJAMENTO
+    // ========================================
+
+    Plano planejar(Consulta consulta) {
+        Consulta.Condicao condicao = consulta.getCondicao();
+        long tamanho = repositorio.tamanho();
+
+        if (consulta.getLimite() == 0
+            && (consulta.getGrupo() == null || consulta.getGrupo() == Consulta.Grupo.IDADE)
+            && (condicao == null || condicao instanceof Consulta.FaixaIdade)) {
+            return new Plano(Estrategia.ESTATISTICAS, 0, null);
+        }
+
+        Consulta.Condicao acesso = condicao == null ? null : acesso(condicao);
+        if (acesso != null) {
+            long estimativa = estimar(acesso);
+            if (estimativa <= SELETIVIDADE_INDICE * tamanho) {
+                return new Plano(Estrategia.INDICE, estimativa, acesso);
+            }
+        }
+        return new Plano(Estrategia.VARREDURA_PARALELA, tamanho, null);
+    }
+
+    /**
+     * Parte da condição que os índices resolvem (a de menor estimativa), ou
+     * null se algum usuário fora dos índices também puder atendê-la
+     */
+    private Consulta.Condicao acesso(Consulta.Condicao condicao) {
+        if (condicao instanceof Consulta.FaixaIdade) {
+            return condicao;
+        }
+        if (condicao instanceof Consulta.PrefixoCpf) {
+            return ((Consulta.PrefixoCpf) condicao).completo() ? condicao : null;
+        }
+        if (condicao instanceof Consulta.E) {
+            // Basta um filtro indexável: os demais são conferidos nos candidatos
+            Consulta.Condicao melhor = null;
+            for (Consulta.Condicao parte : ((Consulta.E) condicao).partes) {
+                Consulta.Condicao candidata = acesso(parte);
+                if (candidata != null && (melhor == null || estimar(candidata) < estimar(melhor))) {
+                    melhor = candidata;
+                }
+            }
+            return melhor;
+        }
+        if (condicao instanceof Consulta.Ou) {
+            // União: cada alternativa precisa de seu próprio acesso
+            List<Consulta.Condicao> partes = new ArrayList<>();
+            for (Consulta.Condicao parte : ((Consulta.Ou) condicao).partes) {
+                Consulta.Condicao candidata = acesso(parte);
+                if (candidata == null) {
+                    return null;
+                }
+                partes.add(candidata);
+            }
+            return new Consulta.Ou(partes);
+        }
+        return null;
+    }
+
+    private long estimar(Consulta.Condicao acesso) {
+        if (acesso instanceof Consulta.FaixaIdade) {
+            Consulta.FaixaIdade faixa = (Consulta.FaixaIdade) acesso;
+            return estatisticas.contarFaixaIdade(faixa.de, faixa.ate);
+        }
+        if (acesso instanceof Consulta.PrefixoCpf) {
+            return 1;
+        }
+        long soma = 0;
+        for (Consulta.Condicao parte : ((Consulta.Ou) acesso).partes) {
+            soma += estimar(parte);
+        }
+        return soma;
+    }
+
+    // ========================================
+    // EXECUÇÃO
+    // ========================================
+
+    Resultado executar(Consulta consulta) {
+        long inicio = System.nanoTime();
+        Plano plano = planejar(consulta);
+
+        Parcial parcial;
+        if (plano.estrategia == Estrategia.ESTATISTICAS) {
+            parcial = pelasEstatisticas(consulta);
+        } else if (plano.estrategia == Estrategia.INDICE) {
+            final int[] ids = candidatos(plano.acesso);
+            parcial = ForkJoinPool.commonPool().invoke(
+                new Varredura(consulta, i -> repositorio.buscarPorId(ids[i]), 0, ids.length));
+        } else {
+            List<Usuario> usuarios = repositorio.instantaneo();
+            parcial = ForkJoinPool.commonPool().invoke(
+                new Varredura(consulta, usuarios::get, 0, usuarios.size()));
+        }
+
+        Map<Comparable<?>, Agregado> grupos = new TreeMap<>();
+        if (parcial.grupos != null) {
+            grupos.putAll(parcial.grupos);
+        }
+        return new Resultado(plano, parcial.total, grupos, parcial.usuarios, System.nanoTime() - inicio);
+    }
+
+    private Parcial pelasEstatisticas(Consulta consulta) {
+        int de = 0;
+        int ate = EstatisticasUsuarios.IDADE_MAXIMA;
+        if (consulta.getCondicao() != null) {
+            Consulta.FaixaIdade faixa = (Consulta.FaixaIdade) consulta.getCondicao();
+            de = Math.max(de, faixa.de);
+            ate = Math.min(ate, faixa.ate);
+        }
+        Parcial parcial = new Parcial(consulta);
+        for (int idade = de; idade <= ate; idade++) {
+            long quantidade = estatisticas.contarFaixaIdade(idade, idade);
+            parcial.total.adicionar(idade, quantidade);
+            if (parcial.grupos != null && quantidade > 0) {
+                parcial.grupo(idade).adicionar(idade, quantidade);
+            }
+        }
+        return parcial;
+    }
+
+    /**
+     * Identificadores candidatos, em ordem e sem repetições
+     */
+    private int[] candidatos(Consulta.Condicao acesso) {
+        if (acesso instanceof Consulta.FaixaIdade) {
+            Consulta.FaixaIdade faixa = (Consulta.FaixaIdade) acesso;
+            return indices.idsPorFaixaIdade(faixa.de, faixa.ate);
+        }
+        if (acesso instanceof Consulta.PrefixoCpf) {
+            Usuario usuario = indices.buscarPorCpf(((Consulta.PrefixoCpf) acesso).digitos);
+            return usuario == null ? new int[0] : new int[] {usuario.getIdInterno()};
+        }
+        List<int[]> partes = new ArrayList<>();
+        int total = 0;
+        for (Consulta.Condicao parte : ((Consulta.Ou) acesso).partes) {
+            int[] ids = candidatos(parte);
+            partes.add(ids);
+            total += ids.length;
+        }
+        int[] uniao = new int[total];
+        int n = 0;
+        for (int[] ids : partes) {
+            System.arraycopy(ids, 0, uniao, n, ids.length);
+            n += ids.length;
+        }
+        Arrays.sort(uniao);
+        int distintos = 0;
+        for (int i = 0; i < uniao.length; i++) {
+            if (distintos == 0 || uniao[i] != uniao[distintos - 1]) {
+                uniao[distintos++] = uniao[i];
+            }
+        }
+        return Arrays.copyOf(uniao, distintos);
+    }
+
+    /**
+     * Agregados de um trecho dos candidatos
+     */
+    private static final class Parcial {
+        final Agregado total = new Agregado();
+        final Map<Comparable<?>, Agregado> grupos;
+        final List<Usuario> usuarios = new ArrayList<>();
+        private final int limite;
+
+        Parcial(Consulta consulta) {
+            grupos = consulta.getGrupo() == null ? null : new HashMap<Comparable<?>, Agregado>();
+            limite = consulta.getLimite();
+        }
+
+        Agregado grupo(Comparable<?> chave) {
+            Agregado agregado = grupos.get(chave);
+            if (agregado == null) {
+                agregado = new Agregado();
+                grupos.put(chave, agregado);
+            }
+            return agregado;
+        }
+
+        void listar(Usuario usuario) {
+            if (usuarios.size() < limite) {
+                usuarios.add(usuario);
+            }
+        }
+
+        /**
+         * Acrescenta o trecho seguinte (a ordem da listagem é preservada)
+         */
+        Parcial juntar(Parcial seguinte) {
+            total.juntar(seguinte.total);
+            if (grupos != null) {
+                for (Map.Entry<Comparable<?>, Agregado> grupo : seguinte.grupos.entrySet()) {
+                    grupo(grupo.getKey()).juntar(grupo.getValue());
+                }
+            }
+            for (Usuario usuario : seguinte.usuarios) {
+                listar(usuario);
+            }
+            return this;
+        }
+    }
+
+    /**
+     * Confere a condição nos candidatos [inicio, fim), dividindo o trecho
+     * entre as threads do pool
+     */
+    private static final class Varredura extends RecursiveTask<Parcial> {
+        private final Consulta consulta;
+        private final IntFunction<Usuario> candidato;
+        private final int inicio;
+        private final int fim;
+
+        Varredura(Consulta consulta, IntFunction<Usuario> candidato, int inicio, int fim) {
+            this.consulta = consulta;
+            this.candidato = candidato;
+            this.inicio = inicio;
+            this.fim = fim;
+        }
+
+        @Override
+        protected Parcial compute() {
+            if (fim - inicio > LIMIAR_TAREFA) {
+                int meio = (inicio + fim) >>> 1;
+                Varredura direita = new Varredura(consulta, candidato, meio, fim);
+                direita.fork();
+                Parcial esquerda = new Varredura(consulta, candidato, inicio, meio).compute();
+                return esquerda.juntar(direita.join());
+            }
+
+            Consulta.Condicao condicao = consulta.getCondicao();
+            Consulta.Grupo grupo = consulta.getGrupo();
+            Parcial parcial = new Parcial(consulta);
+            for (int i = inicio; i < fim; i++) {
+                Usuario usuario = candidato.apply(i);
+                if (usuario == null || (condicao != null && !condicao.aceita(usuario))) {
+                    continue;   // removido depois de indexado, ou fora da condição
+                }
+                parcial.total.adicionar(usuario.getIdade(), 1);
+                if (grupo != null) {
+                    parcial.grupo(grupo.chave(usuario)).adicionar(usuario.getIdade(), 1);
+                }
+                parcial.listar(usuario);
+            }
+            return parcial;
+        }
+    }
+}
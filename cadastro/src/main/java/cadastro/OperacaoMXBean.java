@@ -0,0 +1,34 @@
+package cadastro;
+
+/**
+ * Métricas de uma operação do cadastro expostas por JMX
+ *
+ * Registrada como cadastro:type=Operacao,name=&lt;operação&gt; (ver Metricas);
+ * visível no JConsole ou VisualVM. Pública porque o JMX exige interfaces
+ * públicas.
+ */
+public interface OperacaoMXBean {
+
+    long getContagem();
+
+    long getSucessos();
+
+    long getFalhas();
+
+    /**
+     * Percentual de execuções bem-sucedidas (0 a 100)
+     */
+    double getTaxaSucesso();
+
+    double getMediaMicros();
+
+    double getP50Micros();
+
+    double getP99Micros();
+
+    double getP999Micros();
+
+    double getMaximoMicros();
+
+    void zerar();
+}
@@ -0,0 +1,454 @@
+package cadastro;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Modo em lote: executa comandos lidos de um fluxo, sem menu nem prompts
+ *
+ * Um comando por linha; linhas vazias e iniciadas por '#' são ignoradas:
+ *
+ *   cadastrar nome,email,idade,cpf     (o mesmo CSV de usuarios.txt)
+ *   buscar email EMAIL
+ *   buscar cpf CPF
+ *   buscar nome PREFIXO
+ *   buscar idade DE ATE
+ *   salvar
+ *   carregar                           (usuarios.txt, com deduplicação)
+ *   estatisticas
+ *   consultar CONSULTA                 (filtros e agregados, ver Consulta)
+ *
+ * Cada comando produz uma resposta, na ordem da entrada: "ok ..." ou
+ * "erro LINHA: mensagem". As buscas respondem "ok N" seguido de N linhas
+ * CSV (até LIMITE_RESULTADOS). consultar responde
+ * "ok N usuarios=.. media=.. minima=.. maxima=.. grupos=G" seguido de N
+ * linhas: G linhas "CHAVE usuarios=.. media=.. minima=.. maxima=.." e os
+ * usuários listados, em CSV.
+ *
+ * Os comandos passam por três threads ligadas por filas limitadas: uma lê
+ * a entrada (buffer de 1 MB) e interpreta as linhas em lotes, a que chamou
+ * executar aplica cada lote ao cadastro e monta as respostas num
+ * StringBuilder, e uma terceira as escreve na saída (também com buffer de
+ * 1 MB, esvaziado quando não há mais respostas na fila). Um lote termina
+ * com TAMANHO_LOTE comandos ou quando a entrada não tem mais nada pronto,
+ * então um programa que conversa com o processo por um pipe recebe cada
+ * resposta sem esperar o lote encher.
+ *
+ * Os cadastros não esperam a gravação no diário um a um: antes das
+ * respostas de um lote com cadastros seguirem para a saída, a confirmação
+ * (o fsync do diário) é esperada uma vez para o lote inteiro.
+ */
+class ProcessadorLote {
+
+    private static final int TAMANHO_BUFFER = 1 << 20;          // 1 MB
+    private static final int TAMANHO_LOTE = 4096;
+    private static final int LOTES_NA_FILA = 4;
+    private static final int LIMITE_RESULTADOS = 50;
+
+    private static final List<Comando> FIM = Collections.emptyList();
+    private static final StringBuilder FIM_SAIDA = new StringBuilder(0);
+
+    /**
+     * Torna permanentes as alterações feitas até aqui
+     */
+    interface Confirmacao {
+        void confirmar() throws IOException;
+    }
+
+    /**
+     * Resumo de uma execução
+     */
+    static class Resumo {
+        long comandos;
+        long erros;
+        long nanos;
+    }
+
+    enum Tipo { CADASTRAR, BUSCAR_EMAIL, BUSCAR_CPF, BUSCAR_NOME, BUSCAR_IDADE, SALVAR, CARREGAR, ESTATISTICAS, CONSULTAR }
+
+    /**
+     * Comando interpretado; 'erro' preenchido quando a linha é inválida
+     */
+    static final class Comando {
+        final long linha;
+        final Tipo tipo;
+        final String[] argumentos;
+        final String erro;
+
+        private Comando(long linha, Tipo tipo, String[] argumentos, String erro) {
+            this.linha = linha;
+            this.tipo = tipo;
+            this.argumentos = argumentos;
+            this.erro = erro;
+        }
+
+        static Comando valido(long linha, Tipo tipo, String... argumentos) {
+            return new Comando(linha, tipo, argumentos, null);
+        }
+
+        static Comando invalido(long linha, String erro) {
+            return new Comando(linha, null, null, erro);
+        }
+    }
+
+    private ProcessadorLote() {
+    }
+
+    /**
+     * Executa todos os comandos da entrada, escrevendo as respostas na saída
+     *
+     * @param confirmacao chamada ao fim de cada lote com cadastros e pelo
+     *                    comando salvar
+     */
+    static Resumo executar(Reader entrada, Writer saida, Confirmacao confirmacao) throws IOException {
+        Resumo resumo = new Resumo();
+        BlockingQueue<List<Comando>> comandos = new ArrayBlockingQueue<>(LOTES_NA_FILA);
+        BlockingQueue<StringBuilder> respostas = new ArrayBlockingQueue<>(LOTES_NA_FILA);
+        Leitura leitura = new Leitura(entrada, comandos);
+        Escrita escrita = new Escrita(saida, respostas);
+        Thread leitor = new Thread(leitura, "lote-leitor");
+        Thread escritor = new Thread(escrita, "lote-escritor");
+        leitor.setDaemon(true);
+        escritor.setDaemon(true);
+
+        long inicio = System.nanoTime();
+        leitor.start();
+        escritor.start();
+        try {
+            while (escrita.falha == null) {
+                List<Comando> lote = comandos.take();
+                if (lote == FIM) {
+                    break;
+                }
+                StringBuilder texto = new StringBuilder(lote.size() * 8);
+                List<CompletableFuture<?>> gravacoes = new ArrayList<>();
+                for (Comando comando : lote) {
+                    try {
+                        CompletableFuture<?> gravacao = aplicar(comando, texto, confirmacao);
+                        // Os cadastros de um lote do diário compartilham o mesmo futuro
+                        if (gravacao != null && (gravacoes.isEmpty() || gravacoes.get(gravacoes.size() - 1) != gravacao)) {
+                            gravacoes.add(gravacao);
+                        }
+                    } catch (IllegalArgumentException | IllegalStateException | IOException e) {
+                        texto.append("erro ").append(comando.linha).append(": ").append(e.getMessage()).append('\n');
+                        resumo.erros++;
+                    }
+                }
+                resumo.comandos += lote.size();
+                if (!gravacoes.isEmpty()) {
+                    // Uma espera pelo lote inteiro; uma falha interrompe antes de qualquer "ok" falso
+                    confirmacao.confirmar();
+                    for (CompletableFuture<?> gravacao : gravacoes) {
+                        Diario.aguardar(gravacao);
+                    }
+                }
+                respostas.put(texto);
+            }
+            respostas.put(FIM_SAIDA);
+            escritor.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Modo em lote interrompido", e);
+        } finally {
+            leitor.interrupt();
+            escritor.interrupt();
+        }
+        resumo.nanos = System.nanoTime() - inicio;
+
+        if (leitura.falha != null) {
+            throw leitura.falha;
+        }
+        if (escrita.falha != null) {
+            throw escrita.falha;
+        }
+        return resumo;
+    }
+
+    /**
+     * Executa um comando e acrescenta a resposta
+     *
+     * @return futuro da gravação no diário, se o comando alterou o cadastro;
+     *         senão null
+     * @throws IllegalArgumentException com a mensagem de erro da resposta
+     */
+    private static CompletableFuture<?> aplicar(Comando comando, StringBuilder texto, Confirmacao confirmacao)
+            throws IOException {
+        if (comando.erro != null) {
+            throw new IllegalArgumentException(comando.erro);
+        }
+        String[] a = comando.argumentos;
+        switch (comando.tipo) {
+            case CADASTRAR:
+                CompletableFuture<Usuario> gravacao =
+                        SistemaCadastro.cadastrarAssincrono(a[0], a[1], Integer.parseInt(a[2]), a[3]);
+                texto.append("ok\n");
+                return gravacao;
+            case BUSCAR_EMAIL:
+                responderBusca(texto, umOuNenhum(SistemaCadastro.buscarPorEmail(a[0])));
+                return null;
+            case BUSCAR_CPF:
+                responderBusca(texto, umOuNenhum(SistemaCadastro.buscarPorCpf(a[0])));
+                return null;
+            case BUSCAR_NOME:
+                responderBusca(texto, SistemaCadastro.buscarPorPrefixoNome(a[0], LIMITE_RESULTADOS));
+                return null;
+            case BUSCAR_IDADE:
+                responderBusca(texto, SistemaCadastro.buscarPorFaixaIdade(Integer.parseInt(a[0]),
+                                                                        Integer.parseInt(a[1]),
+                                                                        LIMITE_RESULTADOS));
+                return null;
+            case SALVAR:
+                confirmacao.confirmar();
+                texto.append("ok\n");
+                return null;
+            case CARREGAR:
+                responderCarga(texto);
+                return null;
+            case ESTATISTICAS:
+                responderEstatisticas(texto);
+                return null;
+            case CONSULTAR:
+                responderConsulta(texto, SistemaCadastro.consultar(Consulta.interpretar(a[0])));
+                return null;
+            default:
+                throw new IllegalStateException("Comando sem implementação: " + comando.tipo);
+        }
+    }
+
+    private static List<Usuario> umOuNenhum(Usuario usuario) {
+        return usuario == null ? Collections.<Usuario>emptyList() : Collections.singletonList(usuario);
+    }
+
+    private static void responderBusca(StringBuilder texto, List<Usuario> encontrados) {
+        texto.append("ok ").append(encontrados.size()).append('\n');
+        for (Usuario usuario : encontrados) {
+            FormatadorUsuario.anexarCSV(texto, usuario).append('\n');
+        }
+    }
+
+    private static void responderCarga(StringBuilder texto) throws IOException {
+        try {
+            DeduplicacaoCarga deduplicacao =
+                    SistemaCadastro.novaDeduplicacao(Paths.get("usuarios.txt"), DeduplicacaoCarga.BYTES_POR_LINHA_CSV);
+            CarregadorCSV.Resultado resultado = SistemaCadastro.carregar(deduplicacao);
+            texto.append("ok lidos=").append(resultado.lidos)
+                 .append(" adicionados=").append(resultado.adicionados)
+                 .append(" duplicados=").append(deduplicacao.getDuplicados())
+                 .append(" conflitos=").append(deduplicacao.getConflitos())
+                 .append(" invalidas=").append(resultado.invalidas).append('\n');
+        } catch (NoSuchFileException e) {
+            throw new IllegalArgumentException("arquivo 'usuarios.txt' não encontrado");
+        }
+    }
+
+    private static void responderEstatisticas(StringBuilder texto) {
+        EstatisticasUsuarios estatisticas = SistemaCadastro.getEstatisticas();
+        texto.append("ok usuarios=").append(estatisticas.getQuantidade())
+             .append(String.format(Locale.ROOT, " media=%.2f", estatisticas.getMediaIdade()));
+        if (estatisticas.getQuantidade() > 0) {
+            texto.append(" minima=").append(estatisticas.getIdadeMinima())
+                 .append(" maxima=").append(estatisticas.getIdadeMaxima());
+        }
+        texto.append(" dominios=").append(estatisticas.getQuantidadeDominios()).append('\n');
+    }
+
+    private static void responderConsulta(StringBuilder texto, MotorConsultas.Resultado resultado) {
+        Map<Comparable<?>, MotorConsultas.Agregado> grupos = resultado.getGrupos();
+        texto.append("ok ").append(grupos.size() + resultado.getUsuarios().size())
+             .append(' ').append(resultado.getTotal())
+             .append(" grupos=").append(grupos.size()).append('\n');
+        for (Map.Entry<Comparable<?>, MotorConsultas.Agregado> grupo : grupos.entrySet()) {
+            texto.append(grupo.getKey()).append(' ').append(grupo.getValue()).append('\n');
+        }
+        for (Usuario usuario : resultado.getUsuarios()) {
+            FormatadorUsuario.anexarCSV(texto, usuario).append('\n');
+        }
+    }
+
+    // ========================================
+    // INTERPRETAÇÃO
+    // ========================================
+
+    /**
+     * Interpreta uma linha da entrada
+     *
+     * @return o comando, ou null se a linha deve ser ignorada
+     */
+    static Comando interpretar(long numero, String linha) {
+        String texto = linha.trim();
+        if (texto.isEmpty() || texto.charAt(0) == '#') {
+            return null;
+        }
+        int espaco = texto.indexOf(' ');
+        String nome = espaco < 0 ? texto : texto.substring(0, espaco);
+        String resto = espaco < 0 ? "" : texto.substring(espaco + 1).trim();
+
+        switch (nome) {
+            case "cadastrar": {
+                String[] campos = resto.split(",", -1);
+                if (campos.length != 4) {
+                    return Comando.invalido(numero, "cadastrar espera nome,email,idade,cpf");
+                }
+                try {
+                    Integer.parseInt(campos[2].trim());
+                } catch (NumberFormatException e) {
+                    return Comando.invalido(numero, "idade inválida: " + campos[2]);
+                }
+                return Comando.valido(numero, Tipo.CADASTRAR,
+                                      campos[0].trim(), campos[1].trim(), campos[2].trim(), campos[3].trim());
+            }
+            case "buscar":
+                return interpretarBusca(numero, resto);
+            case "salvar":
+                return Comando.valido(numero, Tipo.SALVAR);
+            case "carregar":
+                return Comando.valido(numero, Tipo.CARREGAR);
+            case "estatisticas":
+                return Comando.valido(numero, Tipo.ESTATISTICAS);
+            case "consultar":
+                try {
+                    Consulta.interpretar(resto);   // erros de sintaxe já na leitura
+                } catch (IllegalArgumentException e) {
+                    return Comando.invalido(numero, e.getMessage());
+                }
+                return Comando.valido(numero, Tipo.CONSULTAR, resto);
+            default:
+                return Comando.invalido(numero, "comando desconhecido: " + nome);
+        }
+    }
+
+    private static Comando interpretarBusca(long numero, String resto) {
+        int espaco = resto.indexOf(' ');
+        if (espaco < 0) {
+            return Comando.invalido(numero, "buscar espera email, cpf, nome ou idade e o valor");
+        }
+        String criterio = resto.substring(0, espaco);
+        String valor = resto.substring(espaco + 1).trim();
+        switch (criterio) {
+            case "email":
+                return Comando.valido(numero, Tipo.BUSCAR_EMAIL, valor);
+            case "cpf":
+                return Comando.valido(numero, Tipo.BUSCAR_CPF, valor);
+            case "nome":
+                return Comando.valido(numero, Tipo.BUSCAR_NOME, valor);
+            case "idade": {
+                String[] faixa = valor.split("\\s+");
+                try {
+                    if (faixa.length == 2) {
+                        Integer.parseInt(faixa[0]);
+                        Integer.parseInt(faixa[1]);
+                        return Comando.valido(numero, Tipo.BUSCAR_IDADE, faixa[0], faixa[1]);
+                    }
+                } catch (NumberFormatException e) {
+                    // tratado abaixo
+                }
+                return Comando.invalido(numero, "buscar idade espera DE ATE");
+            }
+            default:
+                return Comando.invalido(numero, "critério de busca desconhecido: " + criterio);
+        }
+    }
+
+    /**
+     * Lê e interpreta a entrada, entregando lotes de comandos na fila
+     */
+    private static final class Leitura implements Runnable {
+        private final BufferedReader entrada;
+        private final BlockingQueue<List<Comando>> fila;
+        IOException falha;
+
+        Leitura(Reader entrada, BlockingQueue<List<Comando>> fila) {
+            this.entrada = new BufferedReader(entrada, TAMANHO_BUFFER);
+            this.fila = fila;
+        }
+
+        @Override
+        public void run() {
+            try {
+                try {
+                    ler();
+                } catch (IOException e) {
+                    falha = e;
+                } finally {
+                    fila.put(FIM);
+                }
+            } catch (InterruptedException e) {
+                // Execução terminou antes
+            }
+        }
+
+        private void ler() throws IOException, InterruptedException {
+            List<Comando> lote = new ArrayList<>(TAMANHO_LOTE);
+            long numero = 0;
+            String linha;
+            while ((linha = entrada.readLine()) != null) {
+                Comando comando = interpretar(++numero, linha);
+                if (comando != null) {
+                    lote.add(comando);
+                }
+                // Lote cheio, ou a entrada parou: quem escreveu espera as respostas
+                if (lote.size() >= TAMANHO_LOTE || (!lote.isEmpty() && !entrada.ready())) {
+                    fila.put(lote);
+                    lote = new ArrayList<>(TAMANHO_LOTE);
+                }
+            }
+            if (!lote.isEmpty()) {
+                fila.put(lote);
+            }
+        }
+    }
+
+    /**
+     * Escreve as respostas na ordem dos lotes
+     */
+    private static final class Escrita implements Runnable {
+        private final Writer saida;
+        private final BlockingQueue<StringBuilder> fila;
+        volatile IOException falha;
+
+        Escrita(Writer saida, BlockingQueue<StringBuilder> fila) {
+            this.saida = new BufferedWriter(saida, TAMANHO_BUFFER);
+            this.fila = fila;
+        }
+
+        @Override
+        public void run() {
+            try {
+                StringBuilder texto;
+                while ((texto = fila.take()) != FIM_SAIDA) {
+                    if (falha != null) {
+                        continue;   // saída fechada: só esvazia a fila
+                    }
+                    try {
+                        saida.append(texto);
+                        if (fila.isEmpty()) {
+                            saida.flush();
+                        }
+                    } catch (IOException e) {
+                        falha = e;
+                    }
+                }
+                if (falha == null) {
+                    saida.flush();
+                }
+            } catch (InterruptedException e) {
+                // Execução terminou antes
+            } catch (IOException e) {
+                falha = e;
+            }
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package cadastro;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Relatório de memória: quanto cada representação ocupa por usuário
+ *
+ * Monta o mesmo conjunto de usuários em cada representação, uma de cada vez,
+ * e mede o heap ocupado depois de uma coleta completa (mais a memória direta,
+ * para a arena fora do heap). Também informa o tempo de uma coleta completa
+ * com os dados vivos, que cresce com o número de objetos a percorrer.
+ *
+ * Representações:
+ * - original:  ArrayList + HashMap de objetos Usuario
+ * - atual:     RepositorioConcorrente (objetos Usuario)
+ * - compacto:  RepositorioCompacto, arena no heap
+ * - compacto fora do heap: RepositorioCompacto, arena em memória direta
+ * - paginado:  RepositorioPaginado com 64 MB de cache (registros em disco)
+ *
+ * Uso: java -Xmx8g -cp cadastro-1.0.jar cadastro.RelatorioMemoria [quantidade]
+ */
+class RelatorioMemoria {
+
+    private static final String[] DOMINIOS = {
+        "gmail.com", "hotmail.com", "yahoo.com.br", "outlook.com",
+        "uol.com.br", "bol.com.br", "empresa.com.br", "exemplo.com"
+    };
+
+    /**
+     * Resultado da medição de uma representação
+     */
+    private static final class Medicao {
+        final String nome;
+        final long bytesHeap;
+        final long bytesDiretos;
+        final long msConstrucao;
+        final long msColetaCompleta;
+
+        Medicao(String nome, long bytesHeap, long bytesDiretos, long msConstrucao, long msColetaCompleta) {
+            this.nome = nome;
+            this.bytesHeap = bytesHeap;
+            this.bytesDiretos = bytesDiretos;
+            this.msConstrucao = msConstrucao;
+            this.msColetaCompleta = msColetaCompleta;
+        }
+    }
+
+    // Mantém a representação medida alcançável durante as coletas
+    private static volatile Object vivo;
+
+    private interface Construtor {
+        Object construir(int quantidade);
+    }
+
+    public static void main(String[] args) {
+        int quantidade = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+
+        System.out.printf("Relatório de memória: %,d usuários (heap máximo %d MB)%n%n",
+                          quantidade, Runtime.getRuntime().maxMemory() >> 20);
+
+        List<Medicao> medicoes = new ArrayList<>();
+        medicoes.add(medir("original (ArrayList + HashMap)", quantidade, RelatorioMemoria::construirOriginal));
+        medicoes.add(medir("atual (RepositorioConcorrente)", quantidade, n -> preencher(new RepositorioConcorrente(), n)));
+        medicoes.add(medir("compacto", quantidade, n -> preencher(new RepositorioCompacto(n, false), n)));
+        medicoes.add(medir("compacto fora do heap", quantidade, n -> preencher(new RepositorioCompacto(n, true), n)));
+        medicoes.add(medir("paginado (cache 64 MB)", quantidade, RelatorioMemoria::construirPaginado));
+
+        System.out.printf("%-32s %10s %12s %12s %10s %10s%n",
+                          "Representação", "Heap (MB)", "Direta (MB)", "Bytes/usuário", "Carga (ms)", "GC (ms)");
+        for (Medicao medicao : medicoes) {
+            System.out.printf("%-32s %10.1f %12.1f %12.1f %10d %10d%n",
+                              medicao.nome, medicao.bytesHeap / 1048576.0, medicao.bytesDiretos / 1048576.0,
+                              (double) (medicao.bytesHeap + medicao.bytesDiretos) / quantidade,
+                              medicao.msConstrucao, medicao.msColetaCompleta);
+        }
+        System.out.println("\nGC (ms): duração de uma coleta completa com a representação viva.");
+    }
+
+    private static Medicao medir(String nome, int quantidade, Construtor construtor) {
+        long heapAntes = heapUsado();
+        long diretaAntes = memoriaDireta();
+
+        long inicio = System.nanoTime();
+        vivo = construtor.construir(quantidade);
+        long msConstrucao = (System.nanoTime() - inicio) / 1_000_000;
+
+        long inicioColeta = System.nanoTime();
+        System.gc();
+        long msColeta = (System.nanoTime() - inicioColeta) / 1_000_000;
+
+        long heap = heapUsado() - heapAntes;
+        long direta = memoriaDireta() - diretaAntes;
+
+        if (vivo instanceof Closeable) {
+            try {
+                ((Closeable) vivo).close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        vivo = null;
+        return new Medicao(nome, heap, direta, msConstrucao, msColeta);
+    }
+
+    private static Object construirOriginal(int quantidade) {
+        List<Usuario> usuarios = new ArrayList<>();
+        Map<String, Usuario> porEmail = new HashMap<>();
+        for (int i = 0; i < quantidade; i++) {
+            Usuario usuario = usuario(i);
+            usuarios.add(usuario);
+            porEmail.put(usuario.getEmail(), usuario);
+        }
+        return new Object[] {usuarios, porEmail};
+    }
+
+    private static Object construirPaginado(int quantidade) {
+        try {
+            Path arquivo = Files.createTempFile("relatorio", ".paginas");
+            return preencher(new RepositorioPaginado(arquivo, 64L << 20, null), quantidade);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static RepositorioUsuarios preencher(RepositorioUsuarios repositorio, int quantidade) {
+        for (int i = 0; i < quantidade; i++) {
+            repositorio.inserir(usuario(i));
+        }
+        return repositorio;
+    }
+
+    /**
+     * Usuário sintético determinístico (CPF válido, domínios repetidos)
+     */
+    static Usuario usuario(int i) {
+        String nome = "Usuario " + i + " da Silva";
+        String email = "usuario" + i + "@" + DOMINIOS[i % DOMINIOS.length];
+        int idade = 1 + (i * 37) % 100;
+        String cpf = ArquivoColunar.formatarCPF(ValidacaoCadastro.completarCPF(100_000_000L + i));
+        return Usuario.criar(nome, email, idade, cpf);
+    }
+
+    static long heapUsado() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    static long memoriaDireta() {
+        long total = 0;
+        for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+            if (pool.getName().equals("direct")) {
+                total += pool.getMemoryUsed();
+            }
+        }
+        return total;
+    }
+}
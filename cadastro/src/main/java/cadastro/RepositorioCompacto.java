@@ -0,0 +1,531 @@
+package cadastro;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Repositório compacto: colunas de tipos primitivos em vez de um objeto por usuário
+ *
+ * Cada usuário ocupa uma posição (o identificador interno) em vetores
+ * paralelos:
+ * - datas      long[]  data de cadastro em milissegundos
+ * - cpfs       long[]  CPF com 11 dígitos num long; ou ~posição do texto
+ *                      original na arena, quando não está no formato padrão
+ * - idades     byte[]  idade (0 a 255, lida sem sinal)
+ * - tipos      byte[]  padrão, menor, idoso ou removido
+ * - dominios   int[]   domínio do email no dicionário de domínios
+ * - nomes      int[]   posição do nome na arena
+ * - emails     int[]   posição da parte local do email (antes do '@') na arena
+ *
+ * Nomes e emails ficam numa arena de blocos de bytes UTF-8, cada texto
+ * precedido de 2 bytes de tamanho. Os blocos podem ficar fora do heap
+ * (ByteBuffer direto), onde o coletor de lixo não precisa percorrê-los.
+ *
+ * A busca por email usa um IndicePrimitivo do hash de 64 bits do email para
+ * o identificador; cada candidato é confirmado pelo domínio e pela parte
+ * local, codificada em UTF-8 enquanto é comparada byte a byte contra a
+ * arena. O domínio é localizado no dicionário pelo hash do trecho do email,
+ * também sem criar Strings: buscas e inserções de emails não geram lixo
+ * proporcional ao tráfego. Os usuários devolvidos são vistas montadas sob demanda:
+ * cada chamada cria um objeto novo a partir das colunas, e o repositório
+ * não guarda referência a ele. Cada vista recebe o ouvinte do construtor, e
+ * as alterações feitas nela chegam às colunas por reindexarEmail e
+ * gravarAlteracao (como no RepositorioPaginado).
+ *
+ * Textos substituídos por alterações permanecem na arena até o repositório
+ * ser recriado.
+ */
+class RepositorioCompacto implements RepositorioUsuarios {
+
+    private static final byte TIPO_REMOVIDO = -1;
+    private static final int BITS_BLOCO = 20;                 // blocos de 1 MB
+    private static final int TAMANHO_BLOCO = 1 << BITS_BLOCO;
+    private static final int MASCARA_BLOCO = TAMANHO_BLOCO - 1;
+    private static final int MAXIMO_TEXTO = 0xFFFF;
+    private static final int SEM_DOMINIO = -1;
+
+    private final boolean foraDoHeap;
+    private final OuvinteUsuario ouvinte;
+    private final ReentrantReadWriteLock trava = new ReentrantReadWriteLock();
+
+    // Colunas (índice = identificador interno)
+    private long[] datas;
+    private long[] cpfs;
+    private byte[] idades;
+    private byte[] tipos;
+    private int[] dominios;
+    private int[] nomes;
+    private int[] emails;
+    private int proximoId;
+    private long quantidade;
+
+    // Arena de textos UTF-8
+    private ByteBuffer[] blocos = new ByteBuffer[16];
+    private int blocosUsados;
+    private int posicaoArena;     // próxima posição livre (bloco << BITS_BLOCO | deslocamento)
+
+    // Dicionário de domínios de email (hash do domínio -> posição em nomesDominio)
+    private final IndicePrimitivo idsDominio = new IndicePrimitivo();
+    private final List<String> nomesDominio = new ArrayList<>();
+
+    // Hash do email -> identificador (o email é confirmado na arena)
+    private final IndicePrimitivo porEmail;
+
+    RepositorioCompacto() {
+        this(1024, false);
+    }
+
+    /**
+     * @param capacidadeInicial usuários previstos (evita cópias ao crescer)
+     * @param foraDoHeap        guarda a arena de textos em memória direta
+     */
+    RepositorioCompacto(int capacidadeInicial, boolean foraDoHeap) {
+        this(capacidadeInicial, foraDoHeap, null);
+    }
+
+    /**
+     * @param ouvinte ligado a cada usuário devolvido, para que alterações
+     *                feitas nele cheguem ao cadastro (ver Usuario.atualizarDados)
+     */
+    RepositorioCompacto(int capacidadeInicial, boolean foraDoHeap, OuvinteUsuario ouvinte) {
+        int capacidade = Math.max(capacidadeInicial, 16);
+        this.foraDoHeap = foraDoHeap;
+        this.ouvinte = ouvinte;
+        datas = new long[capacidade];
+        cpfs = new long[capacidade];
+        idades = new byte[capacidade];
+        tipos = new byte[capacidade];
+        dominios = new int[capacidade];
+        nomes = new int[capacidade];
+        emails = new int[capacidade];
+        porEmail = new IndicePrimitivo(capacidade);
+    }
+
+    @Override
+    public int inserir(Usuario usuario) {
+        String email = usuario.getEmail();
+        validarIdade(usuario.getIdade());
+        trava.writeLock().lock();
+        try {
+            if (localizarEmail(email) >= 0) {
+                return -1;
+            }
+            if (proximoId == datas.length) {
+                crescer();
+            }
+            int id = proximoId++;
+            datas[id] = usuario.getDataCadastro().getTime();
+            gravarCampos(id, usuario);
+            gravarEmail(id, email);
+            quantidade++;
+            usuario.setIdInterno(id);
+            return id;
+        } finally {
+            trava.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Usuario buscarPorEmail(String email) {
+        trava.readLock().lock();
+        try {
+            int id = localizarEmail(email);
+            return id < 0 ? null : materializar(id);
+        } finally {
+            trava.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Usuario buscarPorId(int id) {
+        trava.readLock().lock();
+        try {
+            if (id < 0 || id >= proximoId || tipos[id] == TIPO_REMOVIDO) {
+                return null;
+            }
+            return materializar(id);
+        } finally {
+            trava.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean remover(Usuario usuario) {
+        trava.writeLock().lock();
+        try {
+            int id = localizarEmail(usuario.getEmail());
+            if (id < 0 || id != usuario.getIdInterno()) {
+                return false;
+            }
+            porEmail.remover(IndicePrimitivo.hash(usuario.getEmail()), id);
+            tipos[id] = TIPO_REMOVIDO;
+            quantidade--;
+            return true;
+        } finally {
+            trava.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean reindexarEmail(Usuario usuario, String emailAnterior, String emailNovo) {
+        if (emailNovo.equals(emailAnterior)) {
+            return true;
+        }
+        trava.writeLock().lock();
+        try {
+            int id = usuario.getIdInterno();
+            int dono = localizarEmail(emailNovo);
+            if (dono >= 0 && dono != id) {
+                return false;
+            }
+            if (localizarEmail(emailAnterior) == id) {
+                porEmail.remover(IndicePrimitivo.hash(emailAnterior), id);
+            }
+            gravarEmail(id, emailNovo);
+            return true;
+        } finally {
+            trava.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void gravarAlteracao(Usuario usuario) {
+        validarIdade(usuario.getIdade());
+        trava.writeLock().lock();
+        try {
+            int id = usuario.getIdInterno();
+            if (id >= 0 && id < proximoId && tipos[id] != TIPO_REMOVIDO) {
+                gravarCampos(id, usuario);
+            }
+        } finally {
+            trava.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public long tamanho() {
+        trava.readLock().lock();
+        try {
+            return quantidade;
+        } finally {
+            trava.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Usuario> listarDesde(int desdeId, int limite) {
+        trava.readLock().lock();
+        try {
+            List<Usuario> pagina = new ArrayList<>(Math.min(limite, 1024));
+            for (int id = Math.max(desdeId, 0); id < proximoId && pagina.size() < limite; id++) {
+                if (tipos[id] != TIPO_REMOVIDO) {
+                    pagina.add(materializar(id));
+                }
+            }
+            return pagina;
+        } finally {
+            trava.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Usuario> instantaneo() {
+        return listarDesde(0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Bytes ocupados pelas colunas e pela arena (capacidade alocada, não
+     * apenas a parte em uso; sem o índice de emails)
+     */
+    long bytesOcupados() {
+        trava.readLock().lock();
+        try {
+            long colunas = (long) datas.length * (8 + 8 + 1 + 1 + 4 + 4 + 4);
+            long arena = (long) blocosUsados * TAMANHO_BLOCO;
+            return colunas + arena;
+        } finally {
+            trava.readLock().unlock();
+        }
+    }
+
+    /**
+     * Bytes da arena (no heap ou fora dele, conforme o construtor)
+     */
+    long bytesArena() {
+        trava.readLock().lock();
+        try {
+            return (long) blocosUsados * TAMANHO_BLOCO;
+        } finally {
+            trava.readLock().unlock();
+        }
+    }
+
+    /**
+     * Domínios no dicionário e tamanho da arena, para as estatísticas
+     */
+    String descrever() {
+        trava.readLock().lock();
+        try {
+            return String.format("compacto, %d domínio(s) no dicionário, arena de %d MB %s",
+                                 nomesDominio.size(), ((long) blocosUsados * TAMANHO_BLOCO) >> 20,
+                                 foraDoHeap ? "fora do heap" : "no heap");
+        } finally {
+            trava.readLock().unlock();
+        }
+    }
+
+    int getQuantidadeDominios() {
+        trava.readLock().lock();
+        try {
+            return nomesDominio.size();
+        } finally {
+            trava.readLock().unlock();
+        }
+    }
+
+    // ========================================
+    // COLUNAS
+    // ========================================
+
+    private void gravarCampos(int id, Usuario usuario) {
+        idades[id] = (byte) usuario.getIdade();
+        tipos[id] = ArquivoColunar.codigoTipo(usuario);
+        nomes[id] = escreverTexto(usuario.getNome());
+
+        long cpf = ArquivoColunar.compactarCPFFormatado(usuario.getCpf());
+        cpfs[id] = cpf >= 0 ? cpf : ~(long) escreverTexto(String.valueOf(usuario.getCpf()));
+    }
+
+    /**
+     * Grava o email nas colunas e o indexa (o email não pode estar cadastrado)
+     */
+    private void gravarEmail(int id, String email) {
+        int arroba = email.lastIndexOf('@');
+        if (arroba >= 0) {
+            dominios[id] = idDominio(email, arroba + 1);
+            emails[id] = escreverTexto(email, 0, arroba);
+        } else {
+            dominios[id] = SEM_DOMINIO;
+            emails[id] = escreverTexto(email);
+        }
+        // Ausência já verificada sob a trava: um email diferente com o mesmo hash não impede
+        porEmail.inserirSeAusente(IndicePrimitivo.hash(email), id, outro -> false);
+    }
+
+    private Usuario materializar(int id) {
+        String nome = lerTexto(nomes[id]);
+        String email = lerEmail(id);
+        long cpf = cpfs[id];
+        String textoCpf = cpf >= 0 ? ArquivoColunar.formatarCPF(cpf) : lerTexto((int) ~cpf);
+
+        Usuario usuario = ArquivoColunar.criarPorTipo(tipos[id], nome, email, idades[id] & 0xFF, textoCpf);
+        usuario.setDataCadastro(new Date(datas[id]));
+        usuario.setIdInterno(id);
+        usuario.setOuvinte(ouvinte);
+        return usuario;
+    }
+
+    private String lerEmail(int id) {
+        String local = lerTexto(emails[id]);
+        int dominio = dominios[id];
+        return dominio == SEM_DOMINIO ? local : local + "@" + nomesDominio.get(dominio);
+    }
+
+    /**
+     * @return posição do domínio (o email a partir de 'inicio') no
+     *         dicionário, acrescentando-o se for novo
+     */
+    private int idDominio(String email, int inicio) {
+        int id = buscarDominio(email, inicio);
+        if (id == SEM_DOMINIO) {
+            id = nomesDominio.size();
+            nomesDominio.add(email.substring(inicio));
+            // Ausência já verificada: um domínio diferente com o mesmo hash não impede
+            idsDominio.inserirSeAusente(IndicePrimitivo.hash(email, inicio, email.length()), id, outro -> false);
+        }
+        return id;
+    }
+
+    /**
+     * @return posição do domínio (o email a partir de 'inicio'), ou SEM_DOMINIO
+     */
+    private int buscarDominio(String email, int inicio) {
+        int tamanho = email.length() - inicio;
+        int id = idsDominio.buscar(IndicePrimitivo.hash(email, inicio, email.length()), candidato -> {
+            String dominio = nomesDominio.get(candidato);
+            return dominio.length() == tamanho && email.regionMatches(inicio, dominio, 0, tamanho);
+        });
+        return id == IndicePrimitivo.AUSENTE ? SEM_DOMINIO : id;
+    }
+
+    private void crescer() {
+        int capacidade = datas.length + (datas.length >> 1);
+        if (capacidade < 0) {
+            capacidade = Integer.MAX_VALUE - 8;
+        }
+        if (capacidade <= proximoId) {
+            throw new IllegalStateException("Capacidade máxima do repositório atingida");
+        }
+        datas = Arrays.copyOf(datas, capacidade);
+        cpfs = Arrays.copyOf(cpfs, capacidade);
+        idades = Arrays.copyOf(idades, capacidade);
+        tipos = Arrays.copyOf(tipos, capacidade);
+        dominios = Arrays.copyOf(dominios, capacidade);
+        nomes = Arrays.copyOf(nomes, capacidade);
+        emails = Arrays.copyOf(emails, capacidade);
+    }
+
+    private static void validarIdade(int idade) {
+        if (idade < 0 || idade > 255) {
+            throw new IllegalArgumentException("Idade fora do intervalo armazenável: " + idade);
+        }
+    }
+
+    // ========================================
+    // ARENA DE TEXTOS
+    // ========================================
+
+    /**
+     * Acrescenta o texto à arena: [2 bytes de tamanho][UTF-8]
+     *
+     * @return posição do texto
+     */
+    private int escreverTexto(String texto) {
+        return escreverTexto(texto, 0, texto.length());
+    }
+
+    /**
+     * Acrescenta à arena os caracteres de 'inicio' a 'fim' (exclusivo)
+     *
+     * @return posição do texto
+     */
+    private int escreverTexto(String texto, int inicio, int fim) {
+        int tamanho = ArquivoColunar.tamanhoUtf8(texto, inicio, fim);
+        if (tamanho > MAXIMO_TEXTO) {
+            throw new IllegalArgumentException("Texto longo demais para o repositório compacto");
+        }
+        int deslocamento = posicaoArena & MASCARA_BLOCO;
+        // O texto anterior pode ter terminado exatamente no fim do último bloco
+        if ((posicaoArena >>> BITS_BLOCO) >= blocosUsados || deslocamento + 2 + tamanho > TAMANHO_BLOCO) {
+            novoBloco();
+            deslocamento = 0;
+        }
+        int posicao = posicaoArena;
+        ByteBuffer bloco = blocos[posicao >>> BITS_BLOCO];
+        bloco.put(deslocamento, (byte) (tamanho >>> 8));
+        bloco.put(deslocamento + 1, (byte) tamanho);
+        ArquivoColunar.escreverUtf8(bloco, deslocamento + 2, texto, inicio, fim);
+        posicaoArena = posicao + 2 + tamanho;
+        return posicao;
+    }
+
+    private void novoBloco() {
+        if (blocosUsados == blocos.length) {
+            if (blocosUsados >= (Integer.MAX_VALUE >>> BITS_BLOCO)) {
+                throw new IllegalStateException("Arena de textos cheia (2 GB)");
+            }
+            blocos = Arrays.copyOf(blocos, blocosUsados * 2);
+        }
+        blocos[blocosUsados] = foraDoHeap ? ByteBuffer.allocateDirect(TAMANHO_BLOCO)
+                                          : ByteBuffer.allocate(TAMANHO_BLOCO);
+        posicaoArena = blocosUsados << BITS_BLOCO;
+        blocosUsados++;
+    }
+
+    private String lerTexto(int posicao) {
+        ByteBuffer bloco = blocos[posicao >>> BITS_BLOCO];
+        int deslocamento = posicao & MASCARA_BLOCO;
+        int tamanho = tamanhoTexto(bloco, deslocamento);
+        if (bloco.hasArray()) {
+            return new String(bloco.array(), bloco.arrayOffset() + deslocamento + 2, tamanho,
+                              StandardCharsets.UTF_8);
+        }
+        byte[] bytes = new byte[tamanho];
+        for (int i = 0; i < tamanho; i++) {
+            bytes[i] = bloco.get(deslocamento + 2 + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int tamanhoTexto(ByteBuffer bloco, int deslocamento) {
+        return ((bloco.get(deslocamento) & 0xFF) << 8) | (bloco.get(deslocamento + 1) & 0xFF);
+    }
+
+    /**
+     * Compara o texto da arena com os caracteres de 'inicio' a 'fim'
+     * (exclusivo), codificando-os em UTF-8 durante a comparação (como
+     * ArquivoColunar.escreverUtf8)
+     */
+    private boolean textoIgual(int posicao, String texto, int inicio, int fim) {
+        ByteBuffer bloco = blocos[posicao >>> BITS_BLOCO];
+        int deslocamento = posicao & MASCARA_BLOCO;
+        int p = deslocamento + 2;
+        int limite = p + tamanhoTexto(bloco, deslocamento);
+        for (int i = inicio; i < fim; i++) {
+            int codigo = texto.charAt(i);
+            int bytes;
+            if (codigo < 0x80) {
+                bytes = 1;
+            } else if (codigo < 0x800) {
+                bytes = 2;
+            } else if (Character.isHighSurrogate((char) codigo) && i + 1 < fim
+                       && Character.isLowSurrogate(texto.charAt(i + 1))) {
+                codigo = Character.toCodePoint((char) codigo, texto.charAt(++i));
+                bytes = 4;
+            } else {
+                bytes = 3;
+            }
+            if (limite - p < bytes) {
+                return false;
+            }
+            if (bytes == 1) {
+                if (bloco.get(p++) != (byte) codigo) {
+                    return false;
+                }
+                continue;
+            }
+            // Primeiro byte: prefixo 0xC0, 0xE0 ou 0xF0 e os bits mais altos; depois 6 bits por byte
+            int deslocamentoBits = (bytes - 1) * 6;
+            if (bloco.get(p++) != (byte) ((0xF00 >> bytes) | (codigo >> deslocamentoBits))) {
+                return false;
+            }
+            for (deslocamentoBits -= 6; deslocamentoBits >= 0; deslocamentoBits -= 6) {
+                if (bloco.get(p++) != (byte) (0x80 | ((codigo >> deslocamentoBits) & 0x3F))) {
+                    return false;
+                }
+            }
+        }
+        return p == limite;
+    }
+
+    // ========================================
+    // ÍNDICE DE EMAILS
+    // ========================================
+
+    /**
+     * @return identificador do usuário com o email, ou -1
+     */
+    private int localizarEmail(String email) {
+        int arroba = email.lastIndexOf('@');
+        int dominio = SEM_DOMINIO;
+        int fimLocal = email.length();
+        if (arroba >= 0) {
+            dominio = buscarDominio(email, arroba + 1);
+            if (dominio == SEM_DOMINIO) {
+                return -1;   // domínio nunca visto: nenhum usuário tem este email
+            }
+            fimLocal = arroba;
+        }
+        int dominioEmail = dominio;
+        int fim = fimLocal;
+        int id = porEmail.buscar(IndicePrimitivo.hash(email),
+                                 candidato -> dominios[candidato] == dominioEmail
+                                              && textoIgual(emails[candidato], email, 0, fim));
+        return id == IndicePrimitivo.AUSENTE ? -1 : id;
+    }
+}
@@ -0,0 +1,173 @@
+package cadastro;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Repositório seguro para várias threads
+ *
+ * - Email: IndicePrimitivo do hash de 64 bits do email para o identificador,
+ *   confirmado contra o email do usuário guardado; a inserção verifica e
+ *   insere de forma atômica, e buscas não usam trava
+ * - Usuários: vetor segmentado indexado pelo identificador interno. Cada
+ *   inserção reserva uma posição com um incremento atômico e grava nela, sem
+ *   travas compartilhadas
+ * - Contagem: LongAdder, que não disputa uma única variável entre threads
+ *
+ * O instantâneo contém todas as inserções concluídas antes da chamada. Uma
+ * posição reservada mas ainda não gravada é aguardada, então nenhum usuário
+ * parcialmente inserido aparece na cópia.
+ */
+class RepositorioConcorrente implements RepositorioUsuarios {
+
+    private static final int BITS_SEGMENTO = 14;
+    private static final int TAMANHO_SEGMENTO = 1 << BITS_SEGMENTO;
+    private static final int MASCARA_SEGMENTO = TAMANHO_SEGMENTO - 1;
+    private static final int MAXIMO_SEGMENTOS = 1 << (31 - BITS_SEGMENTO);
+
+    // Marca as posições de usuários removidos
+    private static final Usuario REMOVIDO = new Usuario();
+
+    private final IndicePrimitivo porEmail = new IndicePrimitivo();
+    private final AtomicReferenceArray<AtomicReferenceArray<Usuario>> segmentos =
+            new AtomicReferenceArray<>(MAXIMO_SEGMENTOS);
+    private final AtomicInteger proximoId = new AtomicInteger();
+    private final LongAdder quantidade = new LongAdder();
+
+    @Override
+    public int inserir(Usuario usuario) {
+        String email = usuario.getEmail();
+        long chave = IndicePrimitivo.hash(email);
+        // Caminho rápido para duplicados (recargas e reprodução do diário):
+        // não gasta um identificador
+        if (porEmail.buscar(chave, id -> temEmail(id, email)) != IndicePrimitivo.AUSENTE) {
+            return -1;
+        }
+        int id = proximoId.getAndIncrement();
+        if (id < 0) {
+            throw new IllegalStateException("Capacidade máxima do repositório atingida");
+        }
+        if (porEmail.inserirSeAusente(chave, id, outro -> temEmail(outro, email)) != IndicePrimitivo.AUSENTE) {
+            // Outra thread cadastrou o mesmo email entre a busca e a inserção
+            segmento(id).set(id & MASCARA_SEGMENTO, REMOVIDO);
+            return -1;
+        }
+        usuario.setIdInterno(id);
+        segmento(id).set(id & MASCARA_SEGMENTO, usuario);
+        quantidade.increment();
+        return id;
+    }
+
+    @Override
+    public Usuario buscarPorEmail(String email) {
+        int id = porEmail.buscar(IndicePrimitivo.hash(email), candidato -> temEmail(candidato, email));
+        if (id == IndicePrimitivo.AUSENTE) {
+            return null;
+        }
+        Usuario usuario = aguardarPosicao(id);
+        return usuario == REMOVIDO ? null : usuario;
+    }
+
+    @Override
+    public Usuario buscarPorId(int id) {
+        if (id < 0 || id >= proximoId.get()) {
+            return null;
+        }
+        Usuario usuario = segmento(id).get(id & MASCARA_SEGMENTO);
+        return usuario == REMOVIDO ? null : usuario;
+    }
+
+    @Override
+    public boolean remover(Usuario usuario) {
+        int id = usuario.getIdInterno();
+        if (id < 0 || !porEmail.remover(IndicePrimitivo.hash(usuario.getEmail()), id)) {
+            return false;
+        }
+        segmento(id).set(id & MASCARA_SEGMENTO, REMOVIDO);
+        quantidade.decrement();
+        return true;
+    }
+
+    @Override
+    public boolean reindexarEmail(Usuario usuario, String emailAnterior, String emailNovo) {
+        if (emailNovo.equals(emailAnterior)) {
+            return true;
+        }
+        int id = usuario.getIdInterno();
+        int dono = porEmail.inserirSeAusente(IndicePrimitivo.hash(emailNovo), id,
+                                             outro -> outro == id || temEmail(outro, emailNovo));
+        if (dono != IndicePrimitivo.AUSENTE && dono != id) {
+            return false;
+        }
+        porEmail.remover(IndicePrimitivo.hash(emailAnterior), id);
+        return true;
+    }
+
+    @Override
+    public long tamanho() {
+        return quantidade.sum();
+    }
+
+    @Override
+    public List<Usuario> listarDesde(int desdeId, int limite) {
+        int fim = proximoId.get();
+        List<Usuario> pagina = new ArrayList<>(Math.min(limite, 1024));
+        for (int id = Math.max(desdeId, 0); id < fim && pagina.size() < limite; id++) {
+            Usuario usuario = aguardarPosicao(id);
+            if (usuario != REMOVIDO) {
+                pagina.add(usuario);
+            }
+        }
+        return pagina;
+    }
+
+    @Override
+    public List<Usuario> instantaneo() {
+        int limite = proximoId.get();
+        List<Usuario> copia = new ArrayList<>((int) Math.min(limite, quantidade.sum() + 16));
+
+        for (int id = 0; id < limite; id++) {
+            Usuario usuario = aguardarPosicao(id);
+            if (usuario != REMOVIDO) {
+                copia.add(usuario);
+            }
+        }
+        return copia;
+    }
+
+    /**
+     * Confirma um candidato do índice de emails
+     *
+     * Em inserir, roda com a trava de escrita do índice e pode esperar a
+     * gravação de um candidato cuja inserção no índice já terminou: a espera
+     * dura só até essa outra thread, que já liberou a trava, gravar a posição.
+     */
+    private boolean temEmail(int id, String email) {
+        Usuario usuario = aguardarPosicao(id);
+        return usuario != REMOVIDO && email.equals(usuario.getEmail());
+    }
+
+    private Usuario aguardarPosicao(int id) {
+        AtomicReferenceArray<Usuario> segmento = segmento(id);
+        Usuario usuario = segmento.get(id & MASCARA_SEGMENTO);
+        while (usuario == null) {
+            // Posição reservada por uma inserção ainda em andamento
+            Thread.yield();
+            usuario = segmento.get(id & MASCARA_SEGMENTO);
+        }
+        return usuario;
+    }
+
+    private AtomicReferenceArray<Usuario> segmento(int id) {
+        int indice = id >>> BITS_SEGMENTO;
+        AtomicReferenceArray<Usuario> segmento = segmentos.get(indice);
+        if (segmento == null) {
+            segmentos.compareAndSet(indice, null, new AtomicReferenceArray<>(TAMANHO_SEGMENTO));
+            segmento = segmentos.get(indice);
+        }
+        return segmento;
+    }
+}
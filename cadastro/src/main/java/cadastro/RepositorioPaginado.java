@@ -0,0 +1,440 @@
+package cadastro;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Repositório em disco: registros num arquivo de páginas, com cache limitada
+ *
+ * Só ficam em memória o índice de emails (IndicePrimitivo do hash do email
+ * para o identificador), a posição do registro de cada identificador no
+ * arquivo (long[]) e as páginas que estão na CachePaginas. Uma busca por
+ * email ou identificador lê a página do registro do disco se ela não estiver
+ * na cache. Os usuários devolvidos são vistas montadas a cada chamada, como
+ * no RepositorioCompacto; alterações feitas nelas chegam ao arquivo por
+ * gravarAlteracao.
+ *
+ * Registros (big-endian), sem atravessar páginas:
+ *   short tamanho do registro   byte tipo   byte idade
+ *   long  dataCadastro          long CPF compactado (-1 se fora do formato)
+ *   texto nome, texto email[, texto CPF original]
+ * cada texto como short tamanho (0xFFFF para null) seguido do UTF-8.
+ *
+ * O arquivo só cresce: uma alteração grava uma nova cópia do registro no fim
+ * e a anterior fica sem uso. Ele é um espaço de trabalho — a persistência
+ * continua sendo o instantâneo e o diário — e é apagado ao fechar.
+ *
+ * Todas as operações usam uma única trava, pois mesmo um acerto na cache
+ * altera o estado do relógio.
+ */
+class RepositorioPaginado implements RepositorioUsuarios, Closeable {
+
+    static final int TAMANHO_PAGINA = 16 * 1024;
+
+    private static final long REMOVIDO = -1;
+    private static final int TEXTO_NULO = 0xFFFF;
+    private static final int CABECALHO_REGISTRO = 2 + 1 + 1 + 8 + 8;
+
+    private final FileChannel canal;
+    private final CachePaginas cache;
+    private final OuvinteUsuario ouvinte;
+    private final IndicePrimitivo porEmail = new IndicePrimitivo();
+    private final ReentrantLock trava = new ReentrantLock();
+
+    private long[] posicoes = new long[1024];   // posição do registro de cada identificador
+    private int proximoId;
+    private long quantidade;
+    private long paginaFinal = -1;               // página que recebe os novos registros
+    private int livreFinal = TAMANHO_PAGINA;     // primeiro byte livre nela
+
+    /**
+     * @param arquivo        arquivo de páginas (recriado vazio)
+     * @param orcamentoCache bytes de páginas mantidos em memória
+     * @param ouvinte        ligado a cada usuário devolvido, para que
+     *                       alterações na vista cheguem ao cadastro (ou null)
+     */
+    RepositorioPaginado(Path arquivo, long orcamentoCache, OuvinteUsuario ouvinte) throws IOException {
+        this.canal = FileChannel.open(arquivo, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                                      StandardOpenOption.READ, StandardOpenOption.WRITE,
+                                      StandardOpenOption.DELETE_ON_CLOSE);
+        this.ouvinte = ouvinte;
+        this.cache = new CachePaginas(new CachePaginas.Disco() {
+            @Override
+            public void ler(long pagina, byte[] destino) throws IOException {
+                ByteBuffer buffer = ByteBuffer.wrap(destino);
+                while (buffer.hasRemaining()) {
+                    if (canal.read(buffer, pagina * TAMANHO_PAGINA + buffer.position()) < 0) {
+                        Arrays.fill(destino, buffer.position(), destino.length, (byte) 0);
+                        break;
+                    }
+                }
+            }
+
+            @Override
+            public void gravar(long pagina, byte[] origem) throws IOException {
+                ByteBuffer buffer = ByteBuffer.wrap(origem);
+                while (buffer.hasRemaining()) {
+                    canal.write(buffer, pagina * TAMANHO_PAGINA + buffer.position());
+                }
+            }
+        }, TAMANHO_PAGINA, orcamentoCache);
+    }
+
+    @Override
+    public int inserir(Usuario usuario) {
+        String email = usuario.getEmail();
+        long chave = IndicePrimitivo.hash(email);
+        trava.lock();
+        try {
+            if (porEmail.buscar(chave, id -> temEmail(id, email)) != IndicePrimitivo.AUSENTE) {
+                return -1;
+            }
+            if (proximoId == Integer.MAX_VALUE) {
+                throw new IllegalStateException("Capacidade máxima do repositório atingida");
+            }
+            long posicao = gravarRegistro(usuario);
+            int id = proximoId++;
+            if (id == posicoes.length) {
+                posicoes = Arrays.copyOf(posicoes, (int) Math.min((long) id * 2, Integer.MAX_VALUE - 8));
+            }
+            posicoes[id] = posicao;
+            porEmail.inserirSeAusente(chave, id, null);
+            quantidade++;
+            usuario.setIdInterno(id);
+            return id;
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    @Override
+    public Usuario buscarPorEmail(String email) {
+        trava.lock();
+        try {
+            int id = porEmail.buscar(IndicePrimitivo.hash(email), candidato -> temEmail(candidato, email));
+            return id == IndicePrimitivo.AUSENTE ? null : lerRegistro(id, posicoes[id]);
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    @Override
+    public Usuario buscarPorId(int id) {
+        trava.lock();
+        try {
+            if (id < 0 || id >= proximoId || posicoes[id] == REMOVIDO) {
+                return null;
+            }
+            return lerRegistro(id, posicoes[id]);
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    @Override
+    public boolean remover(Usuario usuario) {
+        trava.lock();
+        try {
+            int id = usuario.getIdInterno();
+            if (id < 0 || id >= proximoId || posicoes[id] == REMOVIDO
+                    || !porEmail.remover(IndicePrimitivo.hash(usuario.getEmail()), id)) {
+                return false;
+            }
+            posicoes[id] = REMOVIDO;
+            quantidade--;
+            return true;
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    /**
+     * Troca a chave no índice; o registro com o novo email é gravado em
+     * seguida por gravarAlteracao (até lá, a busca pelo novo email não o acha)
+     */
+    @Override
+    public boolean reindexarEmail(Usuario usuario, String emailAnterior, String emailNovo) {
+        if (emailNovo.equals(emailAnterior)) {
+            return true;
+        }
+        trava.lock();
+        try {
+            int id = usuario.getIdInterno();
+            int dono = porEmail.inserirSeAusente(IndicePrimitivo.hash(emailNovo), id,
+                                                 outro -> outro == id || temEmail(outro, emailNovo));
+            if (dono != IndicePrimitivo.AUSENTE && dono != id) {
+                return false;
+            }
+            porEmail.remover(IndicePrimitivo.hash(emailAnterior), id);
+            return true;
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    @Override
+    public void gravarAlteracao(Usuario usuario) {
+        trava.lock();
+        try {
+            int id = usuario.getIdInterno();
+            if (id >= 0 && id < proximoId && posicoes[id] != REMOVIDO) {
+                posicoes[id] = gravarRegistro(usuario);
+            }
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    @Override
+    public long tamanho() {
+        trava.lock();
+        try {
+            return quantidade;
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    @Override
+    public List<Usuario> listarDesde(int desdeId, int limite) {
+        trava.lock();
+        try {
+            List<Usuario> pagina = new ArrayList<>(Math.min(limite, 1024));
+            for (int id = Math.max(desdeId, 0); id < proximoId && pagina.size() < limite; id++) {
+                if (posicoes[id] != REMOVIDO) {
+                    pagina.add(lerRegistro(id, posicoes[id]));
+                }
+            }
+            return pagina;
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    /**
+     * Lista que lê cada usuário do arquivo ao ser percorrida
+     *
+     * Guarda apenas identificadores e posições dos registros no momento da
+     * chamada (registros nunca são sobrescritos), então os dados são os
+     * daquele instante e gravar o cadastro inteiro não o traz para a memória.
+     */
+    @Override
+    public List<Usuario> instantaneo() {
+        final int[] ids;
+        final long[] registros;
+        trava.lock();
+        try {
+            ids = new int[(int) quantidade];
+            registros = new long[ids.length];
+            int n = 0;
+            for (int id = 0; id < proximoId; id++) {
+                if (posicoes[id] != REMOVIDO) {
+                    ids[n] = id;
+                    registros[n++] = posicoes[id];
+                }
+            }
+        } finally {
+            trava.unlock();
+        }
+        return new Instantaneo(ids, registros);
+    }
+
+    private final class Instantaneo extends AbstractList<Usuario> implements RandomAccess {
+        private final int[] ids;
+        private final long[] registros;
+
+        Instantaneo(int[] ids, long[] registros) {
+            this.ids = ids;
+            this.registros = registros;
+        }
+
+        @Override
+        public Usuario get(int indice) {
+            trava.lock();
+            try {
+                return lerRegistro(ids[indice], registros[indice]);
+            } finally {
+                trava.unlock();
+            }
+        }
+
+        @Override
+        public int size() {
+            return ids.length;
+        }
+    }
+
+    /**
+     * Estatísticas da cache (lidas sob a trava do repositório)
+     */
+    String descreverCache() {
+        trava.lock();
+        try {
+            return String.format("Cache de páginas: %.1f%% de acertos (%d acertos, %d faltas), %d despejos, "
+                                 + "%.1f de %.1f MB residentes",
+                                 cache.getTaxaAcerto() * 100, cache.getAcertos(), cache.getFaltas(),
+                                 cache.getDespejos(), cache.getBytesResidentes() / 1048576.0,
+                                 cache.getOrcamentoBytes() / 1048576.0);
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    CachePaginas getCache() {
+        return cache;
+    }
+
+    @Override
+    public void close() throws IOException {
+        trava.lock();
+        try {
+            canal.close();
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    // ========================================
+    // REGISTROS
+    // ========================================
+
+    /**
+     * Acrescenta o registro na página final (ou numa nova)
+     *
+     * @return posição do registro no arquivo
+     */
+    private long gravarRegistro(Usuario usuario) {
+        long cpf = ArquivoColunar.compactarCPFFormatado(usuario.getCpf());
+        int tamanho = CABECALHO_REGISTRO + tamanhoTexto(usuario.getNome()) + tamanhoTexto(usuario.getEmail())
+                      + (cpf < 0 ? tamanhoTexto(usuario.getCpf()) : 0);
+        if (tamanho > TAMANHO_PAGINA) {
+            throw new IllegalArgumentException("Registro grande demais para uma página: " + tamanho + " bytes");
+        }
+        if (usuario.getIdade() < 0 || usuario.getIdade() > 255) {
+            throw new IllegalArgumentException("Idade fora do intervalo armazenável: " + usuario.getIdade());
+        }
+
+        try {
+            boolean nova = livreFinal + tamanho > TAMANHO_PAGINA;
+            if (nova) {
+                paginaFinal++;
+                livreFinal = 0;
+            }
+            ByteBuffer pagina = ByteBuffer.wrap(cache.obter(paginaFinal, nova));
+            int deslocamento = livreFinal;
+            int p = deslocamento;
+            pagina.putShort(p, (short) tamanho);
+            pagina.put(p + 2, ArquivoColunar.codigoTipo(usuario));
+            pagina.put(p + 3, (byte) usuario.getIdade());
+            pagina.putLong(p + 4, usuario.getDataCadastro().getTime());
+            pagina.putLong(p + 12, cpf);
+            p = escreverTexto(pagina, p + CABECALHO_REGISTRO, usuario.getNome());
+            p = escreverTexto(pagina, p, usuario.getEmail());
+            if (cpf < 0) {
+                escreverTexto(pagina, p, usuario.getCpf());
+            }
+            cache.marcarSuja(paginaFinal);
+            livreFinal = deslocamento + tamanho;
+            return paginaFinal * TAMANHO_PAGINA + deslocamento;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Usuario lerRegistro(int id, long posicao) {
+        try {
+            ByteBuffer pagina = ByteBuffer.wrap(cache.obter(posicao / TAMANHO_PAGINA, false));
+            int p = (int) (posicao % TAMANHO_PAGINA);
+            byte tipo = pagina.get(p + 2);
+            int idade = pagina.get(p + 3) & 0xFF;
+            long data = pagina.getLong(p + 4);
+            long cpf = pagina.getLong(p + 12);
+            p += CABECALHO_REGISTRO;
+            String nome = lerTexto(pagina, p);
+            p += tamanhoGravado(pagina, p);
+            String email = lerTexto(pagina, p);
+            p += tamanhoGravado(pagina, p);
+            String textoCpf = cpf >= 0 ? ArquivoColunar.formatarCPF(cpf) : lerTexto(pagina, p);
+
+            Usuario usuario = ArquivoColunar.criarPorTipo(tipo, nome, email, idade, textoCpf);
+            usuario.setDataCadastro(new Date(data));
+            usuario.setIdInterno(id);
+            usuario.setOuvinte(ouvinte);
+            return usuario;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Confirma um candidato do índice de emails comparando os bytes UTF-8
+     * gravados, sem montar o usuário
+     */
+    private boolean temEmail(int id, String email) {
+        long posicao = posicoes[id];
+        if (posicao == REMOVIDO) {
+            return false;
+        }
+        try {
+            ByteBuffer pagina = ByteBuffer.wrap(cache.obter(posicao / TAMANHO_PAGINA, false));
+            int p = (int) (posicao % TAMANHO_PAGINA) + CABECALHO_REGISTRO;
+            p += tamanhoGravado(pagina, p);
+            int tamanho = pagina.getShort(p) & 0xFFFF;
+            byte[] utf8 = email.getBytes(StandardCharsets.UTF_8);
+            if (tamanho != utf8.length) {
+                return false;
+            }
+            for (int i = 0; i < tamanho; i++) {
+                if (pagina.get(p + 2 + i) != utf8[i]) {
+                    return false;
+                }
+            }
+            return true;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static int tamanhoTexto(String texto) {
+        return 2 + (texto == null ? 0 : ArquivoColunar.tamanhoUtf8(texto));
+    }
+
+    private static int escreverTexto(ByteBuffer pagina, int posicao, String texto) {
+        if (texto == null) {
+            pagina.putShort(posicao, (short) TEXTO_NULO);
+            return posicao + 2;
+        }
+        int fim = ArquivoColunar.escreverUtf8(pagina, posicao + 2, texto);
+        pagina.putShort(posicao, (short) (fim - posicao - 2));
+        return fim;
+    }
+
+    /**
+     * Bytes ocupados pelo texto na posição, incluindo o tamanho
+     */
+    private static int tamanhoGravado(ByteBuffer pagina, int posicao) {
+        int tamanho = pagina.getShort(posicao) & 0xFFFF;
+        return 2 + (tamanho == TEXTO_NULO ? 0 : tamanho);
+    }
+
+    private static String lerTexto(ByteBuffer pagina, int posicao) {
+        int tamanho = pagina.getShort(posicao) & 0xFFFF;
+        if (tamanho == TEXTO_NULO) {
+            return null;
+        }
+        return new String(pagina.array(), posicao + 2, tamanho, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,263 @@
+package cadastro;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Repositório dividido em N partições pelo hash do email
+ *
+ * Cada partição tem o próprio índice de emails (IndicePrimitivo), a própria
+ * sequência de identificadores e o próprio vetor de usuários: inserções e
+ * buscas em partições diferentes não compartilham nenhuma variável, e o
+ * instantâneo de cada partição é gravado e lido em paralelo com os das
+ * outras (ver ArquivoParticionado).
+ *
+ * Identificadores: o usuário de posição local 'k' na partição 'p' recebe o
+ * identificador k * N + p. Assim eles continuam únicos e estáveis no
+ * repositório inteiro (os índices secundários os guardam) e a partição
+ * sai do próprio identificador. A listagem percorre os identificadores em
+ * ordem crescente, alternando entre as partições.
+ *
+ * Quando o email de um usuário muda para um que cabe a outra partição, só a
+ * chave de email muda de índice: o usuário continua guardado onde foi
+ * inserido, e o índice da nova partição aponta para o identificador dele.
+ */
+class RepositorioParticionado implements RepositorioUsuarios {
+
+    private static final int BITS_SEGMENTO = 14;
+    private static final int TAMANHO_SEGMENTO = 1 << BITS_SEGMENTO;
+    private static final int MASCARA_SEGMENTO = TAMANHO_SEGMENTO - 1;
+
+    // Marca as posições de usuários removidos
+    private static final Usuario REMOVIDO = new Usuario();
+
+    /**
+     * Uma partição: índice de emails e usuários pela posição local
+     */
+    private static final class Particao {
+        final IndicePrimitivo porEmail = new IndicePrimitivo();
+        final AtomicReferenceArray<AtomicReferenceArray<Usuario>> segmentos;
+        final AtomicInteger proximaPosicao = new AtomicInteger();
+
+        Particao(int maximoPosicoes) {
+            segmentos = new AtomicReferenceArray<>((maximoPosicoes >>> BITS_SEGMENTO) + 1);
+        }
+
+        AtomicReferenceArray<Usuario> segmento(int posicao) {
+            int indice = posicao >>> BITS_SEGMENTO;
+            AtomicReferenceArray<Usuario> segmento = segmentos.get(indice);
+            if (segmento == null) {
+                segmentos.compareAndSet(indice, null, new AtomicReferenceArray<>(TAMANHO_SEGMENTO));
+                segmento = segmentos.get(indice);
+            }
+            return segmento;
+        }
+
+        /**
+         * Posições já reservadas (as que passaram do limite nunca são gravadas)
+         */
+        int ocupadas(int maximoPosicoes) {
+            return Math.min(proximaPosicao.get(), maximoPosicoes);
+        }
+
+        Usuario aguardar(int posicao) {
+            AtomicReferenceArray<Usuario> segmento = segmento(posicao);
+            Usuario usuario = segmento.get(posicao & MASCARA_SEGMENTO);
+            while (usuario == null) {
+                // Posição reservada por uma inserção ainda em andamento
+                Thread.yield();
+                usuario = segmento.get(posicao & MASCARA_SEGMENTO);
+            }
+            return usuario;
+        }
+    }
+
+    private final Particao[] particoes;
+    private final int maximoPosicoes;
+    private final LongAdder quantidade = new LongAdder();
+
+    RepositorioParticionado(int numeroParticoes) {
+        if (numeroParticoes < 1 || numeroParticoes > 1024) {
+            throw new IllegalArgumentException("Número de partições deve estar entre 1 e 1024: " + numeroParticoes);
+        }
+        this.maximoPosicoes = Integer.MAX_VALUE / numeroParticoes;
+        this.particoes = new Particao[numeroParticoes];
+        for (int p = 0; p < numeroParticoes; p++) {
+            particoes[p] = new Particao(maximoPosicoes);
+        }
+    }
+
+    int getNumeroParticoes() {
+        return particoes.length;
+    }
+
+    /**
+     * Partição dona do email entre 'total' partições (bits altos do hash,
+     * independentes dos que o IndicePrimitivo usa para a posição na tabela)
+     */
+    static int particao(String email, int total) {
+        return (int) (((IndicePrimitivo.hash(email) >>> 32) * total) >>> 32);
+    }
+
+    @Override
+    public int inserir(Usuario usuario) {
+        String email = usuario.getEmail();
+        long chave = IndicePrimitivo.hash(email);
+        int p = particao(email, particoes.length);
+        Particao particao = particoes[p];
+
+        // Caminho rápido para duplicados (recargas e reprodução do diário)
+        if (particao.porEmail.buscar(chave, id -> temEmail(id, email)) != IndicePrimitivo.AUSENTE) {
+            return -1;
+        }
+        int posicao = particao.proximaPosicao.getAndIncrement();
+        if (posicao < 0 || posicao >= maximoPosicoes) {
+            throw new IllegalStateException("Capacidade máxima da partição " + p + " atingida");
+        }
+        int id = posicao * particoes.length + p;
+        if (particao.porEmail.inserirSeAusente(chave, id, outro -> temEmail(outro, email)) != IndicePrimitivo.AUSENTE) {
+            // Outra thread cadastrou o mesmo email entre a busca e a inserção
+            particao.segmento(posicao).set(posicao & MASCARA_SEGMENTO, REMOVIDO);
+            return -1;
+        }
+        usuario.setIdInterno(id);
+        particao.segmento(posicao).set(posicao & MASCARA_SEGMENTO, usuario);
+        quantidade.increment();
+        return id;
+    }
+
+    @Override
+    public Usuario buscarPorEmail(String email) {
+        Particao particao = particoes[particao(email, particoes.length)];
+        int id = particao.porEmail.buscar(IndicePrimitivo.hash(email), candidato -> temEmail(candidato, email));
+        if (id == IndicePrimitivo.AUSENTE) {
+            return null;
+        }
+        Usuario usuario = aguardar(id);
+        return usuario == REMOVIDO ? null : usuario;
+    }
+
+    @Override
+    public Usuario buscarPorId(int id) {
+        if (id < 0) {
+            return null;
+        }
+        Particao particao = particoes[id % particoes.length];
+        int posicao = id / particoes.length;
+        if (posicao >= particao.proximaPosicao.get()) {
+            return null;
+        }
+        Usuario usuario = particao.segmento(posicao).get(posicao & MASCARA_SEGMENTO);
+        return usuario == REMOVIDO ? null : usuario;
+    }
+
+    @Override
+    public boolean remover(Usuario usuario) {
+        int id = usuario.getIdInterno();
+        if (id < 0 || !indiceDoEmail(usuario.getEmail()).remover(IndicePrimitivo.hash(usuario.getEmail()), id)) {
+            return false;
+        }
+        int posicao = id / particoes.length;
+        particoes[id % particoes.length].segmento(posicao).set(posicao & MASCARA_SEGMENTO, REMOVIDO);
+        quantidade.decrement();
+        return true;
+    }
+
+    @Override
+    public boolean reindexarEmail(Usuario usuario, String emailAnterior, String emailNovo) {
+        if (emailNovo.equals(emailAnterior)) {
+            return true;
+        }
+        int id = usuario.getIdInterno();
+        int dono = indiceDoEmail(emailNovo).inserirSeAusente(IndicePrimitivo.hash(emailNovo), id,
+                                                             outro -> outro == id || temEmail(outro, emailNovo));
+        if (dono != IndicePrimitivo.AUSENTE && dono != id) {
+            return false;
+        }
+        indiceDoEmail(emailAnterior).remover(IndicePrimitivo.hash(emailAnterior), id);
+        return true;
+    }
+
+    @Override
+    public long tamanho() {
+        return quantidade.sum();
+    }
+
+    @Override
+    public List<Usuario> listarDesde(int desdeId, int limite) {
+        int n = particoes.length;
+        int[] fins = new int[n];
+        long fimIds = 0;
+        for (int p = 0; p < n; p++) {
+            fins[p] = particoes[p].ocupadas(maximoPosicoes);
+            fimIds = Math.max(fimIds, (long) fins[p] * n);
+        }
+
+        List<Usuario> pagina = new ArrayList<>(Math.min(limite, 1024));
+        for (long id = Math.max(desdeId, 0); id < fimIds && pagina.size() < limite; id++) {
+            int p = (int) (id % n);
+            int posicao = (int) (id / n);
+            if (posicao < fins[p]) {
+                Usuario usuario = particoes[p].aguardar(posicao);
+                if (usuario != REMOVIDO) {
+                    pagina.add(usuario);
+                }
+            }
+        }
+        return pagina;
+    }
+
+    @Override
+    public List<Usuario> instantaneo() {
+        return listarDesde(0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Cópia dos usuários guardados na partição 'p', na ordem de inserção
+     */
+    List<Usuario> instantaneo(int p) {
+        Particao particao = particoes[p];
+        int fim = particao.ocupadas(maximoPosicoes);
+        List<Usuario> copia = new ArrayList<>(fim);
+        for (int posicao = 0; posicao < fim; posicao++) {
+            Usuario usuario = particao.aguardar(posicao);
+            if (usuario != REMOVIDO) {
+                copia.add(usuario);
+            }
+        }
+        return copia;
+    }
+
+    /**
+     * Quantidade de partições e o equilíbrio entre elas
+     */
+    String descrever() {
+        int menor = Integer.MAX_VALUE;
+        int maior = 0;
+        for (Particao particao : particoes) {
+            int posicoes = particao.ocupadas(maximoPosicoes);
+            menor = Math.min(menor, posicoes);
+            maior = Math.max(maior, posicoes);
+        }
+        return particoes.length + " partições, de " + menor + " a " + maior + " usuários cada";
+    }
+
+    private IndicePrimitivo indiceDoEmail(String email) {
+        return particoes[particao(email, particoes.length)].porEmail;
+    }
+
+    /**
+     * Confirma um candidato do índice de emails
+     */
+    private boolean temEmail(int id, String email) {
+        Usuario usuario = aguardar(id);
+        return usuario != REMOVIDO && email.equals(usuario.getEmail());
+    }
+
+    private Usuario aguardar(int id) {
+        return particoes[id % particoes.length].aguardar(id / particoes.length);
+    }
+}
@@ -0,0 +1,342 @@
+package cadastro;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Repositório da carga sob demanda (-Dcadastro.recuperacao.modo=sobdemanda)
+ *
+ * Os usuários do instantâneo ficam em 'usuarios.bin', mapeado, e só viram
+ * objetos Usuario quando uma busca ou listagem os alcança pela primeira
+ * vez. O identificador interno de um usuário do instantâneo é o número do
+ * registro no binário; os cadastros novos recebem identificadores a partir
+ * da quantidade do instantâneo, como num RepositorioConcorrente.
+ *
+ * - Usuários: vetor segmentado indexado pelo identificador, como no
+ *   RepositorioConcorrente; uma posição vazia abaixo da quantidade do
+ *   instantâneo é um registro ainda não materializado, preenchido com
+ *   compareAndSet (duas threads que o leiam juntas recebem o mesmo objeto)
+ * - Email: o IndiceColunar responde pelos emails do instantâneo e um
+ *   IndicePrimitivo pelos cadastros novos e pelos emails alterados. Um
+ *   candidato do instantâneo só vale se o usuário, já materializado, ainda
+ *   tiver aquele email
+ *
+ * Usuários materializados ficam em memória: o aquecimento (aquecer()) pode
+ * materializar todos em segundo plano, e a partir daí o repositório se
+ * comporta como o RepositorioConcorrente. Os usuários do instantâneo recebem
+ * o ouvinte ao serem materializados, o que os cadastros novos recebem ao
+ * serem inseridos.
+ */
+class RepositorioSobDemanda implements RepositorioUsuarios, Closeable {
+
+    private static final int BITS_SEGMENTO = 14;
+    private static final int TAMANHO_SEGMENTO = 1 << BITS_SEGMENTO;
+    private static final int MASCARA_SEGMENTO = TAMANHO_SEGMENTO - 1;
+    private static final int MAXIMO_SEGMENTOS = 1 << (31 - BITS_SEGMENTO);
+
+    // Marca as posições de usuários removidos
+    private static final Usuario REMOVIDO = new Usuario();
+
+    private final ArquivoColunar.Leitor leitor;
+    private final IndiceColunar indice;
+    private final OuvinteUsuario ouvinte;
+    private final int base;
+    private final IndicePrimitivo porEmail = new IndicePrimitivo();
+    private final AtomicReferenceArray<AtomicReferenceArray<Usuario>> segmentos =
+            new AtomicReferenceArray<>(MAXIMO_SEGMENTOS);
+    private final AtomicInteger proximoId;
+    private final LongAdder quantidade = new LongAdder();
+    private final LongAdder materializados = new LongAdder();
+    private volatile boolean fechado;
+
+    /**
+     * @param ouvinte recebe as alterações feitas nos usuários materializados
+     */
+    RepositorioSobDemanda(ArquivoColunar.Leitor leitor, IndiceColunar indice, OuvinteUsuario ouvinte) {
+        this.leitor = leitor;
+        this.indice = indice;
+        this.ouvinte = ouvinte;
+        this.base = leitor.n;
+        this.proximoId = new AtomicInteger(base);
+        quantidade.add(base);
+    }
+
+    @Override
+    public int inserir(Usuario usuario) {
+        String email = usuario.getEmail();
+        long chave = IndicePrimitivo.hash(email);
+        if (porEmail.buscar(chave, id -> temEmail(id, email)) != IndicePrimitivo.AUSENTE
+                || donoNaBase(email) >= 0) {
+            return -1;
+        }
+        int id = proximoId.getAndIncrement();
+        if (id < 0) {
+            throw new IllegalStateException("Capacidade máxima do repositório atingida");
+        }
+        if (porEmail.inserirSeAusente(chave, id, outro -> temEmail(outro, email)) != IndicePrimitivo.AUSENTE) {
+            // Outra thread cadastrou o mesmo email entre a busca e a inserção
+            segmento(id).set(id & MASCARA_SEGMENTO, REMOVIDO);
+            return -1;
+        }
+        usuario.setIdInterno(id);
+        segmento(id).set(id & MASCARA_SEGMENTO, usuario);
+        quantidade.increment();
+        return id;
+    }
+
+    @Override
+    public Usuario buscarPorEmail(String email) {
+        int id = porEmail.buscar(IndicePrimitivo.hash(email), candidato -> temEmail(candidato, email));
+        if (id == IndicePrimitivo.AUSENTE) {
+            id = donoNaBase(email);
+            if (id < 0) {
+                return null;
+            }
+        }
+        return buscarPorId(id);
+    }
+
+    @Override
+    public Usuario buscarPorId(int id) {
+        if (id < 0 || id >= proximoId.get()) {
+            return null;
+        }
+        Usuario usuario = id < base ? materializar(id) : aguardarPosicao(id);
+        return usuario == REMOVIDO ? null : usuario;
+    }
+
+    @Override
+    public boolean remover(Usuario usuario) {
+        int id = usuario.getIdInterno();
+        if (id < 0 || id >= proximoId.get() || !segmento(id).compareAndSet(id & MASCARA_SEGMENTO, usuario, REMOVIDO)) {
+            return false;
+        }
+        porEmail.remover(IndicePrimitivo.hash(usuario.getEmail()), id);
+        quantidade.decrement();
+        return true;
+    }
+
+    @Override
+    public boolean reindexarEmail(Usuario usuario, String emailAnterior, String emailNovo) {
+        if (emailNovo.equals(emailAnterior)) {
+            return true;
+        }
+        int id = usuario.getIdInterno();
+        int naBase = donoNaBase(emailNovo);
+        if (naBase >= 0 && naBase != id) {
+            return false;
+        }
+        int dono = porEmail.inserirSeAusente(IndicePrimitivo.hash(emailNovo), id,
+                                             outro -> outro == id || temEmail(outro, emailNovo));
+        if (dono != IndicePrimitivo.AUSENTE && dono != id) {
+            return false;
+        }
+        // O email anterior de um usuário do instantâneo continua no
+        // IndiceColunar, mas deixa de valer (ver donoNaBase)
+        porEmail.remover(IndicePrimitivo.hash(emailAnterior), id);
+        return true;
+    }
+
+    @Override
+    public long tamanho() {
+        return quantidade.sum();
+    }
+
+    @Override
+    public List<Usuario> listarDesde(int desdeId, int limite) {
+        int fim = proximoId.get();
+        List<Usuario> pagina = new ArrayList<>(Math.min(limite, 1024));
+        for (int id = Math.max(desdeId, 0); id < fim && pagina.size() < limite; id++) {
+            Usuario usuario = id < base ? materializar(id) : aguardarPosicao(id);
+            if (usuario != REMOVIDO) {
+                pagina.add(usuario);
+            }
+        }
+        return pagina;
+    }
+
+    /**
+     * Vista dos usuários na ordem dos identificadores
+     *
+     * Usuários do instantâneo ainda não materializados são decodificados a
+     * cada get(), sem ficar em memória: gravar o instantâneo ou varrer o
+     * cadastro não materializa todos. Essas cópias não têm ouvinte e servem
+     * apenas para leitura.
+     */
+    @Override
+    public List<Usuario> instantaneo() {
+        int limite = proximoId.get();
+        int capacidade = (int) Math.min(limite, quantidade.sum() + 16);
+        int[] ids = new int[capacidade];
+        Usuario[] usuarios = new Usuario[capacidade];
+        int total = 0;
+        for (int id = 0; id < limite; id++) {
+            Usuario usuario = id < base ? naPosicao(id) : aguardarPosicao(id);
+            if (usuario != REMOVIDO) {
+                if (total == ids.length) {
+                    ids = Arrays.copyOf(ids, total * 2 + 16);
+                    usuarios = Arrays.copyOf(usuarios, ids.length);
+                }
+                ids[total] = id;
+                usuarios[total++] = usuario;
+            }
+        }
+        return new Vista(ids, usuarios, total);
+    }
+
+    /**
+     * Materializa, em ordem, todos os usuários do instantâneo
+     *
+     * Chamado por uma thread de segundo plano (cadastro.recuperacao.aquecer);
+     * para quando o repositório é fechado.
+     */
+    void aquecer() {
+        byte[] temporario = new byte[256];
+        for (int id = 0; id < base && !fechado; id++) {
+            AtomicReferenceArray<Usuario> segmento = segmento(id);
+            if (segmento.get(id & MASCARA_SEGMENTO) == null) {
+                guardar(segmento, id, leitor.ler(id, temporario));
+            }
+        }
+    }
+
+    /**
+     * Quantos usuários do instantâneo já foram materializados
+     */
+    long getMaterializados() {
+        return materializados.sum();
+    }
+
+    String descrever() {
+        return String.format("sob demanda, %d de %d usuário(s) do instantâneo materializado(s)",
+                             materializados.sum(), base);
+    }
+
+    @Override
+    public void close() throws IOException {
+        fechado = true;
+        try {
+            indice.close();
+        } finally {
+            leitor.close();
+        }
+    }
+
+    /**
+     * Usuário do instantâneo que ainda tem o email, ou -1
+     */
+    private int donoNaBase(String email) {
+        int id = indice.buscarEmail(email);
+        if (id < 0) {
+            return -1;
+        }
+        Usuario atual = naPosicao(id);
+        if (atual == null) {
+            return id;     // não materializado: igual ao binário
+        }
+        return atual != REMOVIDO && email.equals(atual.getEmail()) ? id : -1;
+    }
+
+    /**
+     * Confirma um candidato do índice de emails
+     */
+    private boolean temEmail(int id, String email) {
+        Usuario usuario = id < base ? materializar(id) : aguardarPosicao(id);
+        return usuario != REMOVIDO && email.equals(usuario.getEmail());
+    }
+
+    private Usuario materializar(int id) {
+        AtomicReferenceArray<Usuario> segmento = segmento(id);
+        Usuario usuario = segmento.get(id & MASCARA_SEGMENTO);
+        return usuario != null ? usuario : guardar(segmento, id, leitor.ler(id));
+    }
+
+    /**
+     * @return o usuário que ficou na posição: 'lido' ou o de outra thread
+     */
+    private Usuario guardar(AtomicReferenceArray<Usuario> segmento, int id, Usuario lido) {
+        lido.setIdInterno(id);
+        lido.setOuvinte(ouvinte);
+        if (segmento.compareAndSet(id & MASCARA_SEGMENTO, null, lido)) {
+            materializados.increment();
+            return lido;
+        }
+        return segmento.get(id & MASCARA_SEGMENTO);
+    }
+
+    private Usuario aguardarPosicao(int id) {
+        AtomicReferenceArray<Usuario> segmento = segmento(id);
+        Usuario usuario = segmento.get(id & MASCARA_SEGMENTO);
+        while (usuario == null) {
+            // Posição reservada por uma inserção ainda em andamento
+            Thread.yield();
+            usuario = segmento.get(id & MASCARA_SEGMENTO);
+        }
+        return usuario;
+    }
+
+    /**
+     * Conteúdo da posição, sem criar o segmento (null se vazia)
+     */
+    private Usuario naPosicao(int id) {
+        AtomicReferenceArray<Usuario> segmento = segmentos.get(id >>> BITS_SEGMENTO);
+        return segmento == null ? null : segmento.get(id & MASCARA_SEGMENTO);
+    }
+
+    private AtomicReferenceArray<Usuario> segmento(int id) {
+        int indice = id >>> BITS_SEGMENTO;
+        AtomicReferenceArray<Usuario> segmento = segmentos.get(indice);
+        if (segmento == null) {
+            segmentos.compareAndSet(indice, null, new AtomicReferenceArray<>(TAMANHO_SEGMENTO));
+            segmento = segmentos.get(indice);
+        }
+        return segmento;
+    }
+
+    /**
+     * Lista de leitura sobre os usuários existentes no instantâneo(): os já
+     * materializados naquele momento e os identificadores dos demais
+     */
+    private final class Vista extends AbstractList<Usuario> implements RandomAccess {
+
+        private final int[] ids;
+        private final Usuario[] usuarios;
+        private final int total;
+
+        Vista(int[] ids, Usuario[] usuarios, int total) {
+            this.ids = ids;
+            this.usuarios = usuarios;
+            this.total = total;
+        }
+
+        @Override
+        public Usuario get(int indice) {
+            if (indice < 0 || indice >= total) {
+                throw new IndexOutOfBoundsException("Índice: " + indice + ", tamanho: " + total);
+            }
+            Usuario usuario = usuarios[indice];
+            if (usuario == null) {
+                // Pode ter sido materializado depois; senão, uma cópia do binário
+                usuario = naPosicao(ids[indice]);
+                if (usuario == null || usuario == REMOVIDO) {
+                    usuario = leitor.ler(ids[indice]);
+                    usuario.setIdInterno(ids[indice]);
+                }
+            }
+            return usuario;
+        }
+
+        @Override
+        public int size() {
+            return total;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package cadastro;
+
+import java.util.List;
+
+/**
+ * Armazenamento dos usuários cadastrados
+ *
+ * Abstrai onde e como os usuários ficam guardados. Cada usuário recebe um
+ * identificador interno (posição de inserção) e o email é a chave única: a
+ * verificação de duplicidade faz parte da própria inserção.
+ */
+interface RepositorioUsuarios {
+
+    /**
+     * Insere o usuário se o email ainda não estiver cadastrado
+     *
+     * @return identificador interno (>= 0), ou -1 se o email já existe
+     */
+    int inserir(Usuario usuario);
+
+    Usuario buscarPorEmail(String email);
+
+    /**
+     * @return o usuário com o identificador, ou null se não existe ou foi removido
+     */
+    Usuario buscarPorId(int id);
+
+    /**
+     * @return true se o usuário estava cadastrado e foi removido
+     */
+    boolean remover(Usuario usuario);
+
+    /**
+     * Move o usuário da chave do email anterior para a do novo email
+     *
+     * @return false se o novo email pertence a outro usuário; nada é alterado
+     */
+    boolean reindexarEmail(Usuario usuario, String emailAnterior, String emailNovo);
+
+    /**
+     * Registra os dados atuais do usuário depois de uma alteração aceita
+     *
+     * Repositórios que guardam o próprio objeto não precisam fazer nada;
+     * os que guardam cópias dos campos os atualizam aqui.
+     */
+    default void gravarAlteracao(Usuario usuario) {
+    }
+
+    long tamanho();
+
+    /**
+     * Página de usuários na ordem de inserção, a partir de um identificador
+     *
+     * @param desdeId primeiro identificador considerado (o da página seguinte
+     *        é o identificador interno do último usuário devolvido + 1)
+     */
+    List<Usuario> listarDesde(int desdeId, int limite);
+
+    /**
+     * Cópia dos usuários na ordem de inserção, segura para percorrer enquanto
+     * outras threads continuam inserindo
+     */
+    List<Usuario> instantaneo();
+}
@@ -0,0 +1,533 @@
+package cadastro;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Servidor HTTP com as operações do cadastro em JSON
+ *
+ * Usa o servidor embutido do JDK (com.sun.net.httpserver). Cada requisição é
+ * atendida por uma thread virtual quando o JDK oferece (21+); em JDKs
+ * anteriores, por um pool de threads comuns que cresce sob demanda.
+ *
+ * Rotas:
+ *   POST /usuarios                      cadastra (corpo: nome, email, idade, cpf)
+ *   GET  /usuarios?email=X              busca por email
+ *   GET  /usuarios?desde=N&limite=M     página na ordem de cadastro
+ *   GET  /estatisticas                  agregados do cadastro
+ *   GET  /consultas?q=CONSULTA          filtros e agregados (ver Consulta)
+ *   GET  /eventos?desde=N&limite=M&espera=MS
+ *                                       eventos de alteração a partir da
+ *                                       sequência N, esperando até MS ms
+ *                                       se ainda não houver (ver FluxoEventos)
+ *   POST /salvar                        confirma o diário (e compacta)
+ *   POST /carregar                      carrega 'usuarios.txt'
+ *
+ * As conexões são mantidas abertas entre requisições (keep-alive): toda
+ * resposta tem tamanho conhecido e o corpo da requisição é sempre lido até o
+ * fim; TCP_NODELAY vem ligado. Corpos acima de 'cadastro.http.limiteCorpo' bytes (padrão 16 KB) são
+ * recusados com 413 sem serem lidos, e a conexão é fechada.
+ */
+class ServidorCadastro {
+
+    static final int PORTA_PADRAO = 8080;
+
+    private static final int LIMITE_CORPO = Integer.getInteger("cadastro.http.limiteCorpo", 16 * 1024);
+    private static final int LIMITE_URI = 2048;
+    private static final int LIMITE_PAGINA = 1000;
+    private static final int PAGINA_PADRAO = 100;
+    private static final int ESPERA_MAXIMA_EVENTOS = 30_000;   // ms
+
+    /**
+     * Resposta de uma rota: código HTTP e corpo JSON
+     */
+    private static final class Resposta {
+        final int codigo;
+        final String corpo;
+
+        Resposta(int codigo, String corpo) {
+            this.codigo = codigo;
+            this.corpo = corpo;
+        }
+    }
+
+    /**
+     * Erro de requisição com o código HTTP a devolver
+     */
+    private static final class ErroRequisicao extends Exception {
+        final int codigo;
+
+        ErroRequisicao(int codigo, String mensagem) {
+            super(mensagem);
+            this.codigo = codigo;
+        }
+    }
+
+    /**
+     * Inicia o servidor e bloqueia até o processo ser encerrado
+     *
+     * @param aoEncerrar executado ao encerrar, depois de parar o servidor
+     */
+    static void executar(int porta, Runnable aoEncerrar) throws IOException {
+        // Sem o algoritmo de Nagle: respostas pequenas não esperam o ACK atrasado
+        // do cliente (lido pelo JDK na criação do primeiro servidor)
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+        HttpServer servidor = HttpServer.create(new InetSocketAddress(porta), 256);
+        ExecutorService executor = criarExecutor();
+        servidor.setExecutor(executor);
+
+        servidor.createContext("/usuarios", troca -> atender(troca, ServidorCadastro::rotaUsuarios));
+        servidor.createContext("/estatisticas", troca -> atender(troca, ServidorCadastro::rotaEstatisticas));
+        servidor.createContext("/consultas", troca -> atender(troca, ServidorCadastro::rotaConsultas));
+        servidor.createContext("/eventos", troca -> atender(troca, ServidorCadastro::rotaEventos));
+        servidor.createContext("/salvar", troca -> atender(troca, ServidorCadastro::rotaSalvar));
+        servidor.createContext("/carregar", troca -> atender(troca, ServidorCadastro::rotaCarregar));
+        servidor.createContext("/", troca -> atender(troca, t -> {
+            throw new ErroRequisicao(404, "Rota inexistente: " + t.getRequestURI().getPath());
+        }));
+
+        CountDownLatch encerrado = new CountDownLatch(1);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            servidor.stop(1);
+            executor.shutdown();
+            aoEncerrar.run();
+            encerrado.countDown();
+        }, "servidor-encerramento"));
+
+        servidor.start();
+        System.out.printf("Servidor HTTP na porta %d (%s). Ctrl+C encerra.%n",
+                          servidor.getAddress().getPort(), descreverExecutor(executor));
+        try {
+            encerrado.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Uma thread virtual por requisição (JDK 21+), via reflexão para o código
+     * continuar compilando para Java 8
+     */
+    static ExecutorService criarExecutor() {
+        try {
+            Method fabrica = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) fabrica.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            AtomicInteger contador = new AtomicInteger();
+            return Executors.newCachedThreadPool(tarefa -> {
+                Thread thread = new Thread(tarefa, "http-" + contador.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    private static String descreverExecutor(ExecutorService executor) {
+        return executor.getClass().getName().contains("ThreadPerTask")
+                ? "threads virtuais" : "pool de threads";
+    }
+
+    // ========================================
+    // ROTAS
+    // ========================================
+
+    private interface Rota {
+        Resposta atender(HttpExchange troca) throws IOException, ErroRequisicao;
+    }
+
+    private static Resposta rotaUsuarios(HttpExchange troca) throws IOException, ErroRequisicao {
+        String metodo = troca.getRequestMethod();
+        if (metodo.equals("POST")) {
+            return cadastrar(troca);
+        }
+        if (!metodo.equals("GET")) {
+            throw new ErroRequisicao(405, "Método não permitido: " + metodo);
+        }
+        Map<String, String> parametros = lerParametros(troca.getRequestURI().getRawQuery());
+        String email = parametros.get("email");
+        if (email != null) {
+            Usuario usuario = SistemaCadastro.buscarPorEmail(email);
+            if (usuario == null) {
+                throw new ErroRequisicao(404, "Usuário não encontrado: " + email);
+            }
+            return new Resposta(200, Json.escreverUsuario(new StringBuilder(), usuario).toString());
+        }
+        return listar(parametros);
+    }
+
+    private static Resposta cadastrar(HttpExchange troca) throws IOException, ErroRequisicao {
+        Map<String, Object> campos;
+        try {
+            campos = Json.lerObjeto(lerCorpo(troca));
+        } catch (IllegalArgumentException e) {
+            throw new ErroRequisicao(400, e.getMessage());
+        }
+        String nome = campoTexto(campos, "nome");
+        String email = campoTexto(campos, "email");
+        String cpf = campoTexto(campos, "cpf");
+        Object idade = campos.get("idade");
+        if (!(idade instanceof Long) || (Long) idade < 1 || (Long) idade > EstatisticasUsuarios.IDADE_MAXIMA) {
+            throw new ErroRequisicao(400, "Campo 'idade' deve ser um inteiro entre 1 e "
+                                          + EstatisticasUsuarios.IDADE_MAXIMA);
+        }
+        if (nome.trim().isEmpty()) {
+            throw new ErroRequisicao(400, "Campo 'nome' vazio");
+        }
+
+        try {
+            Usuario usuario = SistemaCadastro.cadastrar(nome.trim(), email, ((Long) idade).intValue(), cpf);
+            return new Resposta(201, Json.escreverUsuario(new StringBuilder(), usuario).toString());
+        } catch (CadastroDuplicado e) {
+            throw new ErroRequisicao(409, e.getMessage());
+        } catch (IllegalArgumentException e) {
+            throw new ErroRequisicao(400, e.getMessage());
+        }
+    }
+
+    private static Resposta listar(Map<String, String> parametros) throws ErroRequisicao {
+        int desde = lerInteiro(parametros, "desde", 0);
+        int limite = Math.min(lerInteiro(parametros, "limite", PAGINA_PADRAO), LIMITE_PAGINA);
+
+        List<Usuario> pagina = SistemaCadastro.listarDesde(desde, limite);
+        StringBuilder json = new StringBuilder(pagina.size() * 160 + 64);
+        json.append("{\"usuarios\":[");
+        for (int i = 0; i < pagina.size(); i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            Json.escreverUsuario(json, pagina.get(i));
+        }
+        json.append("],\"proximo\":");
+        if (pagina.size() < limite || pagina.isEmpty()) {
+            json.append("null");
+        } else {
+            json.append(pagina.get(pagina.size() - 1).getIdInterno() + 1);
+        }
+        return new Resposta(200, json.append('}').toString());
+    }
+
+    private static Resposta rotaEstatisticas(HttpExchange troca) throws ErroRequisicao {
+        exigirMetodo(troca, "GET");
+        EstatisticasUsuarios estatisticas = SistemaCadastro.getEstatisticas();
+        long quantidade = estatisticas.getQuantidade();
+
+        StringBuilder json = new StringBuilder(256);
+        json.append("{\"total\":").append(quantidade);
+        json.append(",\"mediaIdade\":").append(estatisticas.getMediaIdade());
+        if (quantidade > 0) {
+            json.append(",\"idadeMinima\":").append(estatisticas.getIdadeMinima());
+            json.append(",\"idadeMaxima\":").append(estatisticas.getIdadeMaxima());
+        }
+        json.append(",\"porTipo\":{");
+        boolean primeiro = true;
+        for (Map.Entry<String, Long> tipo : estatisticas.getContagensPorTipo().entrySet()) {
+            if (!primeiro) {
+                json.append(',');
+            }
+            Json.escreverTexto(json, tipo.getKey()).append(':').append(tipo.getValue());
+            primeiro = false;
+        }
+        json.append("},\"dominiosDistintos\":").append(estatisticas.getQuantidadeDominios());
+
+        // Métricas das operações (latências em microssegundos)
+        json.append(",\"operacoes\":{");
+        for (int i = 0; i < Metricas.TODAS.length; i++) {
+            MetricaOperacao metrica = Metricas.TODAS[i];
+            if (i > 0) {
+                json.append(',');
+            }
+            Json.escreverTexto(json, metrica.getNome());
+            json.append(":{\"contagem\":").append(metrica.getContagem());
+            json.append(",\"taxaSucesso\":").append(metrica.getTaxaSucesso());
+            json.append(",\"p50\":").append(metrica.getP50Micros());
+            json.append(",\"p99\":").append(metrica.getP99Micros());
+            json.append(",\"p999\":").append(metrica.getP999Micros()).append('}');
+        }
+        return new Resposta(200, json.append("}}").toString());
+    }
+
+    private static Resposta rotaConsultas(HttpExchange troca) throws ErroRequisicao {
+        exigirMetodo(troca, "GET");
+        String texto = lerParametros(troca.getRequestURI().getRawQuery()).get("q");
+        Consulta consulta;
+        try {
+            consulta = Consulta.interpretar(texto == null ? "" : texto);
+        } catch (IllegalArgumentException e) {
+            throw new ErroRequisicao(400, e.getMessage());
+        }
+        if (consulta.getLimite() > LIMITE_PAGINA) {
+            throw new ErroRequisicao(400, "listar aceita no máximo " + LIMITE_PAGINA + " usuários");
+        }
+        MotorConsultas.Resultado resultado = SistemaCadastro.consultar(consulta);
+
+        StringBuilder json = new StringBuilder(256 + resultado.getUsuarios().size() * 160);
+        json.append("{\"plano\":");
+        Json.escreverTexto(json, resultado.getPlano().toString());
+        escreverAgregado(json.append(','), resultado.getTotal());
+        json.append(",\"grupos\":[");
+        boolean primeiro = true;
+        for (Map.Entry<Comparable<?>, MotorConsultas.Agregado> grupo : resultado.getGrupos().entrySet()) {
+            if (!primeiro) {
+                json.append(',');
+            }
+            json.append("{\"chave\":");
+            if (grupo.getKey() instanceof Integer) {
+                json.append(grupo.getKey());
+            } else {
+                Json.escreverTexto(json, grupo.getKey().toString());
+            }
+            escreverAgregado(json.append(','), grupo.getValue()).append('}');
+            primeiro = false;
+        }
+        json.append("],\"usuarios\":[");
+        for (int i = 0; i < resultado.getUsuarios().size(); i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            Json.escreverUsuario(json, resultado.getUsuarios().get(i));
+        }
+        return new Resposta(200, json.append("]}").toString());
+    }
+
+    private static StringBuilder escreverAgregado(StringBuilder json, MotorConsultas.Agregado agregado) {
+        json.append("\"total\":").append(agregado.getQuantidade());
+        json.append(",\"mediaIdade\":").append(agregado.getMedia());
+        if (agregado.getQuantidade() > 0) {
+            json.append(",\"idadeMinima\":").append(agregado.getMinimo());
+            json.append(",\"idadeMaxima\":").append(agregado.getMaximo());
+        }
+        return json;
+    }
+
+    private static Resposta rotaEventos(HttpExchange troca) throws ErroRequisicao {
+        exigirMetodo(troca, "GET");
+        Map<String, String> parametros = lerParametros(troca.getRequestURI().getRawQuery());
+        FluxoEventos eventos = SistemaCadastro.getEventos();
+        long desde = lerLong(parametros, "desde", eventos.getPrimeiraDisponivel());
+        int limite = Math.min(lerInteiro(parametros, "limite", PAGINA_PADRAO), LIMITE_PAGINA);
+        int espera = Math.min(lerInteiro(parametros, "espera", 0), ESPERA_MAXIMA_EVENTOS);
+
+        StringBuilder json = new StringBuilder(limite * 160 + 64);
+        json.append("{\"eventos\":[");
+        try (FluxoEventos.Assinante assinante = eventos.assinar(desde, FluxoEventos.Espera.BLOQUEANTE)) {
+            assinante.aguardar(evento -> escreverEvento(json, evento), limite, espera, TimeUnit.MILLISECONDS);
+            json.append("],\"proximo\":").append(assinante.getProxima());
+        } catch (FluxoEventos.EventosPerdidos e) {
+            // Só o que ainda está no anel: recomeçar pela primeira disponível
+            throw new ErroRequisicao(410, e.getMessage());
+        } catch (IllegalArgumentException e) {
+            throw new ErroRequisicao(400, e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ErroRequisicao(503, "Espera interrompida");
+        }
+        return new Resposta(200, json.append('}').toString());
+    }
+
+    private static void escreverEvento(StringBuilder json, FluxoEventos.Evento evento) {
+        if (json.charAt(json.length() - 1) != '[') {
+            json.append(',');
+        }
+        json.append("{\"sequencia\":").append(evento.getSequencia());
+        json.append(",\"tipo\":");
+        Json.escreverTexto(json, evento.getTipo().name().toLowerCase());
+        json.append(",\"instante\":").append(evento.getInstante());
+        json.append(",\"nome\":");
+        Json.escreverTexto(json, evento.getNome());
+        json.append(",\"email\":");
+        Json.escreverTexto(json, evento.getEmail());
+        json.append(",\"idade\":").append(evento.getIdade());
+        json.append(",\"cpf\":");
+        Json.escreverTexto(json, evento.getCpf());
+        if (evento.getTipo() == FluxoEventos.Tipo.ALTERACAO) {
+            json.append(",\"nomeAnterior\":");
+            Json.escreverTexto(json, evento.getNomeAnterior());
+            json.append(",\"emailAnterior\":");
+            Json.escreverTexto(json, evento.getEmailAnterior());
+            json.append(",\"idadeAnterior\":").append(evento.getIdadeAnterior());
+        }
+        json.append('}');
+    }
+
+    private static Resposta rotaSalvar(HttpExchange troca) throws IOException, ErroRequisicao {
+        exigirMetodo(troca, "POST");
+        lerCorpo(troca);
+        int confirmados = SistemaCadastro.salvar();
+        return new Resposta(200, "{\"confirmados\":" + confirmados + "}");
+    }
+
+    private static Resposta rotaCarregar(HttpExchange troca) throws IOException, ErroRequisicao {
+        exigirMetodo(troca, "POST");
+        lerCorpo(troca);
+        DeduplicacaoCarga deduplicacao = SistemaCadastro.novaDeduplicacao(Paths.get("usuarios.txt"),
+                                                                          DeduplicacaoCarga.BYTES_POR_LINHA_CSV);
+        CarregadorCSV.Resultado resultado = SistemaCadastro.carregar(deduplicacao);
+        return new Resposta(200, "{\"lidos\":" + resultado.lidos
+                                 + ",\"adicionados\":" + resultado.adicionados
+                                 + ",\"duplicados\":" + deduplicacao.getDuplicados()
+                                 + ",\"conflitos\":" + deduplicacao.getConflitos()
+                                 + ",\"substituidos\":" + deduplicacao.getSubstituidos()
+                                 + ",\"invalidas\":" + resultado.invalidas + "}");
+    }
+
+    // ========================================
+    // INFRAESTRUTURA
+    // ========================================
+
+    /**
+     * Executa a rota e envia a resposta; erros viram {"erro": "..."}
+     */
+    private static void atender(HttpExchange troca, Rota rota) {
+        Resposta resposta;
+        boolean fecharConexao = false;
+        try {
+            if (troca.getRequestURI().getRawPath().length()
+                + String.valueOf(troca.getRequestURI().getRawQuery()).length() > LIMITE_URI) {
+                throw new ErroRequisicao(414, "URI longa demais");
+            }
+            resposta = rota.atender(troca);
+        } catch (ErroRequisicao e) {
+            resposta = erro(e.codigo, e.getMessage());
+            // Corpo não lido: a conexão não pode ser reaproveitada
+            fecharConexao = e.codigo == 413;
+        } catch (IOException e) {
+            resposta = erro(500, "Erro de E/S: " + e.getMessage());
+        } catch (RuntimeException e) {
+            resposta = erro(500, "Erro interno: " + e);
+        }
+
+        try {
+            byte[] corpo = resposta.corpo.getBytes(StandardCharsets.UTF_8);
+            Headers cabecalhos = troca.getResponseHeaders();
+            cabecalhos.set("Content-Type", "application/json; charset=utf-8");
+            if (fecharConexao) {
+                cabecalhos.set("Connection", "close");
+            }
+            troca.sendResponseHeaders(resposta.codigo, corpo.length);
+            try (OutputStream saida = troca.getResponseBody()) {
+                saida.write(corpo);
+            }
+        } catch (IOException e) {
+            // Cliente desconectou: nada a responder
+        } finally {
+            troca.close();
+        }
+    }
+
+    private static Resposta erro(int codigo, String mensagem) {
+        StringBuilder json = new StringBuilder("{\"erro\":");
+        return new Resposta(codigo, Json.escreverTexto(json, mensagem).append('}').toString());
+    }
+
+    /**
+     * Lê o corpo inteiro, respeitando o limite de tamanho
+     */
+    private static String lerCorpo(HttpExchange troca) throws IOException, ErroRequisicao {
+        String declarado = troca.getRequestHeaders().getFirst("Content-Length");
+        if (declarado != null) {
+            long tamanho;
+            try {
+                tamanho = Long.parseLong(declarado.trim());
+            } catch (NumberFormatException e) {
+                throw new ErroRequisicao(400, "Content-Length inválido");
+            }
+            if (tamanho > LIMITE_CORPO) {
+                throw new ErroRequisicao(413, "Corpo maior que " + LIMITE_CORPO + " bytes");
+            }
+        }
+
+        // Sem Content-Length (chunked): lê até o limite e recusa o excedente
+        ByteArrayOutputStream corpo = new ByteArrayOutputStream(512);
+        byte[] buffer = new byte[4096];
+        try (InputStream entrada = troca.getRequestBody()) {
+            int lidos;
+            while ((lidos = entrada.read(buffer)) > 0) {
+                if (corpo.size() + lidos > LIMITE_CORPO) {
+                    throw new ErroRequisicao(413, "Corpo maior que " + LIMITE_CORPO + " bytes");
+                }
+                corpo.write(buffer, 0, lidos);
+            }
+        }
+        return new String(corpo.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static void exigirMetodo(HttpExchange troca, String metodo) throws ErroRequisicao {
+        if (!troca.getRequestMethod().equals(metodo)) {
+            throw new ErroRequisicao(405, "Método não permitido: " + troca.getRequestMethod());
+        }
+    }
+
+    private static String campoTexto(Map<String, Object> campos, String nome) throws ErroRequisicao {
+        Object valor = campos.get(nome);
+        if (!(valor instanceof String)) {
+            throw new ErroRequisicao(400, "Campo '" + nome + "' ausente ou não é texto");
+        }
+        return (String) valor;
+    }
+
+    private static int lerInteiro(Map<String, String> parametros, String nome, int padrao)
+            throws ErroRequisicao {
+        long numero = lerLong(parametros, nome, padrao);
+        if (numero > Integer.MAX_VALUE) {
+            throw new ErroRequisicao(400, "Parâmetro '" + nome + "' deve ser um inteiro >= 0");
+        }
+        return (int) numero;
+    }
+
+    private static long lerLong(Map<String, String> parametros, String nome, long padrao)
+            throws ErroRequisicao {
+        String valor = parametros.get(nome);
+        if (valor == null) {
+            return padrao;
+        }
+        try {
+            long numero = Long.parseLong(valor);
+            if (numero < 0) {
+                throw new NumberFormatException();
+            }
+            return numero;
+        } catch (NumberFormatException e) {
+            throw new ErroRequisicao(400, "Parâmetro '" + nome + "' deve ser um inteiro >= 0");
+        }
+    }
+
+    private static Map<String, String> lerParametros(String consulta) throws ErroRequisicao {
+        Map<String, String> parametros = new HashMap<>();
+        if (consulta == null || consulta.isEmpty()) {
+            return parametros;
+        }
+        try {
+            for (String par : consulta.split("&")) {
+                int igual = par.indexOf('=');
+                String chave = igual < 0 ? par : par.substring(0, igual);
+                String valor = igual < 0 ? "" : par.substring(igual + 1);
+                parametros.put(URLDecoder.decode(chave, "UTF-8"), URLDecoder.decode(valor, "UTF-8"));
+            }
+        } catch (UnsupportedEncodingException | IllegalArgumentException e) {
+            throw new ErroRequisicao(400, "Parâmetros inválidos: " + e.getMessage());
+        }
+        return parametros;
+    }
+}
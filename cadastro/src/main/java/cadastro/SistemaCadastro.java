@@ -0,0 +1,1775 @@
+package cadastro;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sistema Didático de Cadastro de Usuários
+ * 
+ * Este programa demonstra de forma prática e didática os principais conceitos
+ * da linguagem Java e paradigmas de programação, incluindo:
+ * - Tipos de dados primitivos e por referência
+ * - Orientação a Objetos (herança, polimorfismo, encapsulamento)
+ * - Estruturas de controle
+ * - Validação de dados (dígitos verificadores do CPF)
+ * - Entrada e saída de dados
+ * - Tratamento de exceções
+ * - Boas práticas de programação
+ * 
+ * @author Estudante de Programação
+ * @version 1.0
+ */
+public class SistemaCadastro {
+    
+    // ========================================
+    // 1. TIPOS DE DADOS PRIMITIVOS E POR REFERÊNCIA
+    // ========================================
+    
+    // Tipos primitivos como atributos da classe principal
+    private static volatile double mediaIdade = 0.0; // double: números decimais de precisão dupla
+    private static boolean sistemaAtivo = true;     // boolean: valores verdadeiro/falso
+    private static char categoriaSistema = 'A';     // char: caracteres únicos
+    private static byte versaoSistema = 1;          // byte: números inteiros pequenos (-128 a 127)
+    private static short maxUsuarios = 1000;        // short: números inteiros médios (-32,768 a 32,767)
+    private static long timestampInicio;            // long: números inteiros grandes
+    private static float taxaSucesso;               // float: números decimais de precisão simples
+    
+    // Tipos por referência
+    // Onde ficam os usuários: em memória (padrão), em colunas primitivas
+    // (-Dcadastro.armazenamento=compacto) ou num arquivo de páginas com cache
+    // limitada (-Dcadastro.armazenamento=paginado)
+    private static final String ARMAZENAMENTO = System.getProperty("cadastro.armazenamento", "memoria");
+    private static final long ORCAMENTO_CACHE = Long.getLong("cadastro.cache.bytes", 64L << 20);
+    private static volatile RepositorioUsuarios repositorio = novoRepositorio();
+    private static Scanner scanner = new Scanner(System.in);   // Scanner: entrada de dados
+    
+    // Agregados atualizados a cada inserção/alteração (consulta em tempo constante)
+    private static volatile EstatisticasUsuarios estatisticas = new EstatisticasUsuarios();
+    
+    // Índices secundários: CPF (único), prefixo do nome e faixa de idade
+    private static volatile IndicesUsuarios indices = new IndicesUsuarios(id -> repositorio.buscarPorId(id));
+    
+    // Eventos de inserção, alteração e remoção para outros componentes
+    // (anel pré-alocado de -Dcadastro.eventos.capacidade eventos)
+    private static final int CAPACIDADE_EVENTOS = Integer.getInteger("cadastro.eventos.capacidade", 1 << 16);
+    private static volatile FluxoEventos eventos = new FluxoEventos(CAPACIDADE_EVENTOS);
+    
+    // Persistência incremental: diário de alterações + instantâneo completo
+    private static Diario diario;
+    private static InstantaneoAutomatico instantaneos;
+    private static final int LIMITE_RESULTADOS = 50;
+    private static final int TAMANHO_PAGINA = Integer.getInteger("cadastro.listagem.pagina", 20);
+    
+    // Saída das listagens: um buffer de 64 KB esvaziado ao fim de cada página
+    private static final Writer saidaListagem =
+            new BufferedWriter(new OutputStreamWriter(System.out), 64 * 1024);
+    private static final long LIMITE_COMPACTACAO =
+            Long.getLong("cadastro.diario.compactarApos", 10_000L);
+    private static final long INTERVALO_INSTANTANEO =
+            Long.getLong("cadastro.instantaneo.intervalo", 300L);   // segundos; 0 desliga
+    // Formato do instantâneo: texto (usuarios.txt + usuarios.bin) ou comprimido
+    // (usuarios.blocos, ver ArquivoComprimido)
+    private static final String FORMATO_INSTANTANEO = formatoInstantaneo();
+    
+    // Recuperação no início: completa (todos os usuários em memória) ou
+    // sobdemanda ('usuarios.bin' mapeado, usuários lidos ao serem acessados,
+    // ver RepositorioSobDemanda), com aquecimento opcional em segundo plano
+    private static final boolean RECUPERACAO_SOB_DEMANDA = recuperacaoSobDemanda();
+    private static final boolean AQUECER = Boolean.getBoolean("cadastro.recuperacao.aquecer");
+    
+    // Conflitos de email ou CPF nas cargas em lote: primeiro, ultimo ou rejeitar
+    private static final DeduplicacaoCarga.Politica POLITICA_DUPLICADOS =
+            DeduplicacaoCarga.Politica.porNome(System.getProperty("cadastro.carga.duplicados", "primeiro"));
+    
+    /**
+     * Método principal que inicia o sistema
+     */
+    public static void main(String[] args) {
+        // Inicialização do timestamp
+        timestampInicio = System.currentTimeMillis();
+        
+        // Modo em lote: a saída padrão fica só com as respostas dos comandos;
+        // as demais mensagens vão para a saída de erros
+        boolean modoLote = args.length > 0 && args[0].equals("--lote");
+        if (modoLote) {
+            System.setOut(System.err);
+        }
+        
+        System.out.println("=== SISTEMA DIDÁTICO DE CADASTRO DE USUÁRIOS ===");
+        System.out.println("Demonstração dos conceitos de Java e Programação Orientada a Objetos\n");
+        
+        // Métricas das operações: JMX e, se configurado, relatório periódico
+        Metricas.registrarMBeans();
+        Metricas.iniciarDespejoPeriodico(Paths.get(System.getProperty("cadastro.metricas.arquivo", "metricas.txt")),
+                                         Long.getLong("cadastro.metricas.intervalo", 0));
+        
+        // Recupera o último instantâneo e reaplica o diário
+        recuperarDados();
+        
+        // Modo servidor: as mesmas operações expostas por HTTP, sem o menu
+        if (args.length > 0 && args[0].equals("--servidor")) {
+            int porta = args.length > 1 ? Integer.parseInt(args[1]) : ServidorCadastro.PORTA_PADRAO;
+            try {
+                ServidorCadastro.executar(porta, SistemaCadastro::encerrar);
+            } catch (IOException e) {
+                System.out.println("Erro ao iniciar o servidor: " + e.getMessage());
+                encerrar();
+            }
+            return;
+        }
+        
+        // Exportação/importação NDJSON sem o menu
+        if (args.length > 1 && args[0].equals("--exportar")) {
+            exportarNdjson(Paths.get(args[1]));
+            encerrar();
+            return;
+        }
+        if (args.length > 1 && args[0].equals("--importar")) {
+            importarNdjson(Paths.get(args[1]));
+            encerrar();
+            return;
+        }
+        
+        // Comandos lidos da entrada padrão ou de um arquivo, sem menu
+        if (modoLote) {
+            executarLote(args.length > 1 ? Paths.get(args[1]) : null);
+            encerrar();
+            return;
+        }
+        
+        // Troca do número de partições do instantâneo (com o sistema parado)
+        if (args.length > 1 && args[0].equals("--reparticionar")) {
+            reparticionar(Integer.parseInt(args[1]));
+            encerrar();
+            return;
+        }
+        
+        // ========================================
+        // 2. ESTRUTURAS DE CONTROLE - LOOPS E CONDIÇÕES
+        // ========================================
+        
+        // Loop principal do sistema usando while
+        while (sistemaAtivo) {
+            exibirMenu();
+            
+            // Estrutura condicional com if-else if-else
+            int opcao = lerInteiro("Escolha uma opção: ");
+            
+            if (opcao == 1) {
+                cadastrarUsuario();
+            } else if (opcao == 2) {
+                listarUsuarios();
+            } else if (opcao == 3) {
+                buscarUsuario();
+            } else if (opcao == 4) {
+                salvarDados();
+            } else if (opcao == 5) {
+                carregarDados();
+            } else if (opcao == 6) {
+                exibirEstatisticas();
+            } else if (opcao == 7) {
+                sistemaAtivo = false;
+                System.out.println("Sistema encerrado. Obrigado!");
+            } else {
+                System.out.println("Opção inválida! Tente novamente.");
+            }
+        }
+        
+        scanner.close();
+        encerrar();
+    }
+    
+    /**
+     * Exibe o menu principal usando switch expression (Java 14+)
+     */
+    private static void exibirMenu() {
+        // Cria string de separação compatível com Java 8+
+        String separador = "";
+        for (int i = 0; i < 50; i++) {
+            separador += "=";
+        }
+        
+        System.out.println("\n" + separador);
+        System.out.println("MENU PRINCIPAL");
+        System.out.println(separador);
+        
+        // Switch expression moderno (Java 14+)
+        String[] opcoes = {"", "Cadastrar Usuário", "Listar Usuários", "Buscar Usuário", 
+                          "Salvar Dados", "Carregar Dados", "Estatísticas", "Sair"};
+        
+        // Enhanced for loop (for-each)
+        for (int i = 1; i < opcoes.length; i++) {
+            System.out.printf("%d - %s%n", i, opcoes[i]);
+        }
+        
+        // Demonstração do switch tradicional
+        switch (categoriaSistema) {
+            case 'A':
+                System.out.println("Sistema: Categoria Avançada");
+                break;
+            case 'B':
+                System.out.println("Sistema: Categoria Básica");
+                break;
+            case 'C':
+                System.out.println("Sistema: Categoria Completa");
+                break;
+            default:
+                System.out.println("Sistema: Categoria Desconhecida");
+        }
+    }
+    
+    /**
+     * Cadastra um novo usuário com validação completa
+     */
+    private static void cadastrarUsuario() {
+        System.out.println("\n=== CADASTRO DE USUÁRIO ===");
+        
+        try {
+            // Leitura e validação dos dados
+            String nome = lerString("Nome completo: ");
+            String email = lerEmail("Email: ");
+            int idade = lerIdade("Idade: ");
+            String cpf = lerCPF("CPF (000.000.000-00 ou 00000000000): ");
+            
+            // Email e CPF já validados na leitura; a gravação no diário
+            // termina em segundo plano e só uma falha é avisada
+            Usuario usuario = Usuario.criar(nome, email, idade, cpf);
+            cadastrarValidado(usuario, System.nanoTime()).whenComplete((gravado, erro) -> {
+                if (erro != null) {
+                    System.out.println("Aviso: falha ao gravar no diário: " + erro.getMessage());
+                }
+            });
+            
+            System.out.println("Usuário cadastrado com sucesso!");
+            System.out.println("Tipo de usuário: " + usuario.getTipoUsuario());
+            
+        } catch (IllegalArgumentException e) {
+            System.out.println("Erro no cadastro: " + e.getMessage());
+        } catch (Exception e) {
+            System.out.println("Erro inesperado: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Lista os usuários em páginas, na ordem de cadastro
+     * 
+     * Cada página termina com um token (o identificador do próximo usuário):
+     * Enter segue para a página seguinte, digitar um token retoma a listagem
+     * a partir dele e 'q' encerra. Apenas uma página fica em memória.
+     */
+    private static void listarUsuarios() {
+        System.out.println("\n=== LISTA DE USUÁRIOS ===");
+        
+        int cursor = 0;
+        int pagina = 1;
+        while (true) {
+            // Um usuário a mais indica se há próxima página e qual é o token dela
+            List<Usuario> usuarios = repositorio.listarDesde(cursor, TAMANHO_PAGINA + 1);
+            if (usuarios.isEmpty()) {
+                System.out.println(cursor == 0 ? "Nenhum usuário cadastrado." : "Nenhum usuário a partir deste token.");
+                return;
+            }
+            
+            System.out.printf("--- Página %d ---%n", pagina);
+            escreverUsuarios(usuarios, TAMANHO_PAGINA);
+            
+            if (usuarios.size() <= TAMANHO_PAGINA) {
+                System.out.printf("Total de usuários: %d%n", repositorio.tamanho());
+                return;
+            }
+            int token = usuarios.get(TAMANHO_PAGINA).getIdInterno();
+            String resposta = lerString("[Enter] próxima página (token " + token + ") | token para retomar | q para sair: ");
+            if (resposta.equalsIgnoreCase("q")) {
+                return;
+            }
+            if (resposta.isEmpty()) {
+                cursor = token;
+                pagina++;
+            } else {
+                try {
+                    cursor = Integer.parseInt(resposta);
+                    pagina = 1;
+                } catch (NumberFormatException e) {
+                    System.out.println("Token inválido.");
+                    return;
+                }
+            }
+        }
+    }
+    
+    /**
+     * Escreve até 'limite' usuários pela saída bufferizada, um por linha
+     */
+    private static void escreverUsuarios(List<Usuario> usuarios, int limite) {
+        try {
+            for (int i = 0; i < usuarios.size() && i < limite; i++) {
+                FormatadorUsuario.escreverTexto(saidaListagem, usuarios.get(i));
+                saidaListagem.write(System.lineSeparator());
+            }
+            saidaListagem.flush();
+        } catch (IOException e) {
+            System.out.println("Erro ao exibir usuários: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Busca usuários por email, CPF, início do nome ou faixa de idade, ou
+     * executa uma consulta com filtros e agregados
+     */
+    private static void buscarUsuario() {
+        System.out.println("\n=== BUSCA DE USUÁRIO ===");
+        System.out.println("1 - Email | 2 - CPF | 3 - Início do nome | 4 - Faixa de idade | 5 - Consulta");
+        
+        int tipoBusca = lerInteiro("Buscar por: ");
+        
+        if (tipoBusca == 1) {
+            String email = lerEmail("Digite o email para buscar: ");
+            
+            // Busca pela chave única do repositório
+            Usuario usuario = buscarPorEmail(email);
+            if (usuario != null) {
+                System.out.println("Usuário encontrado:");
+                System.out.println(usuario.toString());
+            } else {
+                System.out.println("Usuário não encontrado.");
+            }
+        } else if (tipoBusca == 2) {
+            Usuario usuario = buscarPorCpf(lerString("Digite o CPF para buscar: "));
+            if (usuario != null) {
+                System.out.println("Usuário encontrado:");
+                System.out.println(usuario.toString());
+            } else {
+                System.out.println("Usuário não encontrado.");
+            }
+        } else if (tipoBusca == 3) {
+            String prefixo = lerString("Digite o início do nome: ");
+            exibirResultados(buscarPorPrefixoNome(prefixo, LIMITE_RESULTADOS + 1));
+        } else if (tipoBusca == 4) {
+            int de = lerInteiro("Idade mínima: ");
+            int ate = lerInteiro("Idade máxima: ");
+            exibirResultados(buscarPorFaixaIdade(de, ate, LIMITE_RESULTADOS + 1));
+            System.out.printf("Total na faixa: %d%n", estatisticas.contarFaixaIdade(de, ate));
+        } else if (tipoBusca == 5) {
+            System.out.println("Ex.: tipo=idoso e dominio=gmail.com agrupar mes listar 5");
+            System.out.println("Filtros: tipo=, idade=DE..ATE, dominio=, cpf=PREFIXO, cadastro=AAAA-MM-DD..AAAA-MM-DD");
+            try {
+                exibirConsulta(consultar(Consulta.interpretar(lerString("Consulta: "))));
+            } catch (IllegalArgumentException e) {
+                System.out.println("Consulta inválida: " + e.getMessage());
+            }
+        } else {
+            System.out.println("Opção de busca inválida.");
+        }
+    }
+    
+    private static void exibirConsulta(MotorConsultas.Resultado resultado) {
+        MotorConsultas.Agregado total = resultado.getTotal();
+        System.out.printf("Plano: %s, %.1f ms%n", resultado.getPlano(), resultado.getNanos() / 1e6);
+        System.out.printf("Usuários: %d | Média de idade: %.2f | Idade mínima: %d | Idade máxima: %d%n",
+                          total.getQuantidade(), total.getMedia(), total.getMinimo(), total.getMaximo());
+        for (Map.Entry<Comparable<?>, MotorConsultas.Agregado> grupo : resultado.getGrupos().entrySet()) {
+            MotorConsultas.Agregado agregado = grupo.getValue();
+            System.out.printf("  %s: %d (média %.2f, %d a %d anos)%n", grupo.getKey(), agregado.getQuantidade(),
+                              agregado.getMedia(), agregado.getMinimo(), agregado.getMaximo());
+        }
+        if (!resultado.getUsuarios().isEmpty()) {
+            escreverUsuarios(resultado.getUsuarios(), resultado.getUsuarios().size());
+        }
+    }
+    
+    /**
+     * Exibe até LIMITE_RESULTADOS usuários de uma busca
+     */
+    private static void exibirResultados(List<Usuario> encontrados) {
+        if (encontrados.isEmpty()) {
+            System.out.println("Nenhum usuário encontrado.");
+            return;
+        }
+        escreverUsuarios(encontrados, LIMITE_RESULTADOS);
+        if (encontrados.size() > LIMITE_RESULTADOS) {
+            System.out.printf("(exibindo os primeiros %d resultados)%n", LIMITE_RESULTADOS);
+        }
+    }
+    
+    /**
+     * Salva os dados: confirma no disco o que está pendente no diário (o
+     * instantâneo completo é gravado em segundo plano, ver InstantaneoAutomatico)
+     */
+    private static void salvarDados() {
+        System.out.println("\n=== SALVANDO DADOS ===");
+        
+        try {
+            int confirmados = salvar();
+            System.out.printf("%d alteração(ões) confirmada(s) no diário '%s'%n",
+                              confirmados, diario.getArquivo());
+        } catch (IOException e) {
+            System.out.println("Erro ao salvar dados: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Confirma o diário em disco
+     * 
+     * @return número de alterações confirmadas por esta chamada
+     */
+    static int salvar() throws IOException {
+        long inicio = System.nanoTime();
+        boolean sucesso = false;
+        try {
+            int confirmados = diario.sincronizar();
+            sucesso = true;
+            return confirmados;
+        } finally {
+            Metricas.SALVAMENTO.registrar(inicio, sucesso);
+        }
+    }
+    
+    /**
+     * Grava o instantâneo completo em arquivo texto (e binário) e apaga o
+     * diário que ele substitui
+     * 
+     * O diário é rotacionado antes da cópia dos usuários: todo registro do
+     * segmento fechado é de um usuário já inserido, portanto presente na
+     * cópia; cadastros feitos durante a gravação vão para o diário novo.
+     * Executado pela thread de InstantaneoAutomatico, sem parar os cadastros.
+     */
+    private static void gravarInstantaneo() throws IOException {
+        long segmento = diario.rotacionar();
+        
+        // Repositório particionado: um arquivo por partição, gravados em paralelo
+        if (repositorio instanceof RepositorioParticionado) {
+            RepositorioParticionado particionado = (RepositorioParticionado) repositorio;
+            ArquivoParticionado.gravar(ArquivoParticionado.MANIFESTO, particionado.getNumeroParticoes(), particionado::instantaneo);
+            diario.descartarSegmentos(segmento);
+            return;
+        }
+        
+        List<Usuario> usuarios = repositorio.instantaneo();
+        
+        if (FORMATO_INSTANTANEO.equals("comprimido")) {
+            InstantaneoAutomatico.gravarAtomicamente(ArquivoComprimido.ARQUIVO,
+                                                     arquivo -> ArquivoComprimido.gravar(arquivo, usuarios));
+            diario.descartarSegmentos(segmento);
+            return;
+        }
+        
+        InstantaneoAutomatico.gravarAtomicamente(Paths.get("usuarios.txt"),
+                                                 arquivo -> salvarTexto(arquivo, usuarios));
+        
+        // Demonstração de escrita binária; se falhar, fica mais antigo que o
+        // texto e a recuperação usa o texto
+        try {
+            InstantaneoAutomatico.gravarAtomicamente(Paths.get("usuarios.bin"),
+                                                     arquivo -> ArquivoColunar.gravar(arquivo, usuarios));
+            if (RECUPERACAO_SOB_DEMANDA) {
+                gravarIndiceColunar(Paths.get("usuarios.bin"));
+            }
+        } catch (IOException e) {
+            System.out.println("Erro ao salvar dados binários: " + e.getMessage());
+        }
+        
+        diario.descartarSegmentos(segmento);
+    }
+    
+    /**
+     * Grava 'usuarios.bin.idx', o índice usado pela recuperação sob demanda
+     */
+    private static void gravarIndiceColunar(Path binario) throws IOException {
+        try (ArquivoColunar.Leitor leitor = ArquivoColunar.Leitor.abrir(binario)) {
+            InstantaneoAutomatico.gravarAtomicamente(IndiceColunar.arquivoDe(binario),
+                                                     arquivo -> IndiceColunar.gravar(arquivo, leitor));
+        }
+    }
+    
+    /**
+     * Grava a lista de usuários em CSV (UTF-8), uma linha por usuário
+     */
+    static void salvarTexto(Path arquivo, List<Usuario> lista) throws IOException {
+        // Try-with-resources para garantir fechamento automático dos recursos
+        try (BufferedWriter writer = Files.newBufferedWriter(arquivo, StandardCharsets.UTF_8)) {
+            
+            // Loop for tradicional
+            for (int i = 0; i < lista.size(); i++) {
+                Usuario usuario = lista.get(i);
+                FormatadorUsuario.escreverCSV(writer, usuario);
+                writer.newLine();
+            }
+        }
+    }
+    
+    /**
+     * Carrega dados do arquivo texto usando o carregador paralelo
+     */
+    private static void carregarDados() {
+        System.out.println("\n=== CARREGANDO DADOS ===");
+        
+        try {
+            DeduplicacaoCarga deduplicacao =
+                    novaDeduplicacao(Paths.get("usuarios.txt"), DeduplicacaoCarga.BYTES_POR_LINHA_CSV);
+            CarregadorCSV.Resultado resultado = carregar(deduplicacao);
+            
+            System.out.printf("Carregados %d usuários do arquivo.%n", resultado.adicionados);
+            deduplicacao.imprimirResumo();
+            resultado.imprimirTempos();
+            resultado.imprimirErros(20);
+            
+        } catch (NoSuchFileException e) {
+            System.out.println("Arquivo 'usuarios.txt' não encontrado.");
+        } catch (IOException e) {
+            System.out.println("Erro ao ler arquivo: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Carrega 'usuarios.txt' passando cada usuário pela deduplicação (ver
+     * novaDeduplicacao)
+     * 
+     * Se a carga substituiu cadastros, só retorna depois de gravar o
+     * instantâneo completo.
+     */
+    static CarregadorCSV.Resultado carregar(DeduplicacaoCarga deduplicacao) throws IOException {
+        long inicio = System.nanoTime();
+        boolean sucesso = false;
+        try {
+            CarregadorCSV.Resultado resultado = CarregadorCSV.carregar(Paths.get("usuarios.txt"), deduplicacao);
+            atualizarMediaIdade();
+            if (deduplicacao.getSubstituidos() > 0) {
+                // Remoções e substitutos estão no diário, os demais cadastros
+                // da carga não: o instantâneo torna a carga inteira permanente
+                instantaneos.gravarAgora();
+            }
+            sucesso = true;
+            return resultado;
+        } finally {
+            Metricas.CARGA.registrar(inicio, sucesso);
+        }
+    }
+    
+    /**
+     * Exporta todos os usuários em NDJSON (ver ArquivoNdjson)
+     */
+    private static void exportarNdjson(Path arquivo) {
+        try {
+            long inicio = System.nanoTime();
+            long gravados = ArquivoNdjson.exportar(arquivo, SistemaCadastro::listarDesde);
+            System.out.printf("Exportados %d usuário(s) para '%s' em %.1f ms%n",
+                              gravados, arquivo, (System.nanoTime() - inicio) / 1e6);
+        } catch (IOException e) {
+            System.out.println("Erro ao exportar: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Importa usuários de um arquivo NDJSON e grava o instantâneo completo
+     * 
+     * Os usuários importados não passam pelo diário (seria um registro por
+     * usuário): o instantâneo regravado no fim os torna permanentes.
+     */
+    private static void importarNdjson(Path arquivo) {
+        long inicio = System.nanoTime();
+        try {
+            DeduplicacaoCarga deduplicacao = novaDeduplicacao(arquivo, DeduplicacaoCarga.BYTES_POR_LINHA_NDJSON);
+            ArquivoNdjson.Resultado resultado = ArquivoNdjson.importar(arquivo, deduplicacao);
+            atualizarMediaIdade();
+            Metricas.CARGA.registrar(inicio, true);
+            
+            System.out.printf("Importados %d usuário(s) de '%s' (%.1f MB em %.1f ms)%n",
+                              resultado.adicionados, arquivo, resultado.bytes / 1048576.0, resultado.nanos / 1e6);
+            deduplicacao.imprimirResumo();
+            resultado.imprimirErros(20);
+            
+            if (resultado.adicionados > 0 || deduplicacao.getSubstituidos() > 0) {
+                instantaneos.gravarAgora();
+            }
+        } catch (NoSuchFileException e) {
+            Metricas.CARGA.registrar(inicio, false);
+            System.out.println("Arquivo '" + arquivo + "' não encontrado.");
+        } catch (IOException e) {
+            Metricas.CARGA.registrar(inicio, false);
+            System.out.println("Erro ao importar: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Executa os comandos de 'arquivo' (ou da entrada padrão, se null) no
+     * modo em lote (ver ProcessadorLote)
+     * 
+     * Os cadastros não esperam o diário um a um: o lote de comandos espera
+     * uma vez (salvar) antes das suas respostas serem escritas, e um "ok"
+     * continua significando que o cadastro está no disco.
+     */
+    private static void executarLote(Path arquivo) {
+        try (Reader entrada = arquivo != null
+                ? Files.newBufferedReader(arquivo, StandardCharsets.UTF_8)
+                : new InputStreamReader(new FileInputStream(FileDescriptor.in), StandardCharsets.UTF_8);
+             Writer saida = new OutputStreamWriter(new FileOutputStream(FileDescriptor.out), StandardCharsets.UTF_8)) {
+            ProcessadorLote.Resumo resumo = ProcessadorLote.executar(entrada, saida, SistemaCadastro::salvar);
+            System.out.printf("Lote: %d comando(s) em %.1f ms (%.0f por segundo), %d erro(s)%n",
+                              resumo.comandos, resumo.nanos / 1e6, resumo.comandos / (resumo.nanos / 1e9),
+                              resumo.erros);
+        } catch (NoSuchFileException e) {
+            System.out.println("Arquivo '" + arquivo + "' não encontrado.");
+        } catch (IOException e) {
+            System.out.println("Erro no modo em lote: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Recupera o estado no início: instantâneo + diário, e inicia a gravação
+     * do instantâneo em segundo plano
+     * 
+     * O instantâneo mais recente é usado: o comprimido 'usuarios.blocos' (ver
+     * ArquivoComprimido), o particionado (ver ArquivoParticionado), lido em
+     * paralelo, ou o binário 'usuarios.bin',
+     * mapeado diretamente quando está em dia com 'usuarios.txt' e íntegro
+     * (CRC32); caso contrário o texto é lido linha a linha. Temporários de um
+     * instantâneo interrompido são apagados, e o final incompleto do diário é
+     * descartado.
+     * 
+     * Com cadastro.recuperacao.modo=sobdemanda e armazenamento em memória, o
+     * binário não é lido: ver abrirSobDemanda.
+     */
+    static void recuperarDados() {
+        long doInstantaneo = 0;
+        
+        Path binario = Paths.get("usuarios.bin");
+        Path texto = Paths.get("usuarios.txt");
+        try {
+            InstantaneoAutomatico.descartarTemporarios(texto, binario, IndiceColunar.arquivoDe(binario),
+                                                       ArquivoParticionado.MANIFESTO, ArquivoComprimido.ARQUIVO);
+            ArquivoParticionado.descartarTemporarios(ArquivoParticionado.MANIFESTO);
+        } catch (IOException e) {
+            System.out.println("Erro ao descartar temporários: " + e.getMessage());
+        }
+        try {
+            if (maisRecente(ArquivoComprimido.ARQUIVO, ArquivoParticionado.MANIFESTO, binario, texto)) {
+                int[] lidos = {0};
+                ArquivoComprimido.ler(ArquivoComprimido.ARQUIVO, usuario -> {
+                    if (adicionarSeNovo(usuario)) {
+                        lidos[0]++;
+                    }
+                });
+                doInstantaneo = lidos[0];
+                binario = null;
+                texto = null;
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            System.out.println("Instantâneo comprimido ignorado (" + e.getMessage() + ").");
+        }
+        try {
+            if (texto != null && maisRecente(ArquivoParticionado.MANIFESTO, binario, texto)) {
+                LongAdder lidos = new LongAdder();
+                ArquivoParticionado.ler(ArquivoParticionado.MANIFESTO, usuario -> {
+                    if (adicionarSeNovo(usuario)) {
+                        lidos.increment();
+                    }
+                });
+                doInstantaneo = lidos.sum();
+                binario = null;
+                texto = null;
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            System.out.println("Instantâneo particionado ignorado (" + e.getMessage() + ").");
+        }
+        try {
+            if (binario != null && Files.exists(binario) && (!Files.exists(texto)
+                    || Files.getLastModifiedTime(binario).compareTo(Files.getLastModifiedTime(texto)) >= 0)) {
+                if (RECUPERACAO_SOB_DEMANDA && repositorio instanceof RepositorioConcorrente) {
+                    doInstantaneo = abrirSobDemanda(binario);
+                } else {
+                    int[] lidos = {0};
+                    ArquivoColunar.ler(binario, usuario -> {
+                        if (adicionarSeNovo(usuario)) {
+                            lidos[0]++;
+                        }
+                    });
+                    doInstantaneo = lidos[0];
+                }
+                texto = null;
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            System.out.println("Instantâneo binário ignorado (" + e.getMessage() + "), lendo 'usuarios.txt'.");
+        }
+        
+        if (texto != null) {
+            doInstantaneo = lerInstantaneoTexto();
+        }
+        
+        try {
+            diario = Diario.abrir(Paths.get("usuarios.journal"));
+            long doDiario = diario.reproduzir(SistemaCadastro::reaplicar);
+            
+            if (doInstantaneo > 0 || doDiario > 0) {
+                System.out.printf("Recuperados %d usuário(s) do instantâneo e %d registro(s) do diário.%n",
+                                  doInstantaneo, doDiario);
+            }
+        } catch (IOException e) {
+            System.out.println("Erro ao abrir diário: " + e.getMessage());
+            System.exit(1);
+        }
+        
+        atualizarMediaIdade();
+        
+        // A recuperação não é alteração: os eventos começam depois dela
+        eventos = new FluxoEventos(CAPACIDADE_EVENTOS);
+        instantaneos = new InstantaneoAutomatico(SistemaCadastro::gravarInstantaneo,
+                                                 LIMITE_COMPACTACAO, INTERVALO_INSTANTANEO * 1000);
+    }
+    
+    /**
+     * Reaplica um registro do diário sobre o que já foi recuperado
+     * 
+     * Reproduzir o que o instantâneo já contém não altera nada: um cadastro
+     * já presente é ignorado, e a alteração ou remoção de um email que não
+     * está mais cadastrado também (o instantâneo já tem o resultado). Nada
+     * aqui volta para o diário.
+     */
+    private static void reaplicar(byte operacao, String email, Usuario usuario) {
+        if (operacao != Diario.OP_INSERCAO) {
+            Usuario atual = repositorio.buscarPorEmail(email);
+            if (atual != null) {
+                desfazerCadastro(atual);
+            }
+        }
+        if (usuario != null) {
+            adicionarSeNovo(usuario);
+        }
+    }
+    
+    /**
+     * Abre o binário sem ler os usuários: um RepositorioSobDemanda passa a
+     * servi-los a partir do arquivo mapeado e de 'usuarios.bin.idx'
+     * 
+     * O índice é construído (e gravado) se não existir ou for de outro
+     * binário; isso lê o binário inteiro uma vez. Índices e estatísticas
+     * recebem os usuários do instantâneo pelo IndiceColunar. Com
+     * cadastro.recuperacao.aquecer=true, uma thread de baixa prioridade
+     * materializa todos os usuários em segundo plano.
+     * 
+     * @return quantidade de usuários do instantâneo
+     */
+    private static long abrirSobDemanda(Path binario) throws IOException {
+        long inicio = System.nanoTime();
+        ArquivoColunar.Leitor leitor = ArquivoColunar.Leitor.abrir(binario);
+        IndiceColunar indice;
+        try {
+            Path arquivoIndice = IndiceColunar.arquivoDe(binario);
+            try {
+                indice = IndiceColunar.abrir(arquivoIndice, leitor);
+            } catch (IOException e) {
+                System.out.println("Construindo '" + arquivoIndice + "' ("
+                                   + (e instanceof NoSuchFileException ? "ausente" : e.getMessage()) + ")...");
+                InstantaneoAutomatico.gravarAtomicamente(arquivoIndice, arquivo -> IndiceColunar.gravar(arquivo, leitor));
+                indice = IndiceColunar.abrir(arquivoIndice, leitor);
+            }
+        } catch (IOException | RuntimeException e) {
+            leitor.close();
+            throw e;
+        }
+        
+        RepositorioSobDemanda sobDemanda = new RepositorioSobDemanda(leitor, indice, SistemaCadastro::aoAlterarUsuario);
+        RepositorioUsuarios anterior = repositorio;
+        repositorio = sobDemanda;
+        fecharRepositorio(anterior);
+        indices.usarBase(indice);
+        estatisticas.registrarInstantaneo(indice);
+        System.out.printf("Instantâneo de %d usuário(s) aberto sob demanda em %.1f ms%n",
+                          leitor.n, (System.nanoTime() - inicio) / 1e6);
+        
+        if (AQUECER) {
+            Thread aquecimento = new Thread(sobDemanda::aquecer, "aquecimento-cadastro");
+            aquecimento.setDaemon(true);
+            aquecimento.setPriority(Thread.MIN_PRIORITY);
+            aquecimento.start();
+        }
+        return leitor.n;
+    }
+    
+    /**
+     * @return true se 'arquivo' existe e nenhum dos outros é mais novo
+     */
+    private static boolean maisRecente(Path arquivo, Path... outros) throws IOException {
+        if (!Files.exists(arquivo)) {
+            return false;
+        }
+        FileTime modificacao = Files.getLastModifiedTime(arquivo);
+        for (Path outro : outros) {
+            if (Files.exists(outro) && Files.getLastModifiedTime(outro).compareTo(modificacao) > 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Grava o instantâneo atual em 'particoes' arquivos, qualquer que seja o
+     * modo de armazenamento, e apaga os da divisão anterior
+     * 
+     * Feito com o sistema parado (--reparticionar N); as próximas execuções
+     * com -Dcadastro.armazenamento=particionado usam N partições.
+     */
+    private static void reparticionar(int particoes) {
+        long inicio = System.nanoTime();
+        try {
+            instantaneos.close();
+            long segmento = diario.rotacionar();
+            List<List<Usuario>> divisao = ArquivoParticionado.dividir(repositorio.instantaneo(), particoes);
+            ArquivoParticionado.gravar(ArquivoParticionado.MANIFESTO, particoes, divisao::get);
+            diario.descartarSegmentos(segmento);
+            System.out.printf("%d usuário(s) gravados em %d partição(ões) em %.1f ms%n",
+                              repositorio.tamanho(), particoes, (System.nanoTime() - inicio) / 1e6);
+        } catch (IOException e) {
+            System.out.println("Erro ao reparticionar: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Lê o instantâneo em texto 'usuarios.txt'
+     */
+    private static long lerInstantaneoTexto() {
+        try {
+            CarregadorCSV.Resultado resultado =
+                    CarregadorCSV.carregar(Paths.get("usuarios.txt"), SistemaCadastro::adicionarSeNovo);
+            resultado.imprimirErros(5);
+            return resultado.adicionados;
+        } catch (NoSuchFileException e) {
+            // Primeira execução: ainda não há instantâneo
+        } catch (IOException e) {
+            System.out.println("Erro ao ler instantâneo: " + e.getMessage());
+        }
+        return 0;
+    }
+    
+    /**
+     * Espera uma gravação de instantâneo em curso, fecha o diário garantindo
+     * que tudo foi gravado em disco, e o repositório quando ele usa arquivo
+     * próprio
+     */
+    static void encerrar() {
+        instantaneos.close();
+        try {
+            diario.close();
+        } catch (IOException e) {
+            System.out.println("Erro ao fechar diário: " + e.getMessage());
+        }
+        fecharRepositorio(repositorio);
+    }
+    
+    private static void fecharRepositorio(RepositorioUsuarios anterior) {
+        if (anterior instanceof Closeable) {
+            try {
+                ((Closeable) anterior).close();
+            } catch (IOException e) {
+                System.out.println("Erro ao fechar repositório: " + e.getMessage());
+            }
+        }
+    }
+    
+    /**
+     * Processa uma linha CSV para criar usuário
+     * 
+     * @return true se o usuário foi adicionado; linhas cujo email já está
+     *         cadastrado são ignoradas
+     */
+    static boolean processarLinhaCSV(String linha) {
+        try {
+            String[] dados = linha.split(",");
+            if (dados.length >= 4) {
+                String nome = dados[0];
+                String email = dados[1];
+                int idade = Integer.parseInt(dados[2]);
+                String cpf = dados[3];
+                
+                return adicionarSeNovo(Usuario.criar(nome, email, idade, cpf));
+            }
+        } catch (IllegalArgumentException e) {
+            // NumberFormatException também é uma IllegalArgumentException
+            System.out.println("Erro ao processar linha: " + linha);
+        }
+        return false;
+    }
+    
+    /**
+     * Deduplicação para uma carga em lote de 'arquivo', com a política de
+     * 'cadastro.carga.duplicados' e o filtro dimensionado pelo tamanho dele
+     */
+    static DeduplicacaoCarga novaDeduplicacao(Path arquivo, int bytesPorLinha) throws IOException {
+        return new DeduplicacaoCarga(CADASTRO_CARGA, POLITICA_DUPLICADOS, Files.size(arquivo), bytesPorLinha);
+    }
+    
+    // Operações usadas pela deduplicação (sem as métricas de busca)
+    private static final DeduplicacaoCarga.Cadastro CADASTRO_CARGA = new DeduplicacaoCarga.Cadastro() {
+        @Override
+        public boolean adicionar(Usuario usuario) {
+            return adicionarSeNovo(usuario);
+        }
+        
+        @Override
+        public Usuario buscarPorEmail(String email) {
+            return repositorio.buscarPorEmail(email);
+        }
+        
+        @Override
+        public Usuario buscarPorCpf(String cpf) {
+            return indices.buscarPorCpf(cpf);
+        }
+        
+        @Override
+        public void remover(Usuario usuario) {
+            removerUsuario(usuario);
+        }
+        
+        @Override
+        public boolean substituir(Usuario usuario) {
+            if (!adicionarSeNovo(usuario)) {
+                return false;
+            }
+            if (diario != null) {
+                try {
+                    diario.registrarInsercao(usuario).whenComplete(SistemaCadastro::avisarFalhaDiario);
+                    instantaneos.registrarAlteracao();
+                } catch (IOException e) {
+                    avisarFalhaDiario(null, e);
+                }
+            }
+            return true;
+        }
+    };
+    
+    /**
+     * Adiciona o usuário se email e CPF ainda não estiverem cadastrados
+     */
+    private static boolean adicionarSeNovo(Usuario usuario) {
+        try {
+            adicionarUsuario(usuario);
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;  // email ou CPF já cadastrado
+        }
+    }
+    
+    /**
+     * Adiciona um usuário ao repositório, aos índices e às estatísticas e
+     * publica o evento de inserção
+     * 
+     * Pode ser chamado por várias threads ao mesmo tempo: a unicidade do
+     * email e do CPF é verificada atomicamente.
+     * 
+     * @throws CadastroDuplicado se o email ou o CPF já estiver cadastrado
+     */
+    private static void adicionarUsuario(Usuario usuario) {
+        if (repositorio.inserir(usuario) < 0) {
+            throw new CadastroDuplicado("Email já cadastrado: " + usuario.getEmail());
+        }
+        try {
+            indices.inserir(usuario);
+        } catch (IllegalArgumentException e) {
+            repositorio.remover(usuario);
+            throw e;
+        }
+        estatisticas.registrarInsercao(usuario);
+        usuario.setOuvinte(SistemaCadastro::aoAlterarUsuario);
+        eventos.publicarInsercao(usuario);
+    }
+    
+    /**
+     * Remove um usuário e registra a remoção no diário, sem esperar a
+     * gravação
+     */
+    private static void removerUsuario(Usuario usuario) {
+        if (desfazerCadastro(usuario) && diario != null) {
+            try {
+                diario.registrarRemocao(usuario.getEmail()).whenComplete(SistemaCadastro::avisarFalhaDiario);
+                instantaneos.registrarAlteracao();
+            } catch (IOException e) {
+                avisarFalhaDiario(null, e);
+            }
+        }
+    }
+    
+    /**
+     * Remove um usuário do repositório, dos índices e das estatísticas e
+     * publica o evento de remoção
+     * 
+     * @return false se o usuário não estava cadastrado
+     */
+    private static boolean desfazerCadastro(Usuario usuario) {
+        if (!repositorio.remover(usuario)) {
+            return false;
+        }
+        indices.remover(usuario);
+        estatisticas.registrarRemocao(usuario);
+        usuario.setOuvinte(null);
+        eventos.publicarRemocao(usuario);
+        return true;
+    }
+    
+    /**
+     * Mantém o mapa por email, os índices e as estatísticas em dia quando um
+     * usuário cadastrado é alterado (por exemplo via Usuario.atualizarDados)
+     * e registra a alteração no diário, sem esperar a gravação
+     * 
+     * @throws CadastroDuplicado se o novo email ou CPF já pertencer a
+     *         outro usuário; nesse caso nada é alterado
+     */
+    private static void aoAlterarUsuario(Usuario usuario, String nomeAnterior, String emailAnterior,
+                                         int idadeAnterior, String cpfAnterior) {
+        String emailNovo = usuario.getEmail();
+        if (!repositorio.reindexarEmail(usuario, emailAnterior, emailNovo)) {
+            throw new CadastroDuplicado("Email já cadastrado: " + usuario.getEmail());
+        }
+        try {
+            indices.atualizar(usuario, nomeAnterior, idadeAnterior, cpfAnterior);
+        } catch (IllegalArgumentException e) {
+            // Desfaz a troca de email: o usuário volta aos dados anteriores
+            repositorio.reindexarEmail(usuario, emailNovo, emailAnterior);
+            throw e;
+        }
+        repositorio.gravarAlteracao(usuario);
+        estatisticas.registrarAtualizacao(usuario, emailAnterior, idadeAnterior);
+        atualizarMediaIdade();
+        eventos.publicarAlteracao(usuario, nomeAnterior, emailAnterior, idadeAnterior);
+        if (diario != null) {
+            try {
+                diario.registrarAlteracao(emailAnterior, usuario).whenComplete(SistemaCadastro::avisarFalhaDiario);
+                instantaneos.registrarAlteracao();
+            } catch (IOException e) {
+                avisarFalhaDiario(null, e);
+            }
+        }
+    }
+    
+    /**
+     * Exibe estatísticas do sistema
+     */
+    private static void exibirEstatisticas() {
+        System.out.println("\n=== ESTATÍSTICAS DO SISTEMA ===");
+        
+        // Agregados mantidos incrementalmente: nenhuma varredura da lista
+        long usuariosGmail = estatisticas.getContagemDominio("gmail.com");
+        
+        System.out.printf("Total de usuários: %d%n", repositorio.tamanho());
+        System.out.printf("Média de idade: %.2f%n", mediaIdade);
+        if (estatisticas.getQuantidade() > 0) {
+            System.out.printf("Idade mínima: %d | Idade máxima: %d%n",
+                              estatisticas.getIdadeMinima(), estatisticas.getIdadeMaxima());
+        }
+        for (Map.Entry<String, Long> tipo : estatisticas.getContagensPorTipo().entrySet()) {
+            System.out.printf("Tipo %s: %d%n", tipo.getKey(), tipo.getValue());
+        }
+        System.out.printf("Usuários Gmail: %d%n", usuariosGmail);
+        System.out.printf("Outros usuários: %d%n", estatisticas.getQuantidade() - usuariosGmail);
+        System.out.printf("Domínios de email distintos: %d%n", estatisticas.getQuantidadeDominios());
+        if (repositorio instanceof RepositorioPaginado) {
+            System.out.println(((RepositorioPaginado) repositorio).descreverCache());
+        }
+        if (repositorio instanceof RepositorioParticionado) {
+            System.out.println("Armazenamento: " + ((RepositorioParticionado) repositorio).descrever());
+        }
+        if (repositorio instanceof RepositorioCompacto) {
+            System.out.println("Armazenamento: " + ((RepositorioCompacto) repositorio).descrever());
+        }
+        if (repositorio instanceof RepositorioSobDemanda) {
+            System.out.println("Recuperação: " + ((RepositorioSobDemanda) repositorio).descrever());
+        }
+        if (diario != null) {
+            System.out.println("Diário: " + diario.descrever());
+        }
+        // Validações de email e CPF medidas desde o início da execução
+        taxaSucesso = (float) Metricas.VALIDACAO.getTaxaSucesso();
+        System.out.printf("Taxa de sucesso da validação: %.1f%% (%d de %d)%n", taxaSucesso,
+                          Metricas.VALIDACAO.getSucessos(), Metricas.VALIDACAO.getContagem());
+        System.out.printf("Versão do sistema: %d.%d%n", versaoSistema, (byte)2);
+        System.out.printf("Categoria: %c%n", categoriaSistema);
+        System.out.printf("Máximo de usuários: %d%n", maxUsuarios);
+        
+        // Cálculo do tempo de execução
+        long tempoExecucao = System.currentTimeMillis() - timestampInicio;
+        System.out.printf("Tempo de execução: %d ms%n", tempoExecucao);
+        
+        System.out.println("\nOperações (latências em microssegundos):");
+        System.out.print(Metricas.relatorio());
+    }
+    
+    // ========================================
+    // OPERAÇÕES SEM INTERAÇÃO (menu, benchmarks e ferramentas)
+    // ========================================
+    
+    /**
+     * Valida e cadastra um usuário sem ler do console
+     * 
+     * Retorna depois que o cadastro está gravado no diário (conforme a
+     * política de sincronização); o fsync é compartilhado com os cadastros
+     * feitos ao mesmo tempo por outras threads.
+     * 
+     * @throws IllegalArgumentException se algum dado for inválido
+     *         (CadastroDuplicado se o email ou o CPF já estiver cadastrado)
+     */
+    static Usuario cadastrar(String nome, String email, int idade, String cpf) {
+        long inicio = System.nanoTime();
+        Usuario usuario = criarValidado(nome, email, idade, cpf, inicio);
+        aguardarDiario(cadastrarValidado(usuario, inicio));
+        return usuario;
+    }
+    
+    /**
+     * Valida e cadastra um usuário sem esperar a gravação no diário
+     * 
+     * @return futuro completado quando o cadastro estiver gravado no diário
+     *         (ver Diario.registrarInsercao)
+     * @throws IllegalArgumentException se algum dado for inválido
+     *         (CadastroDuplicado se o email ou o CPF já estiver cadastrado)
+     */
+    static CompletableFuture<Usuario> cadastrarAssincrono(String nome, String email, int idade, String cpf) {
+        long inicio = System.nanoTime();
+        return cadastrarValidado(criarValidado(nome, email, idade, cpf, inicio), inicio);
+    }
+    
+    /**
+     * Valida email e CPF e cria o usuário, com o CPF formatado
+     */
+    private static Usuario criarValidado(String nome, String email, int idade, String cpf, long inicio) {
+        if (!validarEmail(email)) {
+            Metricas.CADASTRO.registrar(inicio, false);
+            throw new IllegalArgumentException("Email inválido: " + email);
+        }
+        long digitosCpf = validarCPF(cpf);
+        if (digitosCpf < 0) {
+            Metricas.CADASTRO.registrar(inicio, false);
+            throw new IllegalArgumentException("CPF inválido: " + cpf);
+        }
+        // Criação do usuário usando polimorfismo
+        return Usuario.criar(nome, email, idade, ArquivoColunar.formatarCPF(digitosCpf));
+    }
+    
+    /**
+     * Cadastra em memória um usuário com email e CPF já validados e entrega
+     * o registro ao diário, sem esperar a gravação
+     * 
+     * @param inicio System.nanoTime() do início da operação, para as métricas
+     *               (que medem o cadastro, não a gravação)
+     * @return futuro completado com o usuário quando o registro estiver
+     *         gravado, ou com a falha da gravação
+     */
+    private static CompletableFuture<Usuario> cadastrarValidado(Usuario usuario, long inicio) {
+        boolean sucesso = false;
+        try {
+            // Adição à lista e mapa
+            adicionarUsuario(usuario);
+            
+            // Atualização da média de idade
+            atualizarMediaIdade();
+            
+            // Registro incremental no diário (apenas este usuário é gravado)
+            CompletableFuture<Usuario> gravado = CompletableFuture.completedFuture(usuario);
+            if (diario != null) {
+                try {
+                    gravado = diario.registrarInsercao(usuario).thenApply(gravacao -> usuario);
+                    instantaneos.registrarAlteracao();
+                } catch (IOException e) {
+                    gravado = new CompletableFuture<>();
+                    gravado.completeExceptionally(e);
+                }
+            }
+            sucesso = true;
+            return gravado;
+        } finally {
+            Metricas.CADASTRO.registrar(inicio, sucesso);
+        }
+    }
+    
+    /**
+     * Espera a gravação no diário; uma falha só é avisada, pois o cadastro
+     * já está em memória e entra no próximo instantâneo
+     */
+    private static void aguardarDiario(CompletableFuture<Usuario> gravado) {
+        try {
+            Diario.aguardar(gravado);
+        } catch (IOException e) {
+            System.out.println("Aviso: falha ao gravar no diário: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Avisa a falha de uma gravação no diário que ninguém espera (alterações
+     * e remoções); como em aguardarDiario, o dado segue em memória e entra
+     * no próximo instantâneo
+     */
+    private static void avisarFalhaDiario(Void gravacao, Throwable falha) {
+        if (falha != null) {
+            System.out.println("Aviso: falha ao gravar no diário: " + falha.getMessage());
+        }
+    }
+    
+    static Usuario buscarPorEmail(String email) {
+        long inicio = System.nanoTime();
+        boolean sucesso = false;
+        try {
+            Usuario usuario = repositorio.buscarPorEmail(email);
+            sucesso = true;
+            return usuario;
+        } finally {
+            Metricas.BUSCA.registrar(inicio, sucesso);
+        }
+    }
+    
+    static Usuario buscarPorCpf(String cpf) {
+        long inicio = System.nanoTime();
+        boolean sucesso = false;
+        try {
+            Usuario usuario = indices.buscarPorCpf(cpf);
+            sucesso = true;
+            return usuario;
+        } finally {
+            Metricas.BUSCA.registrar(inicio, sucesso);
+        }
+    }
+    
+    /**
+     * Usuários cujo nome começa com o prefixo (sem diferenciar maiúsculas)
+     */
+    static List<Usuario> buscarPorPrefixoNome(String prefixo, int limite) {
+        long inicio = System.nanoTime();
+        boolean sucesso = false;
+        try {
+            List<Usuario> encontrados = indices.buscarPorPrefixoNome(prefixo, limite);
+            sucesso = true;
+            return encontrados;
+        } finally {
+            Metricas.BUSCA.registrar(inicio, sucesso);
+        }
+    }
+    
+    static List<Usuario> buscarPorFaixaIdade(int de, int ate, int limite) {
+        long inicio = System.nanoTime();
+        boolean sucesso = false;
+        try {
+            List<Usuario> encontrados = indices.buscarPorFaixaIdade(de, ate, limite);
+            sucesso = true;
+            return encontrados;
+        } finally {
+            Metricas.BUSCA.registrar(inicio, sucesso);
+        }
+    }
+    
+    /**
+     * Executa uma consulta com filtros e agregados (ver Consulta e MotorConsultas)
+     */
+    static MotorConsultas.Resultado consultar(Consulta consulta) {
+        long inicio = System.nanoTime();
+        boolean sucesso = false;
+        try {
+            MotorConsultas.Resultado resultado =
+                new MotorConsultas(repositorio, indices, estatisticas).executar(consulta);
+            sucesso = true;
+            return resultado;
+        } finally {
+            Metricas.CONSULTA.registrar(inicio, sucesso);
+        }
+    }
+    
+    static List<Usuario> getUsuarios() {
+        return repositorio.instantaneo();
+    }
+    
+    /**
+     * Página de usuários na ordem de cadastro (ver RepositorioUsuarios.listarDesde)
+     */
+    static List<Usuario> listarDesde(int desdeId, int limite) {
+        return repositorio.listarDesde(desdeId, limite);
+    }
+    
+    static EstatisticasUsuarios getEstatisticas() {
+        return estatisticas;
+    }
+    
+    /**
+     * Eventos de alteração do cadastro desta execução (ver FluxoEventos)
+     */
+    static FluxoEventos getEventos() {
+        return eventos;
+    }
+    
+    /**
+     * Descarta todos os usuários em memória (não altera arquivos)
+     */
+    static void reiniciar() {
+        RepositorioUsuarios anterior = repositorio;
+        repositorio = novoRepositorio();
+        fecharRepositorio(anterior);
+        estatisticas = new EstatisticasUsuarios();
+        indices = new IndicesUsuarios(id -> repositorio.buscarPorId(id));
+        atualizarMediaIdade();
+    }
+    
+    /**
+     * Cria o repositório do modo de armazenamento configurado
+     * 
+     * - memoria:  RepositorioConcorrente, todos os usuários no heap
+     * - compacto: RepositorioCompacto, colunas primitivas e arena UTF-8 (fora
+     *             do heap com cadastro.compacto.foraDoHeap=true)
+     * - paginado: RepositorioPaginado em 'usuarios.paginas', com até
+     *             cadastro.cache.bytes de páginas em memória
+     * - particionado: RepositorioParticionado com cadastro.particoes
+     *             partições (padrão: as do último instantâneo particionado
+     *             ou, sem ele, uma por núcleo)
+     */
+    private static RepositorioUsuarios novoRepositorio() {
+        if (ARMAZENAMENTO.equals("particionado")) {
+            return new RepositorioParticionado(Integer.getInteger("cadastro.particoes", particoesPadrao()));
+        }
+        if (ARMAZENAMENTO.equals("compacto")) {
+            return new RepositorioCompacto(1024, Boolean.getBoolean("cadastro.compacto.foraDoHeap"),
+                                           SistemaCadastro::aoAlterarUsuario);
+        }
+        if (ARMAZENAMENTO.equals("paginado")) {
+            try {
+                return new RepositorioPaginado(Paths.get("usuarios.paginas"), ORCAMENTO_CACHE,
+                                               SistemaCadastro::aoAlterarUsuario);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Erro ao criar 'usuarios.paginas'", e);
+            }
+        }
+        if (!ARMAZENAMENTO.equals("memoria")) {
+            throw new IllegalArgumentException("Armazenamento desconhecido: " + ARMAZENAMENTO);
+        }
+        return new RepositorioConcorrente();
+    }
+    
+    private static boolean recuperacaoSobDemanda() {
+        String modo = System.getProperty("cadastro.recuperacao.modo", "completa");
+        if (!modo.equals("completa") && !modo.equals("sobdemanda")) {
+            throw new IllegalArgumentException("Modo de recuperação desconhecido: " + modo
+                                               + " (use completa ou sobdemanda)");
+        }
+        return modo.equals("sobdemanda");
+    }
+    
+    private static String formatoInstantaneo() {
+        String formato = System.getProperty("cadastro.instantaneo.formato", "texto");
+        if (!formato.equals("texto") && !formato.equals("comprimido")) {
+            throw new IllegalArgumentException("Formato de instantâneo desconhecido: " + formato
+                                               + " (use texto ou comprimido)");
+        }
+        return formato;
+    }
+    
+    private static int particoesPadrao() {
+        try {
+            if (ArquivoParticionado.modificacao(ArquivoParticionado.MANIFESTO) != null) {
+                return ArquivoParticionado.lerManifesto(ArquivoParticionado.MANIFESTO);
+            }
+        } catch (IOException e) {
+            System.out.println("Aviso: " + e.getMessage());
+        }
+        return Runtime.getRuntime().availableProcessors();
+    }
+    
+    // ========================================
+    // MÉTODOS UTILITÁRIOS PARA LEITURA E VALIDAÇÃO
+    // ========================================
+    
+    /**
+     * Lê uma string do console
+     */
+    private static String lerString(String prompt) {
+        System.out.print(prompt);
+        return scanner.nextLine().trim();
+    }
+    
+    /**
+     * Lê um inteiro do console com validação
+     */
+    private static int lerInteiro(String prompt) {
+        while (true) {
+            try {
+                System.out.print(prompt);
+                return Integer.parseInt(scanner.nextLine().trim());
+            } catch (NumberFormatException e) {
+                System.out.println("Por favor, digite um número válido.");
+            }
+        }
+    }
+    
+    /**
+     * Lê e valida um email
+     */
+    private static String lerEmail(String prompt) {
+        String email;
+        do {
+            email = lerString(prompt);
+            if (validarEmail(email)) {
+                return email;
+            }
+            System.out.println("Email inválido! Use o formato: usuario@dominio.com");
+        } while (true);
+    }
+    
+    /**
+     * Lê e valida uma idade
+     */
+    private static int lerIdade(String prompt) {
+        int idade;
+        do {
+            idade = lerInteiro(prompt);
+            if (idade > 0 && idade <= 150) {
+                return idade;
+            }
+            System.out.println("Idade deve estar entre 1 e 150 anos.");
+        } while (true);
+    }
+    
+    /**
+     * Lê e valida um CPF (com ou sem pontuação), devolvendo-o formatado
+     */
+    private static String lerCPF(String prompt) {
+        String cpf;
+        do {
+            cpf = lerString(prompt);
+            long digitos = validarCPF(cpf);
+            if (digitos >= 0) {
+                return ArquivoColunar.formatarCPF(digitos);
+            }
+            System.out.println("CPF inválido! Use 000.000.000-00 ou 00000000000 com dígitos verificadores corretos");
+        } while (true);
+    }
+    
+    /**
+     * Valida email percorrendo os caracteres (sem expressões regulares)
+     */
+    static boolean validarEmail(String email) {
+        long inicio = System.nanoTime();
+        boolean valido = ValidacaoCadastro.emailValido(email);
+        Metricas.VALIDACAO.registrar(inicio, valido);
+        return valido;
+    }
+    
+    /**
+     * Valida o CPF (dígitos verificadores), com ou sem pontuação
+     * 
+     * @return os 11 dígitos compactados, ou -1 se inválido
+     */
+    static long validarCPF(String cpf) {
+        long inicio = System.nanoTime();
+        long digitos = ValidacaoCadastro.compactarCPF(cpf);
+        Metricas.VALIDACAO.registrar(inicio, digitos >= 0);
+        return digitos;
+    }
+    
+    /**
+     * Atualiza a média de idade dos usuários a partir das estatísticas
+     * incrementais, sem percorrer a lista
+     */
+    private static void atualizarMediaIdade() {
+        mediaIdade = estatisticas.getMediaIdade();
+    }
+}
+
+/**
+ * Interface para validação de dados
+ * Demonstra o conceito de interface em Java
+ */
+interface Validador {
+    boolean validar();
+    String getMensagemErro();
+}
+
+/**
+ * Interface para ser avisado quando os dados de um usuário mudam
+ * Recebe os valores anteriores para que índices e agregados sejam ajustados
+ */
+interface OuvinteUsuario {
+    void usuarioAlterado(Usuario usuario, String nomeAnterior, String emailAnterior,
+                         int idadeAnterior, String cpfAnterior);
+}
+
+/**
+ * Classe base Usuario
+ * Demonstra encapsulamento, construtores e métodos
+ */
+class Usuario implements Validador, Serializable {
+    // Atributos privados (encapsulamento)
+    private String nome;
+    private String email;
+    private int idade;
+    private String cpf;
+    private Date dataCadastro;
+    private transient OuvinteUsuario ouvinte;  // avisado a cada alteração
+    private transient int idInterno = -1;      // posição no repositório
+    
+    // Construtor padrão
+    public Usuario() {
+        this.dataCadastro = new Date();
+    }
+    
+    // Construtor com parâmetros (sobrecarga de construtor)
+    public Usuario(String nome, String email, int idade, String cpf) {
+        this();
+        this.nome = nome;
+        this.email = email;
+        this.idade = idade;
+        this.cpf = cpf;
+        
+        // Validação no construtor
+        if (!validar()) {
+            throw new IllegalArgumentException(getMensagemErro());
+        }
+    }
+    
+    // Getters e Setters (encapsulamento)
+    public String getNome() { return nome; }
+    public void setNome(String nome) { atualizarDados(nome, email, idade); }
+    
+    public String getEmail() { return email; }
+    public void setEmail(String email) { atualizarDados(nome, email, idade); }
+    
+    public int getIdade() { return idade; }
+    public void setIdade(int idade) { atualizarDados(nome, email, idade); }
+    
+    public String getCpf() { return cpf; }
+    public void setCpf(String cpf) {
+        String cpfAnterior = this.cpf;
+        this.cpf = cpf;
+        try {
+            notificarAlteracao(nome, email, idade, cpfAnterior);
+        } catch (IllegalArgumentException e) {
+            this.cpf = cpfAnterior;  // alteração recusada pelo cadastro
+            throw e;
+        }
+    }
+    
+    public Date getDataCadastro() { return dataCadastro; }
+    
+    // Usado apenas ao restaurar usuários gravados em arquivo
+    void setDataCadastro(Date dataCadastro) { this.dataCadastro = dataCadastro; }
+    
+    // Definido pelo cadastro ao armazenar o usuário
+    void setOuvinte(OuvinteUsuario ouvinte) { this.ouvinte = ouvinte; }
+    
+    // Posição no repositório, definida na inserção (-1 enquanto não armazenado)
+    int getIdInterno() { return idInterno; }
+    void setIdInterno(int idInterno) { this.idInterno = idInterno; }
+    
+    /**
+     * Cria o usuário do tipo adequado à idade (fábrica polimórfica)
+     */
+    public static Usuario criar(String nome, String email, int idade, String cpf) {
+        // Estrutura condicional para determinar o tipo de usuário
+        if (idade < 18) {
+            return new UsuarioMenor(nome, email, idade, cpf);
+        } else if (idade >= 65) {
+            return new UsuarioIdoso(nome, email, idade, cpf);
+        } else {
+            return new Usuario(nome, email, idade, cpf);
+        }
+    }
+    
+    // Implementação da interface Validador
+    @Override
+    public boolean validar() {
+        return nome != null && !nome.trim().isEmpty() &&
+               email != null && !email.trim().isEmpty() &&
+               idade > 0 && idade <= 150 &&
+               cpf != null && !cpf.trim().isEmpty();
+    }
+    
+    @Override
+    public String getMensagemErro() {
+        if (nome == null || nome.trim().isEmpty()) return "Nome é obrigatório";
+        if (email == null || email.trim().isEmpty()) return "Email é obrigatório";
+        if (idade <= 0 || idade > 150) return "Idade deve estar entre 1 e 150";
+        if (cpf == null || cpf.trim().isEmpty()) return "CPF é obrigatório";
+        return "Dados válidos";
+    }
+    
+    // Sobrescrita do método toString (polimorfismo)
+    @Override
+    public String toString() {
+        return FormatadorUsuario.anexarTexto(new StringBuilder(128), this).toString();
+    }
+    
+    // Método para conversão para CSV
+    public String toCSV() {
+        return FormatadorUsuario.anexarCSV(new StringBuilder(80), this).toString();
+    }
+    
+    /**
+     * Campos próprios da subclasse, acrescentados ao final de toString
+     * (cada um precedido de ", ")
+     */
+    void anexarCamposExtras(Appendable destino) throws IOException {
+    }
+    
+    // Método que pode ser sobrescrito pelas subclasses (polimorfismo)
+    public String getTipoUsuario() {
+        return "Padrão";
+    }
+    
+    // Sobrescrita de método (múltiplos métodos com mesmo nome, parâmetros diferentes)
+    public void atualizarDados(String nome, String email) {
+        atualizarDados(nome, email, this.idade);
+    }
+    
+    public void atualizarDados(String nome, String email, int idade) {
+        String nomeAnterior = this.nome;
+        String emailAnterior = this.email;
+        int idadeAnterior = this.idade;
+        
+        this.nome = nome;
+        this.email = email;
+        this.idade = idade;
+        try {
+            notificarAlteracao(nomeAnterior, emailAnterior, idadeAnterior, cpf);
+        } catch (IllegalArgumentException e) {
+            // Alteração recusada pelo cadastro (email ou CPF duplicado)
+            this.nome = nomeAnterior;
+            this.email = emailAnterior;
+            this.idade = idadeAnterior;
+            throw e;
+        }
+    }
+    
+    private void notificarAlteracao(String nomeAnterior, String emailAnterior,
+                                    int idadeAnterior, String cpfAnterior) {
+        if (ouvinte != null) {
+            ouvinte.usuarioAlterado(this, nomeAnterior, emailAnterior, idadeAnterior, cpfAnterior);
+        }
+    }
+}
+
+/**
+ * Classe UsuarioMenor - herda de Usuario
+ * Demonstra herança e polimorfismo
+ */
+class UsuarioMenor extends Usuario {
+    private String responsavel;
+    
+    public UsuarioMenor(String nome, String email, int idade, String cpf) {
+        super(nome, email, idade, cpf);
+        this.responsavel = "Responsável não informado";
+    }
+    
+    public UsuarioMenor(String nome, String email, int idade, String cpf, String responsavel) {
+        super(nome, email, idade, cpf);
+        this.responsavel = responsavel;
+    }
+    
+    public String getResponsavel() { return responsavel; }
+    public void setResponsavel(String responsavel) { this.responsavel = responsavel; }
+    
+    // Sobrescrita do método getTipoUsuario (polimorfismo)
+    @Override
+    public String getTipoUsuario() {
+        return "Menor de Idade";
+    }
+    
+    // Sobrescrita do acréscimo de campos usado por toString
+    @Override
+    void anexarCamposExtras(Appendable destino) throws IOException {
+        destino.append(", responsavel='").append(String.valueOf(responsavel)).append('\'');
+    }
+    
+    // Sobrescrita do método validar da interface
+    @Override
+    public boolean validar() {
+        return super.validar() && getIdade() < 18;
+    }
+    
+    @Override
+    public String getMensagemErro() {
+        if (!super.validar()) {
+            return super.getMensagemErro();
+        }
+        if (getIdade() >= 18) {
+            return "Usuário menor deve ter menos de 18 anos";
+        }
+        return "Dados válidos";
+    }
+}
+
+/**
+ * Classe UsuarioIdoso - herda de Usuario
+ * Demonstra herança e polimorfismo
+ */
+class UsuarioIdoso extends Usuario {
+    private boolean temPlanoSaude;
+    
+    public UsuarioIdoso(String nome, String email, int idade, String cpf) {
+        super(nome, email, idade, cpf);
+        this.temPlanoSaude = false;
+    }
+    
+    public UsuarioIdoso(String nome, String email, int idade, String cpf, boolean temPlanoSaude) {
+        super(nome, email, idade, cpf);
+        this.temPlanoSaude = temPlanoSaude;
+    }
+    
+    public boolean isTemPlanoSaude() { return temPlanoSaude; }
+    public void setTemPlanoSaude(boolean temPlanoSaude) { this.temPlanoSaude = temPlanoSaude; }
+    
+    // Sobrescrita do método getTipoUsuario (polimorfismo)
+    @Override
+    public String getTipoUsuario() {
+        return "Idoso";
+    }
+    
+    // Sobrescrita do acréscimo de campos usado por toString
+    @Override
+    void anexarCamposExtras(Appendable destino) throws IOException {
+        destino.append(", temPlanoSaude=").append(temPlanoSaude ? "true" : "false");
+    }
+    
+    // Sobrescrita do método validar da interface
+    @Override
+    public boolean validar() {
+        return super.validar() && getIdade() >= 65;
+    }
+    
+    @Override
+    public String getMensagemErro() {
+        if (!super.validar()) {
+            return super.getMensagemErro();
+        }
+        if (getIdade() < 65) {
+            return "Usuário idoso deve ter 65 anos ou mais";
+        }
+        return "Dados válidos";
+    }
+}
+
+/**
+ * Classe utilitária para simular bibliotecas externas
+ * Demonstra criação de métodos utilitários
+ */
+class Utilitarios {
+    
+    /**
+     * Simula validação de string da Apache Commons
+     */
+    public static boolean isNotBlank(String str) {
+        return str != null && !str.trim().isEmpty();
+    }
+    
+    /**
+     * Simula conversão para JSON (como Gson), com os escapes do JSON
+     * (para muitos usuários, ver ArquivoNdjson)
+     */
+    public static String toJson(Usuario usuario) {
+        return Json.escreverUsuario(new StringBuilder(128), usuario).toString();
+    }
+    
+    /**
+     * Simula validação de email da Apache Commons
+     */
+    public static boolean isValidEmail(String email) {
+        return isNotBlank(email) && ValidacaoCadastro.emailValido(email);
+    }
+}
@@ -0,0 +1,188 @@
+package cadastro;
+
+/**
+ * Validação de email e CPF sem expressões regulares
+ *
+ * Os métodos percorrem os caracteres diretamente: não compilam Pattern, não
+ * criam Matcher e não alocam objetos, pois esta é a primeira etapa do
+ * caminho de importação em massa.
+ *
+ * Email segue a mesma gramática da expressão usada antes pelo sistema:
+ *   [a-zA-Z0-9._%+-]+ @ [a-zA-Z0-9.-]+ . [a-zA-Z]{2,}
+ * CPF aceita "000.000.000-00" ou "00000000000" e confere os dois dígitos
+ * verificadores; sequências de um único dígito repetido são recusadas.
+ */
+final class ValidacaoCadastro {
+
+    /**
+     * Campo validado pela entrada em lote
+     */
+    enum Campo { EMAIL, CPF }
+
+    private ValidacaoCadastro() {
+    }
+
+    /**
+     * Valida uma lista de valores de uma só vez (importação em massa)
+     *
+     * @param resultados recebe true/false na mesma posição de cada valor;
+     *                   deve ter pelo menos o tamanho de 'valores'
+     * @return quantidade de valores válidos
+     */
+    static int validar(Campo campo, CharSequence[] valores, boolean[] resultados) {
+        if (resultados.length < valores.length) {
+            throw new IllegalArgumentException("Vetor de resultados menor que o de valores");
+        }
+        int validos = 0;
+        for (int i = 0; i < valores.length; i++) {
+            boolean valido = campo == Campo.EMAIL ? emailValido(valores[i]) : cpfValido(valores[i]);
+            resultados[i] = valido;
+            if (valido) {
+                validos++;
+            }
+        }
+        return validos;
+    }
+
+    static boolean emailValido(CharSequence email) {
+        if (email == null) {
+            return false;
+        }
+        int tamanho = email.length();
+
+        // Parte local: um ou mais caracteres permitidos, até o '@'
+        int i = 0;
+        while (i < tamanho && caractereLocal(email.charAt(i))) {
+            i++;
+        }
+        if (i == 0 || i >= tamanho || email.charAt(i) != '@') {
+            return false;
+        }
+        int inicioDominio = ++i;
+
+        // Domínio: letras, dígitos, '.' e '-', lembrando o último '.'
+        int ultimoPonto = -1;
+        for (; i < tamanho; i++) {
+            char c = email.charAt(i);
+            if (c == '.') {
+                ultimoPonto = i;
+            } else if (!letra(c) && !digito(c) && c != '-') {
+                return false;
+            }
+        }
+
+        // Precisa de algo antes do último ponto e de 2+ letras depois dele
+        if (ultimoPonto <= inicioDominio || tamanho - ultimoPonto - 1 < 2) {
+            return false;
+        }
+        for (i = ultimoPonto + 1; i < tamanho; i++) {
+            if (!letra(email.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static boolean cpfValido(CharSequence cpf) {
+        return compactarCPF(cpf) >= 0;
+    }
+
+    /**
+     * Extrai os 11 dígitos de um CPF válido (com ou sem pontuação)
+     *
+     * @return os dígitos compactados em um long, ou -1 se o CPF for inválido
+     */
+    static long compactarCPF(CharSequence cpf) {
+        if (cpf == null) {
+            return -1;
+        }
+        int tamanho = cpf.length();
+        boolean formatado;
+        if (tamanho == 14) {
+            formatado = true;
+            if (cpf.charAt(3) != '.' || cpf.charAt(7) != '.' || cpf.charAt(11) != '-') {
+                return -1;
+            }
+        } else if (tamanho == 11) {
+            formatado = false;
+        } else {
+            return -1;
+        }
+
+        long valor = 0;
+        int soma1 = 0;          // soma ponderada para o 1º dígito verificador
+        int soma2 = 0;          // soma ponderada para o 2º dígito verificador
+        int primeiro = -1;
+        boolean todosIguais = true;
+        int posicao = 0;        // índice do dígito (0 a 10)
+
+        for (int i = 0; i < tamanho; i++) {
+            if (formatado && (i == 3 || i == 7 || i == 11)) {
+                continue;
+            }
+            char c = cpf.charAt(i);
+            if (!digito(c)) {
+                return -1;
+            }
+            int d = c - '0';
+            if (primeiro < 0) {
+                primeiro = d;
+            } else if (d != primeiro) {
+                todosIguais = false;
+            }
+            if (posicao < 9) {
+                soma1 += d * (10 - posicao);
+            }
+            if (posicao < 10) {
+                soma2 += d * (11 - posicao);
+            }
+            if (posicao == 9 && d != digitoVerificador(soma1)) {
+                return -1;
+            }
+            if (posicao == 10 && d != digitoVerificador(soma2)) {
+                return -1;
+            }
+            valor = valor * 10 + d;
+            posicao++;
+        }
+        return todosIguais ? -1 : valor;
+    }
+
+    /**
+     * Completa 9 dígitos base com os dois dígitos verificadores
+     *
+     * @param base valor de 0 a 999.999.999 (zeros à esquerda implícitos)
+     * @return os 11 dígitos do CPF compactados em um long
+     */
+    static long completarCPF(long base) {
+        int soma1 = 0;
+        int soma2 = 0;
+        long resto = base;
+        for (int posicao = 8; posicao >= 0; posicao--) {
+            int d = (int) (resto % 10);
+            resto /= 10;
+            soma1 += d * (10 - posicao);
+            soma2 += d * (11 - posicao);
+        }
+        int dv1 = digitoVerificador(soma1);
+        soma2 += dv1 * 2;
+        return (base * 10 + dv1) * 10 + digitoVerificador(soma2);
+    }
+
+    private static int digitoVerificador(int soma) {
+        int resto = (soma * 10) % 11;
+        return resto == 10 ? 0 : resto;
+    }
+
+    private static boolean caractereLocal(char c) {
+        return letra(c) || digito(c) || c == '.' || c == '_' || c == '%' || c == '+' || c == '-';
+    }
+
+    private static boolean letra(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    private static boolean digito(char c) {
+        return c >= '0' && c <= '9';
+    }
+}
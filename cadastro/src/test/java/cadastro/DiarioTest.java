@@ -0,0 +1,353 @@
+package cadastro;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.zip.CRC32;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Codificação dos registros do diário e recuperação depois de escritas
+ * interrompidas ou que falharam
+ */
+class DiarioTest {
+
+    @TempDir
+    Path diretorio;
+
+    @Test
+    void reproduzNomesComVirgulaEQuebraDeLinha() throws IOException {
+        Path arquivo = diretorio.resolve("usuarios.journal");
+        String[] nomes = { "Silva, Joao", "Maria\nda Penha", "José \"Zé\", o \u00e9\u00e7\u00e3" };
+        int[] idades = { 30, 12, 70 };
+        List<String> gravados = new ArrayList<>();
+        try (Diario diario = abrir(arquivo, null)) {
+            diario.reproduzir((operacao, email, usuario) -> { });
+            for (int i = 0; i < nomes.length; i++) {
+                Usuario usuario = Usuario.criar(nomes[i], "nome" + i + "@exemplo.com", idades[i],
+                                                ArquivoColunar.formatarCPF(ValidacaoCadastro.completarCPF(700_000 + i)));
+                usuario.setDataCadastro(new Date(1_500_000_000_000L + i));
+                Diario.aguardar(diario.registrarInsercao(usuario));
+                gravados.add(descrever(usuario));
+            }
+        }
+        try (Diario diario = abrir(arquivo, null)) {
+            List<String> reproduzidos = reproduzir(diario);
+            assertEquals(gravados, reproduzidos);
+            assertTrue(reproduzidos.get(1).startsWith("UsuarioMenor|"));
+            assertTrue(reproduzidos.get(2).startsWith("UsuarioIdoso|"));
+        }
+    }
+
+    @Test
+    void reproduzAlteracoesERemocoesEmOrdem() throws IOException {
+        Path arquivo = diretorio.resolve("usuarios.journal");
+        Usuario usuario = usuario(0);
+        try (Diario diario = abrir(arquivo, null)) {
+            diario.reproduzir((operacao, email, dados) -> { });
+            Diario.aguardar(diario.registrarInsercao(usuario));
+            usuario.atualizarDados("Nome, Novo", "novo@exemplo.com", 70);
+            Diario.aguardar(diario.registrarAlteracao("usuario0@exemplo.com", usuario));
+            Diario.aguardar(diario.registrarRemocao("novo@exemplo.com"));
+        }
+
+        List<String> operacoes = new ArrayList<>();
+        try (Diario diario = abrir(arquivo, null)) {
+            assertEquals(3, diario.reproduzir((operacao, email, dados) ->
+                    operacoes.add((char) operacao + " " + email + " " + (dados == null ? "-" : descrever(dados)))));
+        }
+        assertEquals("U usuario0@exemplo.com Usuario|Usuario 0|usuario0@exemplo.com|30|"
+                     + usuario.getCpf() + "|" + usuario.getDataCadastro().getTime(), operacoes.get(0));
+        assertEquals("A usuario0@exemplo.com " + descrever(usuario), operacoes.get(1));
+        assertEquals("R novo@exemplo.com -", operacoes.get(2));
+    }
+
+    @Test
+    void aindaLeRegistrosCSVDeVersoesAnteriores() throws IOException {
+        Path arquivo = diretorio.resolve("usuarios.journal");
+        byte[] linha = "Silva, Joao,joao@x.com,30,529.982.247-25".getBytes(StandardCharsets.UTF_8);
+        CRC32 crc = new CRC32();
+        crc.update('I');
+        crc.update(linha);
+        ByteBuffer registro = ByteBuffer.allocate(4 + 1 + linha.length + 4);
+        registro.putInt(1 + linha.length).put((byte) 'I').put(linha).putInt((int) crc.getValue());
+        Files.write(arquivo, registro.array());
+
+        try (Diario diario = abrir(arquivo, null)) {
+            List<Usuario> usuarios = new ArrayList<>();
+            assertEquals(1, diario.reproduzir((operacao, email, usuario) -> usuarios.add(usuario)));
+            assertEquals("Silva, Joao", usuarios.get(0).getNome());
+            assertEquals("joao@x.com", usuarios.get(0).getEmail());
+            assertEquals(30, usuarios.get(0).getIdade());
+            assertEquals("529.982.247-25", usuarios.get(0).getCpf());
+        }
+    }
+
+    @Test
+    void descartaRegistroIncompletoNoFinal() throws IOException {
+        Path arquivo = diretorio.resolve("usuarios.journal");
+        List<String> gravadas = new ArrayList<>();
+        try (Diario diario = abrir(arquivo, null)) {
+            assertEquals(0, diario.reproduzir((operacao, email, usuario) -> fail("diário novo não tem registros")));
+            for (int i = 0; i < 3; i++) {
+                gravadas.add(registrar(diario, i));
+            }
+        }
+        long tamanhoValido = Files.size(arquivo);
+
+        // Registro cortado no meio: tamanho, operação e parte dos dados, sem CRC
+        ByteBuffer parcial = ByteBuffer.allocate(12);
+        parcial.putInt(40).put(Diario.OP_INSERCAO).put("Fulano,".getBytes(StandardCharsets.UTF_8));
+        Files.write(arquivo, parcial.array(), StandardOpenOption.APPEND);
+
+        try (Diario diario = abrir(arquivo, null)) {
+            assertEquals(gravadas, reproduzir(diario));
+            assertEquals(tamanhoValido, Files.size(arquivo));
+            gravadas.add(registrar(diario, 3));
+        }
+        try (Diario diario = abrir(arquivo, null)) {
+            assertEquals(gravadas, reproduzir(diario));
+        }
+    }
+
+    @Test
+    void descartaRegistroComChecksumInvalido() throws IOException {
+        Path arquivo = diretorio.resolve("usuarios.journal");
+        List<String> gravadas = new ArrayList<>();
+        try (Diario diario = abrir(arquivo, null)) {
+            diario.reproduzir((operacao, email, usuario) -> { });
+            gravadas.add(registrar(diario, 0));
+            gravadas.add(registrar(diario, 1));
+        }
+
+        // Corrompe o último byte (CRC32 do segundo registro)
+        byte[] bytes = Files.readAllBytes(arquivo);
+        bytes[bytes.length - 1] ^= 0x5A;
+        Files.write(arquivo, bytes);
+
+        try (Diario diario = abrir(arquivo, null)) {
+            assertEquals(gravadas.subList(0, 1), reproduzir(diario));
+        }
+    }
+
+    @Test
+    void loteQueFalhouNaoEscondeOsSeguintes() throws IOException {
+        Path arquivo = diretorio.resolve("usuarios.journal");
+        CanalComFalhas[] canal = new CanalComFalhas[1];
+        List<String> confirmadas = new ArrayList<>();
+        try (Diario diario = abrir(arquivo, canal)) {
+            diario.reproduzir((operacao, email, usuario) -> { });
+            confirmadas.add(registrar(diario, 0));
+
+            // Metade do lote chega ao arquivo antes da falha
+            canal[0].falharEscrita = true;
+            CompletableFuture<Void> futuro = diario.registrarInsercao(usuario(1));
+            assertThrows(IOException.class, () -> Diario.aguardar(futuro));
+
+            confirmadas.add(registrar(diario, 2));
+        }
+        try (Diario diario = abrir(arquivo, null)) {
+            assertEquals(confirmadas, reproduzir(diario));
+        }
+    }
+
+    @Test
+    void recusaRegistrosSeNaoConsegueDesfazerOLote() throws IOException {
+        Path arquivo = diretorio.resolve("usuarios.journal");
+        CanalComFalhas[] canal = new CanalComFalhas[1];
+        List<String> confirmadas = new ArrayList<>();
+        try (Diario diario = abrir(arquivo, canal)) {
+            diario.reproduzir((operacao, email, usuario) -> { });
+            confirmadas.add(registrar(diario, 0));
+
+            canal[0].falharEscrita = true;
+            canal[0].falharTruncamento = true;
+            CompletableFuture<Void> futuro = diario.registrarInsercao(usuario(1));
+            IOException erro = assertThrows(IOException.class, () -> Diario.aguardar(futuro));
+            assertEquals(1, erro.getSuppressed().length);
+
+            assertThrows(IOException.class, () -> diario.registrarInsercao(usuario(2)));
+        }
+        // O registro incompleto ficou no arquivo e é descartado na recuperação
+        try (Diario diario = abrir(arquivo, null)) {
+            assertEquals(confirmadas, reproduzir(diario));
+        }
+    }
+
+    // ========================================
+    // AUXILIARES
+    // ========================================
+
+    /**
+     * Abre com fsync por registro; se 'canal' não for null, guarda nele o
+     * canal com falhas usado pelo diário
+     */
+    private static Diario abrir(Path arquivo, CanalComFalhas[] canal) throws IOException {
+        return Diario.abrir(arquivo, Diario.PoliticaSync.POR_REGISTRO, 1, caminho -> {
+            FileChannel aberto = FileChannel.open(caminho, StandardOpenOption.CREATE,
+                                                  StandardOpenOption.READ, StandardOpenOption.WRITE);
+            if (canal == null) {
+                return aberto;
+            }
+            canal[0] = new CanalComFalhas(aberto);
+            return canal[0];
+        });
+    }
+
+    private static String registrar(Diario diario, int indice) throws IOException {
+        Usuario usuario = usuario(indice);
+        Diario.aguardar(diario.registrarInsercao(usuario));
+        return descrever(usuario);
+    }
+
+    // Todos os campos gravados no diário, inclusive tipo e data de cadastro
+    private static String descrever(Usuario usuario) {
+        return usuario.getClass().getSimpleName() + "|" + usuario.getNome() + "|" + usuario.getEmail() + "|"
+               + usuario.getIdade() + "|" + usuario.getCpf() + "|" + usuario.getDataCadastro().getTime();
+    }
+
+    private static List<String> reproduzir(Diario diario) throws IOException {
+        List<String> descricoes = new ArrayList<>();
+        diario.reproduzir((operacao, email, usuario) -> {
+            assertEquals(Diario.OP_INSERCAO, operacao);
+            descricoes.add(descrever(usuario));
+        });
+        return descricoes;
+    }
+
+    private static Usuario usuario(int indice) {
+        return Usuario.criar("Usuario " + indice, "usuario" + indice + "@exemplo.com", 30,
+                             ArquivoColunar.formatarCPF(ValidacaoCadastro.completarCPF(123_456_000 + indice)));
+    }
+
+    /**
+     * Canal que repassa tudo ao arquivo, mas pode falhar uma escrita no meio
+     * (depois de gravar metade dos bytes) e os truncamentos
+     */
+    private static final class CanalComFalhas extends FileChannel {
+        private final FileChannel arquivo;
+        volatile boolean falharEscrita;
+        volatile boolean falharTruncamento;
+
+        CanalComFalhas(FileChannel arquivo) {
+            this.arquivo = arquivo;
+        }
+
+        @Override
+        public int write(ByteBuffer origem) throws IOException {
+            if (!falharEscrita) {
+                return arquivo.write(origem);
+            }
+            falharEscrita = false;
+            int limite = origem.limit();
+            origem.limit(origem.position() + origem.remaining() / 2);
+            try {
+                arquivo.write(origem);
+            } finally {
+                origem.limit(limite);
+            }
+            throw new IOException("Falha simulada de escrita");
+        }
+
+        @Override
+        public FileChannel truncate(long tamanho) throws IOException {
+            if (falharTruncamento) {
+                throw new IOException("Falha simulada de truncamento");
+            }
+            arquivo.truncate(tamanho);
+            return this;
+        }
+
+        @Override
+        public int read(ByteBuffer destino) throws IOException {
+            return arquivo.read(destino);
+        }
+
+        @Override
+        public long read(ByteBuffer[] destinos, int inicio, int quantidade) throws IOException {
+            return arquivo.read(destinos, inicio, quantidade);
+        }
+
+        @Override
+        public long write(ByteBuffer[] origens, int inicio, int quantidade) throws IOException {
+            return arquivo.write(origens, inicio, quantidade);
+        }
+
+        @Override
+        public long position() throws IOException {
+            return arquivo.position();
+        }
+
+        @Override
+        public FileChannel position(long posicao) throws IOException {
+            arquivo.position(posicao);
+            return this;
+        }
+
+        @Override
+        public long size() throws IOException {
+            return arquivo.size();
+        }
+
+        @Override
+        public void force(boolean metadados) throws IOException {
+            arquivo.force(metadados);
+        }
+
+        @Override
+        public long transferTo(long posicao, long quantidade, WritableByteChannel destino) throws IOException {
+            return arquivo.transferTo(posicao, quantidade, destino);
+        }
+
+        @Override
+        public long transferFrom(ReadableByteChannel origem, long posicao, long quantidade) throws IOException {
+            return arquivo.transferFrom(origem, posicao, quantidade);
+        }
+
+        @Override
+        public int read(ByteBuffer destino, long posicao) throws IOException {
+            return arquivo.read(destino, posicao);
+        }
+
+        @Override
+        public int write(ByteBuffer origem, long posicao) throws IOException {
+            return arquivo.write(origem, posicao);
+        }
+
+        @Override
+        public MappedByteBuffer map(MapMode modo, long posicao, long tamanho) throws IOException {
+            return arquivo.map(modo, posicao, tamanho);
+        }
+
+        @Override
+        public FileLock lock(long posicao, long tamanho, boolean compartilhada) throws IOException {
+            return arquivo.lock(posicao, tamanho, compartilhada);
+        }
+
+        @Override
+        public FileLock tryLock(long posicao, long tamanho, boolean compartilhada) throws IOException {
+            return arquivo.tryLock(posicao, tamanho, compartilhada);
+        }
+
+        @Override
+        protected void implCloseChannel() throws IOException {
+            arquivo.close();
+        }
+    }
+}
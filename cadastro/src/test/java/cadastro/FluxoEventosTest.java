@@ -0,0 +1,136 @@
+package cadastro;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Entrega em ordem e detecção de assinantes ultrapassados pelo produtor
+ */
+class FluxoEventosTest {
+
+    private static final Usuario[] USUARIOS = new Usuario[64];
+
+    static {
+        for (int i = 0; i < USUARIOS.length; i++) {
+            USUARIOS[i] = Usuario.criar("Usuario " + i, "usuario" + i + "@exemplo.com", 20 + i,
+                                        ArquivoColunar.formatarCPF(ValidacaoCadastro.completarCPF(987_654_000 + i)));
+        }
+    }
+
+    @Test
+    void arredondaACapacidade() {
+        assertEquals(8, new FluxoEventos(5).getCapacidade());
+        assertEquals(8, new FluxoEventos(8).getCapacidade());
+        assertThrows(IllegalArgumentException.class, () -> new FluxoEventos(0));
+    }
+
+    @Test
+    void entregaUmaVoltaInteiraSemPerder() {
+        FluxoEventos fluxo = new FluxoEventos(8);
+        FluxoEventos.Assinante assinante = fluxo.assinar(0, FluxoEventos.Espera.OCUPADA);
+        publicar(fluxo, 3);
+        assertEquals(3, assinante.ler(evento -> { }, 100));
+
+        // Exatamente a capacidade sem ler: nada foi sobrescrito ainda
+        publicar(fluxo, 8);
+        List<Long> sequencias = new ArrayList<>();
+        assertEquals(8, assinante.ler(evento -> {
+            sequencias.add(evento.getSequencia());
+            assertEquals(USUARIOS[(int) evento.getSequencia()].getEmail(), evento.getEmail());
+        }, 100));
+        assertEquals(3L, (long) sequencias.get(0));
+        assertEquals(10L, (long) sequencias.get(7));
+        assertEquals(11, assinante.getProxima());
+    }
+
+    @Test
+    void assinanteUltrapassadoRecebeEventosPerdidos() {
+        FluxoEventos fluxo = new FluxoEventos(8);
+        FluxoEventos.Assinante assinante = fluxo.assinar(0, FluxoEventos.Espera.OCUPADA);
+        publicar(fluxo, 3);
+        assertEquals(3, assinante.ler(evento -> { }, 100));
+
+        // Uma posição além da volta sobrescreve o evento 3, ainda não lido
+        publicar(fluxo, 9);
+        FluxoEventos.EventosPerdidos perdidos =
+                assertThrows(FluxoEventos.EventosPerdidos.class, () -> assinante.ler(evento -> fail(), 100));
+        assertEquals(3, perdidos.getSequencia());
+        assertEquals(4, perdidos.getPrimeiraDisponivel());
+        assertEquals(4, fluxo.getPrimeiraDisponivel());
+        assertThrows(FluxoEventos.EventosPerdidos.class, () -> assinante.ler(evento -> { }, 1));
+        assinante.close();
+
+        // A sequência perdida não pode ser assinada; a mais antiga disponível sim
+        assertThrows(FluxoEventos.EventosPerdidos.class, () -> fluxo.assinar(3, FluxoEventos.Espera.OCUPADA));
+        assertThrows(IllegalArgumentException.class, () -> fluxo.assinar(13, FluxoEventos.Espera.OCUPADA));
+        FluxoEventos.Assinante novo = fluxo.assinar(perdidos.getPrimeiraDisponivel(), FluxoEventos.Espera.OCUPADA);
+        List<Long> sequencias = new ArrayList<>();
+        assertEquals(8, novo.ler(evento -> sequencias.add(evento.getSequencia()), 100));
+        assertEquals(4L, (long) sequencias.get(0));
+        assertEquals(11L, (long) sequencias.get(7));
+    }
+
+    @Test
+    void assinanteLentoNuncaRecebeEventoMisturado() throws Exception {
+        FluxoEventos fluxo = new FluxoEventos(16);
+        int total = 200_000;
+        AtomicReference<Throwable> erro = new AtomicReference<>();
+        FluxoEventos.Assinante[] assinante = { fluxo.assinar(0, FluxoEventos.Espera.CEDENDO) };
+
+        Thread produtor = new Thread(() -> {
+            try {
+                publicar(fluxo, total);
+            } catch (Throwable e) {
+                erro.compareAndSet(null, e);
+            }
+        });
+        produtor.start();
+
+        long[] esperada = {0};
+        while (esperada[0] < total && erro.get() == null) {
+            try {
+                assinante[0].ler(evento -> {
+                    assertEquals(esperada[0], evento.getSequencia());
+                    Usuario usuario = USUARIOS[(int) (evento.getSequencia() % USUARIOS.length)];
+                    assertEquals(usuario.getEmail(), evento.getEmail());
+                    assertEquals(usuario.getIdade(), evento.getIdade());
+                    esperada[0]++;
+                }, 4);
+            } catch (FluxoEventos.EventosPerdidos e) {
+                assertEquals(esperada[0], e.getSequencia());
+                assinante[0].close();
+                // Retoma do mais antigo ainda no anel (que pode sair antes da nova assinatura)
+                long desde = e.getPrimeiraDisponivel();
+                while (true) {
+                    assertTrue(desde > esperada[0]);
+                    try {
+                        assinante[0] = fluxo.assinar(desde, FluxoEventos.Espera.CEDENDO);
+                        break;
+                    } catch (FluxoEventos.EventosPerdidos denovo) {
+                        desde = denovo.getPrimeiraDisponivel();
+                    }
+                }
+                esperada[0] = desde;
+            }
+            Thread.yield();
+        }
+        produtor.join();
+        if (erro.get() != null) {
+            throw new AssertionError(erro.get());
+        }
+        assertEquals(total, fluxo.getProxima());
+        assertEquals(total, esperada[0]);
+    }
+
+    private static void publicar(FluxoEventos fluxo, int quantidade) {
+        long inicio = fluxo.getProxima();
+        for (long i = inicio; i < inicio + quantidade; i++) {
+            fluxo.publicarInsercao(USUARIOS[(int) (i % USUARIOS.length)]);
+        }
+    }
+}
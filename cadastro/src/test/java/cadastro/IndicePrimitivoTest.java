@@ -0,0 +1,178 @@
+package cadastro;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Redimensionamento incremental, marcas de remoção e acesso concorrente
+ */
+class IndicePrimitivoTest {
+
+    @Test
+    void buscaAtravesDeRedimensionamentosERemocoes() {
+        IndicePrimitivo indice = new IndicePrimitivo();
+        int quantidade = 100_000;
+        for (int i = 0; i < quantidade; i++) {
+            assertEquals(IndicePrimitivo.AUSENTE, indice.inserirSeAusente(chave(i), i, null));
+        }
+        assertEquals(quantidade, indice.tamanho());
+
+        // Remove os ímpares: as posições viram marcas de remoção
+        for (int i = 1; i < quantidade; i += 2) {
+            assertTrue(indice.remover(chave(i), i));
+        }
+        assertFalse(indice.remover(chave(1), 1));
+        assertEquals(quantidade / 2, indice.tamanho());
+        for (int i = 0; i < quantidade; i++) {
+            assertEquals(i % 2 == 0 ? i : IndicePrimitivo.AUSENTE, indice.buscar(chave(i)));
+        }
+
+        // Reinsere com outros valores; as chaves pares continuam únicas
+        for (int i = 1; i < quantidade; i += 2) {
+            assertEquals(IndicePrimitivo.AUSENTE, indice.inserirSeAusente(chave(i), i + quantidade, null));
+        }
+        for (int i = 0; i < quantidade; i += 2) {
+            assertEquals(i, indice.inserirSeAusente(chave(i), i + quantidade, null));
+        }
+        assertEquals(quantidade, indice.tamanho());
+        for (int i = 0; i < quantidade; i++) {
+            assertEquals(i % 2 == 0 ? i : i + quantidade, indice.buscar(chave(i)));
+        }
+    }
+
+    @Test
+    void muitasInsercoesERemocoesNaoEsgotamATabela() {
+        IndicePrimitivo indice = new IndicePrimitivo();
+        // Sempre poucas chaves vivas, mas cada ciclo deixa marcas de remoção
+        for (int i = 0; i < 200_000; i++) {
+            assertEquals(IndicePrimitivo.AUSENTE, indice.inserirSeAusente(chave(i), i, null));
+            if (i >= 10) {
+                assertTrue(indice.remover(chave(i - 10), i - 10));
+            }
+        }
+        assertEquals(10, indice.tamanho());
+        for (int i = 199_990; i < 200_000; i++) {
+            assertEquals(i, indice.buscar(chave(i)));
+        }
+        assertEquals(IndicePrimitivo.AUSENTE, indice.buscar(chave(199_989)));
+    }
+
+    @Test
+    void chavesIguaisSaoDistinguidasPelaConfirmacao() {
+        IndicePrimitivo indice = new IndicePrimitivo();
+        long chave = 42;
+        // Muitos valores com a mesma chave: a busca confirma um por um
+        for (int valor = 0; valor < 40; valor++) {
+            int v = valor;
+            assertEquals(IndicePrimitivo.AUSENTE, indice.inserirSeAusente(chave, valor, outro -> outro == v));
+        }
+        assertEquals(7, indice.inserirSeAusente(chave, 7, outro -> outro == 7));
+        for (int valor = 0; valor < 40; valor++) {
+            int v = valor;
+            assertEquals(valor, indice.buscar(chave, outro -> outro == v));
+        }
+
+        for (int valor = 0; valor < 40; valor += 3) {
+            assertTrue(indice.remover(chave, valor));
+        }
+        for (int valor = 0; valor < 40; valor++) {
+            int v = valor;
+            assertEquals(valor % 3 == 0 ? IndicePrimitivo.AUSENTE : valor, indice.buscar(chave, outro -> outro == v));
+        }
+        assertEquals(40 - 14, indice.tamanho());
+    }
+
+    @Test
+    void redimensionaComInsercoesERemocoesConcorrentes() throws Exception {
+        IndicePrimitivo indice = new IndicePrimitivo();
+        int estaveis = 1_000;
+        for (int i = 0; i < estaveis; i++) {
+            indice.inserirSeAusente(chave(i), i, null);
+        }
+
+        int escritores = 4;
+        int porEscritor = 50_000;
+        AtomicBoolean escrevendo = new AtomicBoolean(true);
+        AtomicReference<Throwable> erro = new AtomicReference<>();
+        CountDownLatch largada = new CountDownLatch(1);
+
+        Thread[] leitores = new Thread[2];
+        for (int l = 0; l < leitores.length; l++) {
+            leitores[l] = new Thread(() -> {
+                try {
+                    largada.await();
+                    do {
+                        for (int i = 0; i < estaveis; i++) {
+                            int encontrado = indice.buscar(chave(i));
+                            if (encontrado != i) {
+                                throw new AssertionError("Chave estável " + i + " devolveu " + encontrado);
+                            }
+                        }
+                    } while (escrevendo.get());
+                } catch (Throwable e) {
+                    erro.compareAndSet(null, e);
+                }
+            });
+        }
+
+        // Cada escritor insere a própria faixa de chaves e remove as de índice ímpar
+        Thread[] threads = new Thread[escritores];
+        for (int e = 0; e < escritores; e++) {
+            int inicio = estaveis + e * porEscritor;
+            threads[e] = new Thread(() -> {
+                try {
+                    largada.await();
+                    for (int i = inicio; i < inicio + porEscritor; i++) {
+                        if (indice.inserirSeAusente(chave(i), i, null) != IndicePrimitivo.AUSENTE) {
+                            throw new AssertionError("Chave " + i + " já estava no índice");
+                        }
+                        if ((i & 1) == 1 && !indice.remover(chave(i), i)) {
+                            throw new AssertionError("Chave " + i + " não foi removida");
+                        }
+                    }
+                } catch (Throwable t) {
+                    erro.compareAndSet(null, t);
+                }
+            });
+        }
+
+        for (Thread leitor : leitores) {
+            leitor.start();
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        largada.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        escrevendo.set(false);
+        for (Thread leitor : leitores) {
+            leitor.join();
+        }
+        if (erro.get() != null) {
+            throw new AssertionError(erro.get());
+        }
+
+        int ultima = estaveis + escritores * porEscritor;
+        int esperado = estaveis;
+        for (int i = estaveis; i < ultima; i++) {
+            boolean vivo = (i & 1) == 0;
+            assertEquals(vivo ? i : IndicePrimitivo.AUSENTE, indice.buscar(chave(i)), "chave " + i);
+            if (vivo) {
+                esperado++;
+            }
+        }
+        assertEquals(esperado, indice.tamanho());
+    }
+
+    // Chaves espalhadas como as de IndicePrimitivo.hash
+    private static long chave(int i) {
+        return IndicePrimitivo.hash("usuario" + i + "@exemplo.com");
+    }
+}
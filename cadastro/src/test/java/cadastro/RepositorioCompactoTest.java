@@ -0,0 +1,76 @@
+package cadastro;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Busca por email comparada contra a arena sem criar Strings
+ */
+class RepositorioCompactoTest {
+
+    private static final String[] EMAILS = {
+        "ana@exemplo.com",
+        "bruno@exemplo.com",
+        "joão.çedilha@exemplo.com.br",
+        "emoji😀@exemplo.com",
+        "sobra\uD83D@exemplo.com",        // surrogate isolado
+        "sem-arroba",
+        "dois@arrobas@exemplo.com",
+        "@exemplo.com",
+        "vazio@",
+    };
+
+    @Test
+    void encontraEmailsComAcentosSurrogatesEArrobas() {
+        for (boolean foraDoHeap : new boolean[] { false, true }) {
+            RepositorioCompacto repositorio = new RepositorioCompacto(16, foraDoHeap);
+            for (int i = 0; i < EMAILS.length; i++) {
+                assertEquals(i, repositorio.inserir(usuario(EMAILS[i], i)), EMAILS[i]);
+            }
+            for (int i = 0; i < EMAILS.length; i++) {
+                Usuario encontrado = repositorio.buscarPorEmail(EMAILS[i]);
+                assertNotNull(encontrado, EMAILS[i]);
+                assertEquals(i, encontrado.getIdInterno());
+                assertEquals(-1, repositorio.inserir(usuario(EMAILS[i], 99)), EMAILS[i]);
+            }
+            assertEquals(3, repositorio.getQuantidadeDominios());   // exemplo.com, exemplo.com.br e vazio
+        }
+    }
+
+    @Test
+    void naoConfundeEmailsParecidos() {
+        RepositorioCompacto repositorio = new RepositorioCompacto();
+        for (int i = 0; i < EMAILS.length; i++) {
+            repositorio.inserir(usuario(EMAILS[i], i));
+        }
+        String[] parecidos = {
+            "an@exemplo.com", "anaa@exemplo.com", "ana@exemplo.co", "ana@exemplo.com.br",
+            "joao.çedilha@exemplo.com.br", "joão.cedilha@exemplo.com.br", "emoji😁@exemplo.com",
+            "emoji\uD83D@exemplo.com", "sem-arrob", "sem-arroba@", "dois@arrobas@exemplo.co", "x@exemplo.com",
+        };
+        for (String email : parecidos) {
+            assertNull(repositorio.buscarPorEmail(email), email);
+        }
+        assertEquals(3, repositorio.getQuantidadeDominios());   // exemplo.com, exemplo.com.br e vazio
+    }
+
+    @Test
+    void alteracaoDeEmailMudaADominioNovo() {
+        RepositorioCompacto repositorio = new RepositorioCompacto();
+        Usuario usuario = usuario("ana@exemplo.com", 0);
+        repositorio.inserir(usuario);
+        repositorio.inserir(usuario("bruno@exemplo.com", 1));
+
+        assertFalse(repositorio.reindexarEmail(usuario, "ana@exemplo.com", "bruno@exemplo.com"));
+        assertTrue(repositorio.reindexarEmail(usuario, "ana@exemplo.com", "ana@outro.org"));
+        assertNull(repositorio.buscarPorEmail("ana@exemplo.com"));
+        assertEquals(0, repositorio.buscarPorEmail("ana@outro.org").getIdInterno());
+        assertEquals(2, repositorio.getQuantidadeDominios());
+    }
+
+    private static Usuario usuario(String email, int i) {
+        return Usuario.criar("Usuario " + i, email, 30,
+                             ArquivoColunar.formatarCPF(ValidacaoCadastro.completarCPF(456_789_000 + i)));
+    }
+}
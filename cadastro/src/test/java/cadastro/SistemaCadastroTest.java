@@ -0,0 +1,143 @@
+package cadastro;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Recuperação do cadastro depois de reiniciar
+ *
+ * O estado do sistema é estático e os arquivos ficam no diretório atual,
+ * então cada etapa roda num processo próprio (este main) no diretório
+ * temporário do teste.
+ */
+class SistemaCadastroTest {
+
+    @TempDir
+    Path diretorio;
+
+    @Test
+    void alteracaoFeitaDepoisDoInstantaneoSobreviveAoReinicio() throws Exception {
+        List<String> gravacao = executar("--alterar", "-Dcadastro.diario.compactarApos=1000000");
+        assertTrue(gravacao.contains("alterado"), gravacao.toString());
+        assertFalse(Files.exists(diretorio.resolve("usuarios.bin")), "nenhum instantâneo deveria ter sido gravado");
+
+        List<String> recuperacao = executar("--verificar", "-Dcadastro.diario.compactarApos=1000000");
+        String data = valor(gravacao, "data ");
+        assertTrue(recuperacao.contains("ana.lima@x.com|Ana Souza, Lima|31|" + data), recuperacao.toString());
+        assertTrue(recuperacao.contains("ausente ana@x.com"), recuperacao.toString());
+        assertTrue(recuperacao.contains("bruno@x.com|Bruno|40"), recuperacao.toString());
+    }
+
+    @Test
+    void alteracoesContamParaOInstantaneoAutomatico() throws Exception {
+        // Um cadastro e duas alterações atingem o limite de 3 registros
+        List<String> saida = executar("--alterarDuasVezes", "-Dcadastro.diario.compactarApos=3");
+        assertTrue(saida.contains("instantaneo gravado"), saida.toString());
+    }
+
+    // ========================================
+    // PROCESSOS
+    // ========================================
+
+    public static void main(String[] args) throws Exception {
+        switch (args[0]) {
+            case "--alterar": {
+                SistemaCadastro.recuperarDados();
+                Usuario ana = SistemaCadastro.cadastrar("Ana, Souza", "ana@x.com", 30, cpf(1));
+                SistemaCadastro.cadastrar("Bruno", "bruno@x.com", 40, cpf(2));
+                ana.atualizarDados("Ana Souza, Lima", "ana.lima@x.com", 31);
+                SistemaCadastro.salvar();
+                System.out.println("data " + ana.getDataCadastro().getTime());
+                System.out.println("alterado");
+                System.out.flush();
+                Runtime.getRuntime().halt(0);   // sem instantâneo nem fechamento
+                break;
+            }
+            case "--alterarDuasVezes": {
+                SistemaCadastro.recuperarDados();
+                Usuario ana = SistemaCadastro.cadastrar("Ana", "ana@x.com", 30, cpf(1));
+                ana.setIdade(31);
+                ana.setNome("Ana Lima");
+                long prazo = System.currentTimeMillis() + 30_000;
+                while (!Files.exists(Paths.get("usuarios.bin")) && System.currentTimeMillis() < prazo) {
+                    Thread.sleep(20);
+                }
+                System.out.println(Files.exists(Paths.get("usuarios.bin")) ? "instantaneo gravado" : "sem instantaneo");
+                System.out.flush();
+                Runtime.getRuntime().halt(0);
+                break;
+            }
+            case "--verificar": {
+                SistemaCadastro.recuperarDados();
+                for (String email : new String[] { "ana@x.com", "ana.lima@x.com", "bruno@x.com" }) {
+                    Usuario usuario = SistemaCadastro.buscarPorEmail(email);
+                    if (usuario == null) {
+                        System.out.println("ausente " + email);
+                    } else if (email.startsWith("ana")) {
+                        System.out.println(email + "|" + usuario.getNome() + "|" + usuario.getIdade() + "|"
+                                           + usuario.getDataCadastro().getTime());
+                    } else {
+                        System.out.println(email + "|" + usuario.getNome() + "|" + usuario.getIdade());
+                    }
+                }
+                SistemaCadastro.encerrar();
+                break;
+            }
+            default:
+                throw new IllegalArgumentException(args[0]);
+        }
+    }
+
+    private static String cpf(int i) {
+        return ArquivoColunar.formatarCPF(ValidacaoCadastro.completarCPF(321_000_000 + i));
+    }
+
+    // ========================================
+    // AUXILIARES
+    // ========================================
+
+    private List<String> executar(String etapa, String propriedade) throws IOException, InterruptedException {
+        List<String> comando = new ArrayList<>();
+        comando.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        comando.add("-cp");
+        comando.add(TesteRecuperacao.classpathAbsoluto());
+        comando.add("-Dfile.encoding=UTF-8");
+        comando.add("-Dcadastro.instantaneo.intervalo=0");
+        comando.add(propriedade);
+        comando.add(SistemaCadastroTest.class.getName());
+        comando.add(etapa);
+        Process processo = new ProcessBuilder(comando).directory(diretorio.toFile())
+                                                      .redirectErrorStream(true).start();
+        List<String> linhas = new ArrayList<>();
+        try (BufferedReader entrada = new BufferedReader(
+                new InputStreamReader(processo.getInputStream(), StandardCharsets.UTF_8))) {
+            String linha;
+            while ((linha = entrada.readLine()) != null) {
+                linhas.add(linha);
+            }
+        }
+        assertEquals(0, processo.waitFor(), linhas.toString());
+        return linhas;
+    }
+
+    private static String valor(List<String> linhas, String prefixo) {
+        for (String linha : linhas) {
+            if (linha.startsWith(prefixo)) {
+                return linha.substring(prefixo.length());
+            }
+        }
+        throw new AssertionError("Sem '" + prefixo + "' em " + linhas);
+    }
+}
@@ -0,0 +1,210 @@
+package cadastro;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Teste de recuperação: mata o processo que grava em pontos aleatórios
+ *
+ * Cada rodada inicia um processo escritor num diretório de trabalho, que
+ * recupera o estado deixado pela rodada anterior e cadastra usuários sem
+ * parar, com instantâneos em segundo plano frequentes (a cada 300
+ * alterações e a cada segundo). Cada cadastro confirmado (já no diário,
+ * com fsync) é informado numa linha "ok <email>". Depois de um tempo
+ * aleatório o escritor é morto (SIGKILL), possivelmente no meio de um
+ * registro do diário, de um instantâneo ou de uma rotação. Um segundo
+ * processo então recupera os arquivos e verifica que todos os cadastros
+ * confirmados até ali estão presentes.
+ *
+ * Matar o processo não descarta o que já está no cache de páginas do
+ * sistema operacional: o teste cobre falhas do processo, não queda de
+ * energia.
+ *
+ * Uso:
+ *   java -cp target/classes:target/test-classes cadastro.TesteRecuperacao [rodadas] [diretorio]
+ * Padrões: 20 rodadas num diretório temporário novo
+ */
+class TesteRecuperacao {
+
+    private static final String CONFIRMADOS = "confirmados.txt";
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 1 && args[0].equals("--escritor")) {
+            escrever(Integer.parseInt(args[1]));
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--verificar")) {
+            System.exit(verificar());
+            return;
+        }
+
+        int rodadas = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        Path diretorio = args.length > 1
+                ? Files.createDirectories(Paths.get(args[1]))
+                : Files.createTempDirectory("recuperacao");
+        System.out.printf("Teste de recuperação: %d rodadas em '%s'%n", rodadas, diretorio);
+
+        long totalConfirmados = 0;
+        int falhas = 0;
+        for (int rodada = 1; rodada <= rodadas; rodada++) {
+            List<String> confirmados = executarEscritor(diretorio, rodada);
+            Files.write(diretorio.resolve(CONFIRMADOS), confirmados, StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            totalConfirmados += confirmados.size();
+
+            Process verificador = processo(diretorio, "--verificar").start();
+            List<String> saida = lerTudo(verificador);
+            int codigo = verificador.waitFor();
+
+            StringBuilder descartes = new StringBuilder();
+            String resumo = "";
+            for (String linha : saida) {
+                if (linha.startsWith("Descartado") || linha.startsWith("Diário:")
+                        || linha.startsWith("Instantâneo binário ignorado")) {
+                    descartes.append(System.lineSeparator()).append("    ").append(linha);
+                } else if (linha.startsWith("verificacao:")) {
+                    resumo = linha.substring("verificacao:".length()).trim();
+                }
+            }
+            System.out.printf("rodada %2d: %5d confirmados, %s%s%n",
+                              rodada, confirmados.size(), resumo, descartes);
+            if (codigo != 0) {
+                falhas++;
+                saida.forEach(linha -> System.out.println("    | " + linha));
+            }
+        }
+
+        System.out.printf("%d cadastros confirmados em %d rodadas; %d rodada(s) com perda de dados%n",
+                          totalConfirmados, rodadas, falhas);
+        System.exit(falhas == 0 ? 0 : 1);
+    }
+
+    /**
+     * Inicia o escritor, espera o primeiro cadastro, deixa-o gravar por um
+     * tempo aleatório e o mata
+     *
+     * @return emails confirmados pelo escritor antes de morrer
+     */
+    private static List<String> executarEscritor(Path diretorio, int rodada) throws Exception {
+        Process escritor = processo(diretorio, "--escritor", String.valueOf(rodada)).start();
+        List<String> confirmados = new ArrayList<>();
+        CountDownLatch primeiro = new CountDownLatch(1);
+
+        Thread leitor = new Thread(() -> {
+            try (BufferedReader entrada = new BufferedReader(
+                    new InputStreamReader(escritor.getInputStream(), StandardCharsets.UTF_8))) {
+                String linha;
+                while ((linha = entrada.readLine()) != null) {
+                    if (linha.startsWith("ok ")) {
+                        synchronized (confirmados) {
+                            confirmados.add(linha.substring(3));
+                        }
+                        primeiro.countDown();
+                    }
+                }
+            } catch (IOException e) {
+                // processo morto
+            }
+        }, "leitor-escritor");
+        leitor.start();
+
+        if (!primeiro.await(60, TimeUnit.SECONDS)) {
+            escritor.destroyForcibly();
+            throw new IllegalStateException("O escritor não confirmou nenhum cadastro");
+        }
+        Thread.sleep(ThreadLocalRandom.current().nextLong(50, 2000));
+        escritor.destroyForcibly().waitFor();
+        leitor.join();
+
+        synchronized (confirmados) {
+            return new ArrayList<>(confirmados);
+        }
+    }
+
+    // O processo filho roda no diretório de trabalho: cada entrada vira caminho absoluto
+    static String classpathAbsoluto() {
+        StringBuilder classpath = new StringBuilder();
+        for (String entrada : System.getProperty("java.class.path").split(File.pathSeparator)) {
+            if (classpath.length() > 0) {
+                classpath.append(File.pathSeparator);
+            }
+            classpath.append(Paths.get(entrada).toAbsolutePath());
+        }
+        return classpath.toString();
+    }
+
+    private static ProcessBuilder processo(Path diretorio, String... argumentos) {
+        List<String> comando = new ArrayList<>();
+        comando.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        comando.add("-cp");
+        comando.add(classpathAbsoluto());
+        comando.add("-Dcadastro.diario.compactarApos=300");
+        comando.add("-Dcadastro.instantaneo.intervalo=1");
+        comando.add(TesteRecuperacao.class.getName());
+        for (String argumento : argumentos) {
+            comando.add(argumento);
+        }
+        return new ProcessBuilder(comando).directory(diretorio.toFile()).redirectErrorStream(true);
+    }
+
+    private static List<String> lerTudo(Process processo) throws IOException {
+        List<String> linhas = new ArrayList<>();
+        try (BufferedReader entrada = new BufferedReader(
+                new InputStreamReader(processo.getInputStream(), StandardCharsets.UTF_8))) {
+            String linha;
+            while ((linha = entrada.readLine()) != null) {
+                linhas.add(linha);
+            }
+        }
+        return linhas;
+    }
+
+    /**
+     * Processo escritor: cadastra até ser morto
+     */
+    private static void escrever(int rodada) {
+        SistemaCadastro.recuperarDados();
+        for (long i = 0; ; i++) {
+            String email = "r" + rodada + "n" + i + "@teste.com";
+            long base = 100_000_000L + (rodada * 10_000_000L + i) % 900_000_000L;
+            String cpf = ArquivoColunar.formatarCPF(ValidacaoCadastro.completarCPF(base));
+            SistemaCadastro.cadastrar("Usuario " + i, email, 18 + (int) (i % 60), cpf);
+            System.out.println("ok " + email);
+        }
+    }
+
+    /**
+     * Processo verificador: recupera e procura cada email confirmado
+     *
+     * @return código de saída: 0 se nenhum cadastro confirmado se perdeu
+     */
+    private static int verificar() throws IOException {
+        SistemaCadastro.recuperarDados();
+        List<String> confirmados = Files.readAllLines(Paths.get(CONFIRMADOS), StandardCharsets.UTF_8);
+        int ausentes = 0;
+        for (String email : confirmados) {
+            if (SistemaCadastro.buscarPorEmail(email) == null) {
+                if (ausentes < 10) {
+                    System.out.println("ausente: " + email);
+                }
+                ausentes++;
+            }
+        }
+        System.out.printf("verificacao: %d usuário(s) recuperados, %d confirmado(s) ausente(s)%n",
+                          SistemaCadastro.getEstatisticas().getQuantidade(), ausentes);
+        SistemaCadastro.encerrar();
+        return ausentes == 0 ? 0 : 1;
+    }
+}
@@ -0,0 +1,296 @@
+package cadastro;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.SplittableRandom;
+import java.util.stream.Stream;
+
+/**
+ * Teste de vazão de ponta a ponta: ciclos de gerar → carregar → consultar → salvar
+ *
+ * Cada ciclo gera 'usuariosPorCiclo' usuários novos (GeradorUsuarios, índices
+ * seguintes aos do ciclo anterior) num arquivo do formato escolhido, carrega
+ * o arquivo no cadastro pelo mesmo caminho da carga em lote (deduplicação
+ * incluída), faz buscas por email, CPF, prefixo do nome e faixa de idade e
+ * consultas agregadas sobre tudo o que já foi carregado, e grava o cadastro
+ * inteiro no mesmo formato. Com "direto", os usuários gerados são
+ * cadastrados um a um (SistemaCadastro.cadastrar), sem arquivo, e o
+ * cadastro é salvo em binário.
+ *
+ * Para cada etapa: itens por segundo, MB/s do arquivo lido ou gravado, o
+ * pico do heap durante a etapa (soma dos picos de cada região) e o heap e a
+ * memória direta ocupados depois de uma coleta completa (fora do tempo).
+ * O cadastro cresce a cada ciclo: a comparação entre ciclos mostra como a
+ * vazão e a memória variam com o tamanho.
+ *
+ * Configuração: cadastro.vazao.buscas (buscas por email e por CPF por
+ * ciclo; padrão 100000; prefixo e faixa fazem um décimo disso),
+ * cadastro.vazao.agregadas (padrão 20) e as do GeradorUsuarios.
+ *
+ * Uso:
+ *   java -Xmx4g -cp target/classes:target/test-classes cadastro.TesteVazao [usuariosPorCiclo] [ciclos] [csv|bin|ndjson|direto] [diretorio]
+ * Padrões: 1000000 usuários, 3 ciclos, csv, num diretório temporário removido ao final
+ */
+class TesteVazao {
+
+    private static final int BUSCAS = Integer.getInteger("cadastro.vazao.buscas", 100_000);
+    private static final int AGREGADAS = Integer.getInteger("cadastro.vazao.agregadas", 20);
+    private static final int LIMITE_RESULTADOS = 20;
+
+    /**
+     * Trabalho medido de uma etapa
+     */
+    private interface Etapa {
+        /**
+         * @return itens processados
+         */
+        long executar() throws IOException;
+    }
+
+    private final GeradorUsuarios gerador;
+    private final long semente;
+    private final GeradorUsuarios.Formato formato;     // null: inserção direta
+    private final Path diretorio;
+    private long falhas;                                // da etapa em andamento
+
+    TesteVazao(long semente, GeradorUsuarios.Formato formato, Path diretorio) {
+        this.gerador = new GeradorUsuarios(semente);
+        this.semente = semente;
+        this.formato = formato;
+        this.diretorio = diretorio;
+    }
+
+    public static void main(String[] args) throws IOException {
+        int usuariosPorCiclo = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int ciclos = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        String nomeFormato = args.length > 2 ? args[2] : "csv";
+        GeradorUsuarios.Formato formato = nomeFormato.equalsIgnoreCase("direto")
+                ? null : GeradorUsuarios.Formato.porNome(nomeFormato);
+        boolean temporario = args.length <= 3;
+        Path diretorio = temporario
+                ? Files.createTempDirectory("vazao")
+                : Files.createDirectories(Paths.get(args[3]));
+
+        System.out.printf("Teste de vazão: %d ciclo(s) de %,d usuários, %s, em '%s' (heap máximo %d MB)%n%n",
+                          ciclos, usuariosPorCiclo, formato == null ? "inserção direta" : nomeFormato.toLowerCase(),
+                          diretorio, Runtime.getRuntime().maxMemory() >> 20);
+        try {
+            new TesteVazao(GeradorUsuarios.SEMENTE_PADRAO, formato, diretorio).executar(usuariosPorCiclo, ciclos);
+        } finally {
+            if (temporario) {
+                try (Stream<Path> arquivos = Files.walk(diretorio)) {
+                    arquivos.sorted(Comparator.reverseOrder()).forEach(arquivo -> arquivo.toFile().delete());
+                }
+            }
+        }
+    }
+
+    void executar(int usuariosPorCiclo, int ciclos) throws IOException {
+        SistemaCadastro.reiniciar();
+        long heapInicial = RelatorioMemoria.heapUsado();
+        long diretaInicial = RelatorioMemoria.memoriaDireta();
+
+        System.out.printf("%5s %-18s %11s %10s %12s %8s %10s %10s %10s %7s%n", "Ciclo", "Etapa", "Itens",
+                          "Tempo (ms)", "Itens/s", "MB/s", "Pico (MB)", "Heap (MB)", "Direta (MB)", "Falhas");
+        for (int ciclo = 1; ciclo <= ciclos; ciclo++) {
+            long desde = (long) (ciclo - 1) * usuariosPorCiclo;
+            carregar(ciclo, desde, usuariosPorCiclo);
+            consultar(ciclo, desde + usuariosPorCiclo);
+            salvar(ciclo);
+        }
+
+        long total = SistemaCadastro.getEstatisticas().getQuantidade();
+        long bytes = RelatorioMemoria.heapUsado() - heapInicial + RelatorioMemoria.memoriaDireta() - diretaInicial;
+        System.out.printf("%nCadastro final: %,d usuários, %.1f bytes/usuário (heap e memória direta após GC)%n",
+                          total, (double) bytes / Math.max(1, total));
+    }
+
+    // ========================================
+    // ETAPAS
+    // ========================================
+
+    /**
+     * Gera os usuários do ciclo e os carrega (ou cadastra, sem arquivo)
+     */
+    private void carregar(int ciclo, final long desde, final int quantidade) throws IOException {
+        if (formato == null) {
+            medir(ciclo, "inserir direto", null, () -> gerador.enviar(desde, quantidade, usuario -> {
+                SistemaCadastro.cadastrar(usuario.getNome(), usuario.getEmail(), usuario.getIdade(), usuario.getCpf());
+                return true;
+            }));
+            return;
+        }
+
+        final Path arquivo = diretorio.resolve("ciclo" + ciclo + "-" + formato.arquivoPadrao);
+        medir(ciclo, "gerar", arquivo, () -> {
+            gerador.gravar(arquivo, formato, desde, quantidade);
+            return quantidade;
+        });
+        medir(ciclo, "carregar", arquivo, () -> {
+            long aceitos = carregarArquivo(arquivo);
+            falhas = quantidade - aceitos;
+            return aceitos;
+        });
+        Files.delete(arquivo);
+    }
+
+    private long carregarArquivo(Path arquivo) throws IOException {
+        switch (formato) {
+            case CSV: {
+                DeduplicacaoCarga deduplicacao =
+                        SistemaCadastro.novaDeduplicacao(arquivo, DeduplicacaoCarga.BYTES_POR_LINHA_CSV);
+                return CarregadorCSV.carregar(arquivo, deduplicacao).adicionados;
+            }
+            case NDJSON: {
+                DeduplicacaoCarga deduplicacao =
+                        SistemaCadastro.novaDeduplicacao(arquivo, DeduplicacaoCarga.BYTES_POR_LINHA_NDJSON);
+                return ArquivoNdjson.importar(arquivo, deduplicacao).adicionados;
+            }
+            case BIN: {
+                final DeduplicacaoCarga deduplicacao =
+                        SistemaCadastro.novaDeduplicacao(arquivo, DeduplicacaoCarga.BYTES_POR_LINHA_CSV);
+                final long[] aceitos = {0};
+                ArquivoColunar.ler(arquivo, usuario -> {
+                    if (deduplicacao.test(usuario)) {
+                        aceitos[0]++;
+                    }
+                });
+                return aceitos[0];
+            }
+            default:
+                throw new AssertionError(formato);
+        }
+    }
+
+    /**
+     * Buscas e consultas sobre usuários sorteados entre os 'total' carregados
+     *
+     * As chaves são geradas antes das medições (o gerador recria qualquer
+     * usuário pelo índice); buscas por email e CPF que não acham o usuário
+     * contam como falhas.
+     */
+    private void consultar(int ciclo, long total) throws IOException {
+        SplittableRandom aleatorio = new SplittableRandom(semente ^ ciclo);
+        final String[] emails = new String[BUSCAS];
+        final String[] cpfs = new String[BUSCAS];
+        final String[] prefixos = new String[BUSCAS];
+        final int[] idades = new int[BUSCAS];
+        for (int i = 0; i < BUSCAS; i++) {
+            Usuario usuario = gerador.usuario(aleatorio.nextLong(total));
+            emails[i] = usuario.getEmail();
+            cpfs[i] = usuario.getCpf();
+            prefixos[i] = usuario.getNome().substring(0, 3);
+            idades[i] = usuario.getIdade();
+        }
+
+        medir(ciclo, "busca email", null, () -> {
+            for (String email : emails) {
+                if (SistemaCadastro.buscarPorEmail(email) == null) {
+                    falhas++;
+                }
+            }
+            return emails.length;
+        });
+        medir(ciclo, "busca cpf", null, () -> {
+            for (String cpf : cpfs) {
+                if (SistemaCadastro.buscarPorCpf(cpf) == null) {
+                    falhas++;
+                }
+            }
+            return cpfs.length;
+        });
+        medir(ciclo, "prefixo nome", null, () -> {
+            int n = BUSCAS / 10;
+            for (int i = 0; i < n; i++) {
+                if (SistemaCadastro.buscarPorPrefixoNome(prefixos[i], LIMITE_RESULTADOS).isEmpty()) {
+                    falhas++;
+                }
+            }
+            return n;
+        });
+        medir(ciclo, "faixa idade", null, () -> {
+            int n = BUSCAS / 10;
+            for (int i = 0; i < n; i++) {
+                if (SistemaCadastro.buscarPorFaixaIdade(idades[i], idades[i] + 4, LIMITE_RESULTADOS).isEmpty()) {
+                    falhas++;
+                }
+            }
+            return n;
+        });
+        medir(ciclo, "consulta agregada", null, () -> {
+            int n = Math.min(AGREGADAS, BUSCAS);
+            for (int i = 0; i < n; i++) {
+                String dominio = emails[i].substring(emails[i].indexOf('@') + 1);
+                Consulta consulta = Consulta.interpretar("dominio=" + dominio + " e idade=" + idades[i]
+                                                         + ".." + (idades[i] + 9) + " agrupar tipo");
+                if (SistemaCadastro.consultar(consulta).getTotal().getQuantidade() == 0) {
+                    falhas++;
+                }
+            }
+            return n;
+        });
+    }
+
+    /**
+     * Grava o cadastro inteiro no formato do teste (binário na inserção direta)
+     */
+    private void salvar(int ciclo) throws IOException {
+        final GeradorUsuarios.Formato destino = formato == null ? GeradorUsuarios.Formato.BIN : formato;
+        final Path arquivo = diretorio.resolve("instantaneo-" + destino.arquivoPadrao);
+        medir(ciclo, "salvar", arquivo, () -> {
+            switch (destino) {
+                case CSV:
+                    SistemaCadastro.salvarTexto(arquivo, SistemaCadastro.getUsuarios());
+                    return SistemaCadastro.getEstatisticas().getQuantidade();
+                case BIN:
+                    ArquivoColunar.gravar(arquivo, SistemaCadastro.getUsuarios());
+                    return SistemaCadastro.getEstatisticas().getQuantidade();
+                case NDJSON:
+                    return ArquivoNdjson.exportar(arquivo, SistemaCadastro::listarDesde);
+                default:
+                    throw new AssertionError(destino);
+            }
+        });
+    }
+
+    // ========================================
+    // MEDIÇÃO
+    // ========================================
+
+    /**
+     * Executa a etapa e imprime a linha dela
+     *
+     * @param arquivo lido ou gravado pela etapa (para MB/s), ou null
+     */
+    private void medir(int ciclo, String nome, Path arquivo, Etapa etapa) throws IOException {
+        for (MemoryPoolMXBean regiao : ManagementFactory.getMemoryPoolMXBeans()) {
+            regiao.resetPeakUsage();
+        }
+        falhas = 0;
+
+        long inicio = System.nanoTime();
+        long itens = etapa.executar();
+        double segundos = (System.nanoTime() - inicio) / 1e9;
+
+        long pico = 0;
+        for (MemoryPoolMXBean regiao : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (regiao.getType() == MemoryType.HEAP) {
+                pico += regiao.getPeakUsage().getUsed();
+            }
+        }
+        double megabytes = arquivo == null ? 0 : Files.size(arquivo) / 1048576.0;
+        long heap = RelatorioMemoria.heapUsado();
+        long direta = RelatorioMemoria.memoriaDireta();
+
+        System.out.printf("%5d %-18s %,11d %10.1f %,12.0f %8s %10.1f %10.1f %10.1f %7d%n",
+                          ciclo, nome, itens, segundos * 1000, itens / segundos,
+                          arquivo == null ? "-" : String.format("%.1f", megabytes / segundos),
+                          pico / 1048576.0, heap / 1048576.0, direta / 1048576.0, falhas);
+    }
+}
@@ -0,0 +1,68 @@
+package cadastro;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Dígitos verificadores e formato do CPF
+ */
+class ValidacaoCadastroTest {
+
+    @Test
+    void aceitaCPFComDigitosCorretos() {
+        assertTrue(ValidacaoCadastro.cpfValido("529.982.247-25"));
+        assertTrue(ValidacaoCadastro.cpfValido("52998224725"));
+        assertTrue(ValidacaoCadastro.cpfValido("111.444.777-35"));
+        assertEquals(52998224725L, ValidacaoCadastro.compactarCPF("529.982.247-25"));
+        // Zeros à esquerda
+        assertEquals(1L * 100 + 91, ValidacaoCadastro.compactarCPF("000.000.001-91"));
+    }
+
+    @Test
+    void recusaDigitoVerificadorErrado() {
+        assertFalse(ValidacaoCadastro.cpfValido("529.982.247-24"));
+        assertFalse(ValidacaoCadastro.cpfValido("529.982.247-15"));
+        assertFalse(ValidacaoCadastro.cpfValido("52998224726"));
+        assertEquals(-1, ValidacaoCadastro.compactarCPF("111.444.777-53"));
+    }
+
+    @Test
+    void recusaDigitosRepetidos() {
+        for (char d = '0'; d <= '9'; d++) {
+            String cpf = new String(new char[11]).replace('\0', d);
+            assertFalse(ValidacaoCadastro.cpfValido(cpf), cpf);
+        }
+    }
+
+    @Test
+    void recusaFormatoInvalido() {
+        assertFalse(ValidacaoCadastro.cpfValido(null));
+        assertFalse(ValidacaoCadastro.cpfValido(""));
+        assertFalse(ValidacaoCadastro.cpfValido("529.982.247-2"));
+        assertFalse(ValidacaoCadastro.cpfValido("529-982-247.25"));
+        assertFalse(ValidacaoCadastro.cpfValido("529.982.24a-25"));
+        assertFalse(ValidacaoCadastro.cpfValido("5299822472"));
+    }
+
+    @Test
+    void completarCPFGeraDigitosQueAValidacaoAceita() {
+        assertEquals(52998224725L, ValidacaoCadastro.completarCPF(529_982_247));
+        assertEquals(191L, ValidacaoCadastro.completarCPF(1));
+        for (long base = 1; base < 1_000_000_000L; base += 7_654_321) {
+            long cpf = ValidacaoCadastro.completarCPF(base);
+            String formatado = ArquivoColunar.formatarCPF(cpf);
+            assertEquals(cpf, ValidacaoCadastro.compactarCPF(formatado), formatado);
+            // Trocar o último dígito invalida o CPF
+            String errado = formatado.substring(0, 13) + (char) ('0' + (formatado.charAt(13) - '0' + 1) % 10);
+            assertFalse(ValidacaoCadastro.cpfValido(errado), errado);
+        }
+    }
+
+    @Test
+    void compactarCPFFormatadoSoConfereOFormato() {
+        assertEquals(52998224724L, ArquivoColunar.compactarCPFFormatado("529.982.247-24"));
+        assertEquals(-1, ArquivoColunar.compactarCPFFormatado("52998224725"));
+        assertEquals("529.982.247-25", ArquivoColunar.formatarCPF(52998224725L));
+    }
+}